@@ -0,0 +1,69 @@
+package com.mapbox.mapboxandroiddemo.examples.labs;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.utils.SymbolBitmapCache;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that the callout cache of {@link SymbolLayerMapillaryActivity} serves the heart that is drawn for the
+ * favourite state, when a callout is toggled and toggled back.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SymbolLayerMapillaryIconCacheTest {
+
+  private static final String TITLE = "Ferry Building";
+  private static final String STYLE = "Beaux-Arts";
+
+  @Test
+  public void calloutCacheKey_differsPerHeart() {
+    assertNotEquals(
+      SymbolLayerMapillaryActivity.calloutCacheKey(TITLE, STYLE, SymbolLayerMapillaryActivity.favouriteIcon(true)),
+      SymbolLayerMapillaryActivity.calloutCacheKey(TITLE, STYLE, SymbolLayerMapillaryActivity.favouriteIcon(false)));
+  }
+
+  @Test
+  public void toggleThenCacheHit_returnsTheIconOfTheState() {
+    SymbolBitmapCache cache = new SymbolBitmapCache(1024 * 1024);
+
+    Bitmap initial = render(cache, false);
+    Bitmap favourite = render(cache, true);
+    Bitmap toggledBack = render(cache, false);
+    Bitmap favouriteAgain = render(cache, true);
+
+    assertNotSame(initial, favourite);
+    assertSame(initial, toggledBack);
+    assertSame(favourite, favouriteAgain);
+    assertEquals(colorOf(R.drawable.ic_favorite_border), toggledBack.getPixel(0, 0));
+    assertEquals(colorOf(R.drawable.ic_favorite), favouriteAgain.getPixel(0, 0));
+  }
+
+  /**
+   * Renders a callout the way toggleFavourite does: looks it up, draws it on a miss and puts it back.
+   */
+  private static Bitmap render(SymbolBitmapCache cache, boolean favourite) {
+    int favouriteIcon = SymbolLayerMapillaryActivity.favouriteIcon(favourite);
+    String cacheKey = SymbolLayerMapillaryActivity.calloutCacheKey(TITLE, STYLE, favouriteIcon);
+    Bitmap bitmap = cache.get(cacheKey);
+    if (bitmap == null) {
+      bitmap = Bitmap.createBitmap(4, 4, Bitmap.Config.ARGB_8888);
+      bitmap.eraseColor(colorOf(favouriteIcon));
+    }
+    cache.put(cacheKey, bitmap);
+    return bitmap;
+  }
+
+  private static int colorOf(int favouriteIcon) {
+    return favouriteIcon == R.drawable.ic_favorite ? Color.RED : Color.WHITE;
+  }
+}
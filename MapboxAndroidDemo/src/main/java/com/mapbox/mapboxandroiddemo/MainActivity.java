@@ -879,6 +879,13 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
     outState.putString("CURRENT_CATEGORY_TOOLBAR_TITLE", categoryTitleForToolbar);
   }
 
+  @Override
+  protected void onStop() {
+    super.onStop();
+    // Upload queued analytics events while the app goes to the background
+    analytics.flush();
+  }
+
   private void checkForFirstTimeOpen() {
     FirstTimeRunChecker firstTimeRunChecker = new FirstTimeRunChecker(this);
     if (firstTimeRunChecker.firstEverOpen()) {
@@ -2,11 +2,14 @@ package com.mapbox.mapboxandroiddemo.examples.dds;
 
 // #-code-snippet: choropleth-json-vector-mix-activity full-java
 
+import android.graphics.Color;
 import android.os.Bundle;
+import android.support.annotation.NonNull;
 import android.support.v7.app.AppCompatActivity;
-import android.util.Log;
+import android.widget.Toast;
 
 import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.utils.DataJoinStyleBuilder;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.maps.MapView;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
@@ -15,19 +18,7 @@ import com.mapbox.mapboxsdk.style.expressions.Expression;
 import com.mapbox.mapboxsdk.style.layers.FillLayer;
 import com.mapbox.mapboxsdk.style.sources.VectorSource;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.Charset;
-
 import static com.mapbox.mapboxsdk.style.expressions.Expression.get;
-import static com.mapbox.mapboxsdk.style.expressions.Expression.match;
-import static com.mapbox.mapboxsdk.style.expressions.Expression.rgba;
-import static com.mapbox.mapboxsdk.style.expressions.Expression.stop;
 import static com.mapbox.mapboxsdk.style.expressions.Expression.toNumber;
 import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.fillColor;
 
@@ -42,9 +33,20 @@ public class ChoroplethJsonVectorMixActivity extends AppCompatActivity implement
   private static final String DATA_MATCH_PROP = "STATE_ID";
   private static final String DATA_STYLE_UNEMPLOYMENT_PROP = "unemployment";
 
+  // Shades of green from low to high unemployment, one per class
+  private static final int[] UNEMPLOYMENT_COLORS = {
+    Color.rgb(0, 36, 0),
+    Color.rgb(0, 73, 0),
+    Color.rgb(0, 109, 0),
+    Color.rgb(0, 146, 0),
+    Color.rgb(0, 182, 0),
+    Color.rgb(0, 219, 0),
+    Color.rgb(0, 255, 0)
+  };
+
   private MapView mapView;
-  private JSONArray statesArray;
-  private StringBuilder sb;
+  private MapboxMap map;
+  private DataJoinStyleBuilder dataJoinStyleBuilder;
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
@@ -63,46 +65,39 @@ public class ChoroplethJsonVectorMixActivity extends AppCompatActivity implement
   }
 
   @Override
-  public void onMapReady(MapboxMap map) {
+  public void onMapReady(MapboxMap mapboxMap) {
+    map = mapboxMap;
 
     // Add Mapbox-hosted vector source for state polygons
     VectorSource vectorSource = new VectorSource(VECTOR_SOURCE_NAME, "mapbox://mapbox.us_census_states_2015");
     map.addSource(vectorSource);
 
-    loadJson();
-
-    try {
-      statesArray = new JSONArray(sb.toString());
-    } catch (Exception exception) {
-      Log.e("JSONVectorMix", "Exception Loading GeoJSON: ", exception);
-    }
-
-    // Create stops array
-    Expression.Stop[] stops = new Expression.Stop[statesArray.length()];
-
-    for (int x = 0; x < statesArray.length(); x++) {
-      try {
-        // Generate green color value for each state/stop
-        JSONObject singleState = statesArray.getJSONObject(x);
-        double green = singleState.getDouble(DATA_STYLE_UNEMPLOYMENT_PROP) / 14 * 255;
-
-        Log.d("Choropleth", "onMapReady: green value = " + String.valueOf(green) + " for x = " + x);
-        // Add new stop to array of stops
-        stops[x] = stop(
-          Double.parseDouble(singleState.getString(DATA_MATCH_PROP)),
-          rgba(0, green, 0, 1)
-        );
+    // Read the JSON data and turn it into a match expression in the background, the map draws meanwhile
+    dataJoinStyleBuilder = new DataJoinStyleBuilder(this);
+    DataJoinStyleBuilder.Join join = new DataJoinStyleBuilder.Join(STATE_UNEMPLOYMENT_INFO_JSON, DATA_MATCH_PROP,
+      DATA_STYLE_UNEMPLOYMENT_PROP, toNumber(get(DATA_MATCH_PROP)))
+      .withNumericKeys()
+      .withClasses(DataJoinStyleBuilder.CLASSIFICATION_QUANTILE, UNEMPLOYMENT_COLORS)
+      .withDefaultColor(Color.BLACK);
+    dataJoinStyleBuilder.build(join, new DataJoinStyleBuilder.OnExpressionBuiltListener() {
+      @Override
+      public void onExpressionBuilt(@NonNull Expression expression) {
+        addStatesJoinLayer(expression);
+      }
 
-      } catch (JSONException exception) {
-        throw new RuntimeException(exception);
+      @Override
+      public void onError(@NonNull String message) {
+        Toast.makeText(ChoroplethJsonVectorMixActivity.this, message, Toast.LENGTH_LONG).show();
       }
-    }
+    });
+  }
 
+  private void addStatesJoinLayer(Expression colorExpression) {
     // Create layer from the vector tile source with data-driven style
     FillLayer statesJoinLayer = new FillLayer("states-join", VECTOR_SOURCE_NAME);
     statesJoinLayer.setSourceLayer(VECTOR_SOURCE_NAME);
     statesJoinLayer.withProperties(
-      fillColor(match(toNumber(get(DATA_MATCH_PROP)), rgba(0, 0, 0, 1), stops))
+      fillColor(colorExpression)
     );
 
     // Add layer to map below the "waterway-label" layer
@@ -142,6 +137,9 @@ public class ChoroplethJsonVectorMixActivity extends AppCompatActivity implement
   @Override
   protected void onDestroy() {
     super.onDestroy();
+    if (dataJoinStyleBuilder != null) {
+      dataJoinStyleBuilder.onDestroy();
+    }
     mapView.onDestroy();
   }
 
@@ -150,22 +148,5 @@ public class ChoroplethJsonVectorMixActivity extends AppCompatActivity implement
     super.onSaveInstanceState(outState);
     mapView.onSaveInstanceState(outState);
   }
-
-  private StringBuilder loadJson() {
-    sb = new StringBuilder();
-    try {
-      // Load GeoJSON file
-      InputStream inputStream = getAssets().open(STATE_UNEMPLOYMENT_INFO_JSON);
-      BufferedReader rd = new BufferedReader(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
-      int cp;
-      while ((cp = rd.read()) != -1) {
-        sb.append((char) cp);
-      }
-      inputStream.close();
-    } catch (Exception exception) {
-      Log.e("JSONVectorMix", "Exception Loading GeoJSON: ", exception);
-    }
-    return sb;
-  }
 }
 // #-end-code-snippet: choropleth-json-vector-mix-activity full-java
\ No newline at end of file
@@ -6,13 +6,13 @@ import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 
 import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.utils.ZoomBandVisibilityController;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.maps.MapView;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
 import com.mapbox.mapboxsdk.maps.OnMapReadyCallback;
 import com.mapbox.mapboxsdk.style.expressions.Expression;
 import com.mapbox.mapboxsdk.style.layers.FillLayer;
-import com.mapbox.mapboxsdk.style.layers.Layer;
 import com.mapbox.mapboxsdk.style.sources.VectorSource;
 
 import static com.mapbox.mapboxsdk.style.expressions.Expression.get;
@@ -21,7 +21,6 @@ import static com.mapbox.mapboxsdk.style.expressions.Expression.rgb;
 import static com.mapbox.mapboxsdk.style.expressions.Expression.step;
 import static com.mapbox.mapboxsdk.style.expressions.Expression.stop;
 import static com.mapbox.mapboxsdk.style.layers.Property.NONE;
-import static com.mapbox.mapboxsdk.style.layers.Property.VISIBLE;
 import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.fillColor;
 import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.fillOpacity;
 import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.visibility;
@@ -32,8 +31,10 @@ import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.visibility;
 public class ChoroplethZoomChangeActivity extends AppCompatActivity {
 
   private static final int ZOOM_THRESHOLD = 4;
+  private static final float ZOOM_HYSTERESIS = 0.1f;
 
   private MapView mapView;
+  private ZoomBandVisibilityController visibilityController;
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
@@ -96,22 +97,10 @@ public class ChoroplethZoomChangeActivity extends AppCompatActivity {
 
         mapboxMap.addLayerBelow(countyPopulationLayer, "waterway-label");
 
-        mapboxMap.addOnCameraMoveListener(new MapboxMap.OnCameraMoveListener() {
-          @Override
-          public void onCameraMove() {
-            Layer stateLayer = mapboxMap.getLayer("state-population");
-            Layer countyLayer = mapboxMap.getLayer("county-population");
-            if (mapboxMap.getCameraPosition().zoom > ZOOM_THRESHOLD) {
-              if (stateLayer != null && countyLayer != null) {
-                countyLayer.setProperties(visibility(VISIBLE));
-              }
-            } else {
-              if (stateLayer != null && countyLayer != null) {
-                countyLayer.setProperties(visibility(NONE));
-              }
-            }
-          }
-        });
+        // Show the county layer above the zoom threshold, only changing it when the threshold is crossed
+        visibilityController = new ZoomBandVisibilityController(mapboxMap, ZOOM_HYSTERESIS);
+        visibilityController.addLayer("county-population", ZOOM_THRESHOLD, Float.POSITIVE_INFINITY);
+        visibilityController.start();
       }
     });
   }
@@ -149,6 +138,9 @@ public class ChoroplethZoomChangeActivity extends AppCompatActivity {
   @Override
   protected void onDestroy() {
     super.onDestroy();
+    if (visibilityController != null) {
+      visibilityController.onDestroy();
+    }
     mapView.onDestroy();
   }
 
@@ -5,21 +5,18 @@ package com.mapbox.mapboxandroiddemo.examples.dds;
 import android.graphics.Color;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
-import android.util.Log;
 
 import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.utils.ClusterSourceController;
+import com.mapbox.mapboxandroiddemo.utils.PointClusterer;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.maps.MapView;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
 import com.mapbox.mapboxsdk.maps.OnMapReadyCallback;
 import com.mapbox.mapboxsdk.style.expressions.Expression;
 import com.mapbox.mapboxsdk.style.layers.CircleLayer;
-import com.mapbox.mapboxsdk.style.sources.GeoJsonOptions;
 import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
 
-import java.net.MalformedURLException;
-import java.net.URL;
-
 import static com.mapbox.mapboxsdk.style.expressions.Expression.get;
 import static com.mapbox.mapboxsdk.style.expressions.Expression.literal;
 import static com.mapbox.mapboxsdk.style.expressions.Expression.toNumber;
@@ -33,6 +30,7 @@ import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.circleRadius;
 public class CreateHotspotsActivity extends AppCompatActivity {
 
   private MapView mapView;
+  private ClusterSourceController clusterSourceController;
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
@@ -88,6 +86,9 @@ public class CreateHotspotsActivity extends AppCompatActivity {
   @Override
   protected void onDestroy() {
     super.onDestroy();
+    if (clusterSourceController != null) {
+      clusterSourceController.onDestroy();
+    }
     mapView.onDestroy();
   }
 
@@ -99,22 +100,13 @@ public class CreateHotspotsActivity extends AppCompatActivity {
 
   private void addClusteredGeoJsonSource(MapboxMap mapboxMap) {
 
-    // Add a new source from our GeoJSON data and set the 'cluster' option to true.
-    try {
-      mapboxMap.addSource(
-        // Point to GeoJSON data. This example visualizes all M1.0+ earthquakes from
-        // 12/22/15 to 1/21/16 as logged by USGS' Earthquake hazards program.
-        new GeoJsonSource("earthquakes",
-          new URL("https://www.mapbox.com/mapbox-gl-js/assets/earthquakes.geojson"),
-          new GeoJsonOptions()
-            .withCluster(true)
-            .withClusterMaxZoom(15) // Max zoom to cluster points on
-            .withClusterRadius(20) // Use small cluster radius for the hotspots look
-        )
-      );
-    } catch (MalformedURLException malformedUrlException) {
-      Log.e("CreateHotspotsActivity", "Check the URL " + malformedUrlException.getMessage());
-    }
+    // Point to GeoJSON data. This example visualizes all M1.0+ earthquakes from
+    // 12/22/15 to 1/21/16 as logged by USGS' Earthquake hazards program.
+    GeoJsonSource source = new GeoJsonSource("earthquakes");
+    mapboxMap.addSource(source);
+    clusterSourceController = new ClusterSourceController(mapboxMap, source,
+      new PointClusterer(0, 15, 20));
+    clusterSourceController.load("https://www.mapbox.com/mapbox-gl-js/assets/earthquakes.geojson");
 
     // Use the earthquakes source to create four layers:
     // three for each cluster category, and one for unclustered points
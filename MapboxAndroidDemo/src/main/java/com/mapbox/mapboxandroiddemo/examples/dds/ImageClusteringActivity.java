@@ -5,23 +5,20 @@ package com.mapbox.mapboxandroiddemo.examples.dds;
 import android.graphics.Color;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
-import android.util.Log;
 import android.widget.Toast;
 
 import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.utils.ClusterSourceController;
+import com.mapbox.mapboxandroiddemo.utils.PointClusterer;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.maps.MapView;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
 import com.mapbox.mapboxsdk.maps.OnMapReadyCallback;
 import com.mapbox.mapboxsdk.style.expressions.Expression;
 import com.mapbox.mapboxsdk.style.layers.SymbolLayer;
-import com.mapbox.mapboxsdk.style.sources.GeoJsonOptions;
 import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
 import com.mapbox.mapboxsdk.utils.BitmapUtils;
 
-import java.net.MalformedURLException;
-import java.net.URL;
-
 import static com.mapbox.mapboxsdk.style.expressions.Expression.all;
 import static com.mapbox.mapboxsdk.style.expressions.Expression.division;
 import static com.mapbox.mapboxsdk.style.expressions.Expression.get;
@@ -47,7 +44,7 @@ public class ImageClusteringActivity extends AppCompatActivity implements OnMapR
 
   private MapView mapView;
   private MapboxMap mapboxMap;
-
+  private ClusterSourceController clusterSourceController;
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
@@ -108,6 +105,9 @@ public class ImageClusteringActivity extends AppCompatActivity implements OnMapR
   @Override
   protected void onDestroy() {
     super.onDestroy();
+    if (clusterSourceController != null) {
+      clusterSourceController.onDestroy();
+    }
     mapView.onDestroy();
   }
 
@@ -125,22 +125,13 @@ public class ImageClusteringActivity extends AppCompatActivity implements OnMapR
   }
 
   private void addClusteredGeoJsonSource() {
-    // Add a new source from the GeoJSON data and set the 'cluster' option to true.
-    try {
-      mapboxMap.addSource(
-        // Point to GeoJSON data. This example visualizes all M1.0+ earthquakes from
-        // 12/22/15 to 1/21/16 as logged by USGS' Earthquake hazards program.
-        new GeoJsonSource("earthquakes",
-          new URL("https://www.mapbox.com/mapbox-gl-js/assets/earthquakes.geojson"),
-          new GeoJsonOptions()
-            .withCluster(true)
-            .withClusterMaxZoom(14)
-            .withClusterRadius(50)
-        )
-      );
-    } catch (MalformedURLException malformedUrlException) {
-      Log.e("dataClusterActivity", "Check the URL " + malformedUrlException.getMessage());
-    }
+    // Point to GeoJSON data. This example visualizes all M1.0+ earthquakes from
+    // 12/22/15 to 1/21/16 as logged by USGS' Earthquake hazards program.
+    GeoJsonSource source = new GeoJsonSource("earthquakes");
+    mapboxMap.addSource(source);
+    clusterSourceController = new ClusterSourceController(mapboxMap, source,
+      new PointClusterer(0, 14, 50));
+    clusterSourceController.load("https://www.mapbox.com/mapbox-gl-js/assets/earthquakes.geojson");
 
     //Creating a SymbolLayer icon layer for single data/icon points
     SymbolLayer unclustered = new SymbolLayer("unclustered-points", "earthquakes");
@@ -2,11 +2,8 @@ package com.mapbox.mapboxandroiddemo.examples.dds;
 
 // #-code-snippet: info-window-symbol-layer-activity full-java
 
-import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.graphics.Canvas;
-import android.graphics.Color;
 import android.graphics.PointF;
 import android.os.AsyncTask;
 import android.os.Bundle;
@@ -20,6 +17,9 @@ import android.widget.Toast;
 import com.mapbox.geojson.Feature;
 import com.mapbox.geojson.FeatureCollection;
 import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.commons.GeoJsonAssetReader;
+import com.mapbox.mapboxandroiddemo.utils.HotColdFeatureStore;
+import com.mapbox.mapboxandroiddemo.utils.SymbolGenerator;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.annotations.BubbleLayout;
 import com.mapbox.mapboxsdk.geometry.LatLng;
@@ -29,7 +29,6 @@ import com.mapbox.mapboxsdk.maps.OnMapReadyCallback;
 import com.mapbox.mapboxsdk.style.layers.SymbolLayer;
 import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
 
-import java.io.InputStream;
 import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.List;
@@ -59,7 +58,8 @@ public class InfoWindowSymbolLayerActivity extends AppCompatActivity implements
   private MapView mapView;
   private MapboxMap mapboxMap;
   private String geojsonSourceId = "geojsonSourceId";
-  private GeoJsonSource source;
+  private String selectedGeojsonSourceId = "selectedGeojsonSourceId";
+  private HotColdFeatureStore featureStore;
   private FeatureCollection featureCollection;
   private HashMap<String, View> viewMap;
 
@@ -109,11 +109,21 @@ public class InfoWindowSymbolLayerActivity extends AppCompatActivity implements
   }
 
   /**
-   * Adds the GeoJSON source to the map
+   * Adds the GeoJSON sources to the map. Selected features are also kept in a second, small source,
+   * so that selecting a feature doesn't update the source holding all features.
    */
   private void setupSource() {
-    source = new GeoJsonSource(geojsonSourceId, featureCollection);
+    GeoJsonSource source = new GeoJsonSource(geojsonSourceId);
     mapboxMap.addSource(source);
+    GeoJsonSource selectedSource = new GeoJsonSource(selectedGeojsonSourceId);
+    mapboxMap.addSource(selectedSource);
+    featureStore = new HotColdFeatureStore(source, selectedSource, featureCollection.features(),
+      new HotColdFeatureStore.HotPredicate() {
+        @Override
+        public boolean isHot(@NonNull Feature feature) {
+          return feature.getBooleanProperty(PROPERTY_SELECTED);
+        }
+      });
   }
 
   /**
@@ -129,8 +139,19 @@ public class InfoWindowSymbolLayerActivity extends AppCompatActivity implements
    * Updates the display of data on the map after the FeatureCollection has been modified
    */
   private void refreshSource() {
-    if (source != null && featureCollection != null) {
-      source.setGeoJson(featureCollection);
+    if (featureStore != null) {
+      featureStore.markAllDirty();
+    }
+  }
+
+  /**
+   * Updates the display of a single Feature after its properties have been modified
+   *
+   * @param feature the modified Feature
+   */
+  private void refreshFeature(Feature feature) {
+    if (featureStore != null) {
+      featureStore.markDirty(feature);
     }
   }
 
@@ -152,7 +173,7 @@ public class InfoWindowSymbolLayerActivity extends AppCompatActivity implements
    * </p>
    */
   private void setUpInfoWindowLayer() {
-    mapboxMap.addLayer(new SymbolLayer(CALLOUT_LAYER_ID, geojsonSourceId)
+    mapboxMap.addLayer(new SymbolLayer(CALLOUT_LAYER_ID, selectedGeojsonSourceId)
       .withProperties(
         /* show image with id title based on the value of the name feature property */
         iconImage("{name}"),
@@ -203,7 +224,6 @@ public class InfoWindowSymbolLayerActivity extends AppCompatActivity implements
   private void setSelected(int index) {
     Feature feature = featureCollection.features().get(index);
     setFeatureSelectState(feature, true);
-    refreshSource();
   }
 
   /**
@@ -213,7 +233,7 @@ public class InfoWindowSymbolLayerActivity extends AppCompatActivity implements
    */
   private void setFeatureSelectState(Feature feature, boolean selectedState) {
     feature.properties().addProperty(PROPERTY_SELECTED, selectedState);
-    refreshSource();
+    refreshFeature(feature);
   }
 
   /**
@@ -260,8 +280,7 @@ public class InfoWindowSymbolLayerActivity extends AppCompatActivity implements
         return null;
       }
 
-      String geoJson = loadGeoJsonFromAsset(activity, "us_west_coast.geojson");
-      return FeatureCollection.fromJson(geoJson);
+      return GeoJsonAssetReader.loadFeatureCollection(activity, "us_west_coast.geojson");
     }
 
     @Override
@@ -282,20 +301,6 @@ public class InfoWindowSymbolLayerActivity extends AppCompatActivity implements
       activity.setUpData(featureCollection);
       new GenerateViewIconTask(activity).execute(featureCollection);
     }
-
-    static String loadGeoJsonFromAsset(Context context, String filename) {
-      try {
-        // Load GeoJSON file from local asset folder
-        InputStream is = context.getAssets().open(filename);
-        int size = is.available();
-        byte[] buffer = new byte[size];
-        is.read(buffer);
-        is.close();
-        return new String(buffer, "UTF-8");
-      } catch (Exception exception) {
-        throw new RuntimeException(exception);
-      }
-    }
   }
 
   /**
@@ -378,36 +383,6 @@ public class InfoWindowSymbolLayerActivity extends AppCompatActivity implements
     }
   }
 
-  /**
-   * Utility class to generate Bitmaps for Symbol.
-   * <p>
-   * Bitmaps can be added to the map with {@link com.mapbox.mapboxsdk.maps.MapboxMap#addImage(String, Bitmap)}
-   * </p>
-   */
-  private static class SymbolGenerator {
-
-    /**
-     * Generate a Bitmap from an Android SDK View.
-     *
-     * @param view the View to be drawn to a Bitmap
-     * @return the generated bitmap
-     */
-    static Bitmap generate(@NonNull View view) {
-      int measureSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
-      view.measure(measureSpec, measureSpec);
-
-      int measuredWidth = view.getMeasuredWidth();
-      int measuredHeight = view.getMeasuredHeight();
-
-      view.layout(0, 0, measuredWidth, measuredHeight);
-      Bitmap bitmap = Bitmap.createBitmap(measuredWidth, measuredHeight, Bitmap.Config.ARGB_8888);
-      bitmap.eraseColor(Color.TRANSPARENT);
-      Canvas canvas = new Canvas(bitmap);
-      view.draw(canvas);
-      return bitmap;
-    }
-  }
-
   @Override
   protected void onStart() {
     super.onStart();
@@ -450,6 +425,9 @@ public class InfoWindowSymbolLayerActivity extends AppCompatActivity implements
     if (mapboxMap != null) {
       mapboxMap.removeOnMapClickListener(this);
     }
+    if (featureStore != null) {
+      featureStore.onDestroy();
+    }
     mapView.onDestroy();
   }
 }
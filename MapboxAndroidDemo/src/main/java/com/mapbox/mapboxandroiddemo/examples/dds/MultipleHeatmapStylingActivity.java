@@ -3,11 +3,14 @@ package com.mapbox.mapboxandroiddemo.examples.dds;
 // #-code-snippet: multiple-heatmap-styling-activity full-java
 
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.support.v7.app.AppCompatActivity;
 import android.util.Log;
 import android.view.View;
 
 import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.commons.GeoJsonAssetReader;
+import com.mapbox.mapboxandroiddemo.utils.HeatmapPresetRegistry;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.camera.CameraPosition;
 import com.mapbox.mapboxsdk.camera.CameraUpdateFactory;
@@ -15,39 +18,31 @@ import com.mapbox.mapboxsdk.geometry.LatLng;
 import com.mapbox.mapboxsdk.maps.MapView;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
 import com.mapbox.mapboxsdk.maps.OnMapReadyCallback;
-import com.mapbox.mapboxsdk.style.expressions.Expression;
 import com.mapbox.mapboxsdk.style.layers.HeatmapLayer;
+import com.mapbox.mapboxsdk.style.layers.Layer;
 import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
 
-import java.io.InputStream;
-
-import static com.mapbox.mapboxsdk.style.expressions.Expression.heatmapDensity;
-import static com.mapbox.mapboxsdk.style.expressions.Expression.interpolate;
-import static com.mapbox.mapboxsdk.style.expressions.Expression.linear;
-import static com.mapbox.mapboxsdk.style.expressions.Expression.literal;
-import static com.mapbox.mapboxsdk.style.expressions.Expression.rgb;
-import static com.mapbox.mapboxsdk.style.expressions.Expression.rgba;
-import static com.mapbox.mapboxsdk.style.expressions.Expression.zoom;
-import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.heatmapColor;
-import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.heatmapIntensity;
 import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.heatmapOpacity;
-import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.heatmapRadius;
 
 public class MultipleHeatmapStylingActivity extends AppCompatActivity
   implements OnMapReadyCallback {
 
   private static final String HEATMAP_SOURCE_ID = "HEATMAP_SOURCE_ID";
   private static final String HEATMAP_LAYER_ID = "HEATMAP_LAYER_ID";
+  private static final String TAG = "MultipleHeatmapStyling";
+
+  // Kept across activity instances, presets are only compiled the first time they are shown
+  private static HeatmapPresetRegistry presetRegistry;
+
   private MapView mapView;
   private MapboxMap mapboxMap;
-  private Expression[] listOfHeatmapColors;
-  private Expression[] listOfHeatmapRadiusStops;
-  private Float[] listOfHeatmapIntensityStops;
   private int index;
+  private long createTime;
 
   @Override
   public void onCreate(Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
+    createTime = SystemClock.elapsedRealtime();
     index = 0;
     // Mapbox access token is configured here. This needs to be called either in your application
     // object or in the same activity which contains the mapview.
@@ -68,23 +63,15 @@ public class MultipleHeatmapStylingActivity extends AppCompatActivity
     mapboxMap.animateCamera(
       CameraUpdateFactory.newCameraPosition(cameraPositionForFragmentMap), 2600);
     addHeatmapDataSource();
-    initHeatmapColors();
-    initHeatmapRadiusStops();
-    initHeatmapIntensityStops();
     addHeatmapLayer();
+    Log.d(TAG, "Heatmap added " + (SystemClock.elapsedRealtime() - createTime) + " ms after onCreate");
     findViewById(R.id.switch_heatmap_style_fab).setOnClickListener(new View.OnClickListener() {
       @Override
       public void onClick(View view) {
-        index++;
-        if (index == listOfHeatmapColors.length - 1) {
-          index = 0;
-        }
-        if (mapboxMap.getLayer(HEATMAP_LAYER_ID) != null) {
-          mapboxMap.getLayer(HEATMAP_LAYER_ID).setProperties(
-            heatmapColor(listOfHeatmapColors[index]),
-            heatmapRadius(listOfHeatmapRadiusStops[index]),
-            heatmapIntensity(listOfHeatmapIntensityStops[index])
-          );
+        index = (index + 1) % getPresetRegistry().size();
+        Layer layer = mapboxMap.getLayer(HEATMAP_LAYER_ID);
+        if (layer != null) {
+          getPresetRegistry().apply(layer, index);
         }
       }
     });
@@ -92,7 +79,7 @@ public class MultipleHeatmapStylingActivity extends AppCompatActivity
 
   private void addHeatmapDataSource() {
     mapboxMap.addSource(new GeoJsonSource(HEATMAP_SOURCE_ID,
-      loadGeoJsonFromAsset("la_heatmap_styling_points.geojson")));
+      GeoJsonAssetReader.loadFeatureCollection(this, "la_heatmap_styling_points.geojson")));
   }
 
   private void addHeatmapLayer() {
@@ -102,21 +89,10 @@ public class MultipleHeatmapStylingActivity extends AppCompatActivity
     // Heatmap layer disappears at whatever zoom level is set as the maximum
     layer.setMaxZoom(18);
 
-    layer.setProperties(
-      // Color ramp for heatmap.  Domain is 0 (low) to 1 (high).
-      // Begin color ramp at 0-stop with a 0-transparency color to create a blur-like effect.
-      heatmapColor(listOfHeatmapColors[index]),
-
-      // Increase the heatmap color weight weight by zoom level
-      // heatmap-intensity is a multiplier on top of heatmap-weight
-      heatmapIntensity(listOfHeatmapIntensityStops[index]),
-
-      // Adjust the heatmap radius by zoom level
-      heatmapRadius(listOfHeatmapRadiusStops[index]
-      ),
-
-      heatmapOpacity(1f)
-    );
+    // The preset sets the color ramp, the radius by zoom level and the intensity, a multiplier on top of
+    // heatmap-weight
+    getPresetRegistry().apply(layer, index);
+    layer.setProperties(heatmapOpacity(1f));
 
     // Add the heatmap layer to the map and above the "water-label" layer
     mapboxMap.addLayerAbove(layer, "waterway-label");
@@ -161,271 +137,148 @@ public class MultipleHeatmapStylingActivity extends AppCompatActivity
   @Override
   public void onDestroy() {
     super.onDestroy();
+    if (presetRegistry != null) {
+      presetRegistry.logMetrics();
+    }
     mapView.onDestroy();
   }
 
-  private void initHeatmapColors() {
-    listOfHeatmapColors = new Expression[] {
-      // 0
-      interpolate(
-        linear(), heatmapDensity(),
-        literal(0.01), rgba(0, 0, 0, 0.01),
-        literal(0.25), rgba(224, 176, 63, 0.5),
-        literal(0.5), rgb(247, 252, 84),
-        literal(0.75), rgb(186, 59, 30),
-        literal(0.9), rgb(255, 0, 0)
-      ),
-      // 1
-      interpolate(
-        linear(), heatmapDensity(),
-        literal(0.01), rgba(255, 255, 255, 0.4),
-        literal(0.25), rgba(4, 179, 183, 1.0),
-        literal(0.5), rgba(204, 211, 61, 1.0),
-        literal(0.75), rgba(252, 167, 55, 1.0),
-        literal(1), rgba(255, 78, 70, 1.0)
-      ),
-      // 2
-      interpolate(
-        linear(), heatmapDensity(),
-        literal(0.01), rgba(12, 182, 253, 0.0),
-        literal(0.25), rgba(87, 17, 229, 0.5),
-        literal(0.5), rgba(255, 0, 0, 1.0),
-        literal(0.75), rgba(229, 134, 15, 0.5),
-        literal(1), rgba(230, 255, 55, 0.6)
-      ),
-      // 3
-      interpolate(
-        linear(), heatmapDensity(),
-        literal(0.01), rgba(135, 255, 135, 0.2),
-        literal(0.5), rgba(255, 99, 0, 0.5),
-        literal(1), rgba(47, 21, 197, 0.2)
-      ),
-      // 4
-      interpolate(
-        linear(), heatmapDensity(),
-        literal(0.01), rgba(4, 0, 0, 0.2),
-        literal(0.25), rgba(229, 12, 1, 1.0),
-        literal(0.30), rgba(244, 114, 1, 1.0),
-        literal(0.40), rgba(255, 205, 12, 1.0),
-        literal(0.50), rgba(255, 229, 121, 1.0),
-        literal(1), rgba(255, 253, 244, 1.0)
-      ),
-      // 5
-      interpolate(
-        linear(), heatmapDensity(),
-        literal(0.01), rgba(0, 0, 0, 0.01),
-        literal(0.05), rgba(0, 0, 0, 0.05),
-        literal(0.4), rgba(254, 142, 2, 0.7),
-        literal(0.5), rgba(255, 165, 5, 0.8),
-        literal(0.8), rgba(255, 187, 4, 0.9),
-        literal(0.95), rgba(255, 228, 173, 0.8),
-        literal(1), rgba(255, 253, 244, .8)
-      ),
-      //6
-      interpolate(
-        linear(), heatmapDensity(),
-        literal(0.01), rgba(0, 0, 0, 0.01),
-        literal(0.3), rgba(82, 72, 151, 0.4),
-        literal(0.4), rgba(138, 202, 160, 1.0),
-        literal(0.5), rgba(246, 139, 76, 0.9),
-        literal(0.9), rgba(252, 246, 182, 0.8),
-        literal(1), rgba(255, 255, 255, 0.8)
-      ),
-
-      //7
-      interpolate(
-        linear(), heatmapDensity(),
-        literal(0.01), rgba(0, 0, 0, 0.01),
-        literal(0.1), rgba(0, 2, 114, .1),
-        literal(0.2), rgba(0, 6, 219, .15),
-        literal(0.3), rgba(0, 74, 255, .2),
-        literal(0.4), rgba(0, 202, 255, .25),
-        literal(0.5), rgba(73, 255, 154, .3),
-        literal(0.6), rgba(171, 255, 59, .35),
-        literal(0.7), rgba(255, 197, 3, .4),
-        literal(0.8), rgba(255, 82, 1, 0.7),
-        literal(0.9), rgba(196, 0, 1, 0.8),
-        literal(0.95), rgba(121, 0, 0, 0.8)
-      ),
-      // 8
-      interpolate(
-        linear(), heatmapDensity(),
-        literal(0.01), rgba(0, 0, 0, 0.01),
-        literal(0.1), rgba(0, 2, 114, .1),
-        literal(0.2), rgba(0, 6, 219, .15),
-        literal(0.3), rgba(0, 74, 255, .2),
-        literal(0.4), rgba(0, 202, 255, .25),
-        literal(0.5), rgba(73, 255, 154, .3),
-        literal(0.6), rgba(171, 255, 59, .35),
-        literal(0.7), rgba(255, 197, 3, .4),
-        literal(0.8), rgba(255, 82, 1, 0.7),
-        literal(0.9), rgba(196, 0, 1, 0.8),
-        literal(0.95), rgba(121, 0, 0, 0.8)
-      ),
-      // 9
-      interpolate(
-        linear(), heatmapDensity(),
-        literal(0.01), rgba(0, 0, 0, 0.01),
-        literal(0.1), rgba(0, 2, 114, .1),
-        literal(0.2), rgba(0, 6, 219, .15),
-        literal(0.3), rgba(0, 74, 255, .2),
-        literal(0.4), rgba(0, 202, 255, .25),
-        literal(0.5), rgba(73, 255, 154, .3),
-        literal(0.6), rgba(171, 255, 59, .35),
-        literal(0.7), rgba(255, 197, 3, .4),
-        literal(0.8), rgba(255, 82, 1, 0.7),
-        literal(0.9), rgba(196, 0, 1, 0.8),
-        literal(0.95), rgba(121, 0, 0, 0.8)
-      ),
-      // 10
-      interpolate(
-        linear(), heatmapDensity(),
-        literal(0.01), rgba(0, 0, 0, 0.01),
-        literal(0.1), rgba(0, 2, 114, .1),
-        literal(0.2), rgba(0, 6, 219, .15),
-        literal(0.3), rgba(0, 74, 255, .2),
-        literal(0.4), rgba(0, 202, 255, .25),
-        literal(0.5), rgba(73, 255, 154, .3),
-        literal(0.6), rgba(171, 255, 59, .35),
-        literal(0.7), rgba(255, 197, 3, .4),
-        literal(0.8), rgba(255, 82, 1, 0.7),
-        literal(0.9), rgba(196, 0, 1, 0.8),
-        literal(0.95), rgba(121, 0, 0, 0.8)
-      ),
-      // 11
-      interpolate(
-        linear(), heatmapDensity(),
-        literal(0.01), rgba(0, 0, 0, 0.25),
-        literal(0.25), rgba(229, 12, 1, .7),
-        literal(0.30), rgba(244, 114, 1, .7),
-        literal(0.40), rgba(255, 205, 12, .7),
-        literal(0.50), rgba(255, 229, 121, .8),
-        literal(1), rgba(255, 253, 244, .8)
-      )
-    };
-  }
-
-  private void initHeatmapRadiusStops() {
-    listOfHeatmapRadiusStops = new Expression[] {
-      // 0
-      interpolate(
-        linear(), zoom(),
-        literal(6), literal(50),
-        literal(20), literal(100)
-      ),
-      // 1
-      interpolate(
-        linear(), zoom(),
-        literal(12), literal(70),
-        literal(20), literal(100)
-      ),
-      // 2
-      interpolate(
-        linear(), zoom(),
-        literal(1), literal(7),
-        literal(5), literal(50)
-      ),
-      // 3
-      interpolate(
-        linear(), zoom(),
-        literal(1), literal(7),
-        literal(5), literal(50)
-      ),
-      // 4
-      interpolate(
-        linear(), zoom(),
-        literal(1), literal(7),
-        literal(5), literal(50)
-      ),
-      // 5
-      interpolate(
-        linear(), zoom(),
-        literal(1), literal(7),
-        literal(15), literal(200)
-      ),
-      // 6
-      interpolate(
-        linear(), zoom(),
-        literal(1), literal(10),
-        literal(8), literal(70)
-      ),
-      // 7
-      interpolate(
-        linear(), zoom(),
-        literal(1), literal(10),
-        literal(8), literal(200)
-      ),
-      // 8
-      interpolate(
-        linear(), zoom(),
-        literal(1), literal(10),
-        literal(8), literal(200)
-      ),
-      // 9
-      interpolate(
-        linear(), zoom(),
-        literal(1), literal(10),
-        literal(8), literal(200)
-      ),
-      // 10
-      interpolate(
-        linear(), zoom(),
-        literal(1), literal(10),
-        literal(8), literal(200)
-      ),
-      // 11
-      interpolate(
-        linear(), zoom(),
-        literal(1), literal(10),
-        literal(8), literal(200)
-      ),
-    };
-  }
-
-  private void initHeatmapIntensityStops() {
-    listOfHeatmapIntensityStops = new Float[] {
-      // 0
-      0.6f,
-      // 1
-      0.3f,
-      // 2
-      1f,
-      // 3
-      1f,
-      // 4
-      1f,
-      // 5
-      1f,
-      // 6
-      1.5f,
-      // 7
-      0.8f,
-      // 8
-      0.25f,
-      // 9
-      0.8f,
-      // 10
-      0.25f,
-      // 11
-      0.5f
-    };
+  private static HeatmapPresetRegistry getPresetRegistry() {
+    if (presetRegistry == null) {
+      presetRegistry = createPresetRegistry();
+    }
+    return presetRegistry;
   }
 
-  private String loadGeoJsonFromAsset(String filename) {
-    try {
-      // Load GeoJSON file
-      InputStream is = getAssets().open(filename);
-      int size = is.available();
-      byte[] buffer = new byte[size];
-      is.read(buffer);
-      is.close();
-      return new String(buffer, "UTF-8");
-
-    } catch (Exception exception) {
-      Log.e("MultipleHeatmapStyling", "Exception loading GeoJSON: " + exception.toString());
-      exception.printStackTrace();
-      return null;
-    }
+  private static HeatmapPresetRegistry createPresetRegistry() {
+    // Every preset is a color ramp over the heatmap density, from 0 (low) to 1 (high), as groups of density,
+    // red, green, blue and alpha, then the radius as pairs of zoom level and pixels, then the intensity.
+    // Color ramps begin with a nearly transparent color to create a blur-like effect.
+    HeatmapPresetRegistry registry = new HeatmapPresetRegistry();
+    // 0
+    registry.register(new double[] {
+      0.01, 0, 0, 0, 0.01,
+      0.25, 224, 176, 63, 0.5,
+      0.5, 247, 252, 84, 1,
+      0.75, 186, 59, 30, 1,
+      0.9, 255, 0, 0, 1
+    }, new double[] {6, 50, 20, 100}, 0.6f);
+    // 1
+    registry.register(new double[] {
+      0.01, 255, 255, 255, 0.4,
+      0.25, 4, 179, 183, 1.0,
+      0.5, 204, 211, 61, 1.0,
+      0.75, 252, 167, 55, 1.0,
+      1, 255, 78, 70, 1.0
+    }, new double[] {12, 70, 20, 100}, 0.3f);
+    // 2
+    registry.register(new double[] {
+      0.01, 12, 182, 253, 0.0,
+      0.25, 87, 17, 229, 0.5,
+      0.5, 255, 0, 0, 1.0,
+      0.75, 229, 134, 15, 0.5,
+      1, 230, 255, 55, 0.6
+    }, new double[] {1, 7, 5, 50}, 1f);
+    // 3
+    registry.register(new double[] {
+      0.01, 135, 255, 135, 0.2,
+      0.5, 255, 99, 0, 0.5,
+      1, 47, 21, 197, 0.2
+    }, new double[] {1, 7, 5, 50}, 1f);
+    // 4
+    registry.register(new double[] {
+      0.01, 4, 0, 0, 0.2,
+      0.25, 229, 12, 1, 1.0,
+      0.30, 244, 114, 1, 1.0,
+      0.40, 255, 205, 12, 1.0,
+      0.50, 255, 229, 121, 1.0,
+      1, 255, 253, 244, 1.0
+    }, new double[] {1, 7, 5, 50}, 1f);
+    // 5
+    registry.register(new double[] {
+      0.01, 0, 0, 0, 0.01,
+      0.05, 0, 0, 0, 0.05,
+      0.4, 254, 142, 2, 0.7,
+      0.5, 255, 165, 5, 0.8,
+      0.8, 255, 187, 4, 0.9,
+      0.95, 255, 228, 173, 0.8,
+      1, 255, 253, 244, 0.8
+    }, new double[] {1, 7, 15, 200}, 1f);
+    // 6
+    registry.register(new double[] {
+      0.01, 0, 0, 0, 0.01,
+      0.3, 82, 72, 151, 0.4,
+      0.4, 138, 202, 160, 1.0,
+      0.5, 246, 139, 76, 0.9,
+      0.9, 252, 246, 182, 0.8,
+      1, 255, 255, 255, 0.8
+    }, new double[] {1, 10, 8, 70}, 1.5f);
+    // 7
+    registry.register(new double[] {
+      0.01, 0, 0, 0, 0.01,
+      0.1, 0, 2, 114, 0.1,
+      0.2, 0, 6, 219, 0.15,
+      0.3, 0, 74, 255, 0.2,
+      0.4, 0, 202, 255, 0.25,
+      0.5, 73, 255, 154, 0.3,
+      0.6, 171, 255, 59, 0.35,
+      0.7, 255, 197, 3, 0.4,
+      0.8, 255, 82, 1, 0.7,
+      0.9, 196, 0, 1, 0.8,
+      0.95, 121, 0, 0, 0.8
+    }, new double[] {1, 10, 8, 200}, 0.8f);
+    // 8
+    registry.register(new double[] {
+      0.01, 0, 0, 0, 0.01,
+      0.1, 0, 2, 114, 0.1,
+      0.2, 0, 6, 219, 0.15,
+      0.3, 0, 74, 255, 0.2,
+      0.4, 0, 202, 255, 0.25,
+      0.5, 73, 255, 154, 0.3,
+      0.6, 171, 255, 59, 0.35,
+      0.7, 255, 197, 3, 0.4,
+      0.8, 255, 82, 1, 0.7,
+      0.9, 196, 0, 1, 0.8,
+      0.95, 121, 0, 0, 0.8
+    }, new double[] {1, 10, 8, 200}, 0.25f);
+    // 9
+    registry.register(new double[] {
+      0.01, 0, 0, 0, 0.01,
+      0.1, 0, 2, 114, 0.1,
+      0.2, 0, 6, 219, 0.15,
+      0.3, 0, 74, 255, 0.2,
+      0.4, 0, 202, 255, 0.25,
+      0.5, 73, 255, 154, 0.3,
+      0.6, 171, 255, 59, 0.35,
+      0.7, 255, 197, 3, 0.4,
+      0.8, 255, 82, 1, 0.7,
+      0.9, 196, 0, 1, 0.8,
+      0.95, 121, 0, 0, 0.8
+    }, new double[] {1, 10, 8, 200}, 0.8f);
+    // 10
+    registry.register(new double[] {
+      0.01, 0, 0, 0, 0.01,
+      0.1, 0, 2, 114, 0.1,
+      0.2, 0, 6, 219, 0.15,
+      0.3, 0, 74, 255, 0.2,
+      0.4, 0, 202, 255, 0.25,
+      0.5, 73, 255, 154, 0.3,
+      0.6, 171, 255, 59, 0.35,
+      0.7, 255, 197, 3, 0.4,
+      0.8, 255, 82, 1, 0.7,
+      0.9, 196, 0, 1, 0.8,
+      0.95, 121, 0, 0, 0.8
+    }, new double[] {1, 10, 8, 200}, 0.25f);
+    // 11
+    registry.register(new double[] {
+      0.01, 0, 0, 0, 0.25,
+      0.25, 229, 12, 1, 0.7,
+      0.30, 244, 114, 1, 0.7,
+      0.40, 255, 205, 12, 0.7,
+      0.50, 255, 229, 121, 0.8,
+      1, 255, 253, 244, 0.8
+    }, new double[] {1, 10, 8, 200}, 0.5f);
+    return registry;
   }
 }
 // #-end-code-snippet: multiple-heatmap-styling-activity full-java
\ No newline at end of file
@@ -4,9 +4,9 @@ package com.mapbox.mapboxandroiddemo.examples.dds;
 
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
-import android.util.Log;
 
 import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.commons.GeoJsonAssetReader;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.maps.MapView;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
@@ -16,8 +16,6 @@ import com.mapbox.mapboxsdk.style.layers.Property;
 import com.mapbox.mapboxsdk.style.layers.PropertyFactory;
 import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
 
-import java.io.InputStream;
-
 import static com.mapbox.mapboxsdk.style.expressions.Expression.get;
 import static com.mapbox.mapboxsdk.style.expressions.Expression.match;
 import static com.mapbox.mapboxsdk.style.expressions.Expression.rgb;
@@ -50,7 +48,9 @@ public class StyleLineIdentityPropertyActivity extends AppCompatActivity {
 
         // Retrieve GeoJSON from local file and add it to the map
 
-        GeoJsonSource linesSource = new GeoJsonSource("lines", loadGeoJsonFromAsset("golden_gate_lines.geojson"));
+        GeoJsonSource linesSource = new GeoJsonSource("lines",
+          GeoJsonAssetReader.loadFeatureCollection(StyleLineIdentityPropertyActivity.this,
+            "golden_gate_lines.geojson"));
 
         mapboxMap.addSource(linesSource);
 
@@ -113,24 +113,5 @@ public class StyleLineIdentityPropertyActivity extends AppCompatActivity {
     super.onSaveInstanceState(outState);
     mapView.onSaveInstanceState(outState);
   }
-
-  private String loadGeoJsonFromAsset(String filename) {
-
-    try {
-      // Load GeoJSON file
-      InputStream is = getAssets().open(filename);
-      int size = is.available();
-      byte[] buffer = new byte[size];
-      is.read(buffer);
-      is.close();
-      return new String(buffer, "UTF-8");
-
-    } catch (Exception exception) {
-      Log.e("StyleLineActivity", "Exception Loading GeoJSON: " + exception.toString());
-      exception.printStackTrace();
-      return null;
-    }
-
-  }
 }
 // #-end-code-snippet: style-line-identity-property-activity full-java
\ No newline at end of file
@@ -4,6 +4,7 @@ package com.mapbox.mapboxandroiddemo.examples.javaservices;
 
 import android.graphics.Color;
 import android.os.Bundle;
+import android.support.annotation.Nullable;
 import android.support.v7.app.AppCompatActivity;
 import android.util.Log;
 import android.widget.Toast;
@@ -15,6 +16,7 @@ import com.mapbox.api.directions.v5.models.DirectionsRoute;
 import com.mapbox.geojson.LineString;
 import com.mapbox.geojson.Point;
 import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.utils.RouteResultStore;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.annotations.MarkerOptions;
 import com.mapbox.mapboxsdk.annotations.PolylineOptions;
@@ -23,6 +25,7 @@ import com.mapbox.mapboxsdk.maps.MapView;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
 import com.mapbox.mapboxsdk.maps.OnMapReadyCallback;
 
+import java.util.Arrays;
 import java.util.List;
 
 import retrofit2.Call;
@@ -42,6 +45,7 @@ public class DirectionsActivity extends AppCompatActivity {
   private MapboxMap map;
   private DirectionsRoute currentRoute;
   private MapboxDirections client;
+  private RouteResultStore routeStore;
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
@@ -54,6 +58,8 @@ public class DirectionsActivity extends AppCompatActivity {
     // This contains the MapView in XML and needs to be called after the access token is configured.
     setContentView(R.layout.activity_javaservices_directions);
 
+    routeStore = RouteResultStore.getInstance(this);
+
     // Alhambra landmark in Granada, Spain.
     final Point origin = Point.fromLngLat(-3.588098, 37.176164);
 
@@ -85,8 +91,23 @@ public class DirectionsActivity extends AppCompatActivity {
     });
   }
 
-  private void getRoute(Point origin, Point destination) {
+  private void getRoute(final Point origin, final Point destination) {
+    // Routes requested before, also in earlier sessions, are taken from the route store
+    final String routeKey = RouteResultStore.directionsKey(DirectionsCriteria.PROFILE_CYCLING,
+      Arrays.asList(origin, destination), "overview=" + DirectionsCriteria.OVERVIEW_FULL);
+    routeStore.getRoute(routeKey, new RouteResultStore.OnRouteLoadedListener() {
+      @Override
+      public void onRouteLoaded(@Nullable DirectionsRoute route) {
+        if (route != null) {
+          showRoute(route);
+        } else {
+          requestRoute(origin, destination, routeKey);
+        }
+      }
+    });
+  }
 
+  private void requestRoute(Point origin, Point destination, final String routeKey) {
     client = MapboxDirections.builder()
       .origin(origin)
       .destination(destination)
@@ -110,14 +131,9 @@ public class DirectionsActivity extends AppCompatActivity {
           return;
         }
 
-        // Print some info about the route
-        currentRoute = response.body().routes().get(0);
-        Log.d(TAG, "Distance: " + currentRoute.distance());
-        Toast.makeText(DirectionsActivity.this, String.format(getString(R.string.directions_activity_toast_message),
-          currentRoute.distance()), Toast.LENGTH_SHORT).show();
-
-        // Draw the route on the map
-        drawRoute(currentRoute);
+        DirectionsRoute route = response.body().routes().get(0);
+        routeStore.putRoute(routeKey, route);
+        showRoute(route);
       }
 
       @Override
@@ -128,6 +144,17 @@ public class DirectionsActivity extends AppCompatActivity {
     });
   }
 
+  private void showRoute(DirectionsRoute route) {
+    // Print some info about the route
+    currentRoute = route;
+    Log.d(TAG, "Distance: " + currentRoute.distance());
+    Toast.makeText(DirectionsActivity.this, String.format(getString(R.string.directions_activity_toast_message),
+      currentRoute.distance()), Toast.LENGTH_SHORT).show();
+
+    // Draw the route on the map
+    drawRoute(currentRoute);
+  }
+
   private void drawRoute(DirectionsRoute route) {
     // Convert LineString coordinates into LatLng[]
     LineString lineString = LineString.fromPolyline(route.geometry(), PRECISION_6);
@@ -183,6 +210,7 @@ public class DirectionsActivity extends AppCompatActivity {
     if (client != null) {
       client.cancelCall();
     }
+    Log.d(TAG, routeStore.getMetricsSummary());
     mapView.onDestroy();
   }
 
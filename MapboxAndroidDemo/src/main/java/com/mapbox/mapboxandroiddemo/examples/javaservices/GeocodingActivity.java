@@ -14,12 +14,11 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.mapbox.api.geocoding.v5.GeocodingCriteria;
-import com.mapbox.api.geocoding.v5.MapboxGeocoding;
 import com.mapbox.api.geocoding.v5.models.CarmenFeature;
 import com.mapbox.api.geocoding.v5.models.GeocodingResponse;
-import com.mapbox.core.exceptions.ServicesException;
 import com.mapbox.geojson.Point;
 import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.utils.ReverseGeocodeCache;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.camera.CameraPosition;
 import com.mapbox.mapboxsdk.camera.CameraUpdateFactory;
@@ -30,10 +29,8 @@ import com.mapbox.mapboxsdk.maps.OnMapReadyCallback;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
 import timber.log.Timber;
 
 /**
@@ -41,6 +38,11 @@ import timber.log.Timber;
  */
 public class GeocodingActivity extends AppCompatActivity implements OnMapReadyCallback {
 
+  // Coordinates within roughly 100 meters of each other share a cached result for a day
+  private static final int GEOCODE_CACHE_DECIMALS = 3;
+  private static final long GEOCODE_CACHE_TIME_TO_LIVE = TimeUnit.DAYS.toMillis(1);
+  private static final int GEOCODE_CACHE_SIZE = 500;
+
   private MapView mapView;
   private MapboxMap mapboxMap;
   private Button startGeocodeButton;
@@ -49,6 +51,7 @@ public class GeocodingActivity extends AppCompatActivity implements OnMapReadyCa
   private EditText latEditText;
   private EditText longEditText;
   private TextView geocodeResultTextView;
+  private ReverseGeocodeCache geocodeCache;
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
@@ -61,6 +64,9 @@ public class GeocodingActivity extends AppCompatActivity implements OnMapReadyCa
     // This contains the MapView in XML and needs to be called after the access token is configured.
     setContentView(R.layout.activity_javaservices_geocoding);
 
+    geocodeCache = new ReverseGeocodeCache(this, getString(R.string.access_token), GEOCODE_CACHE_DECIMALS,
+      GEOCODE_CACHE_TIME_TO_LIVE, GEOCODE_CACHE_SIZE);
+
     mapView = findViewById(R.id.mapView);
     mapView.onCreate(savedInstanceState);
     mapView.getMapAsync(this);
@@ -176,19 +182,13 @@ public class GeocodingActivity extends AppCompatActivity implements OnMapReadyCa
   }
 
   private void makeGeocodeSearch(LatLng latLng) {
-    try {
-      // Build a Mapbox geocoding request
-      MapboxGeocoding client = MapboxGeocoding.builder()
-        .accessToken(getString(R.string.access_token))
-        .query(Point.fromLngLat(latLng.getLongitude(), latLng.getLatitude()))
-        .geocodingTypes(GeocodingCriteria.TYPE_PLACE)
-        .mode(GeocodingCriteria.MODE_PLACES)
-        .build();
-      client.enqueueCall(new Callback<GeocodingResponse>() {
+    // Look up the coordinates in the cache, which only makes a Mapbox geocoding request for coordinates
+    // that weren't searched nearby recently
+    geocodeCache.reverseGeocode(Point.fromLngLat(latLng.getLongitude(), latLng.getLatitude()),
+      GeocodingCriteria.TYPE_PLACE, GeocodingCriteria.MODE_PLACES, new ReverseGeocodeCache.OnGeocodeListener() {
         @Override
-        public void onResponse(Call<GeocodingResponse> call,
-                               Response<GeocodingResponse> response) {
-          List<CarmenFeature> results = response.body().features();
+        public void onGeocodeResult(GeocodingResponse response, boolean fromCache) {
+          List<CarmenFeature> results = response.features();
           if (results.size() > 0) {
 
             // Get the first Feature from the successful geocoding response
@@ -202,14 +202,10 @@ public class GeocodingActivity extends AppCompatActivity implements OnMapReadyCa
         }
 
         @Override
-        public void onFailure(Call<GeocodingResponse> call, Throwable throwable) {
+        public void onGeocodeFailure(Throwable throwable) {
           Timber.e("Geocoding Failure: " + throwable.getMessage());
         }
       });
-    } catch (ServicesException servicesException) {
-      Timber.e("Error geocoding: " + servicesException.toString());
-      servicesException.printStackTrace();
-    }
   }
 
   private void animateCameraToNewPosition(LatLng latLng) {
@@ -236,6 +232,7 @@ public class GeocodingActivity extends AppCompatActivity implements OnMapReadyCa
   @Override
   protected void onStop() {
     super.onStop();
+    geocodeCache.persist();
     mapView.onStop();
   }
 
@@ -254,6 +251,7 @@ public class GeocodingActivity extends AppCompatActivity implements OnMapReadyCa
   @Override
   protected void onDestroy() {
     super.onDestroy();
+    geocodeCache.onDestroy();
     mapView.onDestroy();
   }
 
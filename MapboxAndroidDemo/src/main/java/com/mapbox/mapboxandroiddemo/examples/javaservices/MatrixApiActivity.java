@@ -3,9 +3,12 @@ package com.mapbox.mapboxandroiddemo.examples.javaservices;
 // #-code-snippet: matrix-api-activity full-java
 
 import android.content.Context;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.CardView;
 import android.support.v7.widget.DefaultItemAnimator;
 import android.support.v7.widget.LinearLayoutManager;
@@ -20,12 +23,12 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.mapbox.api.directions.v5.DirectionsCriteria;
-import com.mapbox.api.matrix.v1.MapboxMatrix;
-import com.mapbox.api.matrix.v1.models.MatrixResponse;
 import com.mapbox.geojson.Feature;
 import com.mapbox.geojson.FeatureCollection;
 import com.mapbox.geojson.Point;
 import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.commons.GeoJsonAssetReader;
+import com.mapbox.mapboxandroiddemo.utils.TiledMatrixClient;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.annotations.Icon;
 import com.mapbox.mapboxsdk.annotations.IconFactory;
@@ -37,21 +40,23 @@ import com.mapbox.mapboxsdk.maps.MapboxMap;
 import com.mapbox.mapboxsdk.maps.OnMapReadyCallback;
 import com.mapbox.turf.TurfConversion;
 
-import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
-
-
 /**
  * Use the Mapbox Java Services SDK's Matrix API to retrieve travel times between many points.
  */
 public class MatrixApiActivity extends AppCompatActivity {
 
+  private static final String TAG = "MatrixApiActivity";
+
+  // Converting a value and creating a formatter once instead of for every card
+  private static final double MILES_PER_METER = TurfConversion.convertLength(1, "meters", "miles");
+  private final DecimalFormat distanceFormat = new DecimalFormat("#.##");
+
   private MapView mapView;
   private MapboxMap mapboxMap;
   private List<Point> pointList;
@@ -59,6 +64,8 @@ public class MatrixApiActivity extends AppCompatActivity {
   private RecyclerView recyclerView;
   private MatrixApiLocationRecyclerViewAdapter matrixApiLocationRecyclerViewAdapter;
   private ArrayList<SingleRecyclerViewMatrixLocation> matrixLocationList;
+  private TiledMatrixClient matrixClient;
+  private int matrixRequestGeneration;
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
@@ -76,6 +83,10 @@ public class MatrixApiActivity extends AppCompatActivity {
     // Create list of positions from local GeoJSON file
     initPositionListFromGeoJsonFile();
 
+    // The client splits the matrix into requests within the Matrix API's coordinate limit and caches
+    // the travel times it already retrieved.
+    matrixClient = new TiledMatrixClient(getString(R.string.access_token), DirectionsCriteria.PROFILE_DRIVING);
+
     mapView = findViewById(R.id.mapView);
     mapView.onCreate(savedInstanceState);
     mapView.getMapAsync(new OnMapReadyCallback() {
@@ -97,8 +108,8 @@ public class MatrixApiActivity extends AppCompatActivity {
           public boolean onMarkerClick(@NonNull Marker marker) {
 
             // Make a call to the Mapbox Matrix API
-            makeMapboxMatrixApiCall(getClickedMarkerNumInPositionList(marker), Point.fromLngLat(
-              marker.getPosition().getLongitude(), marker.getPosition().getLatitude()));
+            makeMapboxMatrixApiCall(Point.fromLngLat(marker.getPosition().getLongitude(),
+              marker.getPosition().getLatitude()));
             return false;
           }
         });
@@ -108,20 +119,6 @@ public class MatrixApiActivity extends AppCompatActivity {
     });
   }
 
-  private int getClickedMarkerNumInPositionList(Marker clickedMarker) {
-    int clickedMarkerIndexPositionInList = -1;
-    if (clickedMarker != null) {
-      for (Marker singleMarker : mapboxMap.getMarkers()) {
-        if (singleMarker == clickedMarker) {
-          clickedMarkerIndexPositionInList = mapboxMap.getMarkers().indexOf(singleMarker);
-        }
-      }
-      return clickedMarkerIndexPositionInList;
-    } else {
-      return 0;
-    }
-  }
-
   private void initRecyclerView() {
     matrixApiLocationRecyclerViewAdapter = new MatrixApiLocationRecyclerViewAdapter(this,
       matrixLocationList);
@@ -133,43 +130,40 @@ public class MatrixApiActivity extends AppCompatActivity {
     snapHelper.attachToRecyclerView(recyclerView);
   }
 
-  private void makeMapboxMatrixApiCall(final int markerPositionInList, Point pointOfClickedMarker) {
-
-    // Build Mapbox Matrix API parameters
-    MapboxMatrix directionsMatrixClient = MapboxMatrix.builder()
-      .accessToken(getString(R.string.access_token))
-      .profile(DirectionsCriteria.PROFILE_DRIVING)
-      .coordinates(pointList)
-      .build();
+  private void makeMapboxMatrixApiCall(Point pointOfClickedMarker) {
+
+    // Only the travel times from the clicked marker are needed, so the clicked marker is the only source.
+    // The coordinate it shares with the destinations is sent once. Only the result of the latest click is
+    // shown, the generation is counted up before the call as cached results are delivered synchronously.
+    final int generation = ++matrixRequestGeneration;
+    matrixClient.computeDurations(Collections.singletonList(pointOfClickedMarker), pointList,
+      new TiledMatrixClient.Callback() {
+        @Override
+        public void onProgress(int completedTiles, int totalTiles) {
+          Log.d(TAG, "Matrix requests completed: " + completedTiles + "/" + totalTiles);
+        }
 
-    // Handle the API response
-    directionsMatrixClient.enqueueCall(new Callback<MatrixResponse>() {
-      @Override
-      public void onResponse(Call<MatrixResponse> call,
-                             Response<MatrixResponse> response) {
-        List<Double[]> durationsToAllOfTheLocationsFromTheOrigin = response.body().durations();
-        for (int x = 0; x < durationsToAllOfTheLocationsFromTheOrigin.size(); x++) {
-          String finalConvertedFormattedDistance = String.valueOf(new DecimalFormat("#.##")
-            .format(TurfConversion.convertLength(
-              durationsToAllOfTheLocationsFromTheOrigin.get(markerPositionInList)[x],
-              "meters", "miles")));
-          if (x == markerPositionInList) {
-            matrixLocationList.get(x).setDistanceFromOrigin(finalConvertedFormattedDistance);
-          }
-          if (x != markerPositionInList) {
-            matrixLocationList.get(x).setDistanceFromOrigin(finalConvertedFormattedDistance);
-            matrixApiLocationRecyclerViewAdapter.notifyDataSetChanged();
+        @Override
+        public void onResult(@NonNull double[][] durations) {
+          if (generation != matrixRequestGeneration) {
+            return;
           }
+          // Formatting the travel times and diffing them against the current cards happens off the main
+          // thread, the cards are then refreshed with a single batched update.
+          new BindMatrixResultTask(MatrixApiActivity.this, generation, matrixLocationList, durations[0],
+            SystemClock.elapsedRealtime()).execute();
         }
-      }
 
-      @Override
-      public void onFailure(Call<MatrixResponse> call, Throwable throwable) {
-        Toast.makeText(MatrixApiActivity.this, R.string.call_error,
-          Toast.LENGTH_SHORT).show();
-        Log.d("MatrixApiActivity", "onResponse onFailure");
-      }
-    });
+        @Override
+        public void onError(@NonNull Throwable throwable) {
+          if (generation != matrixRequestGeneration) {
+            return;
+          }
+          Toast.makeText(MatrixApiActivity.this, R.string.call_error,
+            Toast.LENGTH_SHORT).show();
+          Log.d(TAG, "onResponse onFailure");
+        }
+      });
   }
 
   private void addMarkers() {
@@ -184,26 +178,10 @@ public class MatrixApiActivity extends AppCompatActivity {
     }
   }
 
-  private String loadGeoJsonFromAsset(String filename) {
-    try {
-      // Load GeoJSON file from local asset folder
-      InputStream is = getAssets().open(filename);
-      int size = is.available();
-      byte[] buffer = new byte[size];
-      is.read(buffer);
-      is.close();
-      return new String(buffer, "UTF-8");
-    } catch (Exception exception) {
-      Log.d("MatrixApiActivity", "Exception Loading GeoJSON: " + exception.toString());
-      exception.printStackTrace();
-      return null;
-    }
-  }
-
   private void initPositionListFromGeoJsonFile() {
 
     // Get GeoJSON features from GeoJSON file in the assets folder
-    featureCollection = FeatureCollection.fromJson(loadGeoJsonFromAsset("boston_charge_stations.geojson"));
+    featureCollection = GeoJsonAssetReader.loadFeatureCollection(this, "boston_charge_stations.geojson");
 
     // Initialize List<Position> for eventual use in the Matrix API call
     pointList = new ArrayList<>();
@@ -261,6 +239,7 @@ public class MatrixApiActivity extends AppCompatActivity {
   @Override
   protected void onDestroy() {
     super.onDestroy();
+    matrixClient.shutdown();
     mapView.onDestroy();
   }
 
@@ -273,12 +252,21 @@ public class MatrixApiActivity extends AppCompatActivity {
   /**
    * POJO model class for a single location in the recyclerview
    */
-  class SingleRecyclerViewMatrixLocation {
+  static class SingleRecyclerViewMatrixLocation {
 
     private String name;
     private LatLng locationLatLng;
     private String distanceFromOrigin;
 
+    SingleRecyclerViewMatrixLocation() {
+    }
+
+    SingleRecyclerViewMatrixLocation(SingleRecyclerViewMatrixLocation location, String distanceFromOrigin) {
+      this.name = location.name;
+      this.locationLatLng = location.locationLatLng;
+      this.distanceFromOrigin = distanceFromOrigin;
+    }
+
     public String getName() {
       return name;
     }
@@ -312,6 +300,10 @@ public class MatrixApiActivity extends AppCompatActivity {
       this.context = context;
     }
 
+    void setMatrixLocationList(List<SingleRecyclerViewMatrixLocation> matrixLocationList) {
+      this.matrixLocationList = matrixLocationList;
+    }
+
     @Override
     public MatrixApiLocationRecyclerViewAdapter.MyViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
       View itemView = LayoutInflater.from(parent.getContext())
@@ -348,5 +340,95 @@ public class MatrixApiActivity extends AppCompatActivity {
       }
     }
   }
+
+  /**
+   * AsyncTask formatting the travel times of a matrix row into new cards and diffing them against the cards
+   * shown, so the RecyclerView is refreshed with one batched update instead of a full rebind per card.
+   */
+  private static class BindMatrixResultTask extends AsyncTask<Void, Void, DiffUtil.DiffResult> {
+
+    private final WeakReference<MatrixApiActivity> activityRef;
+    private final int generation;
+    private final DecimalFormat distanceFormat;
+    private final List<SingleRecyclerViewMatrixLocation> oldLocations;
+    private final List<SingleRecyclerViewMatrixLocation> newLocations;
+    private final double[] durations;
+    private final long responseTime;
+    private long backgroundTime;
+
+    BindMatrixResultTask(MatrixApiActivity activity, int generation,
+                         List<SingleRecyclerViewMatrixLocation> oldLocations, double[] durations, long responseTime) {
+      this.activityRef = new WeakReference<>(activity);
+      this.generation = generation;
+      // AsyncTasks run one after the other, so the activity's formatter is never used by two threads at once
+      this.distanceFormat = activity.distanceFormat;
+      this.oldLocations = oldLocations;
+      this.newLocations = new ArrayList<>(oldLocations.size());
+      this.durations = durations;
+      this.responseTime = responseTime;
+    }
+
+    @Override
+    protected DiffUtil.DiffResult doInBackground(Void... voids) {
+      long startTime = SystemClock.elapsedRealtime();
+      for (int x = 0; x < oldLocations.size(); x++) {
+        String finalConvertedFormattedDistance = distanceFormat.format(durations[x] * MILES_PER_METER);
+        newLocations.add(new SingleRecyclerViewMatrixLocation(oldLocations.get(x), finalConvertedFormattedDistance));
+      }
+
+      DiffUtil.DiffResult diffResult = calculateDiff(oldLocations, newLocations);
+      backgroundTime = SystemClock.elapsedRealtime() - startTime;
+      return diffResult;
+    }
+
+    @Override
+    protected void onPostExecute(DiffUtil.DiffResult diffResult) {
+      super.onPostExecute(diffResult);
+      MatrixApiActivity activity = activityRef.get();
+      if (activity == null || activity.matrixRequestGeneration != generation) {
+        // the activity is gone or a newer request was made in the meantime
+        return;
+      }
+      long startTime = SystemClock.elapsedRealtime();
+      if (activity.matrixLocationList != oldLocations) {
+        // the cards were rebound since the diff was calculated, so diff against the ones shown now
+        diffResult = calculateDiff(activity.matrixLocationList, newLocations);
+      }
+      activity.matrixLocationList = new ArrayList<>(newLocations);
+      activity.matrixApiLocationRecyclerViewAdapter.setMatrixLocationList(activity.matrixLocationList);
+      diffResult.dispatchUpdatesTo(activity.matrixApiLocationRecyclerViewAdapter);
+      long now = SystemClock.elapsedRealtime();
+      Log.d(TAG, "Bound " + newLocations.size() + " travel times in " + (now - responseTime) + " ms, "
+        + backgroundTime + " ms formatting and diffing, " + (now - startTime) + " ms on the main thread");
+    }
+
+    private static DiffUtil.DiffResult calculateDiff(final List<SingleRecyclerViewMatrixLocation> oldLocations,
+                                                     final List<SingleRecyclerViewMatrixLocation> newLocations) {
+      return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+        @Override
+        public int getOldListSize() {
+          return oldLocations.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+          return newLocations.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+          // the cards keep their order, only their distances change
+          return oldItemPosition == newItemPosition;
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+          String oldDistance = oldLocations.get(oldItemPosition).getDistanceFromOrigin();
+          String newDistance = newLocations.get(newItemPosition).getDistanceFromOrigin();
+          return oldDistance == null ? newDistance == null : oldDistance.equals(newDistance);
+        }
+      }, false);
+    }
+  }
 }
 // #-end-code-snippet: matrix-api-activity full-java
\ No newline at end of file
@@ -5,6 +5,7 @@ package com.mapbox.mapboxandroiddemo.examples.javaservices;
 import android.graphics.Color;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v7.app.AppCompatActivity;
 import android.util.Log;
 import android.widget.Toast;
@@ -13,9 +14,11 @@ import com.mapbox.api.directions.v5.DirectionsCriteria;
 import com.mapbox.api.directions.v5.models.DirectionsRoute;
 import com.mapbox.api.optimization.v1.MapboxOptimization;
 import com.mapbox.api.optimization.v1.models.OptimizationResponse;
-import com.mapbox.geojson.LineString;
 import com.mapbox.geojson.Point;
 import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.utils.PackedLineString;
+import com.mapbox.mapboxandroiddemo.utils.RouteGeometryDecoder;
+import com.mapbox.mapboxandroiddemo.utils.RouteResultStore;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.annotations.MarkerOptions;
 import com.mapbox.mapboxsdk.annotations.Polyline;
@@ -49,11 +52,15 @@ public class OptimizationActivity extends AppCompatActivity implements OnMapRead
   private Polyline optimizedPolyline;
   private List<Point> stops;
   private Point origin;
+  private RouteResultStore routeStore;
+  private final RouteGeometryDecoder geometryDecoder = new RouteGeometryDecoder();
+  private String currentRouteKey;
 
   private static final String FIRST = "first";
   private static final String ANY = "any";
   private static final String TEAL_COLOR = "#23D2BE";
   private static final int POLYLINE_WIDTH = 5;
+  private static final String TAG = "OptimizationActivity";
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
@@ -67,6 +74,7 @@ public class OptimizationActivity extends AppCompatActivity implements OnMapRead
     setContentView(R.layout.activity_javaservices_optimization);
 
     stops = new ArrayList<>();
+    routeStore = RouteResultStore.getInstance(this);
 
     // Add the origin Point to the list
     addFirstStopToStopsList();
@@ -104,6 +112,9 @@ public class OptimizationActivity extends AppCompatActivity implements OnMapRead
   @Override
   public void onMapLongClick(@NonNull LatLng point) {
     mapboxMap.clear();
+    optimizedPolyline = null;
+    currentRouteKey = null;
+    geometryDecoder.cancel();
     stops.clear();
     addFirstStopToStopsList();
   }
@@ -132,7 +143,36 @@ public class OptimizationActivity extends AppCompatActivity implements OnMapRead
     stops.add(origin);
   }
 
-  private void getOptimizedRoute(List<Point> coordinates) {
+  private void getOptimizedRoute(final List<Point> coordinates) {
+    // The trip only depends on the set of stops after the origin, so stops added in a different order, or
+    // added again after clearing the map, are taken from the route store instead of being optimized again
+    final String routeKey = RouteResultStore.optimizationKey(DirectionsCriteria.PROFILE_DRIVING,
+      coordinates.get(0), coordinates.subList(1, coordinates.size()), "source=" + FIRST, "destination=" + ANY,
+      "overview=" + DirectionsCriteria.OVERVIEW_FULL);
+    currentRouteKey = routeKey;
+    if (optimizedClient != null) {
+      // A trip for fewer stops isn't needed anymore
+      optimizedClient.cancelCall();
+      optimizedClient = null;
+    }
+    final List<Point> requestCoordinates = new ArrayList<>(coordinates);
+    routeStore.getRoute(routeKey, new RouteResultStore.OnRouteLoadedListener() {
+      @Override
+      public void onRouteLoaded(@Nullable DirectionsRoute route) {
+        if (!routeKey.equals(currentRouteKey)) {
+          return;
+        }
+        if (route != null) {
+          optimizedRoute = route;
+          drawOptimizedRoute(optimizedRoute);
+        } else {
+          requestOptimizedRoute(requestCoordinates, routeKey);
+        }
+      }
+    });
+  }
+
+  private void requestOptimizedRoute(List<Point> coordinates, final String routeKey) {
     optimizedClient = MapboxOptimization.builder()
       .source(FIRST)
       .destination(ANY)
@@ -161,7 +201,10 @@ public class OptimizationActivity extends AppCompatActivity implements OnMapRead
 
         // Get most optimized route from API response
         optimizedRoute = response.body().trips().get(0);
-        drawOptimizedRoute(optimizedRoute);
+        routeStore.putRoute(routeKey, optimizedRoute);
+        if (routeKey.equals(currentRouteKey)) {
+          drawOptimizedRoute(optimizedRoute);
+        }
       }
 
       @Override
@@ -172,29 +215,28 @@ public class OptimizationActivity extends AppCompatActivity implements OnMapRead
   }
 
   private void drawOptimizedRoute(DirectionsRoute route) {
-    // Remove old polyline
-    if (optimizedPolyline != null) {
-      mapboxMap.removePolyline(optimizedPolyline);
-    }
-    // Draw points on MapView
-    LatLng[] pointsToDraw = convertLineStringToLatLng(route);
-    optimizedPolyline = mapboxMap.addPolyline(new PolylineOptions()
-      .add(pointsToDraw)
-      .color(Color.parseColor(TEAL_COLOR))
-      .width(POLYLINE_WIDTH));
-  }
-
-  private LatLng[] convertLineStringToLatLng(DirectionsRoute route) {
-    // Convert LineString coordinates into LatLng[]
-    LineString lineString = LineString.fromPolyline(route.geometry(), PRECISION_6);
-    List<Point> coordinates = lineString.coordinates();
-    LatLng[] points = new LatLng[coordinates.size()];
-    for (int i = 0; i < coordinates.size(); i++) {
-      points[i] = new LatLng(
-        coordinates.get(i).latitude(),
-        coordinates.get(i).longitude());
-    }
-    return points;
+    // Decode the route geometry and convert it into LatLng[] on a worker thread, so long routes don't
+    // block the main thread
+    geometryDecoder.decode(route.geometry(), PRECISION_6, new RouteGeometryDecoder.Converter<LatLng[]>() {
+      @NonNull
+      @Override
+      public LatLng[] convert(@NonNull PackedLineString line) {
+        return line.toLatLngs();
+      }
+    }, new RouteGeometryDecoder.OnGeometryDecodedListener<LatLng[]>() {
+      @Override
+      public void onGeometryDecoded(@NonNull LatLng[] pointsToDraw) {
+        // Remove old polyline
+        if (optimizedPolyline != null) {
+          mapboxMap.removePolyline(optimizedPolyline);
+        }
+        // Draw points on MapView
+        optimizedPolyline = mapboxMap.addPolyline(new PolylineOptions()
+          .add(pointsToDraw)
+          .color(Color.parseColor(TEAL_COLOR))
+          .width(POLYLINE_WIDTH));
+      }
+    });
   }
 
   @Override
@@ -234,6 +276,8 @@ public class OptimizationActivity extends AppCompatActivity implements OnMapRead
     if (optimizedClient != null) {
       optimizedClient.cancelCall();
     }
+    Log.d(TAG, routeStore.getMetricsSummary());
+    geometryDecoder.shutdown();
     if (mapboxMap != null) {
       mapboxMap.removeOnMapClickListener(this);
     }
@@ -6,31 +6,20 @@ import android.graphics.Color;
 import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
-import android.text.TextUtils;
 import android.util.Log;
 
-import com.mapbox.geojson.Point;
-import com.mapbox.geojson.utils.PolylineUtils;
 import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.utils.DouglasPeuckerRanking;
+import com.mapbox.mapboxandroiddemo.utils.LineStringDecoder;
+import com.mapbox.mapboxandroiddemo.utils.PackedLineString;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.annotations.PolylineOptions;
-import com.mapbox.mapboxsdk.geometry.LatLng;
 import com.mapbox.mapboxsdk.maps.MapView;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
 import com.mapbox.mapboxsdk.maps.OnMapReadyCallback;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.List;
-
 /**
- * Using the polylines utility, simplify a polyline at a
+ * Using the Douglas-Peucker algorithm, simplify a polyline at a
  * given tolerance to reduce the number of coordinates in that polyline.
  */
 public class SimplifyPolylineActivity extends AppCompatActivity {
@@ -106,90 +95,47 @@ public class SimplifyPolylineActivity extends AppCompatActivity {
     mapView.onSaveInstanceState(outState);
   }
 
-  private class DrawGeoJson extends AsyncTask<Void, Void, List<Point>> {
+  private class DrawGeoJson extends AsyncTask<Void, Void, PackedLineString> {
     @Override
-    protected List<Point> doInBackground(Void... voids) {
-
-      List<Point> points = new ArrayList<>();
-
+    protected PackedLineString doInBackground(Void... voids) {
       try {
-        // Load GeoJSON file
-        InputStream inputStream = getAssets().open("matched_route.geojson");
-        BufferedReader rd = new BufferedReader(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
-        StringBuilder sb = new StringBuilder();
-        int cp;
-        while ((cp = rd.read()) != -1) {
-          sb.append((char) cp);
-        }
-
-        inputStream.close();
-
-        // Parse JSON
-        JSONObject json = new JSONObject(sb.toString());
-        JSONArray features = json.getJSONArray("features");
-        JSONObject feature = features.getJSONObject(0);
-        JSONObject geometry = feature.getJSONObject("geometry");
-        if (geometry != null) {
-          String type = geometry.getString("type");
-
-          // Our GeoJSON only has one feature: a line string
-          if (!TextUtils.isEmpty(type) && type.equalsIgnoreCase("LineString")) {
-
-            // Get the Coordinates
-            JSONArray coords = geometry.getJSONArray("coordinates");
-            for (int lc = 0; lc < coords.length(); lc++) {
-              JSONArray coord = coords.getJSONArray(lc);
-              Point position = Point.fromLngLat(coord.getDouble(0), coord.getDouble(1));
-              points.add(position);
-            }
-          }
-        }
+        // Decode the line coordinates straight from the GeoJSON file into a packed array
+        return LineStringDecoder.decode(getAssets().open("matched_route.geojson"));
       } catch (Exception exception) {
         Log.e(TAG, "Exception Loading GeoJSON: " + exception.toString());
+        return null;
       }
-
-      return points;
     }
 
     @Override
-    protected void onPostExecute(List<Point> points) {
-      super.onPostExecute(points);
-
-      drawBeforeSimplify(points);
-      drawSimplify(points);
+    protected void onPostExecute(PackedLineString route) {
+      super.onPostExecute(route);
 
+      if (route != null) {
+        drawBeforeSimplify(route);
+        drawSimplify(route);
+      }
     }
   }
 
-  private void drawBeforeSimplify(List<Point> points) {
-
-    LatLng[] pointsArray = new LatLng[points.size()];
-    for (int i = 0; i < points.size(); i++) {
-      pointsArray[i] = new LatLng(points.get(i).latitude(), points.get(i).longitude());
-    }
-
+  private void drawBeforeSimplify(PackedLineString route) {
     map.addPolyline(new PolylineOptions()
-      .add(pointsArray)
+      .add(route.toLatLngs())
       .color(Color.parseColor("#8a8acb"))
       .width(4));
   }
 
-  private void drawSimplify(List<Point> points) {
+  private void drawSimplify(PackedLineString route) {
 
-    List<Point> before = new ArrayList<>();
-    for (int i = 0; i < points.size(); i++) {
-      before.add(points.get(i));
-    }
-
-    List<Point> after = PolylineUtils.simplify(before, 0.001);
-
-    LatLng[] result = new LatLng[after.size()];
-    for (int i = 0; i < after.size(); i++) {
-      result[i] = new LatLng(after.get(i).latitude(), after.get(i).longitude());
-    }
+    // Rank every vertex once. Any other tolerance, e.g. one picked with a slider or per zoom level,
+    // can then be extracted from the same ranking without running Douglas-Peucker again. The result
+    // is the highest quality simplification, without the radial distance pass PolylineUtils#simplify
+    // runs by default, so it can keep slightly different vertices than PolylineUtils#simplify(points, 0.001).
+    DouglasPeuckerRanking ranking = DouglasPeuckerRanking.rank(route);
+    PackedLineString simplified = ranking.simplify(0.001);
 
     map.addPolyline(new PolylineOptions()
-      .add(result)
+      .add(simplified.toLatLngs())
       .color(Color.parseColor("#3bb2d0"))
       .width(4));
   }
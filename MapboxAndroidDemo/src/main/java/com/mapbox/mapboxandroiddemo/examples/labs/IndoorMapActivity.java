@@ -11,6 +11,7 @@ import android.widget.Button;
 import com.mapbox.geojson.Point;
 import com.mapbox.geojson.Polygon;
 import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.utils.IndoorLevelManager;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.maps.MapView;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
@@ -20,8 +21,6 @@ import com.mapbox.mapboxsdk.style.layers.LineLayer;
 import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
 import com.mapbox.turf.TurfJoins;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -40,7 +39,13 @@ import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineWidth;
  */
 public class IndoorMapActivity extends AppCompatActivity {
 
+  // Both levels are parsed once and kept, the layers only style geometry so properties are dropped
+  private static final int MAX_CACHED_LEVELS = 3;
+  private static final int GROUND_LEVEL = 0;
+  private static final int SECOND_LEVEL = 1;
+
   private GeoJsonSource indoorBuildingSource;
+  private IndoorLevelManager indoorLevelManager;
   private List<Point> boundingBox;
   private List<List<Point>> boundingBoxList;
   private View levelButtons;
@@ -96,8 +101,11 @@ public class IndoorMapActivity extends AppCompatActivity {
             }
           }
         });
-        indoorBuildingSource = new GeoJsonSource("indoor-building", loadJsonFromAsset("white_house_lvl_0.geojson"));
+        indoorBuildingSource = new GeoJsonSource("indoor-building");
         mapboxMap.addSource(indoorBuildingSource);
+        indoorLevelManager = new IndoorLevelManager(IndoorMapActivity.this, indoorBuildingSource,
+          MAX_CACHED_LEVELS, false, "white_house_lvl_0.geojson", "white_house_lvl_1.geojson");
+        indoorLevelManager.showLevel(GROUND_LEVEL);
 
         // Add the building layers since we know zoom levels in range
         loadBuildingLayer();
@@ -107,7 +115,9 @@ public class IndoorMapActivity extends AppCompatActivity {
     buttonSecondLevel.setOnClickListener(new View.OnClickListener() {
       @Override
       public void onClick(View view) {
-        indoorBuildingSource.setGeoJson(loadJsonFromAsset("white_house_lvl_1.geojson"));
+        if (indoorLevelManager != null) {
+          indoorLevelManager.showLevel(SECOND_LEVEL);
+        }
       }
     });
 
@@ -115,7 +125,9 @@ public class IndoorMapActivity extends AppCompatActivity {
     buttonGroundLevel.setOnClickListener(new View.OnClickListener() {
       @Override
       public void onClick(View view) {
-        indoorBuildingSource.setGeoJson(loadJsonFromAsset("white_house_lvl_0.geojson"));
+        if (indoorLevelManager != null) {
+          indoorLevelManager.showLevel(GROUND_LEVEL);
+        }
       }
     });
   }
@@ -147,6 +159,9 @@ public class IndoorMapActivity extends AppCompatActivity {
   @Override
   protected void onDestroy() {
     super.onDestroy();
+    if (indoorLevelManager != null) {
+      indoorLevelManager.shutdown();
+    }
     mapView.onDestroy();
   }
 
@@ -204,21 +219,4 @@ public class IndoorMapActivity extends AppCompatActivity {
         stop(16f, 0f))));
     map.addLayer(indoorBuildingLineLayer);
   }
-
-  private String loadJsonFromAsset(String filename) {
-    // Using this method to load in GeoJSON files from the assets folder.
-
-    try {
-      InputStream is = getAssets().open(filename);
-      int size = is.available();
-      byte[] buffer = new byte[size];
-      is.read(buffer);
-      is.close();
-      return new String(buffer, "UTF-8");
-
-    } catch (IOException ex) {
-      ex.printStackTrace();
-      return null;
-    }
-  }
 }
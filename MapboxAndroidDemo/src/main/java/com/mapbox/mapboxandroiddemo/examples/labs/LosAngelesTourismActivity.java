@@ -12,6 +12,7 @@ import android.view.View;
 
 import com.getbase.floatingactionbutton.FloatingActionButton;
 import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.commons.GeoJsonAssetReader;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.maps.MapView;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
@@ -23,9 +24,6 @@ import com.mapbox.mapboxsdk.style.layers.Property;
 import com.mapbox.mapboxsdk.style.layers.PropertyFactory;
 import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
 
-import java.io.IOException;
-import java.io.InputStream;
-
 import static com.mapbox.mapboxsdk.style.layers.Property.VISIBLE;
 import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.circleColor;
 import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.fillColor;
@@ -64,7 +62,8 @@ public class LosAngelesTourismActivity extends AppCompatActivity implements OnMa
     this.mapboxMap = mapboxMap;
 
     // Add the hotels source to the map
-    GeoJsonSource hotelSource = new GeoJsonSource("hotels", loadJsonFromAsset("la_hotels.geojson"));
+    GeoJsonSource hotelSource = new GeoJsonSource("hotels",
+      GeoJsonAssetReader.loadFeatureCollection(this, "la_hotels.geojson"));
     mapboxMap.addSource(hotelSource);
 
     FillLayer hotelLayer = new FillLayer("hotels", "hotels").withProperties(
@@ -97,7 +96,8 @@ public class LosAngelesTourismActivity extends AppCompatActivity implements OnMa
     });
 
     // Add the attractions source to the map
-    GeoJsonSource attractionsSource = new GeoJsonSource("attractions", loadJsonFromAsset("la_attractions.geojson"));
+    GeoJsonSource attractionsSource = new GeoJsonSource("attractions",
+      GeoJsonAssetReader.loadFeatureCollection(this, "la_attractions.geojson"));
     mapboxMap.addSource(attractionsSource);
 
     CircleLayer attractionsLayer = new CircleLayer("attractions", "attractions").withProperties(
@@ -256,21 +256,5 @@ public class LosAngelesTourismActivity extends AppCompatActivity implements OnMa
     super.onSaveInstanceState(outState);
     mapView.onSaveInstanceState(outState);
   }
-
-  private String loadJsonFromAsset(String filename) {
-    // Using this method to load in GeoJSON files from the assets folder.
-    try {
-      InputStream is = getAssets().open(filename);
-      int size = is.available();
-      byte[] buffer = new byte[size];
-      is.read(buffer);
-      is.close();
-      return new String(buffer, "UTF-8");
-
-    } catch (IOException ex) {
-      ex.printStackTrace();
-      return null;
-    }
-  }
 }
 // #-code-snippet: la-tourism-activity full-java
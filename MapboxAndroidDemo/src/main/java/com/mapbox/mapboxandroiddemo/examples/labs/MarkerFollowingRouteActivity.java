@@ -2,19 +2,18 @@ package com.mapbox.mapboxandroiddemo.examples.labs;
 
 // #-code-snippet: marker-following-activity full-java
 
-import android.animation.ObjectAnimator;
-import android.animation.TypeEvaluator;
-import android.animation.ValueAnimator;
 import android.graphics.Color;
 import android.os.AsyncTask;
 import android.os.Bundle;
-import android.os.Handler;
+import android.support.annotation.NonNull;
 import android.support.v7.app.AppCompatActivity;
-import android.text.TextUtils;
 import android.util.Log;
-import android.view.animation.LinearInterpolator;
 
 import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.utils.LineStringDecoder;
+import com.mapbox.mapboxandroiddemo.utils.PackedLineString;
+import com.mapbox.mapboxandroiddemo.utils.RouteDistanceTable;
+import com.mapbox.mapboxandroiddemo.utils.RouteMarkerAnimator;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.annotations.Icon;
 import com.mapbox.mapboxsdk.annotations.IconFactory;
@@ -26,16 +25,6 @@ import com.mapbox.mapboxsdk.maps.MapView;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
 import com.mapbox.mapboxsdk.maps.OnMapReadyCallback;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Use a map matched GeoJSON route to show a marker travels along the route at consistent speed.
  */
@@ -43,13 +32,13 @@ public class MarkerFollowingRouteActivity extends AppCompatActivity {
 
   private static final String TAG = "MarkerFollowingRoute";
 
+  // The speed of the marker in meters per second. Adjusting this value will result in the marker
+  // traversing faster or slower along the line.
+  private static final double MARKER_SPEED = 100;
+
   private MapView mapView;
   private MapboxMap map;
-  private Handler handler;
-  private Runnable runnable;
-
-  private static int count = 0;
-  private long distance;
+  private final RouteMarkerAnimator markerAnimator = new RouteMarkerAnimator();
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
@@ -82,9 +71,7 @@ public class MarkerFollowingRouteActivity extends AppCompatActivity {
     super.onResume();
     mapView.onResume();
     // When the activity is resumed we restart the marker animating.
-    if (handler != null && runnable != null) {
-      handler.post(runnable);
-    }
+    markerAnimator.start();
   }
 
   @Override
@@ -105,9 +92,7 @@ public class MarkerFollowingRouteActivity extends AppCompatActivity {
     mapView.onPause();
     // Check if the marker is currently animating and if so, we pause the animation so we aren't
     // using resources when the activities not in view.
-    if (handler != null && runnable != null) {
-      handler.removeCallbacks(runnable);
-    }
+    markerAnimator.pause();
   }
 
   @Override
@@ -119,6 +104,7 @@ public class MarkerFollowingRouteActivity extends AppCompatActivity {
   @Override
   protected void onDestroy() {
     super.onDestroy();
+    markerAnimator.stop();
     mapView.onDestroy();
   }
 
@@ -131,66 +117,30 @@ public class MarkerFollowingRouteActivity extends AppCompatActivity {
   // We want to load in the GeoJSON file asynchronous so the UI thread isn't handling the file
   // loading. The GeoJSON file we are using is stored in the assets folder, you could also get
   // this information from the Mapbox map matching API during runtime.
-  private class DrawGeoJson extends AsyncTask<Void, Void, List<LatLng>> {
+  private class DrawGeoJson extends AsyncTask<Void, Void, PackedLineString> {
     @Override
-    protected List<LatLng> doInBackground(Void... voids) {
-
-      // Store the route LatLng points in a list so we can query them.
-      List<LatLng> points = new ArrayList<>();
-
+    protected PackedLineString doInBackground(Void... voids) {
       try {
-        // Load GeoJSON file from the assets folder.
-        InputStream inputStream = getAssets().open("matched_route.geojson");
-        BufferedReader rd = new BufferedReader(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
-        StringBuilder sb = new StringBuilder();
-        int cp;
-        while ((cp = rd.read()) != -1) {
-          sb.append((char) cp);
-        }
-
-        inputStream.close();
-
-        // Parse JSON
-        JSONObject json = new JSONObject(sb.toString());
-        JSONArray features = json.getJSONArray("features");
-        JSONObject feature = features.getJSONObject(0);
-        JSONObject geometry = feature.getJSONObject("geometry");
-        if (geometry != null) {
-          String type = geometry.getString("type");
-
-          // Our GeoJSON only has one feature: a line string.
-          if (!TextUtils.isEmpty(type) && type.equalsIgnoreCase("LineString")) {
-
-            // Get the Coordinates and add them to the points list we created above.
-            JSONArray coords = geometry.getJSONArray("coordinates");
-            for (int lc = 0; lc < coords.length(); lc++) {
-              JSONArray coord = coords.getJSONArray(lc);
-              LatLng latLng = new LatLng(coord.getDouble(1), coord.getDouble(0));
-              points.add(latLng);
-            }
-          }
-        }
+        // Decode the route coordinates straight from the assets folder into a packed array. Our
+        // GeoJSON only has one feature: a line string.
+        return LineStringDecoder.decode(getAssets().open("matched_route.geojson"));
       } catch (Exception exception) {
-        // If an error occurs loading in the GeoJSON file or adding the points to the list,
-        // we log the error.
+        // If an error occurs loading in the GeoJSON file, we log the error.
         Log.e(TAG, "Exception Loading GeoJSON: " + exception.toString());
+        return null;
       }
-
-      // Lastly we return the list containing the route points.
-      return points;
     } // End doInBackground
 
     @Override
-    protected void onPostExecute(final List<LatLng> points) {
-      super.onPostExecute(points);
+    protected void onPostExecute(final PackedLineString route) {
+      super.onPostExecute(route);
 
-      // Make sure our list isn't empty.
-      if (points.size() > 0) {
-        LatLng[] pointsArray = points.toArray(new LatLng[points.size()]);
+      // Make sure our route isn't empty.
+      if (route != null && route.size() > 0) {
 
         // Draw a polyline showing the route the marker will be taking.
         map.addPolyline(new PolylineOptions()
-            .add(pointsArray)
+            .add(route.toLatLngs())
             .color(Color.parseColor("#F13C6E"))
             .width(4));
 
@@ -199,71 +149,32 @@ public class MarkerFollowingRouteActivity extends AppCompatActivity {
 
         // Using a view marker, we place it at the first point in the points list.
         final Marker marker = map.addMarker(new MarkerViewOptions()
-            .position(points.get(count))
+            .position(new LatLng(route.latitude(0), route.longitude(0)))
             .icon(icon)
             .anchor(0.5f, 0.5f)
             .flat(true));
 
-        // Animating the marker requires the use of both the ValueAnimator and a handler.
-        // The ValueAnimator is used to move the marker between the GeoJSON points, this is
-        // done linearly. The handler is used to move the marker along the GeoJSON points.
-        handler = new Handler();
-        runnable = new Runnable() {
-          @Override
-          public void run() {
-
-            // Check if we are at the end of the points list, if so we want to stop using
-            // the handler.
-            if ((points.size() - 1) > count) {
-
-              // Calculating the distance is done between the current point and next.
-              // This gives us the duration we will need to execute the ValueAnimator.
-              // Multiplying by ten is done to slow down the marker speed. Adjusting
-              // this value will result in the marker traversing faster or slower along
-              // the line
-              distance = (long) marker.getPosition().distanceTo(points.get(count)) * 10;
-
-              // animate the marker from it's current position to the next point in the
-              // points list.
-              ValueAnimator markerAnimator = ObjectAnimator.ofObject(marker, "position",
-                  new LatLngEvaluator(), marker.getPosition(), points.get(count));
-              markerAnimator.setDuration(distance);
-              markerAnimator.setInterpolator(new LinearInterpolator());
-              markerAnimator.start();
-
-              // This line will make sure the marker appears when it is being animated
-              // and starts outside the current user view. Without this, the user must
-              // intentionally execute a gesture before the view marker reappears on
-              // the map.
-              map.getMarkerViewManager().update();
-
-              // Keeping the current point count we are on.
-              count++;
-
-              // Once we finish we need to repeat the entire process by executing the
-              // handler again once the ValueAnimator is finished.
-              handler.postDelayed(this, distance);
+        // This line will make sure the marker appears when it is being animated and starts outside
+        // the current user view. Without this, the user must intentionally execute a gesture before
+        // the view marker reappears on the map.
+        map.getMarkerViewManager().update();
+
+        // The animator moves the marker along the route once per frame. The distance of every point
+        // from the start of the route is measured up front, so finding the marker's position on a
+        // frame is a quick lookup instead of a new animation per line segment.
+        final LatLng markerPosition = new LatLng();
+        markerAnimator.addTrack(new RouteMarkerAnimator.Track(new RouteDistanceTable(route), MARKER_SPEED,
+          new RouteMarkerAnimator.OnPositionChangedListener() {
+            @Override
+            public void onPositionChanged(@NonNull RouteMarkerAnimator.Track track, double longitude,
+                                          double latitude) {
+              markerPosition.setLatitude(latitude);
+              markerPosition.setLongitude(longitude);
+              marker.setPosition(markerPosition);
             }
-          }
-        };
-        handler.post(runnable);
+          }));
       }
     } // End onPostExecute
   } // End DrawGeoJson
-
-  private static class LatLngEvaluator implements TypeEvaluator<LatLng> {
-    // Method is used to interpolate the marker animation.
-
-    private LatLng latLng = new LatLng();
-
-    @Override
-    public LatLng evaluate(float fraction, LatLng startValue, LatLng endValue) {
-      latLng.setLatitude(startValue.getLatitude()
-          + ((endValue.getLatitude() - startValue.getLatitude()) * fraction));
-      latLng.setLongitude(startValue.getLongitude()
-          + ((endValue.getLongitude() - startValue.getLongitude()) * fraction));
-      return latLng;
-    }
-  }
 }
 // #-end-code-snippet: marker-following-activity full-java
\ No newline at end of file
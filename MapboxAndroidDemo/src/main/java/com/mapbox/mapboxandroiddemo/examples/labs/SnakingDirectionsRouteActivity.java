@@ -4,6 +4,8 @@ package com.mapbox.mapboxandroiddemo.examples.labs;
 
 import android.graphics.Color;
 import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v7.app.AppCompatActivity;
 import android.util.Log;
 import android.widget.Toast;
@@ -12,14 +14,14 @@ import com.mapbox.api.directions.v5.DirectionsCriteria;
 import com.mapbox.api.directions.v5.MapboxDirections;
 import com.mapbox.api.directions.v5.models.DirectionsResponse;
 import com.mapbox.api.directions.v5.models.DirectionsRoute;
-import com.mapbox.api.directions.v5.models.LegStep;
-import com.mapbox.api.directions.v5.models.RouteLeg;
-import com.mapbox.api.directions.v5.models.StepIntersection;
 import com.mapbox.geojson.Feature;
 import com.mapbox.geojson.FeatureCollection;
-import com.mapbox.geojson.LineString;
 import com.mapbox.geojson.Point;
 import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.utils.PackedLineString;
+import com.mapbox.mapboxandroiddemo.utils.RouteGeometryDecoder;
+import com.mapbox.mapboxandroiddemo.utils.RouteResultStore;
+import com.mapbox.mapboxandroiddemo.utils.SnakingRouteRenderer;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.annotations.MarkerOptions;
 import com.mapbox.mapboxsdk.geometry.LatLng;
@@ -27,20 +29,20 @@ import com.mapbox.mapboxsdk.maps.MapView;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
 import com.mapbox.mapboxsdk.maps.OnMapReadyCallback;
 import com.mapbox.mapboxsdk.style.layers.LineLayer;
+import com.mapbox.mapboxsdk.style.sources.GeoJsonOptions;
 import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
 
 import static com.mapbox.api.directions.v5.DirectionsCriteria.GEOMETRY_POLYLINE;
+import static com.mapbox.core.constants.Constants.PRECISION_5;
 import static com.mapbox.mapboxsdk.style.layers.Property.LINE_CAP_ROUND;
 import static com.mapbox.mapboxsdk.style.layers.Property.LINE_JOIN_ROUND;
 import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineCap;
-import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineColor;
 import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineJoin;
 import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineOpacity;
 import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineWidth;
@@ -56,9 +58,13 @@ public class SnakingDirectionsRouteActivity extends AppCompatActivity
   private static final String DRIVING_ROUTE_POLYLINE_LINE_LAYER_ID = "DRIVING_ROUTE_POLYLINE_LINE_LAYER_ID";
   private static final String DRIVING_ROUTE_POLYLINE_SOURCE_ID = "DRIVING_ROUTE_POLYLINE_SOURCE_ID";
   private static final String TAG = "SnakingRouteActivity";
+  private static final long SNAKING_DURATION = 4000;
   private MapView mapView;
   private MapboxMap map;
   private MapboxDirections client;
+  private RouteResultStore routeStore;
+  private final RouteGeometryDecoder geometryDecoder = new RouteGeometryDecoder();
+  private SnakingRouteRenderer snakingRouteRenderer;
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
@@ -71,6 +77,8 @@ public class SnakingDirectionsRouteActivity extends AppCompatActivity
     // This contains the MapView in XML and needs to be called after the access token is configured.
     setContentView(R.layout.activity_javaservices_snaking_directions_route);
 
+    routeStore = RouteResultStore.getInstance(this);
+
     // Setup the MapView
     mapView = findViewById(R.id.mapView);
     mapView.onCreate(savedInstanceState);
@@ -100,8 +108,9 @@ public class SnakingDirectionsRouteActivity extends AppCompatActivity
   }
 
   private void initDrivingRouteSourceAndLayer() {
+    // Line metrics let the layer reveal the route along line-progress
     GeoJsonSource drivingRouteGeoJsonSource = new GeoJsonSource(DRIVING_ROUTE_POLYLINE_SOURCE_ID,
-      FeatureCollection.fromFeatures(new Feature[] {}));
+      FeatureCollection.fromFeatures(new Feature[] {}), new GeoJsonOptions().withLineMetrics(true));
     map.addSource(drivingRouteGeoJsonSource);
     LineLayer drivingRouteLineLayer = new LineLayer(DRIVING_ROUTE_POLYLINE_LINE_LAYER_ID,
       DRIVING_ROUTE_POLYLINE_SOURCE_ID)
@@ -109,10 +118,11 @@ public class SnakingDirectionsRouteActivity extends AppCompatActivity
         lineWidth(NAVIGATION_LINE_WIDTH),
         lineOpacity(.3f),
         lineCap(LINE_CAP_ROUND),
-        lineJoin(LINE_JOIN_ROUND),
-        lineColor(Color.parseColor("#d742f4"))
+        lineJoin(LINE_JOIN_ROUND)
       );
     map.addLayer(drivingRouteLineLayer);
+    snakingRouteRenderer = new SnakingRouteRenderer(drivingRouteGeoJsonSource, drivingRouteLineLayer,
+      Color.parseColor("#d742f4"), SNAKING_DURATION);
   }
 
   /**
@@ -121,7 +131,24 @@ public class SnakingDirectionsRouteActivity extends AppCompatActivity
    * @param origin      The starting point for the directions route
    * @param destination The final point for the directions route
    */
-  private void getDirectionsRoute(Point origin, Point destination) {
+  private void getDirectionsRoute(final Point origin, final Point destination) {
+    // Routes requested before, also in earlier sessions, are taken from the route store
+    final String routeKey = RouteResultStore.directionsKey(DirectionsCriteria.PROFILE_DRIVING,
+      Arrays.asList(origin, destination), "overview=" + DirectionsCriteria.OVERVIEW_FULL,
+      "geometries=" + GEOMETRY_POLYLINE, "alternatives=true", "steps=true");
+    routeStore.getRoute(routeKey, new RouteResultStore.OnRouteLoadedListener() {
+      @Override
+      public void onRouteLoaded(@Nullable DirectionsRoute route) {
+        if (route != null) {
+          drawSnakingRoute(route);
+        } else {
+          requestDirectionsRoute(origin, destination, routeKey);
+        }
+      }
+    });
+  }
+
+  private void requestDirectionsRoute(Point origin, Point destination, final String routeKey) {
     client = MapboxDirections.builder()
       .origin(origin)
       .destination(destination)
@@ -148,31 +175,8 @@ public class SnakingDirectionsRouteActivity extends AppCompatActivity
 
         // Get the route from the Mapbox Directions API
         DirectionsRoute currentRoute = response.body().routes().get(0);
-        List<Point> directionsPointsForLineLayer = new ArrayList<>();
-        for (int i = 0; i < currentRoute.legs().size(); i++) {
-          RouteLeg leg = currentRoute.legs().get(i);
-          List<LegStep> steps = leg.steps();
-          for (int j = 0; j < steps.size(); j++) {
-            LegStep step = steps.get(j);
-            List<StepIntersection> intersections = step.intersections();
-            for (int k = 0; k < intersections.size(); k++) {
-              Point location = intersections.get(k).location();
-              directionsPointsForLineLayer.add(Point.fromLngLat(location.longitude(), location.latitude()));
-              List<Feature> drivingRoutePolyLineFeatureList = new ArrayList<>();
-              LineString lineString = LineString.fromLngLats(directionsPointsForLineLayer);
-              List<Point> coordinates = lineString.coordinates();
-              for (int x = 0; x < coordinates.size(); x++) {
-                drivingRoutePolyLineFeatureList.add(Feature.fromGeometry(LineString.fromLngLats(coordinates)));
-              }
-
-              // Update the GeoJSON source
-              GeoJsonSource source = map.getSourceAs(DRIVING_ROUTE_POLYLINE_SOURCE_ID);
-              if (source != null) {
-                source.setGeoJson(FeatureCollection.fromFeatures(drivingRoutePolyLineFeatureList));
-              }
-            }
-          }
-        }
+        routeStore.putRoute(routeKey, currentRoute);
+        drawSnakingRoute(currentRoute);
       }
 
       @Override
@@ -184,10 +188,32 @@ public class SnakingDirectionsRouteActivity extends AppCompatActivity
     });
   }
 
+  private void drawSnakingRoute(DirectionsRoute currentRoute) {
+    // Decode the route geometry and measure its cumulative distance on a worker thread, so long routes don't
+    // block the main thread
+    geometryDecoder.decode(currentRoute.geometry(), PRECISION_5,
+      new RouteGeometryDecoder.Converter<SnakingRouteRenderer.Route>() {
+        @NonNull
+        @Override
+        public SnakingRouteRenderer.Route convert(@NonNull PackedLineString line) {
+          return SnakingRouteRenderer.prepare(line);
+        }
+      }, new RouteGeometryDecoder.OnGeometryDecodedListener<SnakingRouteRenderer.Route>() {
+        @Override
+        public void onGeometryDecoded(@NonNull SnakingRouteRenderer.Route route) {
+          // The whole route is set on the source once, then revealed frame by frame
+          snakingRouteRenderer.start(route);
+        }
+      });
+  }
+
   @Override
   public void onResume() {
     super.onResume();
     mapView.onResume();
+    if (snakingRouteRenderer != null) {
+      snakingRouteRenderer.resume();
+    }
   }
 
   @Override
@@ -206,6 +232,9 @@ public class SnakingDirectionsRouteActivity extends AppCompatActivity
   public void onPause() {
     super.onPause();
     mapView.onPause();
+    if (snakingRouteRenderer != null) {
+      snakingRouteRenderer.pause();
+    }
   }
 
   @Override
@@ -221,6 +250,11 @@ public class SnakingDirectionsRouteActivity extends AppCompatActivity
     if (client != null) {
       client.cancelCall();
     }
+    Log.d(TAG, routeStore.getMetricsSummary());
+    geometryDecoder.shutdown();
+    if (snakingRouteRenderer != null) {
+      snakingRouteRenderer.stop();
+    }
     mapView.onDestroy();
   }
 
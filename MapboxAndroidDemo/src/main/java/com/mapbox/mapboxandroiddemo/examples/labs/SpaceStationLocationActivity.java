@@ -6,7 +6,7 @@ import android.animation.ObjectAnimator;
 import android.animation.TypeEvaluator;
 import android.animation.ValueAnimator;
 import android.os.Bundle;
-import android.os.Handler;
+import android.support.annotation.NonNull;
 import android.support.v7.app.AppCompatActivity;
 import android.util.Log;
 import android.view.animation.LinearInterpolator;
@@ -14,6 +14,7 @@ import android.widget.Toast;
 
 import com.mapbox.mapboxandroiddemo.R;
 import com.mapbox.mapboxandroiddemo.model.IssModel;
+import com.mapbox.mapboxandroiddemo.utils.LiveDataPoller;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.annotations.Icon;
 import com.mapbox.mapboxsdk.annotations.IconFactory;
@@ -33,6 +34,7 @@ import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 
 /**
  * Display the space station's real-time location
@@ -41,8 +43,7 @@ public class SpaceStationLocationActivity extends AppCompatActivity {
 
   private static final String TAG = "SpaceStationActivity";
 
-  private Handler handler;
-  private Runnable runnable;
+  private LiveDataPoller<IssModel> poller;
   private Call<IssModel> call;
 
   // apiCallTime is the time interval when we call the API in milliseconds, by default this is set
@@ -50,6 +51,9 @@ public class SpaceStationLocationActivity extends AppCompatActivity {
   // traffic, the latitude and longitude values aren't updated that frequently.
   private int apiCallTime = 2000;
 
+  // When the API is unreachable the interval is doubled after every failed call up to this value.
+  private static final int MAX_API_CALL_TIME = 60000;
+
   // Map variables
   private MapView mapView;
   private MarkerView marker;
@@ -87,8 +91,8 @@ public class SpaceStationLocationActivity extends AppCompatActivity {
     super.onResume();
     mapView.onResume();
     // When the user returns to the activity we want to resume the API calling.
-    if (handler != null && runnable != null) {
-      handler.post(runnable);
+    if (poller != null) {
+      poller.resume();
     }
   }
 
@@ -110,8 +114,8 @@ public class SpaceStationLocationActivity extends AppCompatActivity {
     mapView.onPause();
     // When the user leaves the activity, there is no need in calling the API since the map
     // isn't in view.
-    if (handler != null && runnable != null) {
-      handler.removeCallbacks(runnable);
+    if (poller != null) {
+      poller.pause();
     }
   }
 
@@ -124,6 +128,12 @@ public class SpaceStationLocationActivity extends AppCompatActivity {
   @Override
   protected void onDestroy() {
     super.onDestroy();
+    if (poller != null) {
+      poller.stop();
+    }
+    if (call != null) {
+      call.cancel();
+    }
     mapView.onDestroy();
   }
 
@@ -144,43 +154,50 @@ public class SpaceStationLocationActivity extends AppCompatActivity {
 
     final IssApiService service = client.create(IssApiService.class);
 
-    // A handler is needed to called the API every x amount of seconds.
-    handler = new Handler();
-    runnable = new Runnable() {
+    // The poller calls the API every x amount of seconds. It never starts a call while the previous one is
+    // still running, backs off while the API is unreachable and sends the validators of the last response
+    // along so the server can answer with 304 Not Modified when the position didn't change.
+    poller = new LiveDataPoller<>(apiCallTime, MAX_API_CALL_TIME, new LiveDataPoller.Fetcher<IssModel>() {
       @Override
-      public void run() {
+      public void fetch(@NonNull final LiveDataPoller.Poll<IssModel> poll) {
         // Call the API so we can get the updated coordinates.
-        call = service.loadLocation();
+        call = service.loadLocation(poll.getETag(), poll.getLastModified());
         call.enqueue(new Callback<IssModel>() {
           @Override
           public void onResponse(Call<IssModel> call, Response<IssModel> response) {
-
-            // We only need the latitude and longitude from the API.
-            double latitude = response.body().getIssPosition().getLatitude();
-            double longitude = response.body().getIssPosition().getLongitude();
-
-            updateMarkerPosition(new LatLng(latitude, longitude));
+            poll.onResponse(response);
           }
 
           @Override
           public void onFailure(Call<IssModel> call, Throwable throwable) {
-            // If retrofit fails or the API was unreachable, an error will be called.
-            //to check if throwable is null, then give a custom message.
-            if (throwable.getMessage() == null) {
-              Log.e(TAG, "Http connection failed");
-            } else {
-              Log.e(TAG, throwable.getMessage());
-            }
-
+            poll.onFailure(throwable);
           }
         });
-        // Schedule the next execution time for this runnable.
-        handler.postDelayed(this, apiCallTime);
       }
-    };
+    }, new LiveDataPoller.OnDataListener<IssModel>() {
+      @Override
+      public void onData(@NonNull IssModel issModel) {
+        // We only need the latitude and longitude from the API.
+        double latitude = issModel.getIssPosition().getLatitude();
+        double longitude = issModel.getIssPosition().getLongitude();
+
+        updateMarkerPosition(new LatLng(latitude, longitude));
+      }
+
+      @Override
+      public void onError(@NonNull Throwable throwable) {
+        // If retrofit fails or the API was unreachable, an error will be called.
+        //to check if throwable is null, then give a custom message.
+        if (throwable.getMessage() == null) {
+          Log.e(TAG, "Http connection failed");
+        } else {
+          Log.e(TAG, throwable.getMessage());
+        }
+      }
+    });
 
-    // The first time this runs we don't need a delay so we immediately post.
-    handler.post(runnable);
+    // The first time this runs we don't need a delay so the poller calls the API immediately.
+    poller.start();
   }
 
   private void updateMarkerPosition(LatLng position) {
@@ -240,7 +257,8 @@ public class SpaceStationLocationActivity extends AppCompatActivity {
   // Interface used for Retrofit.
   public interface IssApiService {
     @GET("iss-now")
-    Call<IssModel> loadLocation();
+    Call<IssModel> loadLocation(@Header("If-None-Match") String etag,
+                                @Header("If-Modified-Since") String lastModified);
   }
 }
 // #-end-code-snippet: space-station-activity full-java
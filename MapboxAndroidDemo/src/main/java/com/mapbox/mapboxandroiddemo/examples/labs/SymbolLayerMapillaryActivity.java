@@ -7,7 +7,6 @@ import android.animation.AnimatorSet;
 import android.animation.TypeEvaluator;
 import android.animation.ValueAnimator;
 import android.annotation.SuppressLint;
-import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
@@ -19,6 +18,7 @@ import android.graphics.Rect;
 import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Handler;
+import android.support.annotation.DrawableRes;
 import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
 import android.support.v4.view.animation.FastOutSlowInInterpolator;
@@ -40,6 +40,11 @@ import com.mapbox.geojson.Feature;
 import com.mapbox.geojson.FeatureCollection;
 import com.mapbox.geojson.Point;
 import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.commons.GeoJsonAssetReader;
+import com.mapbox.mapboxandroiddemo.utils.HotColdFeatureStore;
+import com.mapbox.mapboxandroiddemo.utils.SymbolBitmapCache;
+import com.mapbox.mapboxandroiddemo.utils.SymbolGenerator;
+import com.mapbox.mapboxandroiddemo.utils.ViewportIconRenderer;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.camera.CameraPosition;
 import com.mapbox.mapboxsdk.camera.CameraUpdateFactory;
@@ -60,7 +65,6 @@ import com.mapbox.mapboxsdk.style.sources.TileSet;
 import com.mapbox.mapboxsdk.style.sources.VectorSource;
 import com.squareup.picasso.Picasso;
 
-import java.io.InputStream;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.ref.WeakReference;
@@ -68,6 +72,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -83,7 +88,6 @@ import static com.mapbox.mapboxsdk.style.expressions.Expression.gte;
 import static com.mapbox.mapboxsdk.style.expressions.Expression.interpolate;
 import static com.mapbox.mapboxsdk.style.expressions.Expression.literal;
 import static com.mapbox.mapboxsdk.style.expressions.Expression.lt;
-import static com.mapbox.mapboxsdk.style.expressions.Expression.match;
 import static com.mapbox.mapboxsdk.style.expressions.Expression.stop;
 import static com.mapbox.mapboxsdk.style.expressions.Expression.toNumber;
 import static com.mapbox.mapboxsdk.style.expressions.Expression.zoom;
@@ -110,7 +114,9 @@ import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.visibility;
 public class SymbolLayerMapillaryActivity extends AppCompatActivity implements OnMapReadyCallback,
   MapboxMap.OnMapClickListener {
   private static final String SOURCE_ID = "mapbox.poi";
+  private static final String HOT_SOURCE_ID = "mapbox.poi.hot";
   private static final String MAKI_LAYER_ID = "mapbox.poi.maki";
+  private static final String MAKI_SELECTED_LAYER_ID = "mapbox.poi.maki.selected";
   private static final String LOADING_LAYER_ID = "mapbox.poi.loading";
   private static final String CALLOUT_LAYER_ID = "mapbox.poi.callout";
 
@@ -132,9 +138,12 @@ public class SymbolLayerMapillaryActivity extends AppCompatActivity implements O
   private MapboxMap mapboxMap;
   private RecyclerView recyclerView;
 
-  private GeoJsonSource source;
+  private HotColdFeatureStore featureStore;
   private FeatureCollection featureCollection;
-  private HashMap<String, View> viewMap;
+  private final Map<String, View> viewMap = new ConcurrentHashMap<>();
+  private final Map<String, String> iconCacheKeys = new ConcurrentHashMap<>();
+  private SymbolBitmapCache symbolBitmapCache;
+  private ViewportIconRenderer iconRenderer;
   private AnimatorSet animatorSet;
 
   private LoadMapillaryDataTask loadMapillaryDataTask;
@@ -170,6 +179,9 @@ public class SymbolLayerMapillaryActivity extends AppCompatActivity implements O
     // This contains the MapView in XML and needs to be called after the access token is configured.
     setContentView(R.layout.activity_symbol_layer_mapillary);
 
+    // Bounded cache for the generated callout bitmaps
+    symbolBitmapCache = SymbolBitmapCache.create();
+
     recyclerView = findViewById(R.id.rv_on_top_of_map);
 
     // Initialize the map view
@@ -216,16 +228,54 @@ public class SymbolLayerMapillaryActivity extends AppCompatActivity implements O
     setupRecyclerView();
     hideLabelLayers();
     setupMapillaryTiles();
+    setupIconRenderer();
   }
 
+  /**
+   * Callout icons are only rendered for the features inside the viewport, nearest to the camera target first,
+   * and added to the map in small batches as the camera moves.
+   */
+  private void setupIconRenderer() {
+    iconRenderer = new ViewportIconRenderer(mapboxMap, featureCollection.features(), new CalloutIconFactory(),
+      new ViewportIconRenderer.OnIconsReadyListener() {
+        @Override
+        public void onIconsReady(@NonNull HashMap<String, Bitmap> icons) {
+          setImageGenResults(icons);
+        }
+      });
+    iconRenderer.start();
+  }
+
+  /**
+   * Setup the sources of the POIs.
+   * <p>
+   * Selecting a POI or animating its loading state only touches a single feature, so the selected and loading
+   * features are kept in a small hot source next to the source with all POIs. Only the hot source is updated
+   * when these properties change.
+   * </p>
+   */
   private void setupSource() {
-    source = new GeoJsonSource(SOURCE_ID, featureCollection);
+    GeoJsonSource source = new GeoJsonSource(SOURCE_ID);
     mapboxMap.addSource(source);
+    GeoJsonSource hotSource = new GeoJsonSource(HOT_SOURCE_ID);
+    mapboxMap.addSource(hotSource);
+    featureStore = new HotColdFeatureStore(source, hotSource, featureCollection.features(),
+      new HotColdFeatureStore.HotPredicate() {
+        @Override
+        public boolean isHot(@NonNull Feature feature) {
+          return feature.getBooleanProperty(PROPERTY_SELECTED) || feature.getBooleanProperty(PROPERTY_LOADING);
+        }
+      });
   }
 
-  private void refreshSource() {
-    if (source != null && featureCollection != null) {
-      source.setGeoJson(featureCollection);
+  /**
+   * Updates the map after properties of a feature have been changed. Updates are applied once per frame.
+   *
+   * @param feature the changed feature
+   */
+  private void refreshFeature(Feature feature) {
+    if (featureStore != null) {
+      featureStore.markDirty(feature);
     }
   }
 
@@ -241,11 +291,16 @@ public class SymbolLayerMapillaryActivity extends AppCompatActivity implements O
         iconImage("{poi}-15"),
 
         /* allows show all icons */
-        iconAllowOverlap(true),
+        iconAllowOverlap(true))
+    );
 
-        /* when feature is in selected state, grow icon */
-        iconSize(match(get(PROPERTY_SELECTED), literal(1.0f),
-          stop(true, 1.5f))))
+    /* when feature is in selected state, draw a grown icon on top */
+    mapboxMap.addLayer(new SymbolLayer(MAKI_SELECTED_LAYER_ID, HOT_SOURCE_ID)
+      .withProperties(
+        iconImage("{poi}-15"),
+        iconAllowOverlap(true),
+        iconSize(1.5f))
+      .withFilter(eq(get(PROPERTY_SELECTED), literal(true)))
     );
   }
 
@@ -253,7 +308,7 @@ public class SymbolLayerMapillaryActivity extends AppCompatActivity implements O
    * Setup layer indicating that there is an ongoing progress.
    */
   private void setupLoadingLayer() {
-    mapboxMap.addLayerBelow(new CircleLayer(LOADING_LAYER_ID, SOURCE_ID)
+    mapboxMap.addLayerBelow(new CircleLayer(LOADING_LAYER_ID, HOT_SOURCE_ID)
       .withProperties(
         circleRadius(interpolate(exponential(1), get(PROPERTY_LOADING_PROGRESS), getLoadingAnimationStops())),
         circleColor(Color.GRAY),
@@ -278,7 +333,7 @@ public class SymbolLayerMapillaryActivity extends AppCompatActivity implements O
    * </p>
    */
   private void setupCalloutLayer() {
-    mapboxMap.addLayer(new SymbolLayer(CALLOUT_LAYER_ID, SOURCE_ID)
+    mapboxMap.addLayer(new SymbolLayer(CALLOUT_LAYER_ID, HOT_SOURCE_ID)
       .withProperties(
         /* show image with id title based on the value of the title feature property */
         iconImage("{title}"),
@@ -342,6 +397,9 @@ public class SymbolLayerMapillaryActivity extends AppCompatActivity implements O
    */
   private void handleClickCallout(Feature feature, PointF screenPoint, PointF symbolScreenPoint) {
     View view = viewMap.get(feature.getStringProperty(PROPERTY_TITLE));
+    if (view == null) {
+      return;
+    }
     View textContainer = view.findViewById(R.id.text_container);
 
     // create hitbox for textView
@@ -407,7 +465,6 @@ public class SymbolLayerMapillaryActivity extends AppCompatActivity implements O
     Feature feature = featureCollection.features().get(index);
     selectFeature(feature);
     animateCameraToSelection(feature);
-    refreshSource();
     loadMapillaryData(feature);
 
     if (withScroll) {
@@ -420,7 +477,10 @@ public class SymbolLayerMapillaryActivity extends AppCompatActivity implements O
    */
   private void deselectAll(boolean hideRecycler) {
     for (Feature feature : featureCollection.features()) {
-      feature.properties().addProperty(PROPERTY_SELECTED, false);
+      if (feature.getBooleanProperty(PROPERTY_SELECTED)) {
+        feature.properties().addProperty(PROPERTY_SELECTED, false);
+        refreshFeature(feature);
+      }
     }
 
     if (hideRecycler) {
@@ -435,6 +495,7 @@ public class SymbolLayerMapillaryActivity extends AppCompatActivity implements O
    */
   private void selectFeature(Feature feature) {
     feature.properties().addProperty(PROPERTY_SELECTED, true);
+    refreshFeature(feature);
   }
 
   private Feature getSelectedFeature() {
@@ -497,24 +558,64 @@ public class SymbolLayerMapillaryActivity extends AppCompatActivity implements O
     boolean currentState = feature.getBooleanProperty(PROPERTY_FAVOURITE);
     feature.properties().addProperty(PROPERTY_FAVOURITE, !currentState);
     View view = viewMap.get(title);
+    if (view == null) {
+      // the callout hasn't been rendered yet and will pick up the new state once it enters the viewport
+      refreshFeature(feature);
+      return;
+    }
 
+    // drawn the same way as in CalloutIconFactory#createIcon, so both share the cache entry of the new state
+    int favouriteIcon = favouriteIcon(!currentState);
     ImageView imageView = (ImageView) view.findViewById(R.id.logoView);
-    imageView.setImageResource(currentState ? R.drawable.ic_favorite : R.drawable.ic_favorite_border);
-    Bitmap bitmap = SymbolGenerator.generate(view);
+    imageView.setImageResource(favouriteIcon);
+
+    // toggling back to a previous state is served from the cache
+    String cacheKey = calloutCacheKey(title, feature.getStringProperty(PROPERTY_STYLE), favouriteIcon);
+    Bitmap bitmap = symbolBitmapCache.get(cacheKey);
+    if (bitmap == null) {
+      bitmap = SymbolGenerator.generate(view, symbolBitmapCache.getBitmapPool());
+    }
     mapboxMap.addImage(title, bitmap);
-    refreshSource();
+    symbolBitmapCache.put(cacheKey, bitmap);
+    refreshFeature(feature);
+  }
+
+  /**
+   * @param favourite the favourite state of a feature
+   * @return the heart drawn into the callout of the feature
+   */
+  @DrawableRes
+  static int favouriteIcon(boolean favourite) {
+    return favourite ? R.drawable.ic_favorite : R.drawable.ic_favorite_border;
+  }
+
+  /**
+   * Builds the cache key of a callout from everything drawn into it, so one key never holds two images.
+   *
+   * @param title         the title of the feature, which is also its image id
+   * @param style         the style line of the callout
+   * @param favouriteIcon the heart drawn, see {@link #favouriteIcon(boolean)}
+   * @return the cache key
+   */
+  static String calloutCacheKey(@NonNull String title, String style, @DrawableRes int favouriteIcon) {
+    return SymbolBitmapCache.key(title, title, style, favouriteIcon);
   }
 
   /**
-   * Invoked when the bitmaps have been generated from a view.
+   * Invoked on the main thread for every batch of bitmaps generated from views.
    */
-  public void setImageGenResults(HashMap<String, View> viewMap, HashMap<String, Bitmap> imageMap) {
+  public void setImageGenResults(HashMap<String, Bitmap> imageMap) {
     if (mapboxMap != null) {
       // calling addImages is faster as separate addImage calls for each bitmap.
       mapboxMap.addImages(imageMap);
     }
-    // need to store reference to views to be able to use them as hitboxes for click events.
-    this.viewMap = viewMap;
+    // the map holds its own copy of the images now, so the bitmaps can be cached and eventually reused.
+    for (Map.Entry<String, Bitmap> entry : imageMap.entrySet()) {
+      String cacheKey = iconCacheKeys.get(entry.getKey());
+      if (cacheKey != null) {
+        symbolBitmapCache.put(cacheKey, entry.getValue());
+      }
+    }
   }
 
   private void setActivityStep(@ActivityStep int activityStep) {
@@ -571,6 +672,13 @@ public class SymbolLayerMapillaryActivity extends AppCompatActivity implements O
     if (mapboxMap != null) {
       mapboxMap.removeOnMapClickListener(this);
     }
+    if (iconRenderer != null) {
+      iconRenderer.stop();
+    }
+    if (featureStore != null) {
+      featureStore.onDestroy();
+    }
+    symbolBitmapCache.clear();
     mapView.onDestroy();
   }
 
@@ -582,7 +690,6 @@ public class SymbolLayerMapillaryActivity extends AppCompatActivity implements O
       }
       setActivityStep(STEP_INITIAL);
       deselectAll(true);
-      refreshSource();
     } else {
       super.onBackPressed();
     }
@@ -681,8 +788,7 @@ public class SymbolLayerMapillaryActivity extends AppCompatActivity implements O
         return null;
       }
 
-      String geoJson = loadGeoJsonFromAsset(activity, "sf_poi.geojson");
-      return FeatureCollection.fromJson(geoJson);
+      return GeoJsonAssetReader.loadFeatureCollection(activity, "sf_poi.geojson");
     }
 
     @Override
@@ -693,93 +799,59 @@ public class SymbolLayerMapillaryActivity extends AppCompatActivity implements O
         return;
       }
       activity.setupData(featureCollection);
-      new GenerateViewIconTask(activity).execute(featureCollection);
-    }
-
-    static String loadGeoJsonFromAsset(Context context, String filename) {
-      try {
-        // Load GeoJSON file from local asset folder
-        InputStream is = context.getAssets().open(filename);
-        int size = is.available();
-        byte[] buffer = new byte[size];
-        is.read(buffer);
-        is.close();
-        return new String(buffer, "UTF-8");
-      } catch (Exception exception) {
-        throw new RuntimeException(exception);
-      }
     }
   }
 
   /**
-   * AsyncTask to generate Bitmap from Views to be used as iconImage in a SymbolLayer.
-   * <p>
-   * Call be optionally be called to update the underlying data source after execution.
-   * </p>
+   * Generates a Bitmap from a View to be used as iconImage in a SymbolLayer.
    * <p>
-   * Generating Views on background thread since we are not going to be adding them to the view hierarchy.
+   * Called by the {@link ViewportIconRenderer} on a background thread, which is fine since the Views are
+   * not going to be added to the view hierarchy.
    * </p>
    */
-  private static class GenerateViewIconTask extends AsyncTask<FeatureCollection, Void, HashMap<String, Bitmap>> {
+  private class CalloutIconFactory implements ViewportIconRenderer.IconFactory {
 
-    private final HashMap<String, View> viewMap = new HashMap<>();
-    private final WeakReference<SymbolLayerMapillaryActivity> activityRef;
-    private final boolean refreshSource;
+    private final LayoutInflater inflater = LayoutInflater.from(SymbolLayerMapillaryActivity.this);
 
-    GenerateViewIconTask(SymbolLayerMapillaryActivity activity, boolean refreshSource) {
-      this.activityRef = new WeakReference<>(activity);
-      this.refreshSource = refreshSource;
-    }
-
-    GenerateViewIconTask(SymbolLayerMapillaryActivity activity) {
-      this(activity, false);
+    @NonNull
+    @Override
+    public String getIconId(@NonNull Feature feature) {
+      return feature.getStringProperty(PROPERTY_TITLE);
     }
 
     @SuppressWarnings("WrongThread")
     @Override
-    protected HashMap<String, Bitmap> doInBackground(FeatureCollection... params) {
-      SymbolLayerMapillaryActivity activity = activityRef.get();
-      if (activity != null) {
-        HashMap<String, Bitmap> imagesMap = new HashMap<>();
-        LayoutInflater inflater = LayoutInflater.from(activity);
-        FeatureCollection featureCollection = params[0];
-
-        for (Feature feature : featureCollection.features()) {
-          View view = inflater.inflate(R.layout.mapillary_layout_callout, null);
-
-          String name = feature.getStringProperty(PROPERTY_TITLE);
-          TextView titleTv = (TextView) view.findViewById(R.id.title);
-          titleTv.setText(name);
-
-          String style = feature.getStringProperty(PROPERTY_STYLE);
-          TextView styleTv = (TextView) view.findViewById(R.id.style);
-          styleTv.setText(style);
-
-          boolean favourite = feature.getBooleanProperty(PROPERTY_FAVOURITE);
-          ImageView imageView = (ImageView) view.findViewById(R.id.logoView);
-          imageView.setImageResource(favourite ? R.drawable.ic_favorite : R.drawable.ic_favorite_border);
-
-          Bitmap bitmap = SymbolGenerator.generate(view);
-          imagesMap.put(name, bitmap);
-          viewMap.put(name, view);
-        }
-
-        return imagesMap;
-      } else {
-        return null;
+    public Bitmap createIcon(@NonNull Feature feature) {
+      View view = inflater.inflate(R.layout.mapillary_layout_callout, null);
+
+      String name = feature.getStringProperty(PROPERTY_TITLE);
+      TextView titleTv = (TextView) view.findViewById(R.id.title);
+      titleTv.setText(name);
+
+      String style = feature.getStringProperty(PROPERTY_STYLE);
+      TextView styleTv = (TextView) view.findViewById(R.id.style);
+      styleTv.setText(style);
+
+      int favouriteIcon = favouriteIcon(feature.getBooleanProperty(PROPERTY_FAVOURITE));
+      ImageView imageView = (ImageView) view.findViewById(R.id.logoView);
+      imageView.setImageResource(favouriteIcon);
+
+      String cacheKey = calloutCacheKey(name, style, favouriteIcon);
+      // taken rather than looked up, so the bitmap can't be evicted and redrawn before its batch is added
+      Bitmap bitmap = symbolBitmapCache.take(cacheKey);
+      if (bitmap == null) {
+        bitmap = SymbolGenerator.generate(view, symbolBitmapCache.getBitmapPool());
       }
+      iconCacheKeys.put(name, cacheKey);
+      // need to store reference to views to be able to use them as hitboxes for click events.
+      viewMap.put(name, view);
+      return bitmap;
     }
 
     @Override
-    protected void onPostExecute(HashMap<String, Bitmap> bitmapHashMap) {
-      super.onPostExecute(bitmapHashMap);
-      SymbolLayerMapillaryActivity activity = activityRef.get();
-      if (activity != null && bitmapHashMap != null) {
-        activity.setImageGenResults(viewMap, bitmapHashMap);
-        if (refreshSource) {
-          activity.refreshSource();
-        }
-      }
+    public void releaseIcon(@NonNull String iconId, @NonNull Bitmap icon) {
+      // not put back under its cache key, which may belong to a newer state of the callout by now
+      symbolBitmapCache.getBitmapPool().release(icon);
     }
   }
 
@@ -1005,7 +1077,7 @@ public class SymbolLayerMapillaryActivity extends AppCompatActivity implements O
         feature.addNumberProperty(PROPERTY_LOADING_PROGRESS, loadingProgress);
         SymbolLayerMapillaryActivity activity = activityRef.get();
         if (activity != null) {
-          activity.refreshSource();
+          activity.refreshFeature(feature);
         }
         progressHandler.postDelayed(this, LOADING_STEP_DURATION);
       }
@@ -1016,7 +1088,7 @@ public class SymbolLayerMapillaryActivity extends AppCompatActivity implements O
       feature.addBooleanProperty(PROPERTY_LOADING, isLoading);
       SymbolLayerMapillaryActivity activity = activityRef.get();
       if (activity != null) {
-        activity.refreshSource();
+        activity.refreshFeature(feature);
 
         if (isLoading) { //zooming to a loading state
           activity.setActivityStep(STEP_LOADING);
@@ -1040,36 +1112,6 @@ public class SymbolLayerMapillaryActivity extends AppCompatActivity implements O
     }
   }
 
-  /**
-   * Utility class to generate Bitmaps for Symbol.
-   * <p>
-   * Bitmaps can be added to the map with {@link com.mapbox.mapboxsdk.maps.MapboxMap#addImage(String, Bitmap)}
-   * </p>
-   */
-  private static class SymbolGenerator {
-
-    /**
-     * Generate a Bitmap from an Android SDK View.
-     *
-     * @param view the View to be drawn to a Bitmap
-     * @return the generated bitmap
-     */
-    static Bitmap generate(@NonNull View view) {
-      int measureSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
-      view.measure(measureSpec, measureSpec);
-
-      int measuredWidth = view.getMeasuredWidth();
-      int measuredHeight = view.getMeasuredHeight();
-
-      view.layout(0, 0, measuredWidth, measuredHeight);
-      Bitmap bitmap = Bitmap.createBitmap(measuredWidth, measuredHeight, Bitmap.Config.ARGB_8888);
-      bitmap.eraseColor(Color.TRANSPARENT);
-      Canvas canvas = new Canvas(bitmap);
-      view.draw(canvas);
-      return bitmap;
-    }
-  }
-
   /**
    * Util class that creates a Source and a Layer based on Mapillary data.
    * https://www.mapillary.com/developer/tiles-documentation/
@@ -5,6 +5,7 @@ package com.mapbox.mapboxandroiddemo.examples.offline;
 import android.app.AlertDialog;
 import android.content.DialogInterface;
 import android.os.Bundle;
+import android.support.annotation.NonNull;
 import android.support.v7.app.AppCompatActivity;
 import android.util.Log;
 import android.view.View;
@@ -14,22 +15,26 @@ import android.widget.ProgressBar;
 import android.widget.Toast;
 
 import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.utils.OfflineDownloadManager;
+import com.mapbox.mapboxandroiddemo.utils.OfflineTileEstimator;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.camera.CameraPosition;
 import com.mapbox.mapboxsdk.camera.CameraUpdateFactory;
+import com.mapbox.mapboxsdk.geometry.LatLng;
 import com.mapbox.mapboxsdk.geometry.LatLngBounds;
 import com.mapbox.mapboxsdk.maps.MapView;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
 import com.mapbox.mapboxsdk.maps.OnMapReadyCallback;
 import com.mapbox.mapboxsdk.offline.OfflineManager;
 import com.mapbox.mapboxsdk.offline.OfflineRegion;
-import com.mapbox.mapboxsdk.offline.OfflineRegionError;
 import com.mapbox.mapboxsdk.offline.OfflineRegionStatus;
 import com.mapbox.mapboxsdk.offline.OfflineTilePyramidRegionDefinition;
 
 import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 /**
  * Download, view, navigate to, and delete an offline region.
@@ -42,6 +47,9 @@ public class OfflineManagerActivity extends AppCompatActivity {
   public static final String JSON_CHARSET = "UTF-8";
   public static final String JSON_FIELD_REGION_NAME = "FIELD_REGION_NAME";
 
+  // Number of regions downloading at the same time
+  private static final int MAX_CONCURRENT_DOWNLOADS = 2;
+
   // UI elements
   private MapView mapView;
   private MapboxMap map;
@@ -54,8 +62,8 @@ public class OfflineManagerActivity extends AppCompatActivity {
 
   // Offline objects
   private OfflineManager offlineManager;
-  private OfflineRegion offlineRegion;
-
+  private OfflineDownloadManager downloadManager;
+  private final OfflineTileEstimator tileEstimator = new OfflineTileEstimator();
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
@@ -84,6 +92,9 @@ public class OfflineManagerActivity extends AppCompatActivity {
     // Set up the offlineManager
     offlineManager = OfflineManager.getInstance(this);
 
+    // Set up the download queue, which continues downloads that didn't finish in earlier sessions
+    downloadManager = new OfflineDownloadManager(this, MAX_CONCURRENT_DOWNLOADS, new DownloadListener());
+
     // Bottom navigation bar button clicks are handled here.
     // Download offline button
     downloadButton = (Button) findViewById(R.id.download_button);
@@ -138,6 +149,7 @@ public class OfflineManagerActivity extends AppCompatActivity {
   @Override
   protected void onDestroy() {
     super.onDestroy();
+    downloadManager.onDestroy();
     mapView.onDestroy();
   }
 
@@ -200,9 +212,32 @@ public class OfflineManagerActivity extends AppCompatActivity {
     double minZoom = map.getCameraPosition().zoom;
     double maxZoom = map.getMaxZoomLevel();
     float pixelRatio = this.getResources().getDisplayMetrics().density;
-    OfflineTilePyramidRegionDefinition definition = new OfflineTilePyramidRegionDefinition(
-      styleUrl, bounds, minZoom, maxZoom, pixelRatio);
 
+    // Count the tiles before anything is downloaded, and split regions exceeding the
+    // tile count limit into regions that each fit it
+    OfflineTileEstimator.Bounds estimatorBounds = new OfflineTileEstimator.Bounds(
+      bounds.getLatSouth(), bounds.getLonWest(), bounds.getLatNorth(), bounds.getLonEast());
+    OfflineTileEstimator.Estimate estimate = tileEstimator.estimate(estimatorBounds, minZoom, maxZoom);
+    List<OfflineTileEstimator.Bounds> parts = tileEstimator.split(estimatorBounds, minZoom, maxZoom,
+      OfflineTileEstimator.DEFAULT_TILE_COUNT_LIMIT);
+    Log.d(TAG, String.format(Locale.US, "%s: %d tiles from zoom %d to %d, about %d kB, in %d regions",
+      regionName, estimate.getTileCount(), estimate.getMinZoom(), estimate.getMaxZoom(),
+      estimate.getSize() / 1024, parts.size()));
+
+    for (int i = 0; i < parts.size(); i++) {
+      OfflineTileEstimator.Bounds part = parts.get(i);
+      LatLngBounds partBounds = new LatLngBounds.Builder()
+        .include(new LatLng(part.getNorth(), part.getEast()))
+        .include(new LatLng(part.getSouth(), part.getWest()))
+        .build();
+      OfflineTilePyramidRegionDefinition definition = new OfflineTilePyramidRegionDefinition(
+        styleUrl, partBounds, minZoom, maxZoom, pixelRatio);
+      createRegion(parts.size() > 1
+        ? String.format(Locale.US, "%s (%d/%d)", regionName, i + 1, parts.size()) : regionName, definition);
+    }
+  }
+
+  private void createRegion(final String regionName, OfflineTilePyramidRegionDefinition definition) {
     // Build a JSONObject using the user-defined offline region title,
     // convert it into string, and use it to create a metadata variable.
     // The metadata variable will later be passed to createOfflineRegion()
@@ -222,8 +257,7 @@ public class OfflineManagerActivity extends AppCompatActivity {
       @Override
       public void onCreate(OfflineRegion offlineRegion) {
         Log.d(TAG, "Offline region created: " + regionName);
-        OfflineManagerActivity.this.offlineRegion = offlineRegion;
-        launchDownload();
+        downloadManager.enqueue(offlineRegion);
       }
 
       @Override
@@ -233,47 +267,52 @@ public class OfflineManagerActivity extends AppCompatActivity {
     });
   }
 
-  private void launchDownload() {
-    // Set up an observer to handle download progress and
-    // notify the user when the region is finished downloading
-    offlineRegion.setObserver(new OfflineRegion.OfflineRegionObserver() {
-      @Override
-      public void onStatusChanged(OfflineRegionStatus status) {
-        // Compute a percentage
-        double percentage = status.getRequiredResourceCount() >= 0
-          ? (100.0 * status.getCompletedResourceCount() / status.getRequiredResourceCount()) :
-          0.0;
-
-        if (status.isComplete()) {
-          // Download complete
-          endProgress(getString(R.string.end_progress_success));
-          return;
-        } else if (status.isRequiredResourceCountPrecise()) {
-          // Switch to determinate state
-          setPercentage((int) Math.round(percentage));
-        }
+  /**
+   * Shows the combined progress of the download queue
+   */
+  private class DownloadListener implements OfflineDownloadManager.OnDownloadListener {
+
+    @Override
+    public void onRegionProgress(@NonNull OfflineRegion region, @NonNull OfflineRegionStatus status) {
+      // Log what is being currently downloaded
+      Log.d(TAG, String.format("%s: %s/%s resources; %s bytes downloaded.",
+        getRegionName(region),
+        String.valueOf(status.getCompletedResourceCount()),
+        String.valueOf(status.getRequiredResourceCount()),
+        String.valueOf(status.getCompletedResourceSize())));
+    }
 
-        // Log what is being currently downloaded
-        Log.d(TAG, String.format("%s/%s resources; %s bytes downloaded.",
-          String.valueOf(status.getCompletedResourceCount()),
-          String.valueOf(status.getRequiredResourceCount()),
-          String.valueOf(status.getCompletedResourceSize())));
-      }
+    @Override
+    public void onRegionComplete(@NonNull OfflineRegion region) {
+      Log.d(TAG, "Offline region downloaded: " + getRegionName(region));
+    }
 
-      @Override
-      public void onError(OfflineRegionError error) {
-        Log.e(TAG, "onError reason: " + error.getReason());
-        Log.e(TAG, "onError message: " + error.getMessage());
+    @Override
+    public void onRegionError(@NonNull OfflineRegion region, @NonNull String message, boolean fatal) {
+      Log.e(TAG, "Error downloading " + getRegionName(region) + ": " + message);
+      if (fatal && downloadManager.getThroughput().getQueuedCount() == 0) {
+        endProgress(message);
       }
+    }
 
-      @Override
-      public void mapboxTileCountLimitExceeded(long limit) {
-        Log.e(TAG, "Mapbox tile count limit exceeded: " + limit);
+    @Override
+    public void onQueueProgress(@NonNull OfflineDownloadManager.Throughput throughput) {
+      if (throughput.getQueuedCount() == 0) {
+        // Download complete
+        endProgress(getString(R.string.end_progress_success));
+        return;
       }
-    });
-
-    // Change the region state
-    offlineRegion.setDownloadState(OfflineRegion.STATE_ACTIVE);
+      if (progressBar.getVisibility() != View.VISIBLE) {
+        // Downloads restored from an earlier session
+        startProgress();
+      }
+      if (throughput.getRequiredResources() > 0) {
+        setPercentage((int) Math.round(100 * throughput.getFraction()));
+      }
+      Log.d(TAG, String.format(Locale.US, "%d regions queued, %d active; %.1f resources/s, %.0f bytes/s, ETA %d s",
+        throughput.getQueuedCount(), throughput.getActiveCount(), throughput.getResourcesPerSecond(),
+        throughput.getBytesPerSecond(), throughput.getEtaSeconds()));
+    }
   }
 
   private void downloadedRegionList() {
@@ -342,7 +381,8 @@ public class OfflineManagerActivity extends AppCompatActivity {
               progressBar.setIndeterminate(true);
               progressBar.setVisibility(View.VISIBLE);
 
-              // Begin the deletion process
+              // Stop downloading the region and begin the deletion process
+              downloadManager.remove(offlineRegions[regionSelected].getID());
               offlineRegions[regionSelected].delete(new OfflineRegion.OfflineRegionDeleteCallback() {
                 @Override
                 public void onDelete() {
@@ -399,8 +439,7 @@ public class OfflineManagerActivity extends AppCompatActivity {
 
   // Progress bar methods
   private void startProgress() {
-    // Disable buttons
-    downloadButton.setEnabled(false);
+    // Disable the list button, more regions can still be queued
     listButton.setEnabled(false);
 
     // Start and show the progress bar
@@ -420,8 +459,7 @@ public class OfflineManagerActivity extends AppCompatActivity {
       return;
     }
 
-    // Enable buttons
-    downloadButton.setEnabled(true);
+    // Enable the list button
     listButton.setEnabled(true);
 
     // Stop and hide the progress bar
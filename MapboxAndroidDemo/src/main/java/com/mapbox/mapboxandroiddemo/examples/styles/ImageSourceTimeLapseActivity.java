@@ -3,10 +3,12 @@ package com.mapbox.mapboxandroiddemo.examples.styles;
 // #-code-snippet: image-source-time-lapse-activity full-java
 
 import android.os.Bundle;
-import android.os.Handler;
+import android.support.annotation.NonNull;
 import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
 
 import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.utils.LiveDataPoller;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.geometry.LatLng;
 import com.mapbox.mapboxsdk.geometry.LatLngQuad;
@@ -21,9 +23,10 @@ import com.mapbox.mapboxsdk.style.sources.ImageSource;
  */
 public class ImageSourceTimeLapseActivity extends AppCompatActivity implements OnMapReadyCallback {
 
+  private static final String TAG = "ImageSourceTimeLapse";
+
   private MapView mapView;
-  private Handler handler;
-  private Runnable runnable;
+  private LiveDataPoller<Integer> poller;
   private static final String ID_IMAGE_SOURCE = "animated_image_source";
   private static final String ID_IMAGE_LAYER = "animated_image_layer";
 
@@ -57,21 +60,20 @@ public class ImageSourceTimeLapseActivity extends AppCompatActivity implements O
     RasterLayer layer = new RasterLayer(ID_IMAGE_LAYER, ID_IMAGE_SOURCE);
     mapboxMap.addLayer(layer);
 
-    // Loop the GeoJSON refreshing
-    handler = new Handler();
-    runnable = new RefreshImageRunnable(mapboxMap, handler);
-    handler.postDelayed(runnable, 100);
+    // Loop the image refreshing, pausing while the activity isn't visible
+    RefreshImageCallback refreshImageCallback = new RefreshImageCallback(mapboxMap);
+    poller = new LiveDataPoller<>(1000, 1000, refreshImageCallback, refreshImageCallback);
+    poller.start();
   }
 
-  private static class RefreshImageRunnable implements Runnable {
+  private static class RefreshImageCallback implements LiveDataPoller.Fetcher<Integer>,
+    LiveDataPoller.OnDataListener<Integer> {
     private final MapboxMap mapboxMap;
-    private final Handler handler;
     private int[] drawables;
     private int drawableIndex;
 
-    RefreshImageRunnable(MapboxMap mapboxMap, Handler handler) {
+    RefreshImageCallback(MapboxMap mapboxMap) {
       this.mapboxMap = mapboxMap;
-      this.handler = handler;
       drawables = new int[4];
       drawables[0] = R.drawable.southeast_radar_0;
       drawables[1] = R.drawable.southeast_radar_1;
@@ -81,12 +83,21 @@ public class ImageSourceTimeLapseActivity extends AppCompatActivity implements O
     }
 
     @Override
-    public void run() {
-      ((ImageSource) mapboxMap.getSource(ID_IMAGE_SOURCE)).setImage(drawables[drawableIndex++]);
+    public void fetch(@NonNull LiveDataPoller.Poll<Integer> poll) {
+      poll.onData(drawables[drawableIndex++]);
       if (drawableIndex > 3) {
         drawableIndex = 0;
       }
-      handler.postDelayed(this, 1000);
+    }
+
+    @Override
+    public void onData(@NonNull Integer drawable) {
+      ((ImageSource) mapboxMap.getSource(ID_IMAGE_SOURCE)).setImage(drawable);
+    }
+
+    @Override
+    public void onError(@NonNull Throwable throwable) {
+      Log.e(TAG, throwable.toString());
     }
   }
 
@@ -96,6 +107,9 @@ public class ImageSourceTimeLapseActivity extends AppCompatActivity implements O
   public void onResume() {
     super.onResume();
     mapView.onResume();
+    if (poller != null) {
+      poller.resume();
+    }
   }
 
   @Override
@@ -114,6 +128,9 @@ public class ImageSourceTimeLapseActivity extends AppCompatActivity implements O
   public void onPause() {
     super.onPause();
     mapView.onPause();
+    if (poller != null) {
+      poller.pause();
+    }
   }
 
   @Override
@@ -125,8 +142,8 @@ public class ImageSourceTimeLapseActivity extends AppCompatActivity implements O
   @Override
   protected void onDestroy() {
     super.onDestroy();
-    if (handler != null && runnable != null) {
-      handler.removeCallbacks(runnable);
+    if (poller != null) {
+      poller.stop();
     }
     mapView.onDestroy();
   }
@@ -0,0 +1,202 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.util.Log;
+import android.view.Choreographer;
+
+import com.mapbox.mapboxsdk.camera.CameraPosition;
+import com.mapbox.mapboxsdk.camera.CameraUpdateFactory;
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+
+/**
+ * Tilts and rotates the map camera as the device is tilted, through an {@link OrientationFilter}.
+ * <p>
+ * Sensor events only feed the filter and ask for a frame. The camera is moved at most once per display frame,
+ * driven by the Choreographer on API 16 and up and by a Handler below, and only when the filtered orientation
+ * moved past the filter's deadband, so a device lying still doesn't cause any camera updates. The camera is
+ * moved rather than animated, as the filter already smooths the movement and animations queued by every sensor
+ * event would only fight each other.
+ * </p>
+ */
+public class CameraOrientationController implements SensorEventListener {
+
+  private static final String TAG = "CameraOrientation";
+
+  private static final long FRAME_INTERVAL_MILLIS = 16;
+
+  private final SensorManager sensorManager;
+  private final Sensor accelerometer;
+  private final Sensor magneticField;
+  private final MapboxMap mapboxMap;
+  private final OrientationFilter filter;
+  private final float pitchAmplifier;
+  private final float rollAmplifier;
+  private final FrameScheduler frameScheduler;
+  private final float[] orientation = new float[2];
+  private final CameraPosition.Builder positionBuilder = new CameraPosition.Builder();
+  private boolean started;
+  private boolean frameScheduled;
+
+  // Metrics
+  private int sensorEventCount;
+  private int frameCount;
+  private int cameraUpdateCount;
+
+  /**
+   * @param context        used to look up the sensors
+   * @param mapboxMap      the map whose camera follows the device
+   * @param filter         smooths the sensor samples and applies the deadband
+   * @param pitchAmplifier the factor turning the pitch of the device, in radians, into the tilt of the camera
+   * @param rollAmplifier  the factor turning the roll of the device, in radians, into the bearing of the camera
+   */
+  public CameraOrientationController(@NonNull Context context, @NonNull MapboxMap mapboxMap,
+                                     @NonNull OrientationFilter filter, float pitchAmplifier, float rollAmplifier) {
+    this.sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+    this.accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+    this.magneticField = sensorManager.getDefaultSensor(Sensor.TYPE_MAGNETIC_FIELD);
+    this.mapboxMap = mapboxMap;
+    this.filter = filter;
+    this.pitchAmplifier = pitchAmplifier;
+    this.rollAmplifier = rollAmplifier;
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+      frameScheduler = new ChoreographerFrameScheduler();
+    } else {
+      frameScheduler = new HandlerFrameScheduler();
+    }
+  }
+
+  public boolean hasAccelerometer() {
+    return accelerometer != null;
+  }
+
+  public boolean hasMagneticField() {
+    return magneticField != null;
+  }
+
+  /**
+   * Starts listening to the sensors, e.g. from the activity's onStart.
+   */
+  public void start() {
+    if (started) {
+      return;
+    }
+    started = true;
+    if (accelerometer != null) {
+      sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_GAME);
+    }
+    if (magneticField != null) {
+      sensorManager.registerListener(this, magneticField, SensorManager.SENSOR_DELAY_GAME);
+    }
+  }
+
+  /**
+   * Stops listening to the sensors and logs the collected metrics, e.g. from the activity's onStop.
+   */
+  public void stop() {
+    if (!started) {
+      return;
+    }
+    started = false;
+    sensorManager.unregisterListener(this);
+    frameScheduler.cancelFrame();
+    frameScheduled = false;
+    filter.reset();
+    Log.d(TAG, getMetricsSummary());
+  }
+
+  @Override
+  public void onSensorChanged(SensorEvent event) {
+    sensorEventCount++;
+    float[] values = event.values;
+    if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
+      filter.onAccelerometer(event.timestamp, values[0], values[1], values[2]);
+    } else if (event.sensor.getType() == Sensor.TYPE_MAGNETIC_FIELD) {
+      filter.onMagneticField(event.timestamp, values[0], values[1], values[2]);
+    }
+    if (!frameScheduled) {
+      frameScheduled = true;
+      frameScheduler.scheduleFrame();
+    }
+  }
+
+  @Override
+  public void onAccuracyChanged(Sensor sensor, int accuracy) {
+    // Intentionally left empty
+  }
+
+  private void doFrame() {
+    frameScheduled = false;
+    frameCount++;
+    if (!filter.poll(orientation)) {
+      return;
+    }
+    CameraPosition position = positionBuilder
+      .tilt(orientation[0] * pitchAmplifier)
+      .bearing(orientation[1] * rollAmplifier)
+      .build();
+    mapboxMap.moveCamera(CameraUpdateFactory.newCameraPosition(position));
+    cameraUpdateCount++;
+  }
+
+  public String getMetricsSummary() {
+    return "Sensor events: " + sensorEventCount + ", frames: " + frameCount + ", camera updates: "
+      + cameraUpdateCount + ", " + filter.getMetricsSummary();
+  }
+
+  private interface FrameScheduler {
+
+    void scheduleFrame();
+
+    void cancelFrame();
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+  private class ChoreographerFrameScheduler implements FrameScheduler, Choreographer.FrameCallback {
+
+    private final Choreographer choreographer = Choreographer.getInstance();
+
+    @Override
+    public void scheduleFrame() {
+      choreographer.postFrameCallback(this);
+    }
+
+    @Override
+    public void cancelFrame() {
+      choreographer.removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+      CameraOrientationController.this.doFrame();
+    }
+  }
+
+  private class HandlerFrameScheduler implements FrameScheduler, Runnable {
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public void scheduleFrame() {
+      handler.postDelayed(this, FRAME_INTERVAL_MILLIS);
+    }
+
+    @Override
+    public void cancelFrame() {
+      handler.removeCallbacks(this);
+    }
+
+    @Override
+    public void run() {
+      doFrame();
+    }
+  }
+}
@@ -0,0 +1,221 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.mapboxandroiddemo.commons.GeoJsonAssetReader;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Feeds the clusters a {@link PointClusterer} computed for the visible part of the map into a plain
+ * GeoJsonSource.
+ * <p>
+ * The points are downloaded and clustered once on a background thread. Afterwards the source follows the
+ * camera while it moves. The clusters are queried for the tiles of the current integer zoom level that cover
+ * the viewport plus a margin of one tile, so the source only changes when the camera crosses into another
+ * zoom level or pans past the margin. Queries run on a background thread, and the collections of the most
+ * recently shown regions are cached, so going back to a region or zoom level doesn't query again.
+ * </p>
+ */
+public class ClusterSourceController implements MapboxMap.OnCameraMoveListener {
+
+  private static final String TAG = "ClusterSourceController";
+  private static final int MAX_CACHED_REGIONS = 16;
+
+  private final MapboxMap mapboxMap;
+  private final GeoJsonSource source;
+  private final PointClusterer clusterer;
+  private final LruCache<String, FeatureCollection> regionCollections = new LruCache<>(MAX_CACHED_REGIONS);
+  private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private LoadPointsTask loadPointsTask;
+  private boolean loaded;
+  private String currentRegion;
+
+  public ClusterSourceController(@NonNull MapboxMap mapboxMap, @NonNull GeoJsonSource source,
+                                 @NonNull PointClusterer clusterer) {
+    this.mapboxMap = mapboxMap;
+    this.source = source;
+    this.clusterer = clusterer;
+  }
+
+  /**
+   * Downloads a GeoJSON FeatureCollection of points and shows its clusters once they're computed.
+   *
+   * @param url the location of the GeoJSON
+   */
+  public void load(@NonNull String url) {
+    if (loadPointsTask != null) {
+      loadPointsTask.cancel(true);
+    }
+    loadPointsTask = new LoadPointsTask(this, clusterer);
+    loadPointsTask.execute(url);
+  }
+
+  /**
+   * Stops following the camera and cancels a pending download or query, to be called from the activity's
+   * onDestroy.
+   */
+  public void onDestroy() {
+    if (loadPointsTask != null) {
+      loadPointsTask.cancel(true);
+    }
+    mapboxMap.removeOnCameraMoveListener(this);
+    executorService.shutdownNow();
+    handler.removeCallbacksAndMessages(null);
+  }
+
+  @Override
+  public void onCameraMove() {
+    updateSource();
+  }
+
+  private void onPointsLoaded() {
+    loaded = true;
+    mapboxMap.addOnCameraMoveListener(this);
+    updateSource();
+  }
+
+  private void updateSource() {
+    if (!loaded) {
+      return;
+    }
+    final int zoom = Math.max(0, (int) Math.floor(mapboxMap.getCameraPosition().zoom));
+    LatLngBounds bounds = mapboxMap.getProjection().getVisibleRegion().latLngBounds;
+    int tiles = 1 << zoom;
+    // the tiles covering the viewport plus one on every side, columns are left unwrapped across the antimeridian
+    int firstColumn = column(Math.min(bounds.getLonWest(), bounds.getLonEast()), tiles) - 1;
+    int lastColumn = column(Math.max(bounds.getLonWest(), bounds.getLonEast()), tiles) + 1;
+    int firstRow = Math.max(0, row(bounds.getLatNorth(), tiles) - 1);
+    int lastRow = Math.min(tiles - 1, row(bounds.getLatSouth(), tiles) + 1);
+    if (lastColumn - firstColumn + 1 >= tiles) {
+      firstColumn = 0;
+      lastColumn = tiles - 1;
+    }
+    final String region = zoom + "/" + firstColumn + "/" + firstRow + "/" + lastColumn + "/" + lastRow;
+    if (region.equals(currentRegion)) {
+      return;
+    }
+    currentRegion = region;
+
+    FeatureCollection featureCollection = regionCollections.get(region);
+    if (featureCollection != null) {
+      source.setGeoJson(featureCollection);
+      return;
+    }
+    final double west = longitude(firstColumn, tiles);
+    final double east = longitude(lastColumn + 1, tiles);
+    final double north = latitude(firstRow, tiles);
+    final double south = latitude(lastRow + 1, tiles);
+    executorService.execute(new Runnable() {
+      @Override
+      public void run() {
+        final FeatureCollection clusters =
+          FeatureCollection.fromFeatures(clusterer.getClusters(west, south, east, north, zoom));
+        handler.post(new Runnable() {
+          @Override
+          public void run() {
+            regionCollections.put(region, clusters);
+            if (region.equals(currentRegion)) {
+              source.setGeoJson(clusters);
+            }
+          }
+        });
+      }
+    });
+  }
+
+  private static int column(double longitude, int tiles) {
+    return (int) Math.floor((longitude + 180) / 360 * tiles);
+  }
+
+  private static int row(double latitude, int tiles) {
+    double sin = Math.sin(Math.toRadians(Math.max(-85.0511, Math.min(85.0511, latitude))));
+    double y = 0.5 - 0.25 * Math.log((1 + sin) / (1 - sin)) / Math.PI;
+    return Math.max(0, Math.min(tiles - 1, (int) Math.floor(y * tiles)));
+  }
+
+  private static double longitude(int column, int tiles) {
+    return (double) column / tiles * 360 - 180;
+  }
+
+  private static double latitude(int row, int tiles) {
+    return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2.0 * row / tiles))));
+  }
+
+  /**
+   * AsyncTask downloading the points and building the cluster hierarchy off the main thread.
+   */
+  private static class LoadPointsTask extends AsyncTask<String, Void, Boolean> {
+
+    private final WeakReference<ClusterSourceController> controllerRef;
+    private final PointClusterer clusterer;
+
+    LoadPointsTask(ClusterSourceController controller, PointClusterer clusterer) {
+      this.controllerRef = new WeakReference<>(controller);
+      this.clusterer = clusterer;
+    }
+
+    @Override
+    protected Boolean doInBackground(String... urls) {
+      final List<Feature> features = new ArrayList<>();
+      try {
+        Response response = new OkHttpClient().newCall(new Request.Builder().url(urls[0]).build()).execute();
+        if (!response.isSuccessful()) {
+          Log.e(TAG, "Loading points failed with HTTP " + response.code());
+          response.close();
+          return false;
+        }
+        GeoJsonAssetReader.readFeatures(response.body().byteStream(),
+          new GeoJsonAssetReader.OnFeatureReadListener() {
+            @Override
+            public boolean onFeatureRead(@NonNull Feature feature) {
+              features.add(feature);
+              return !isCancelled();
+            }
+          });
+      } catch (IOException | RuntimeException exception) {
+        Log.e(TAG, "Exception loading points: " + exception.toString());
+        return false;
+      }
+      if (isCancelled()) {
+        return false;
+      }
+
+      long startTime = SystemClock.elapsedRealtime();
+      clusterer.load(features);
+      Log.d(TAG, "Clustered " + clusterer.size() + " points in " + (SystemClock.elapsedRealtime() - startTime)
+        + " ms");
+      return true;
+    }
+
+    @Override
+    protected void onPostExecute(Boolean success) {
+      super.onPostExecute(success);
+      ClusterSourceController controller = controllerRef.get();
+      if (controller != null && success) {
+        controller.onPointsLoaded();
+      }
+    }
+  }
+}
@@ -0,0 +1,263 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.ColorInt;
+import android.support.annotation.NonNull;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.mapbox.mapboxsdk.style.expressions.Expression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.mapbox.mapboxsdk.style.expressions.Expression.color;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.match;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.stop;
+
+/**
+ * Builds the color expression of a choropleth that joins a local data set with vector tile features, on a
+ * background thread.
+ * <p>
+ * The data set is a JSON or CSV asset, read into a {@link DataJoinTable}. Its values are split into classes by
+ * a {@link ValueClassifier} and every join key becomes a stop of a match expression, mapping the key to the
+ * color of its class. Stops of the same class share one color expression. Compiled expressions are cached for
+ * the life of the process, keyed by a hash of the data and the styling, so showing the same choropleth again
+ * skips parsing and classifying altogether. The time every step took is logged.
+ * </p>
+ */
+public class DataJoinStyleBuilder {
+
+  private static final String TAG = "DataJoinStyleBuilder";
+
+  public static final int CLASSIFICATION_QUANTILE = 0;
+  public static final int CLASSIFICATION_JENKS = 1;
+
+  private static final int EXPRESSION_CACHE_SIZE = 8;
+  private static final LruCache<String, Expression> EXPRESSION_CACHE = new LruCache<>(EXPRESSION_CACHE_SIZE);
+
+  /**
+   * Notified on the main thread once the expression is built.
+   */
+  public interface OnExpressionBuiltListener {
+
+    void onExpressionBuilt(@NonNull Expression expression);
+
+    void onError(@NonNull String message);
+  }
+
+  /**
+   * Describes a data join: where the data comes from, which fields join and style it and the colors used.
+   */
+  public static class Join {
+
+    private final String asset;
+    private final String keyField;
+    private final String valueField;
+    private final Expression joinInput;
+    private boolean numericKeys;
+    private int classification = CLASSIFICATION_QUANTILE;
+    private int[] colors = {0xff000000, 0xffffffff};
+    private int defaultColor = 0xff000000;
+
+    /**
+     * @param asset      the JSON or CSV asset, told apart by a .csv extension
+     * @param keyField   the field or column of the data set holding the join key
+     * @param valueField the field or column of the data set holding the value to style by
+     * @param joinInput  the expression reading the join key of a feature, e.g. get("STATEFP")
+     */
+    public Join(@NonNull String asset, @NonNull String keyField, @NonNull String valueField,
+                @NonNull Expression joinInput) {
+      this.asset = asset;
+      this.keyField = keyField;
+      this.valueField = valueField;
+      this.joinInput = joinInput;
+    }
+
+    /**
+     * Matches the keys as numbers, for a join input that converts the feature's key to a number.
+     */
+    public Join withNumericKeys() {
+      this.numericKeys = true;
+      return this;
+    }
+
+    /**
+     * @param classification {@link #CLASSIFICATION_QUANTILE} or {@link #CLASSIFICATION_JENKS}
+     * @param colors         the color of every class, from the lowest values up
+     */
+    public Join withClasses(int classification, @NonNull @ColorInt int[] colors) {
+      this.classification = classification;
+      this.colors = colors;
+      return this;
+    }
+
+    /**
+     * @param defaultColor the color of features without data
+     */
+    public Join withDefaultColor(@ColorInt int defaultColor) {
+      this.defaultColor = defaultColor;
+      return this;
+    }
+
+    private String cacheKey(long dataHash) {
+      return asset + '|' + dataHash + '|' + keyField + '|' + valueField + '|' + joinInput + '|' + numericKeys
+        + '|' + classification + '|' + Arrays.toString(colors) + '|' + defaultColor;
+    }
+  }
+
+  private final Context context;
+  private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private int generation;
+
+  // Metrics, written on the background thread only
+  private volatile int buildCount;
+  private volatile int cacheHitCount;
+  private volatile long totalBuildTime;
+
+  public DataJoinStyleBuilder(@NonNull Context context) {
+    this.context = context.getApplicationContext();
+  }
+
+  /**
+   * Builds the color expression of a join in the background. A build still running is superseded.
+   *
+   * @param join     the data join
+   * @param listener notified on the main thread
+   */
+  public void build(@NonNull final Join join, @NonNull final OnExpressionBuiltListener listener) {
+    final int buildGeneration = ++generation;
+    executorService.execute(new Runnable() {
+      @Override
+      public void run() {
+        Expression expression = null;
+        String error = null;
+        try {
+          expression = buildExpression(join);
+        } catch (IOException exception) {
+          error = "Failed to read " + join.asset + ": " + exception.getMessage();
+        } catch (RuntimeException exception) {
+          // e.g. malformed JSON, which gson reports unchecked
+          error = "Failed to parse " + join.asset + ": " + exception.getMessage();
+        }
+        final Expression result = expression;
+        final String message = error;
+        handler.post(new Runnable() {
+          @Override
+          public void run() {
+            if (buildGeneration != generation) {
+              return;
+            }
+            if (result != null) {
+              listener.onExpressionBuilt(result);
+            } else {
+              Log.e(TAG, message);
+              listener.onError(message);
+            }
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Drops pending results and stops the background thread, to be called from the activity's onDestroy.
+   */
+  public void onDestroy() {
+    generation++;
+    executorService.shutdownNow();
+    handler.removeCallbacksAndMessages(null);
+    Log.d(TAG, getMetricsSummary());
+  }
+
+  private Expression buildExpression(Join join) throws IOException {
+    long startTime = SystemClock.elapsedRealtime();
+    byte[] data = readAsset(join.asset);
+    long readTime = SystemClock.elapsedRealtime();
+    String cacheKey = join.cacheKey(DataJoinTable.hash(data));
+    buildCount++;
+    Expression cached = EXPRESSION_CACHE.get(cacheKey);
+    if (cached != null) {
+      cacheHitCount++;
+      totalBuildTime += SystemClock.elapsedRealtime() - startTime;
+      Log.d(TAG, join.asset + ": cached expression, read in " + (readTime - startTime) + " ms");
+      return cached;
+    }
+
+    Reader reader = new InputStreamReader(new ByteArrayInputStream(data), "UTF-8");
+    DataJoinTable table = join.asset.endsWith(".csv")
+      ? DataJoinTable.fromCsv(reader, join.keyField, join.valueField)
+      : DataJoinTable.fromJson(reader, join.keyField, join.valueField);
+    long parseTime = SystemClock.elapsedRealtime();
+
+    double[] breaks = join.classification == CLASSIFICATION_JENKS
+      ? ValueClassifier.jenksBreaks(table.getValues(), join.colors.length)
+      : ValueClassifier.quantileBreaks(table.getValues(), join.colors.length);
+    long classifyTime = SystemClock.elapsedRealtime();
+
+    Expression[] classColors = new Expression[join.colors.length];
+    for (int i = 0; i < classColors.length; i++) {
+      classColors[i] = color(join.colors[i]);
+    }
+    Expression.Stop[] stops = new Expression.Stop[table.size()];
+    Set<Object> keys = new HashSet<>();
+    int stopCount = 0;
+    for (int i = 0; i < table.size(); i++) {
+      Object key = join.numericKeys ? parseKey(table.getKey(i)) : table.getKey(i);
+      // match expressions reject repeated labels, the first record of a key wins
+      if (key != null && keys.add(key)) {
+        stops[stopCount++] = stop(key, classColors[ValueClassifier.classify(table.getValue(i), breaks)]);
+      }
+    }
+    Expression expression = match(join.joinInput, color(join.defaultColor), Arrays.copyOf(stops, stopCount));
+    long compileTime = SystemClock.elapsedRealtime();
+
+    EXPRESSION_CACHE.put(cacheKey, expression);
+    totalBuildTime += compileTime - startTime;
+    Log.d(TAG, join.asset + ": " + stopCount + " keys, " + table.getSkippedCount() + " records skipped, read in "
+      + (readTime - startTime) + " ms, parsed in " + (parseTime - readTime) + " ms, classified in "
+      + (classifyTime - parseTime) + " ms, compiled in " + (compileTime - classifyTime) + " ms");
+    return expression;
+  }
+
+  private byte[] readAsset(String asset) throws IOException {
+    InputStream inputStream = context.getAssets().open(asset);
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(inputStream.available(), 1024));
+      byte[] buffer = new byte[8192];
+      int count;
+      while ((count = inputStream.read(buffer)) != -1) {
+        bytes.write(buffer, 0, count);
+      }
+      return bytes.toByteArray();
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  private static Double parseKey(String key) {
+    try {
+      return Double.parseDouble(key);
+    } catch (NumberFormatException exception) {
+      return null;
+    }
+  }
+
+  public String getMetricsSummary() {
+    return "Data join builds: " + buildCount + ", served from cache: " + cacheHitCount + ", average build time: "
+      + (buildCount > 0 ? totalBuildTime / buildCount : 0) + " ms";
+  }
+}
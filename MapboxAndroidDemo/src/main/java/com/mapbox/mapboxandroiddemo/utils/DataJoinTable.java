@@ -0,0 +1,210 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The join keys and values of a data set that is joined with vector tile features to style them, e.g. the
+ * unemployment rate of every state.
+ * <p>
+ * Tables are read from a JSON array of objects or from CSV text with a header row, picking one field as the key
+ * and one as the value, and are kept as a plain array of keys and an array of values. The JSON is streamed, so
+ * no object is built per record. Records without a key or a numeric value are skipped.
+ * </p>
+ */
+public class DataJoinTable {
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private String[] keys;
+  private double[] values;
+  private int size;
+  private int skippedCount;
+
+  private DataJoinTable(int capacity) {
+    keys = new String[capacity];
+    values = new double[capacity];
+  }
+
+  /**
+   * Reads a JSON array of objects.
+   *
+   * @param reader     the JSON text
+   * @param keyField   the field holding the join key, a string or a number
+   * @param valueField the field holding the value
+   */
+  public static DataJoinTable fromJson(@NonNull Reader reader, @NonNull String keyField,
+                                       @NonNull String valueField) throws IOException {
+    DataJoinTable table = new DataJoinTable(64);
+    JsonReader jsonReader = new JsonReader(reader);
+    try {
+      jsonReader.beginArray();
+      while (jsonReader.hasNext()) {
+        String key = null;
+        double value = Double.NaN;
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+          String name = jsonReader.nextName();
+          JsonToken token = jsonReader.peek();
+          if (token == JsonToken.NULL) {
+            jsonReader.skipValue();
+          } else if (name.equals(keyField) && (token == JsonToken.STRING || token == JsonToken.NUMBER)) {
+            key = jsonReader.nextString();
+          } else if (name.equals(valueField) && (token == JsonToken.STRING || token == JsonToken.NUMBER)) {
+            value = parseValue(jsonReader.nextString());
+          } else {
+            jsonReader.skipValue();
+          }
+        }
+        jsonReader.endObject();
+        table.add(key, value);
+      }
+      jsonReader.endArray();
+    } finally {
+      jsonReader.close();
+    }
+    return table;
+  }
+
+  /**
+   * Reads CSV text whose first row names the columns. Fields may be quoted, quoted fields may hold commas and
+   * doubled quotes, but not line breaks.
+   *
+   * @param reader     the CSV text
+   * @param keyField   the column holding the join key
+   * @param valueField the column holding the value
+   */
+  public static DataJoinTable fromCsv(@NonNull Reader reader, @NonNull String keyField,
+                                      @NonNull String valueField) throws IOException {
+    DataJoinTable table = new DataJoinTable(64);
+    BufferedReader lineReader = new BufferedReader(reader);
+    try {
+      String header = lineReader.readLine();
+      if (header == null) {
+        return table;
+      }
+      List<String> fields = new ArrayList<>();
+      splitCsvLine(header, fields);
+      int keyColumn = fields.indexOf(keyField);
+      int valueColumn = fields.indexOf(valueField);
+      if (keyColumn < 0 || valueColumn < 0) {
+        throw new IOException("The CSV header has no " + (keyColumn < 0 ? keyField : valueField) + " column");
+      }
+      String line;
+      while ((line = lineReader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        splitCsvLine(line, fields);
+        if (fields.size() > Math.max(keyColumn, valueColumn)) {
+          table.add(fields.get(keyColumn), parseValue(fields.get(valueColumn)));
+        } else {
+          table.skippedCount++;
+        }
+      }
+    } finally {
+      lineReader.close();
+    }
+    return table;
+  }
+
+  /**
+   * Hashes raw data, e.g. the bytes of a table before it is parsed, to tell whether it changed.
+   *
+   * @param data the bytes to hash
+   * @return the 64 bit FNV-1a hash of the bytes
+   */
+  public static long hash(@NonNull byte[] data) {
+    long hash = FNV_OFFSET_BASIS;
+    for (byte value : data) {
+      hash ^= value & 0xff;
+      hash *= FNV_PRIME;
+    }
+    return hash;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public String getKey(int index) {
+    return keys[index];
+  }
+
+  public double getValue(int index) {
+    return values[index];
+  }
+
+  /**
+   * @return a copy of the values, in the order of the records
+   */
+  public double[] getValues() {
+    return Arrays.copyOf(values, size);
+  }
+
+  /**
+   * @return the number of records skipped because they had no key or no numeric value
+   */
+  public int getSkippedCount() {
+    return skippedCount;
+  }
+
+  private void add(String key, double value) {
+    if (key == null || key.isEmpty() || Double.isNaN(value)) {
+      skippedCount++;
+      return;
+    }
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, size * 2);
+      values = Arrays.copyOf(values, size * 2);
+    }
+    keys[size] = key;
+    values[size] = value;
+    size++;
+  }
+
+  private static double parseValue(String text) {
+    try {
+      return Double.parseDouble(text.trim());
+    } catch (NumberFormatException exception) {
+      return Double.NaN;
+    }
+  }
+
+  private static void splitCsvLine(String line, List<String> fields) {
+    fields.clear();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char character = line.charAt(i);
+      if (quoted) {
+        if (character != '"') {
+          field.append(character);
+        } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (character == '"') {
+        quoted = true;
+      } else if (character == ',') {
+        fields.add(field.toString().trim());
+        field.setLength(0);
+      } else {
+        field.append(character);
+      }
+    }
+    fields.add(field.toString().trim());
+  }
+}
@@ -0,0 +1,184 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Ranks every vertex of a {@link PackedLineString} by its Douglas-Peucker significance, so the line can be
+ * simplified at any tolerance without running the algorithm again.
+ * <p>
+ * The ranking is computed once, iteratively and without per-vertex allocation. A vertex's significance
+ * is the squared distance at which Douglas-Peucker would keep it, clamped to the significance of the
+ * vertex that split its parent segment, so extracting every vertex above a tolerance yields exactly what
+ * a dedicated Douglas-Peucker run at that tolerance would keep. Extraction is a single O(n) pass.
+ * </p>
+ * <p>
+ * Distances are planar and measured in coordinate units, matching
+ * {@link com.mapbox.geojson.utils.PolylineUtils#simplify(java.util.List, double, boolean)} with
+ * {@code highestQuality} set to true. The default {@code PolylineUtils#simplify(List, double)} first drops
+ * vertices closer than the tolerance to their predecessor, which depends on the tolerance and so can't be
+ * ranked; its output can therefore keep a few vertices fewer, or different ones, than this ranking.
+ * </p>
+ */
+public class DouglasPeuckerRanking {
+
+  private final PackedLineString line;
+  private final double[] significance;
+
+  private DouglasPeuckerRanking(PackedLineString line, double[] significance) {
+    this.line = line;
+    this.significance = significance;
+  }
+
+  /**
+   * Computes the significance of every vertex of the line.
+   *
+   * @param line the line to rank
+   * @return the ranking, which keeps a reference to the line
+   */
+  public static DouglasPeuckerRanking rank(@NonNull PackedLineString line) {
+    int size = line.size();
+    double[] significance = new double[size];
+    if (size > 0) {
+      significance[0] = Double.POSITIVE_INFINITY;
+      significance[size - 1] = Double.POSITIVE_INFINITY;
+    }
+    if (size < 3) {
+      return new DouglasPeuckerRanking(line, significance);
+    }
+
+    double[] coordinates = line.coordinates();
+
+    // Each pending segment is stored as its two end indices plus the significance bound inherited
+    // from the vertex that created it. A segment splits into at most two, so size entries suffice.
+    int[] segmentStack = new int[size * 2];
+    double[] boundStack = new double[size];
+    int stackSize = 0;
+
+    segmentStack[0] = 0;
+    segmentStack[1] = size - 1;
+    boundStack[0] = Double.POSITIVE_INFINITY;
+    stackSize++;
+
+    while (stackSize > 0) {
+      stackSize--;
+      int first = segmentStack[stackSize * 2];
+      int last = segmentStack[stackSize * 2 + 1];
+      double bound = boundStack[stackSize];
+
+      double maxSqDistance = -1;
+      int index = -1;
+      for (int i = first + 1; i < last; i++) {
+        double sqDistance = getSqSegmentDistance(coordinates, i, first, last);
+        if (sqDistance > maxSqDistance) {
+          index = i;
+          maxSqDistance = sqDistance;
+        }
+      }
+      if (index < 0) {
+        continue;
+      }
+
+      double vertexSignificance = Math.min(maxSqDistance, bound);
+      significance[index] = vertexSignificance;
+
+      if (index - first > 1) {
+        segmentStack[stackSize * 2] = first;
+        segmentStack[stackSize * 2 + 1] = index;
+        boundStack[stackSize] = vertexSignificance;
+        stackSize++;
+      }
+      if (last - index > 1) {
+        segmentStack[stackSize * 2] = index;
+        segmentStack[stackSize * 2 + 1] = last;
+        boundStack[stackSize] = vertexSignificance;
+        stackSize++;
+      }
+    }
+    return new DouglasPeuckerRanking(line, significance);
+  }
+
+  /**
+   * @return the ranked line
+   */
+  public PackedLineString line() {
+    return line;
+  }
+
+  /**
+   * Counts the vertices kept at a tolerance.
+   *
+   * @param tolerance the simplification tolerance, in coordinate units
+   * @return the number of vertices the simplified line will contain
+   */
+  public int count(double tolerance) {
+    double sqTolerance = tolerance * tolerance;
+    int count = 0;
+    for (double value : significance) {
+      if (value > sqTolerance) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Simplifies the line at a tolerance.
+   *
+   * @param tolerance the simplification tolerance, in coordinate units
+   * @return a new packed line holding only the kept vertices
+   */
+  public PackedLineString simplify(double tolerance) {
+    double[] output = new double[count(tolerance) * 2];
+    int size = simplify(tolerance, output);
+    return new PackedLineString(output, size);
+  }
+
+  /**
+   * Simplifies the line at a tolerance into a caller-owned buffer, allowing the same buffer to be
+   * reused while, for example, a slider is dragged.
+   *
+   * @param tolerance the simplification tolerance, in coordinate units
+   * @param output    receives the kept vertices as interleaved longitude/latitude pairs; must hold at
+   *                  least {@code count(tolerance) * 2} values
+   * @return the number of vertices written to the buffer
+   */
+  public int simplify(double tolerance, @NonNull double[] output) {
+    double sqTolerance = tolerance * tolerance;
+    double[] coordinates = line.coordinates();
+    int size = 0;
+    for (int i = 0; i < significance.length; i++) {
+      if (significance[i] > sqTolerance) {
+        output[size * 2] = coordinates[i * 2];
+        output[size * 2 + 1] = coordinates[i * 2 + 1];
+        size++;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Square distance from a vertex to the segment between two other vertices.
+   */
+  private static double getSqSegmentDistance(double[] coordinates, int vertex, int first, int last) {
+    double px = coordinates[first * 2];
+    double py = coordinates[first * 2 + 1];
+    double dx = coordinates[last * 2] - px;
+    double dy = coordinates[last * 2 + 1] - py;
+
+    if (dx != 0 || dy != 0) {
+      double projection = ((coordinates[vertex * 2] - px) * dx + (coordinates[vertex * 2 + 1] - py) * dy)
+        / (dx * dx + dy * dy);
+      if (projection > 1) {
+        px = coordinates[last * 2];
+        py = coordinates[last * 2 + 1];
+      } else if (projection > 0) {
+        px += dx * projection;
+        py += dy * projection;
+      }
+    }
+
+    dx = coordinates[vertex * 2] - px;
+    dy = coordinates[vertex * 2 + 1] - py;
+    return dx * dx + dy * dy;
+  }
+}
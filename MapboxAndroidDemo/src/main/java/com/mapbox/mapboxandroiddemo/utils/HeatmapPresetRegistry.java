@@ -0,0 +1,192 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.mapbox.mapboxsdk.style.expressions.Expression;
+import com.mapbox.mapboxsdk.style.layers.Layer;
+import com.mapbox.mapboxsdk.style.layers.PropertyValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.mapbox.mapboxsdk.style.expressions.Expression.heatmapDensity;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.interpolate;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.linear;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.literal;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.rgba;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.zoom;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.heatmapColor;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.heatmapIntensity;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.heatmapRadius;
+
+/**
+ * A list of heatmap styles that can be applied to a heatmap layer, each a color ramp, a radius ramp and an
+ * intensity.
+ * <p>
+ * Presets are registered as plain arrays of numbers and only turned into expressions the first time they are
+ * applied, after which their properties are kept. While compiling, identical expressions are shared: every
+ * number literal and color exists once, and presets with the same color or radius ramp share the whole ramp.
+ * Applying a preset is a single setProperties call. The registry holds no context or layer, so it can be kept
+ * in a static field and outlive the activity, which then doesn't rebuild any expression when it is recreated.
+ * </p>
+ */
+public class HeatmapPresetRegistry {
+
+  private static final String TAG = "HeatmapPresetRegistry";
+
+  private static final int COLOR_STOP_SIZE = 5;
+  private static final int RADIUS_STOP_SIZE = 2;
+
+  private static class Preset {
+
+    private final double[] colorStops;
+    private final double[] radiusStops;
+    private final float intensity;
+    private PropertyValue<?>[] properties;
+
+    Preset(double[] colorStops, double[] radiusStops, float intensity) {
+      this.colorStops = colorStops;
+      this.radiusStops = radiusStops;
+      this.intensity = intensity;
+    }
+  }
+
+  private final List<Preset> presets = new ArrayList<>();
+  private final Map<Double, Expression> literals = new HashMap<>();
+  private final Map<List<Double>, Expression> colors = new HashMap<>();
+  private final Map<String, Expression> ramps = new HashMap<>();
+
+  // Metrics
+  private int compileCount;
+  private long totalCompileTime;
+  private int internHitCount;
+  private int applyCount;
+
+  /**
+   * Registers a preset without building any expressions yet.
+   *
+   * @param colorStops  groups of heatmap density, red, green, blue and alpha, with colors from 0 to 255 and alpha
+   *                    from 0 to 1
+   * @param radiusStops pairs of zoom level and radius in pixels
+   * @param intensity   the heatmap intensity
+   * @return the index of the preset
+   */
+  public int register(@NonNull double[] colorStops, @NonNull double[] radiusStops, float intensity) {
+    if (colorStops.length == 0 || colorStops.length % COLOR_STOP_SIZE != 0) {
+      throw new IllegalArgumentException("Color stops must be groups of density, red, green, blue and alpha");
+    }
+    if (radiusStops.length == 0 || radiusStops.length % RADIUS_STOP_SIZE != 0) {
+      throw new IllegalArgumentException("Radius stops must be pairs of zoom level and radius");
+    }
+    presets.add(new Preset(colorStops, radiusStops, intensity));
+    return presets.size() - 1;
+  }
+
+  public int size() {
+    return presets.size();
+  }
+
+  /**
+   * Applies a preset to a heatmap layer, compiling it first if it was never applied before.
+   *
+   * @param layer the heatmap layer
+   * @param index the index of the preset
+   */
+  public void apply(@NonNull Layer layer, int index) {
+    layer.setProperties(getProperties(index));
+    applyCount++;
+  }
+
+  /**
+   * @param index the index of the preset
+   * @return the compiled color, radius and intensity properties of a preset
+   */
+  public PropertyValue<?>[] getProperties(int index) {
+    Preset preset = presets.get(index);
+    if (preset.properties == null) {
+      long startTime = SystemClock.elapsedRealtime();
+      preset.properties = new PropertyValue<?>[] {
+        heatmapColor(compileColorRamp(preset.colorStops)),
+        heatmapRadius(compileRadiusRamp(preset.radiusStops)),
+        heatmapIntensity(preset.intensity)
+      };
+      compileCount++;
+      totalCompileTime += SystemClock.elapsedRealtime() - startTime;
+    }
+    return preset.properties;
+  }
+
+  private Expression compileColorRamp(double[] stops) {
+    String key = "color" + Arrays.toString(stops);
+    Expression ramp = ramps.get(key);
+    if (ramp != null) {
+      internHitCount++;
+      return ramp;
+    }
+    Expression[] expressions = new Expression[stops.length / COLOR_STOP_SIZE * 2];
+    for (int i = 0; i < stops.length; i += COLOR_STOP_SIZE) {
+      int stop = i / COLOR_STOP_SIZE * 2;
+      expressions[stop] = internLiteral(stops[i]);
+      expressions[stop + 1] = internColor(stops[i + 1], stops[i + 2], stops[i + 3], stops[i + 4]);
+    }
+    ramp = interpolate(linear(), heatmapDensity(), expressions);
+    ramps.put(key, ramp);
+    return ramp;
+  }
+
+  private Expression compileRadiusRamp(double[] stops) {
+    String key = "radius" + Arrays.toString(stops);
+    Expression ramp = ramps.get(key);
+    if (ramp != null) {
+      internHitCount++;
+      return ramp;
+    }
+    Expression[] expressions = new Expression[stops.length];
+    for (int i = 0; i < stops.length; i++) {
+      expressions[i] = internLiteral(stops[i]);
+    }
+    ramp = interpolate(linear(), zoom(), expressions);
+    ramps.put(key, ramp);
+    return ramp;
+  }
+
+  private Expression internLiteral(double value) {
+    Expression expression = literals.get(value);
+    if (expression == null) {
+      expression = literal(value);
+      literals.put(value, expression);
+    } else {
+      internHitCount++;
+    }
+    return expression;
+  }
+
+  private Expression internColor(double red, double green, double blue, double alpha) {
+    List<Double> key = Arrays.asList(red, green, blue, alpha);
+    Expression expression = colors.get(key);
+    if (expression == null) {
+      expression = rgba(red, green, blue, alpha);
+      colors.put(key, expression);
+    } else {
+      internHitCount++;
+    }
+    return expression;
+  }
+
+  public String getMetricsSummary() {
+    return "Heatmap presets: " + presets.size() + ", compiled: " + compileCount + " in " + totalCompileTime
+      + " ms, shared expressions reused: " + internHitCount + ", applied: " + applyCount;
+  }
+
+  /**
+   * Logs the collected metrics.
+   */
+  public void logMetrics() {
+    Log.d(TAG, getMetricsSummary());
+  }
+}
@@ -0,0 +1,232 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps a FeatureCollection split over two GeoJsonSources, so a property change on a few features doesn't
+ * re-serialize the whole collection.
+ * <p>
+ * The cold source holds every feature as it was when the store was created and is only pushed again after
+ * {@link #markAllDirty()}. The hot source holds just the features the {@link HotPredicate} accepts, e.g.
+ * the selected ones, and layers depending on frequently changing properties should use it. Changed features
+ * are reported with {@link #markDirty(Feature)}; all changes made while handling the current main thread
+ * message are coalesced into a single push.
+ * </p>
+ */
+public class HotColdFeatureStore {
+
+  private static final String TAG = "HotColdFeatureStore";
+
+  /**
+   * Decides whether a feature belongs in the hot source.
+   */
+  public interface HotPredicate {
+
+    /**
+     * @param feature one of the features of the store, with its current properties
+     * @return true if the feature should be part of the hot source
+     */
+    boolean isHot(@NonNull Feature feature);
+  }
+
+  /**
+   * Receives the GeoJSON of one half of the store, a GeoJsonSource outside of tests.
+   */
+  interface GeoJsonTarget {
+
+    void setGeoJson(@NonNull String json);
+  }
+
+  private final GeoJsonTarget coldSource;
+  private final GeoJsonTarget hotSource;
+  private final List<Feature> features;
+  private final HotPredicate hotPredicate;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  // features are mutable and compare by value, so they're tracked by identity
+  private final Set<Feature> dirtyFeatures = Collections.newSetFromMap(new IdentityHashMap<Feature, Boolean>());
+  private final Set<Feature> hotFeatures = Collections.newSetFromMap(new IdentityHashMap<Feature, Boolean>());
+  private boolean coldDirty;
+  private boolean flushScheduled;
+
+  // Metrics
+  private int updateCount;
+  private long bytesSerialized;
+  private int lastUpdateBytes;
+
+  private final Runnable flushRunnable = new Runnable() {
+    @Override
+    public void run() {
+      flush();
+    }
+  };
+
+  /**
+   * Creates the store and pushes the initial data to both sources.
+   *
+   * @param coldSource   receives all features
+   * @param hotSource    receives the features accepted by the predicate
+   * @param features     the features, which are mutated in place by the caller
+   * @param hotPredicate decides which features are hot
+   */
+  public HotColdFeatureStore(@NonNull GeoJsonSource coldSource, @NonNull GeoJsonSource hotSource,
+                             @NonNull List<Feature> features, @NonNull HotPredicate hotPredicate) {
+    this(toTarget(coldSource), toTarget(hotSource), features, hotPredicate);
+  }
+
+  HotColdFeatureStore(@NonNull GeoJsonTarget coldSource, @NonNull GeoJsonTarget hotSource,
+                      @NonNull List<Feature> features, @NonNull HotPredicate hotPredicate) {
+    this.coldSource = coldSource;
+    this.hotSource = hotSource;
+    this.features = features;
+    this.hotPredicate = hotPredicate;
+    markAllDirty();
+    flush();
+  }
+
+  /**
+   * Reports a feature whose properties changed. The sources are updated once the current main thread
+   * message has been handled.
+   *
+   * @param feature the changed feature
+   */
+  public void markDirty(@NonNull Feature feature) {
+    dirtyFeatures.add(feature);
+    scheduleFlush();
+  }
+
+  /**
+   * Reports changes to any number of features, including properties the layers of the cold source depend on.
+   * This pushes all features again.
+   */
+  public void markAllDirty() {
+    dirtyFeatures.addAll(features);
+    coldDirty = true;
+    scheduleFlush();
+  }
+
+  /**
+   * Pushes pending changes right away.
+   */
+  public void flush() {
+    handler.removeCallbacks(flushRunnable);
+    flushScheduled = false;
+
+    boolean hotChanged = false;
+    for (Feature feature : dirtyFeatures) {
+      if (hotPredicate.isHot(feature)) {
+        // a feature that stays hot changed its properties, so the hot source needs to be pushed either way
+        hotFeatures.add(feature);
+        hotChanged = true;
+      } else if (hotFeatures.remove(feature)) {
+        hotChanged = true;
+      }
+    }
+    dirtyFeatures.clear();
+
+    int bytes = 0;
+    if (coldDirty) {
+      bytes += push(coldSource, features);
+      coldDirty = false;
+    }
+    if (hotChanged) {
+      bytes += push(hotSource, new ArrayList<>(hotFeatures));
+    }
+    if (bytes > 0) {
+      updateCount++;
+      lastUpdateBytes = bytes;
+      bytesSerialized += bytes;
+    }
+  }
+
+  /**
+   * Drops pending changes and logs the collected metrics, to be called when the map is going away.
+   */
+  public void onDestroy() {
+    handler.removeCallbacks(flushRunnable);
+    Log.d(TAG, getMetricsSummary());
+  }
+
+  private void scheduleFlush() {
+    if (!flushScheduled) {
+      flushScheduled = true;
+      handler.post(flushRunnable);
+    }
+  }
+
+  private int push(GeoJsonTarget source, List<Feature> sourceFeatures) {
+    String json = FeatureCollection.fromFeatures(sourceFeatures).toJson();
+    source.setGeoJson(json);
+    return utf8Length(json);
+  }
+
+  private static GeoJsonTarget toTarget(final GeoJsonSource source) {
+    return new GeoJsonTarget() {
+      @Override
+      public void setGeoJson(@NonNull String json) {
+        source.setGeoJson(json);
+      }
+    };
+  }
+
+  /**
+   * Counts the bytes the UTF-8 encoding of a String takes, without encoding it.
+   */
+  static int utf8Length(@NonNull String text) {
+    int length = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+        && Character.isLowSurrogate(text.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * @return the number of times the sources were updated
+   */
+  public int getUpdateCount() {
+    return updateCount;
+  }
+
+  /**
+   * @return the number of UTF-8 encoded GeoJSON bytes handed to the sources in total
+   */
+  public long getBytesSerialized() {
+    return bytesSerialized;
+  }
+
+  /**
+   * @return the number of UTF-8 encoded GeoJSON bytes handed to the sources in the last update
+   */
+  public int getLastUpdateBytes() {
+    return lastUpdateBytes;
+  }
+
+  public String getMetricsSummary() {
+    return "Source updates: " + updateCount + ", bytes serialized: " + bytesSerialized
+      + ", last update: " + lastUpdateBytes + " bytes, hot features: " + hotFeatures.size() + " of "
+      + features.size();
+  }
+}
@@ -0,0 +1,180 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.mapboxandroiddemo.commons.GeoJsonAssetReader;
+import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Switches the floor level an indoor map source shows, with the levels parsed ahead of time.
+ * <p>
+ * Every level is a GeoJSON file in the assets folder. Levels are parsed on a background thread into feature
+ * collections, optionally without their properties when the layers only style geometry, and a bounded number of
+ * them is kept in memory. Whenever a level is shown, the levels above and below it are parsed in the background,
+ * so switching to a neighbouring level only hands the parsed collection to the source. The time from a switch
+ * being asked for until the source is updated is measured separately for cached and uncached levels, and the
+ * time spent parsing each level, which used to be spent on the main thread on every switch, is logged.
+ * </p>
+ */
+public class IndoorLevelManager {
+
+  private static final String TAG = "IndoorLevelManager";
+
+  private final Context context;
+  private final GeoJsonSource source;
+  private final String[] levelAssets;
+  private final boolean keepProperties;
+  private final LruCache<Integer, FeatureCollection> levelCache;
+  private final Set<Integer> loadingLevels = new HashSet<>();
+  private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private int currentLevel = -1;
+  private int requestedLevel = -1;
+  private long requestTime;
+
+  // Metrics
+  private int cachedSwitchCount;
+  private long totalCachedSwitchTime;
+  private int uncachedSwitchCount;
+  private long totalUncachedSwitchTime;
+  private long totalParseTime;
+  private int parseCount;
+
+  /**
+   * @param context        used to read the assets
+   * @param source         the source showing the current level
+   * @param maxCachedLevels the number of parsed levels kept in memory, at least 3 to keep both neighbours
+   * @param keepProperties false to drop the properties of the features, if no layer uses them
+   * @param levelAssets    the GeoJSON asset of every level, from the lowest level up
+   */
+  public IndoorLevelManager(@NonNull Context context, @NonNull GeoJsonSource source, int maxCachedLevels,
+                            boolean keepProperties, @NonNull String... levelAssets) {
+    this.context = context.getApplicationContext();
+    this.source = source;
+    this.levelAssets = levelAssets;
+    this.keepProperties = keepProperties;
+    this.levelCache = new LruCache<>(Math.max(1, maxCachedLevels));
+  }
+
+  /**
+   * Shows a level, right away if it is parsed already or else as soon as it is, and starts parsing its
+   * neighbours.
+   *
+   * @param level the index of the level in the assets given to the constructor
+   */
+  public void showLevel(int level) {
+    if (level < 0 || level >= levelAssets.length) {
+      throw new IllegalArgumentException("No level " + level);
+    }
+    requestedLevel = level;
+    requestTime = SystemClock.elapsedRealtime();
+    FeatureCollection featureCollection = levelCache.get(level);
+    if (featureCollection != null) {
+      setLevel(level, featureCollection, true);
+    } else {
+      loadLevel(level);
+    }
+    if (level > 0) {
+      loadLevel(level - 1);
+    }
+    if (level < levelAssets.length - 1) {
+      loadLevel(level + 1);
+    }
+  }
+
+  /**
+   * @return the level the source shows, or -1 before the first level is shown
+   */
+  public int getCurrentLevel() {
+    return currentLevel;
+  }
+
+  /**
+   * Stops parsing levels and logs the collected metrics, to be called from the activity's onDestroy.
+   */
+  public void shutdown() {
+    executorService.shutdownNow();
+    handler.removeCallbacksAndMessages(null);
+    Log.d(TAG, getMetricsSummary());
+  }
+
+  private void setLevel(int level, FeatureCollection featureCollection, boolean cached) {
+    source.setGeoJson(featureCollection);
+    currentLevel = level;
+    long switchTime = SystemClock.elapsedRealtime() - requestTime;
+    if (cached) {
+      cachedSwitchCount++;
+      totalCachedSwitchTime += switchTime;
+    } else {
+      uncachedSwitchCount++;
+      totalUncachedSwitchTime += switchTime;
+    }
+  }
+
+  private void loadLevel(final int level) {
+    if (levelCache.get(level) != null || !loadingLevels.add(level)) {
+      return;
+    }
+    final String asset = levelAssets[level];
+    executorService.execute(new Runnable() {
+      @Override
+      public void run() {
+        long startTime = SystemClock.elapsedRealtime();
+        final FeatureCollection featureCollection = parseLevel(asset);
+        final long parseTime = SystemClock.elapsedRealtime() - startTime;
+        handler.post(new Runnable() {
+          @Override
+          public void run() {
+            loadingLevels.remove(level);
+            if (featureCollection == null) {
+              return;
+            }
+            parseCount++;
+            totalParseTime += parseTime;
+            Log.d(TAG, "Parsed " + asset + " in " + parseTime + " ms");
+            levelCache.put(level, featureCollection);
+            if (level == requestedLevel && level != currentLevel) {
+              setLevel(level, featureCollection, false);
+            }
+          }
+        });
+      }
+    });
+  }
+
+  private FeatureCollection parseLevel(String asset) {
+    final List<Feature> features = new ArrayList<>();
+    boolean loaded = GeoJsonAssetReader.streamFeatures(context, asset,
+      new GeoJsonAssetReader.OnFeatureReadListener() {
+        @Override
+        public boolean onFeatureRead(@NonNull Feature feature) {
+          features.add(keepProperties ? feature : Feature.fromGeometry(feature.geometry()));
+          return true;
+        }
+      });
+    return loaded ? FeatureCollection.fromFeatures(features) : null;
+  }
+
+  public String getMetricsSummary() {
+    return "Level switches from cache: " + cachedSwitchCount + ", average "
+      + (cachedSwitchCount > 0 ? totalCachedSwitchTime / cachedSwitchCount : 0) + " ms; while parsing: "
+      + uncachedSwitchCount + ", average "
+      + (uncachedSwitchCount > 0 ? totalUncachedSwitchTime / uncachedSwitchCount : 0) + " ms; levels parsed: "
+      + parseCount + ", average parse time: " + (parseCount > 0 ? totalParseTime / parseCount : 0) + " ms";
+  }
+}
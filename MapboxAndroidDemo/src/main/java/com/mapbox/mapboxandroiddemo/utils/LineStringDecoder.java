@@ -0,0 +1,149 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Decodes the first LineString found in a GeoJSON document straight into a {@link PackedLineString}.
+ * <p>
+ * The document is tokenized from the stream, so no intermediate String, JSONObject or per-coordinate
+ * object is created. The LineString can be a bare geometry, the geometry of a Feature, or the geometry
+ * of any Feature inside a FeatureCollection or GeometryCollection.
+ * </p>
+ */
+public class LineStringDecoder {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final String TYPE_KEY = "type";
+  private static final String COORDINATES_KEY = "coordinates";
+  private static final String FEATURES_KEY = "features";
+  private static final String GEOMETRY_KEY = "geometry";
+  private static final String GEOMETRIES_KEY = "geometries";
+  private static final String LINE_STRING_TYPE = "LineString";
+  private static final int INITIAL_CAPACITY = 256;
+
+  private LineStringDecoder() {
+    // Utility class
+  }
+
+  /**
+   * Reads the first LineString from a UTF-8 encoded GeoJSON stream. The stream is always closed.
+   *
+   * @param inputStream the GeoJSON document
+   * @return the decoded line, or null if the document doesn't contain a LineString
+   * @throws IOException if the stream couldn't be read or isn't well-formed JSON
+   */
+  @Nullable
+  public static PackedLineString decode(@NonNull InputStream inputStream) throws IOException {
+    JsonReader reader = new JsonReader(new InputStreamReader(inputStream, UTF_8));
+    try {
+      return readValue(reader);
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Nullable
+  private static PackedLineString readValue(JsonReader reader) throws IOException {
+    JsonToken token = reader.peek();
+    if (token == JsonToken.BEGIN_OBJECT) {
+      return readObject(reader);
+    } else if (token == JsonToken.BEGIN_ARRAY) {
+      PackedLineString lineString = null;
+      reader.beginArray();
+      while (reader.hasNext()) {
+        if (lineString == null) {
+          lineString = readValue(reader);
+        } else {
+          reader.skipValue();
+        }
+      }
+      reader.endArray();
+      return lineString;
+    }
+    reader.skipValue();
+    return null;
+  }
+
+  @Nullable
+  private static PackedLineString readObject(JsonReader reader) throws IOException {
+    String type = null;
+    PackedLineString coordinates = null;
+    PackedLineString nested = null;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (nested != null) {
+        reader.skipValue();
+      } else if (TYPE_KEY.equals(name) && reader.peek() == JsonToken.STRING) {
+        type = reader.nextString();
+      } else if (COORDINATES_KEY.equals(name)) {
+        // Member order isn't guaranteed, so the type may only be known once the object is finished
+        coordinates = readPositions(reader);
+      } else if (FEATURES_KEY.equals(name) || GEOMETRY_KEY.equals(name) || GEOMETRIES_KEY.equals(name)) {
+        nested = readValue(reader);
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    if (nested != null) {
+      return nested;
+    }
+    return LINE_STRING_TYPE.equals(type) ? coordinates : null;
+  }
+
+  /**
+   * Reads an array of positions into a packed buffer. Returns null, after consuming the value, if the
+   * value doesn't have the shape of LineString coordinates.
+   */
+  @Nullable
+  private static PackedLineString readPositions(JsonReader reader) throws IOException {
+    if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+      reader.skipValue();
+      return null;
+    }
+
+    double[] buffer = new double[INITIAL_CAPACITY];
+    int length = 0;
+    boolean isLineString = true;
+
+    reader.beginArray();
+    while (reader.hasNext()) {
+      if (!isLineString || reader.peek() != JsonToken.BEGIN_ARRAY) {
+        isLineString = false;
+        reader.skipValue();
+        continue;
+      }
+      reader.beginArray();
+      if (reader.peek() != JsonToken.NUMBER) {
+        isLineString = false;
+      } else {
+        if (length + 2 > buffer.length) {
+          buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        buffer[length++] = reader.nextDouble();
+        buffer[length++] = reader.nextDouble();
+      }
+      // Skip altitude, or the rest of a nested ring
+      while (reader.hasNext()) {
+        reader.skipValue();
+      }
+      reader.endArray();
+    }
+    reader.endArray();
+
+    return isLineString ? new PackedLineString(buffer, length / 2) : null;
+  }
+}
@@ -0,0 +1,379 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.net.HttpURLConnection;
+
+import retrofit2.Response;
+
+/**
+ * Polls a live data source on the main thread's looper, replacing a bare Handler.postDelayed loop.
+ * <p>
+ * At most one poll is in flight at a time: a tick that comes due while the previous poll hasn't completed
+ * is coalesced into it instead of firing another request. Polls start no more often than the interval,
+ * failures back the interval off exponentially up to a maximum, and {@link #pause()} / {@link #resume()}
+ * tie the polling to the activity lifecycle. The ETag and Last-Modified validators of the last response are
+ * handed to the next fetch so HTTP sources can make conditional requests and answer with 304 Not Modified.
+ * </p>
+ *
+ * @param <T> the type of data delivered to the listener
+ */
+public class LiveDataPoller<T> {
+
+  private static final String TAG = "LiveDataPoller";
+
+  private static final String HEADER_ETAG = "ETag";
+  private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+
+  /**
+   * Fetches the data of a single poll.
+   *
+   * @param <T> the type of data fetched
+   */
+  public interface Fetcher<T> {
+
+    /**
+     * Starts fetching, called on the main thread. Exactly one of the completion methods of the poll should
+     * be called once the fetch finished, from any thread.
+     *
+     * @param poll the poll to complete, which also carries the validators of the last response
+     */
+    void fetch(@NonNull Poll<T> poll);
+  }
+
+  /**
+   * Receives the polled data on the main thread.
+   *
+   * @param <T> the type of data delivered
+   */
+  public interface OnDataListener<T> {
+
+    /**
+     * @param data the data of a poll that returned new data
+     */
+    void onData(@NonNull T data);
+
+    /**
+     * @param throwable the reason a poll failed; the next poll is backed off
+     */
+    void onError(@NonNull Throwable throwable);
+  }
+
+  /**
+   * A single poll handed to the {@link Fetcher}.
+   *
+   * @param <T> the type of data fetched
+   */
+  public static final class Poll<T> {
+
+    private final LiveDataPoller<T> poller;
+    private final int generation;
+    private final long startTime;
+    private final String etag;
+    private final String lastModified;
+    private boolean completed;
+
+    private Poll(LiveDataPoller<T> poller, int generation, String etag, String lastModified) {
+      this.poller = poller;
+      this.generation = generation;
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.startTime = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * @return the ETag of the last response, to be sent as If-None-Match, or null
+     */
+    @Nullable
+    public String getETag() {
+      return etag;
+    }
+
+    /**
+     * @return the Last-Modified value of the last response, to be sent as If-Modified-Since, or null
+     */
+    @Nullable
+    public String getLastModified() {
+      return lastModified;
+    }
+
+    /**
+     * Completes the poll with a Retrofit response, handling 304 Not Modified and HTTP errors.
+     *
+     * @param response the response of the call
+     */
+    public void onResponse(@NonNull Response<T> response) {
+      if (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+        // a 304 need not repeat the validators, the ones sent with the request stay valid then
+        String newEtag = response.headers().get(HEADER_ETAG);
+        String newLastModified = response.headers().get(HEADER_LAST_MODIFIED);
+        complete(null, null, newEtag != null ? newEtag : etag,
+          newLastModified != null ? newLastModified : lastModified);
+      } else if (!response.isSuccessful() || response.body() == null) {
+        onFailure(new IllegalStateException("HTTP " + response.code()));
+      } else {
+        complete(response.body(), null, response.headers().get(HEADER_ETAG),
+          response.headers().get(HEADER_LAST_MODIFIED));
+      }
+    }
+
+    /**
+     * Completes the poll with data that didn't come from an HTTP response.
+     *
+     * @param data the new data
+     */
+    public void onData(@NonNull T data) {
+      complete(data, null, null, null);
+    }
+
+    /**
+     * Completes the poll without new data, keeping the validators of the last response.
+     */
+    public void onNotModified() {
+      complete(null, null, etag, lastModified);
+    }
+
+    /**
+     * Completes the poll with an error.
+     *
+     * @param throwable the reason the poll failed
+     */
+    public void onFailure(@NonNull Throwable throwable) {
+      complete(null, throwable, etag, lastModified);
+    }
+
+    private void complete(final T data, final Throwable throwable, final String newEtag,
+                          final String newLastModified) {
+      final long latency = SystemClock.elapsedRealtime() - startTime;
+      Runnable completion = new Runnable() {
+        @Override
+        public void run() {
+          if (completed) {
+            return;
+          }
+          completed = true;
+          poller.onPollCompleted(Poll.this, data, throwable, newEtag, newLastModified, latency);
+        }
+      };
+      if (Looper.myLooper() == Looper.getMainLooper()) {
+        completion.run();
+      } else {
+        poller.handler.post(completion);
+      }
+    }
+  }
+
+  private final Fetcher<T> fetcher;
+  private final OnDataListener<T> listener;
+  private final long interval;
+  private final long maxInterval;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  private boolean running;
+  private boolean paused;
+  private int generation;
+  private Poll<T> inFlightPoll;
+  private long lastPollStartTime;
+  private int consecutiveFailures;
+  private long currentInterval;
+  private String etag;
+  private String lastModified;
+
+  // Metrics
+  private int pollCount;
+  private int completedCount;
+  private int coalescedCount;
+  private int notModifiedCount;
+  private int failureCount;
+  private long totalLatency;
+  private long minLatency = Long.MAX_VALUE;
+  private long maxLatency;
+  private long lastLatency;
+
+  private final Runnable pollRunnable = new Runnable() {
+    @Override
+    public void run() {
+      poll();
+    }
+  };
+
+  /**
+   * @param interval    the time between the start of two polls in milliseconds
+   * @param maxInterval the upper bound of the interval when backing off after failures
+   * @param fetcher     fetches the data of a poll
+   * @param listener    receives the new data
+   */
+  public LiveDataPoller(long interval, long maxInterval, @NonNull Fetcher<T> fetcher,
+                        @NonNull OnDataListener<T> listener) {
+    this.interval = interval;
+    this.maxInterval = Math.max(interval, maxInterval);
+    this.currentInterval = interval;
+    this.fetcher = fetcher;
+    this.listener = listener;
+  }
+
+  /**
+   * Starts polling right away, unless paused.
+   */
+  public void start() {
+    if (running) {
+      return;
+    }
+    running = true;
+    if (!paused) {
+      poll();
+    }
+  }
+
+  /**
+   * Stops scheduling polls until {@link #resume()} is called, e.g. from the activity's onPause. A poll in
+   * flight still delivers its data.
+   */
+  public void pause() {
+    paused = true;
+    handler.removeCallbacks(pollRunnable);
+  }
+
+  /**
+   * Continues polling after {@link #pause()}, polling right away if the interval already elapsed.
+   */
+  public void resume() {
+    paused = false;
+    if (running) {
+      scheduleNext();
+    }
+  }
+
+  /**
+   * Stops polling for good, drops the result of a poll in flight and logs the collected metrics.
+   */
+  public void stop() {
+    running = false;
+    generation++;
+    inFlightPoll = null;
+    handler.removeCallbacks(pollRunnable);
+    Log.d(TAG, getMetricsSummary());
+  }
+
+  /**
+   * Starts a poll, or coalesces the tick into the poll still in flight. Called whenever the interval elapsed.
+   */
+  void poll() {
+    if (!running || paused) {
+      return;
+    }
+    if (inFlightPoll != null) {
+      // the previous poll is still running, its completion schedules the next one instead of piling up requests
+      coalescedCount++;
+      return;
+    }
+    pollCount++;
+    lastPollStartTime = SystemClock.elapsedRealtime();
+    inFlightPoll = new Poll<>(this, generation, etag, lastModified);
+    fetcher.fetch(inFlightPoll);
+  }
+
+  private void onPollCompleted(Poll<T> poll, T data, Throwable throwable, String newEtag, String newLastModified,
+                               long latency) {
+    if (poll.generation != generation || poll != inFlightPoll) {
+      return;
+    }
+    inFlightPoll = null;
+
+    completedCount++;
+    lastLatency = latency;
+    totalLatency += latency;
+    minLatency = Math.min(minLatency, latency);
+    maxLatency = Math.max(maxLatency, latency);
+
+    if (throwable != null) {
+      failureCount++;
+      consecutiveFailures++;
+      currentInterval = Math.min(maxInterval, interval << Math.min(consecutiveFailures, 16));
+      listener.onError(throwable);
+    } else {
+      consecutiveFailures = 0;
+      currentInterval = interval;
+      etag = newEtag;
+      lastModified = newLastModified;
+      if (data == null) {
+        notModifiedCount++;
+      } else {
+        listener.onData(data);
+      }
+    }
+
+    if (running && !paused) {
+      scheduleNext();
+    }
+  }
+
+  private void scheduleNext() {
+    handler.removeCallbacks(pollRunnable);
+    if (inFlightPoll != null) {
+      return;
+    }
+    long elapsed = SystemClock.elapsedRealtime() - lastPollStartTime;
+    handler.postDelayed(pollRunnable, Math.max(0, currentInterval - elapsed));
+  }
+
+  /**
+   * @return the interval currently used, which grows while polls fail
+   */
+  public long getCurrentInterval() {
+    return currentInterval;
+  }
+
+  /**
+   * @return the number of polls started
+   */
+  public int getPollCount() {
+    return pollCount;
+  }
+
+  /**
+   * @return the number of ticks folded into a poll that was still in flight
+   */
+  public int getCoalescedCount() {
+    return coalescedCount;
+  }
+
+  /**
+   * @return the number of polls that returned no new data
+   */
+  public int getNotModifiedCount() {
+    return notModifiedCount;
+  }
+
+  /**
+   * @return the number of failed polls
+   */
+  public int getFailureCount() {
+    return failureCount;
+  }
+
+  /**
+   * @return the latency of the last completed poll in milliseconds
+   */
+  public long getLastLatency() {
+    return lastLatency;
+  }
+
+  /**
+   * @return the average latency of the completed polls in milliseconds
+   */
+  public long getAverageLatency() {
+    return completedCount > 0 ? totalLatency / completedCount : 0;
+  }
+
+  public String getMetricsSummary() {
+    return "Polls: " + pollCount + ", coalesced: " + coalescedCount + ", not modified: " + notModifiedCount
+      + ", failures: " + failureCount + ", latency avg/min/max: " + getAverageLatency() + "/"
+      + (minLatency == Long.MAX_VALUE ? 0 : minLatency) + "/" + maxLatency + " ms";
+  }
+}
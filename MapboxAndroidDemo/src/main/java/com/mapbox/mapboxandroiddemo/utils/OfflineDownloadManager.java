@@ -0,0 +1,635 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+import com.mapbox.mapboxsdk.offline.OfflineManager;
+import com.mapbox.mapboxsdk.offline.OfflineRegion;
+import com.mapbox.mapboxsdk.offline.OfflineRegionError;
+import com.mapbox.mapboxsdk.offline.OfflineRegionStatus;
+import com.mapbox.mapboxsdk.offline.OfflineTilePyramidRegionDefinition;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Downloads a queue of offline regions, several at a time.
+ * <p>
+ * Regions are downloaded in order of priority, and in the order they were added for the same priority. At most
+ * a configurable number of regions download at the same time; a region added with a higher priority than one
+ * that is downloading takes its place. Single regions can be paused and resumed. The queue, including which
+ * regions are paused, is kept in the shared preferences, so downloads that didn't finish continue the next time
+ * the manager is created. The progress of all regions is combined into resources and bytes per second and an
+ * estimated time to finish the queue. Regions that haven't reported any progress yet count with the number of
+ * tiles estimated from their definition. The rates decay with the time that passed without progress, and the
+ * combined progress is reported every second while regions are downloading, so a stalled download shows up
+ * as such. The offline manager calls back on the main thread, so the manager must be used from the main thread
+ * as well.
+ * </p>
+ */
+public class OfflineDownloadManager {
+
+  private static final String TAG = "OfflineDownloadManager";
+
+  private static final String PREFERENCES_NAME = "offline_download_queue";
+  private static final String KEY_QUEUE = "queue";
+  private static final String KEY_ID = "id";
+  private static final String KEY_PRIORITY = "priority";
+  private static final String KEY_SEQUENCE = "sequence";
+  private static final String KEY_PAUSED = "paused";
+
+  /**
+   * The priority of regions added without one.
+   */
+  public static final int DEFAULT_PRIORITY = 0;
+
+  private static final long RATE_WINDOW = 1000;
+  private static final double RATE_SMOOTHING = 0.3;
+
+  /**
+   * Receives the progress of the downloads on the main thread.
+   */
+  public interface OnDownloadListener {
+
+    /**
+     * @param region the region the status belongs to
+     * @param status the latest status of the region
+     */
+    void onRegionProgress(@NonNull OfflineRegion region, @NonNull OfflineRegionStatus status);
+
+    /**
+     * @param region the region that finished downloading and left the queue
+     */
+    void onRegionComplete(@NonNull OfflineRegion region);
+
+    /**
+     * @param region  the region that reported the error
+     * @param message the reason of the error
+     * @param fatal   true if the region left the queue, false if the download is retried
+     */
+    void onRegionError(@NonNull OfflineRegion region, @NonNull String message, boolean fatal);
+
+    /**
+     * @param throughput the combined progress of all regions in the queue
+     */
+    void onQueueProgress(@NonNull Throughput throughput);
+  }
+
+  /**
+   * The combined progress of the queue.
+   */
+  public static class Throughput {
+
+    private final double resourcesPerSecond;
+    private final double bytesPerSecond;
+    private final long completedResources;
+    private final long requiredResources;
+    private final int activeCount;
+    private final int queuedCount;
+
+    Throughput(double resourcesPerSecond, double bytesPerSecond, long completedResources,
+               long requiredResources, int activeCount, int queuedCount) {
+      this.resourcesPerSecond = resourcesPerSecond;
+      this.bytesPerSecond = bytesPerSecond;
+      this.completedResources = completedResources;
+      this.requiredResources = requiredResources;
+      this.activeCount = activeCount;
+      this.queuedCount = queuedCount;
+    }
+
+    public double getResourcesPerSecond() {
+      return resourcesPerSecond;
+    }
+
+    public double getBytesPerSecond() {
+      return bytesPerSecond;
+    }
+
+    public long getCompletedResources() {
+      return completedResources;
+    }
+
+    public long getRequiredResources() {
+      return requiredResources;
+    }
+
+    public int getActiveCount() {
+      return activeCount;
+    }
+
+    public int getQueuedCount() {
+      return queuedCount;
+    }
+
+    /**
+     * @return the share of the resources of the queue that is downloaded, between 0 and 1
+     */
+    public double getFraction() {
+      return requiredResources > 0 ? Math.min(1, (double) completedResources / requiredResources) : 0;
+    }
+
+    /**
+     * @return the estimated number of seconds until the queue is downloaded, or -1 if it can't be estimated yet
+     */
+    public long getEtaSeconds() {
+      if (resourcesPerSecond <= 0) {
+        return -1;
+      }
+      return Math.round((requiredResources - completedResources) / resourcesPerSecond);
+    }
+  }
+
+  private class Entry implements OfflineRegion.OfflineRegionObserver {
+
+    private final long id;
+    private final int priority;
+    private final long sequence;
+    private boolean paused;
+    private OfflineRegion region;
+    private boolean active;
+    private long completedResources = -1;
+    private long completedBytes = -1;
+    private long requiredResources;
+    private long estimatedResources;
+
+    Entry(long id, int priority, long sequence, boolean paused) {
+      this.id = id;
+      this.priority = priority;
+      this.sequence = sequence;
+      this.paused = paused;
+    }
+
+    void attach(OfflineRegion region) {
+      this.region = region;
+      this.estimatedResources = estimateTileCount(region);
+      region.setObserver(this);
+    }
+
+    void setActive(boolean active) {
+      this.active = active;
+      region.setDownloadState(active ? OfflineRegion.STATE_ACTIVE : OfflineRegion.STATE_INACTIVE);
+    }
+
+    @Override
+    public void onStatusChanged(OfflineRegionStatus status) {
+      onEntryStatusChanged(this, status);
+    }
+
+    @Override
+    public void onError(OfflineRegionError error) {
+      // the offline manager keeps retrying after errors like a lost connection
+      listener.onRegionError(region, error.getReason() + ": " + error.getMessage(), false);
+    }
+
+    @Override
+    public void mapboxTileCountLimitExceeded(long limit) {
+      errorCount++;
+      removeEntry(this);
+      listener.onRegionError(region, "Mapbox tile count limit exceeded: " + limit, true);
+      schedule();
+    }
+  }
+
+  private final OfflineManager offlineManager;
+  private final SharedPreferences preferences;
+  private final OnDownloadListener listener;
+  private final OfflineTileEstimator tileEstimator = new OfflineTileEstimator();
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final List<Entry> entries = new ArrayList<>();
+  private final Comparator<Entry> queueOrder = new Comparator<Entry>() {
+    @Override
+    public int compare(Entry entry, Entry otherEntry) {
+      if (entry.priority != otherEntry.priority) {
+        return entry.priority > otherEntry.priority ? -1 : 1;
+      }
+      // Long#compare needs API 19
+      return entry.sequence < otherEntry.sequence ? -1 : (entry.sequence == otherEntry.sequence ? 0 : 1);
+    }
+  };
+  private int maxConcurrent;
+  private long nextSequence;
+  private boolean destroyed;
+  private boolean progressScheduled;
+
+  private final Runnable progressRunnable = new Runnable() {
+    @Override
+    public void run() {
+      progressScheduled = false;
+      if (!destroyed && getActiveCount() > 0) {
+        listener.onQueueProgress(getThroughput());
+        scheduleProgress();
+      }
+    }
+  };
+
+  // Rates, updated once per window and when read
+  private long windowStartTime;
+  private long windowResources;
+  private long windowBytes;
+  private double resourcesPerSecond;
+  private double bytesPerSecond;
+
+  // Metrics
+  private long totalResources;
+  private long totalBytes;
+  private long firstDownloadTime;
+  private long lastDownloadTime;
+  private int completedRegionCount;
+  private int errorCount;
+  private int peakActiveCount;
+
+  /**
+   * Creates the manager and continues the downloads of the queue kept from earlier sessions.
+   *
+   * @param context       used to reach the offline manager and the shared preferences
+   * @param maxConcurrent the number of regions downloading at the same time
+   * @param listener      receives the progress of the downloads
+   */
+  public OfflineDownloadManager(@NonNull Context context, int maxConcurrent, @NonNull OnDownloadListener listener) {
+    this.offlineManager = OfflineManager.getInstance(context);
+    this.preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    this.listener = listener;
+    this.maxConcurrent = Math.max(1, maxConcurrent);
+    restoreQueue();
+  }
+
+  /**
+   * Adds a region to the queue with the default priority.
+   *
+   * @param region the region to download
+   */
+  public void enqueue(@NonNull OfflineRegion region) {
+    enqueue(region, DEFAULT_PRIORITY);
+  }
+
+  /**
+   * Adds a region to the queue, or changes its priority if it is queued already.
+   *
+   * @param region   the region to download
+   * @param priority regions with a higher priority are downloaded first
+   */
+  public void enqueue(@NonNull OfflineRegion region, int priority) {
+    Entry existing = findEntry(region.getID());
+    boolean paused = false;
+    if (existing != null) {
+      paused = existing.paused;
+      removeEntry(existing);
+    }
+    Entry entry = new Entry(region.getID(), priority, nextSequence++, paused);
+    entry.attach(region);
+    entries.add(entry);
+    Collections.sort(entries, queueOrder);
+    saveQueue();
+    schedule();
+  }
+
+  /**
+   * Pauses the download of a queued region, also for later sessions.
+   *
+   * @param regionId the ID of the region
+   */
+  public void pause(long regionId) {
+    setPaused(regionId, true);
+  }
+
+  /**
+   * Resumes the download of a paused region.
+   *
+   * @param regionId the ID of the region
+   */
+  public void resume(long regionId) {
+    setPaused(regionId, false);
+  }
+
+  /**
+   * Stops downloading a region and removes it from the queue, e.g. before the region is deleted.
+   *
+   * @param regionId the ID of the region
+   */
+  public void remove(long regionId) {
+    Entry entry = findEntry(regionId);
+    if (entry != null) {
+      removeEntry(entry);
+      schedule();
+    }
+  }
+
+  /**
+   * @param maxConcurrent the number of regions downloading at the same time
+   */
+  public void setMaxConcurrent(int maxConcurrent) {
+    this.maxConcurrent = Math.max(1, maxConcurrent);
+    schedule();
+  }
+
+  /**
+   * @param regionId the ID of the region
+   * @return true if the region is queued, paused or not
+   */
+  public boolean isQueued(long regionId) {
+    return findEntry(regionId) != null;
+  }
+
+  /**
+   * Stops all downloads and logs the collected metrics, to be called from the activity's onDestroy. The queue
+   * stays saved, so the downloads continue when a manager is created again.
+   */
+  public void onDestroy() {
+    destroyed = true;
+    handler.removeCallbacks(progressRunnable);
+    for (Entry entry : entries) {
+      if (entry.region != null) {
+        if (entry.active) {
+          entry.setActive(false);
+        }
+        entry.region.setObserver(null);
+      }
+    }
+    Log.d(TAG, getMetricsSummary());
+  }
+
+  private void setPaused(long regionId, boolean paused) {
+    Entry entry = findEntry(regionId);
+    if (entry != null && entry.paused != paused) {
+      entry.paused = paused;
+      saveQueue();
+      schedule();
+    }
+  }
+
+  /**
+   * Activates the first regions of the queue that aren't paused, up to the concurrency limit, and deactivates
+   * all others.
+   */
+  private void schedule() {
+    if (destroyed) {
+      return;
+    }
+    int slots = maxConcurrent;
+    int activeCount = 0;
+    for (Entry entry : entries) {
+      if (entry.region == null) {
+        // restored from an earlier session, waiting for the offline manager to list it
+        continue;
+      }
+      boolean shouldBeActive = !entry.paused && slots > 0;
+      if (shouldBeActive) {
+        slots--;
+        activeCount++;
+      }
+      if (entry.active != shouldBeActive) {
+        entry.setActive(shouldBeActive);
+      }
+    }
+    peakActiveCount = Math.max(peakActiveCount, activeCount);
+    if (activeCount > 0) {
+      scheduleProgress();
+    }
+  }
+
+  /**
+   * Reports the progress of the queue after a rate window, also when no region reports progress in the meantime.
+   */
+  private void scheduleProgress() {
+    if (!progressScheduled) {
+      progressScheduled = true;
+      handler.postDelayed(progressRunnable, RATE_WINDOW);
+    }
+  }
+
+  private void onEntryStatusChanged(Entry entry, OfflineRegionStatus status) {
+    long now = SystemClock.elapsedRealtime();
+    if (entry.completedResources >= 0) {
+      // the first status only tells where an earlier session left off
+      long resources = status.getCompletedResourceCount() - entry.completedResources;
+      long bytes = status.getCompletedResourceSize() - entry.completedBytes;
+      if (resources > 0) {
+        if (firstDownloadTime == 0) {
+          firstDownloadTime = now;
+        }
+        lastDownloadTime = now;
+        totalResources += resources;
+        totalBytes += bytes;
+        windowResources += resources;
+        windowBytes += bytes;
+      }
+    }
+    entry.completedResources = status.getCompletedResourceCount();
+    entry.completedBytes = status.getCompletedResourceSize();
+    entry.requiredResources = status.getRequiredResourceCount();
+    updateRates(now);
+
+    listener.onRegionProgress(entry.region, status);
+    if (status.isComplete()) {
+      completedRegionCount++;
+      removeEntry(entry);
+      listener.onRegionComplete(entry.region);
+      schedule();
+    }
+    listener.onQueueProgress(getThroughput());
+  }
+
+  private void updateRates(long now) {
+    if (windowStartTime == 0) {
+      windowStartTime = now;
+      return;
+    }
+    long elapsed = now - windowStartTime;
+    if (elapsed < RATE_WINDOW) {
+      return;
+    }
+    double windowResourceRate = windowResources * 1000.0 / elapsed;
+    double windowByteRate = windowBytes * 1000.0 / elapsed;
+    if (resourcesPerSecond == 0) {
+      resourcesPerSecond = windowResourceRate;
+      bytesPerSecond = windowByteRate;
+    } else {
+      resourcesPerSecond = smoothRate(resourcesPerSecond, windowResourceRate, elapsed);
+      bytesPerSecond = smoothRate(bytesPerSecond, windowByteRate, elapsed);
+    }
+    windowStartTime = now;
+    windowResources = 0;
+    windowBytes = 0;
+  }
+
+  /**
+   * Moves a rate towards the rate of the last window. A window spanning several regular windows, e.g. after a
+   * download stalled, weighs as much as that many regular windows in a row.
+   *
+   * @param rate       the smoothed rate so far
+   * @param windowRate the rate measured over the last window
+   * @param elapsed    the length of the last window in milliseconds
+   * @return the new smoothed rate
+   */
+  private static double smoothRate(double rate, double windowRate, long elapsed) {
+    double weight = 1 - Math.pow(1 - RATE_SMOOTHING, (double) elapsed / RATE_WINDOW);
+    return rate + weight * (windowRate - rate);
+  }
+
+  /**
+   * @return the combined progress of the regions in the queue, with the rates decayed to the current time
+   */
+  public Throughput getThroughput() {
+    updateRates(SystemClock.elapsedRealtime());
+    long completed = 0;
+    long required = 0;
+    for (Entry entry : entries) {
+      if (entry.completedResources >= 0) {
+        completed += entry.completedResources;
+        required += entry.requiredResources;
+      } else {
+        // queued and never started, the region's tiles are the bulk of its resources
+        required += entry.estimatedResources;
+      }
+    }
+    return new Throughput(resourcesPerSecond, bytesPerSecond, completed, required, getActiveCount(), entries.size());
+  }
+
+  private int getActiveCount() {
+    int activeCount = 0;
+    for (Entry entry : entries) {
+      if (entry.active) {
+        activeCount++;
+      }
+    }
+    return activeCount;
+  }
+
+  private long estimateTileCount(OfflineRegion region) {
+    if (!(region.getDefinition() instanceof OfflineTilePyramidRegionDefinition)) {
+      return 0;
+    }
+    OfflineTilePyramidRegionDefinition definition = (OfflineTilePyramidRegionDefinition) region.getDefinition();
+    LatLngBounds bounds = definition.getBounds();
+    try {
+      return tileEstimator.estimate(new OfflineTileEstimator.Bounds(bounds.getLatSouth(), bounds.getLonWest(),
+        bounds.getLatNorth(), bounds.getLonEast()), definition.getMinZoom(), definition.getMaxZoom()).getTileCount();
+    } catch (IllegalArgumentException exception) {
+      // bounds crossing the antimeridian can't be estimated
+      return 0;
+    }
+  }
+
+  private Entry findEntry(long regionId) {
+    for (Entry entry : entries) {
+      if (entry.id == regionId) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  private void removeEntry(Entry entry) {
+    entries.remove(entry);
+    if (entry.region != null) {
+      if (entry.active) {
+        entry.setActive(false);
+      }
+      entry.region.setObserver(null);
+    }
+    saveQueue();
+  }
+
+  private void restoreQueue() {
+    String json = preferences.getString(KEY_QUEUE, null);
+    if (json == null) {
+      return;
+    }
+    try {
+      JSONArray array = new JSONArray(json);
+      for (int i = 0; i < array.length(); i++) {
+        JSONObject object = array.getJSONObject(i);
+        long sequence = object.getLong(KEY_SEQUENCE);
+        entries.add(new Entry(object.getLong(KEY_ID), object.getInt(KEY_PRIORITY), sequence,
+          object.getBoolean(KEY_PAUSED)));
+        nextSequence = Math.max(nextSequence, sequence + 1);
+      }
+    } catch (JSONException exception) {
+      Log.e(TAG, "Failed to restore the download queue: " + exception.getMessage());
+      return;
+    }
+    Collections.sort(entries, queueOrder);
+
+    offlineManager.listOfflineRegions(new OfflineManager.ListOfflineRegionsCallback() {
+      @Override
+      public void onList(OfflineRegion[] offlineRegions) {
+        if (destroyed) {
+          return;
+        }
+        List<Entry> restoredEntries = new ArrayList<>();
+        for (Entry entry : entries) {
+          if (entry.region == null) {
+            restoredEntries.add(entry);
+          }
+        }
+        for (Entry entry : restoredEntries) {
+          OfflineRegion region = findRegion(offlineRegions, entry.id);
+          if (region != null) {
+            entry.attach(region);
+          } else {
+            // deleted while the manager wasn't running
+            entries.remove(entry);
+          }
+        }
+        saveQueue();
+        Log.d(TAG, "Restored " + restoredEntries.size() + " queued regions");
+        schedule();
+      }
+
+      @Override
+      public void onError(String error) {
+        Log.e(TAG, "Failed to list the queued regions: " + error);
+      }
+    });
+  }
+
+  private static OfflineRegion findRegion(OfflineRegion[] offlineRegions, long regionId) {
+    if (offlineRegions != null) {
+      for (OfflineRegion region : offlineRegions) {
+        if (region.getID() == regionId) {
+          return region;
+        }
+      }
+    }
+    return null;
+  }
+
+  private void saveQueue() {
+    JSONArray array = new JSONArray();
+    try {
+      for (Entry entry : entries) {
+        JSONObject object = new JSONObject();
+        object.put(KEY_ID, entry.id);
+        object.put(KEY_PRIORITY, entry.priority);
+        object.put(KEY_SEQUENCE, entry.sequence);
+        object.put(KEY_PAUSED, entry.paused);
+        array.put(object);
+      }
+    } catch (JSONException exception) {
+      Log.e(TAG, "Failed to save the download queue: " + exception.getMessage());
+      return;
+    }
+    preferences.edit().putString(KEY_QUEUE, array.toString()).apply();
+  }
+
+  public String getMetricsSummary() {
+    long downloadTime = lastDownloadTime - firstDownloadTime;
+    return "Offline regions completed: " + completedRegionCount + ", failed: " + errorCount + ", resources: "
+      + totalResources + ", bytes: " + totalBytes + ", average: "
+      + (downloadTime > 0 ? totalResources * 1000 / downloadTime : 0) + " resources/s, "
+      + (downloadTime > 0 ? totalBytes * 1000 / downloadTime : 0) + " bytes/s, peak concurrent regions: "
+      + peakActiveCount + ", still queued: " + entries.size();
+  }
+}
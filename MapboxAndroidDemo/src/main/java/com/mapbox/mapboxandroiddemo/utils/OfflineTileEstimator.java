@@ -0,0 +1,301 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts the tiles of an offline tile pyramid region before it is created, and splits regions that exceed the
+ * tile count limit of the Mapbox offline service.
+ * <p>
+ * The counts follow the offline database for vector sources with 512 pixel tiles: every integer zoom level from
+ * the floor of the minimum zoom up to the floor of the maximum zoom is covered, but not beyond the maximum zoom
+ * of the source, as deeper levels are rendered by overzooming. Bounds crossing the antimeridian aren't
+ * supported. The class doesn't depend on Android, so it runs on the JVM as well.
+ * </p>
+ */
+public class OfflineTileEstimator {
+
+  /**
+   * The number of tiles a region of the Mapbox offline service may hold by default.
+   */
+  public static final long DEFAULT_TILE_COUNT_LIMIT = 6000;
+
+  /**
+   * The maximum zoom of the Mapbox Streets vector tiles.
+   */
+  public static final int DEFAULT_SOURCE_MAX_ZOOM = 16;
+
+  /**
+   * A rough average size of a Mapbox Streets vector tile in bytes.
+   */
+  public static final long DEFAULT_AVERAGE_TILE_SIZE = 40 * 1024;
+
+  private static final double MAX_LATITUDE = 85.0511287798066;
+  // The fraction of a tile the edges between split regions are moved into each region
+  private static final double EDGE_INSET = 1e-4;
+
+  /**
+   * Geographic bounds in degrees.
+   */
+  public static class Bounds {
+
+    private final double south;
+    private final double west;
+    private final double north;
+    private final double east;
+
+    public Bounds(double south, double west, double north, double east) {
+      if (south > north || west > east) {
+        throw new IllegalArgumentException("Bounds must not be inverted or cross the antimeridian");
+      }
+      this.south = south;
+      this.west = west;
+      this.north = north;
+      this.east = east;
+    }
+
+    public double getSouth() {
+      return south;
+    }
+
+    public double getWest() {
+      return west;
+    }
+
+    public double getNorth() {
+      return north;
+    }
+
+    public double getEast() {
+      return east;
+    }
+
+    @Override
+    public String toString() {
+      return "Bounds{south=" + south + ", west=" + west + ", north=" + north + ", east=" + east + "}";
+    }
+  }
+
+  /**
+   * The predicted size of a region.
+   */
+  public static class Estimate {
+
+    private final int minZoom;
+    private final long[] tileCounts;
+    private final long tileCount;
+    private final long size;
+
+    Estimate(int minZoom, long[] tileCounts, long averageTileSize) {
+      this.minZoom = minZoom;
+      this.tileCounts = tileCounts;
+      long total = 0;
+      for (long count : tileCounts) {
+        total += count;
+      }
+      this.tileCount = total;
+      this.size = total * averageTileSize;
+    }
+
+    /**
+     * @return the lowest zoom level covered
+     */
+    public int getMinZoom() {
+      return minZoom;
+    }
+
+    /**
+     * @return the highest zoom level covered, below the minimum zoom if the region covers none
+     */
+    public int getMaxZoom() {
+      return minZoom + tileCounts.length - 1;
+    }
+
+    /**
+     * @param zoom an integer zoom level
+     * @return the number of tiles of the region at the zoom level
+     */
+    public long getTileCount(int zoom) {
+      int index = zoom - minZoom;
+      return index >= 0 && index < tileCounts.length ? tileCounts[index] : 0;
+    }
+
+    /**
+     * @return the number of tiles of the region over all zoom levels
+     */
+    public long getTileCount() {
+      return tileCount;
+    }
+
+    /**
+     * @return the predicted size of the tiles in bytes
+     */
+    public long getSize() {
+      return size;
+    }
+  }
+
+  private final int sourceMaxZoom;
+  private final long averageTileSize;
+
+  /**
+   * @param sourceMaxZoom   the maximum zoom of the style's tile source
+   * @param averageTileSize the average size of a tile in bytes, used to predict the storage size
+   */
+  public OfflineTileEstimator(int sourceMaxZoom, long averageTileSize) {
+    this.sourceMaxZoom = sourceMaxZoom;
+    this.averageTileSize = averageTileSize;
+  }
+
+  public OfflineTileEstimator() {
+    this(DEFAULT_SOURCE_MAX_ZOOM, DEFAULT_AVERAGE_TILE_SIZE);
+  }
+
+  /**
+   * Counts the tiles of a region at every zoom level.
+   *
+   * @param bounds  the bounds of the region
+   * @param minZoom the minimum zoom of the region definition
+   * @param maxZoom the maximum zoom of the region definition
+   * @return the tile counts and predicted size
+   */
+  public Estimate estimate(Bounds bounds, double minZoom, double maxZoom) {
+    int firstZoom = (int) Math.floor(Math.max(0, minZoom));
+    int lastZoom = (int) Math.floor(Math.min(maxZoom, sourceMaxZoom));
+    long[] tileCounts = new long[Math.max(0, lastZoom - firstZoom + 1)];
+    for (int zoom = firstZoom; zoom <= lastZoom; zoom++) {
+      tileCounts[zoom - firstZoom] = columnCount(bounds, zoom) * rowCount(bounds, zoom);
+    }
+    return new Estimate(firstZoom, tileCounts, averageTileSize);
+  }
+
+  /**
+   * Splits a region into regions that each hold at most a number of tiles. Regions are halved at a tile boundary
+   * of their deepest zoom level, across their longer side, until they fit, so the deepest tiles are downloaded
+   * once. Tiles of lower zoom levels covering several of the regions are counted by each of them.
+   * <p>
+   * The halving is done on tile columns and rows, which are only turned into degrees for the result. Edges
+   * between two regions are moved a small fraction of a tile into each region, so converting them back to
+   * tiles doesn't depend on rounding and neighbouring regions never share a tile of the deepest zoom level.
+   * </p>
+   *
+   * @param bounds    the bounds of the region
+   * @param minZoom   the minimum zoom of the region definition
+   * @param maxZoom   the maximum zoom of the region definition
+   * @param tileLimit the number of tiles a region may hold
+   * @return the bounds of the regions, only the given bounds if the region fits
+   */
+  public List<Bounds> split(Bounds bounds, double minZoom, double maxZoom, long tileLimit) {
+    int firstZoom = (int) Math.floor(Math.max(0, minZoom));
+    int lastZoom = (int) Math.floor(Math.min(maxZoom, sourceMaxZoom));
+    int zoomCount = lastZoom - firstZoom + 1;
+    if (zoomCount > tileLimit) {
+      throw new IllegalArgumentException("Even a single tile covers " + zoomCount + " zoom levels, more than "
+        + tileLimit + " tiles");
+    }
+    List<Bounds> result = new ArrayList<>();
+    if (zoomCount <= 0) {
+      result.add(bounds);
+      return result;
+    }
+
+    // tile ranges of the deepest zoom level, as first column, first row, last column and last row
+    long[] whole = {firstColumn(bounds, lastZoom), firstRow(bounds, lastZoom), lastColumn(bounds, lastZoom),
+      lastRow(bounds, lastZoom)};
+    List<long[]> pending = new ArrayList<>();
+    pending.add(whole);
+    while (!pending.isEmpty()) {
+      long[] range = pending.remove(pending.size() - 1);
+      if (tileCount(range, firstZoom, lastZoom) <= tileLimit) {
+        result.add(toBounds(bounds, whole, range, lastZoom));
+        continue;
+      }
+      // a range that doesn't fit spans at least two tiles, as a single one fits, so both halves hold tiles
+      long columns = range[2] - range[0] + 1;
+      long rows = range[3] - range[1] + 1;
+      // the last half goes on top of the stack, so the regions come out from west to east and north to south
+      if (columns >= rows) {
+        long splitColumn = range[0] + columns / 2;
+        pending.add(new long[] {splitColumn, range[1], range[2], range[3]});
+        pending.add(new long[] {range[0], range[1], splitColumn - 1, range[3]});
+      } else {
+        long splitRow = range[1] + rows / 2;
+        pending.add(new long[] {range[0], splitRow, range[2], range[3]});
+        pending.add(new long[] {range[0], range[1], range[2], splitRow - 1});
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Counts the tiles of a tile range of the deepest zoom level and of its parent tiles at the lower levels.
+   */
+  private static long tileCount(long[] range, int firstZoom, int lastZoom) {
+    long count = 0;
+    for (int zoom = firstZoom; zoom <= lastZoom; zoom++) {
+      int shift = lastZoom - zoom;
+      count += ((range[2] >> shift) - (range[0] >> shift) + 1) * ((range[3] >> shift) - (range[1] >> shift) + 1);
+    }
+    return count;
+  }
+
+  /**
+   * Converts a tile range back to bounds, keeping the edges it shares with the whole region.
+   */
+  private static Bounds toBounds(Bounds bounds, long[] whole, long[] range, int zoom) {
+    if (range == whole) {
+      return bounds;
+    }
+    double west = range[0] == whole[0] ? bounds.west : longitude(range[0] + EDGE_INSET, zoom);
+    double north = range[1] == whole[1] ? bounds.north : latitude(range[1] + EDGE_INSET, zoom);
+    double east = range[2] == whole[2] ? bounds.east : longitude(range[2] + 1 - EDGE_INSET, zoom);
+    double south = range[3] == whole[3] ? bounds.south : latitude(range[3] + 1 - EDGE_INSET, zoom);
+    return new Bounds(south, west, north, east);
+  }
+
+  private static long columnCount(Bounds bounds, int zoom) {
+    return lastColumn(bounds, zoom) - firstColumn(bounds, zoom) + 1;
+  }
+
+  private static long rowCount(Bounds bounds, int zoom) {
+    return lastRow(bounds, zoom) - firstRow(bounds, zoom) + 1;
+  }
+
+  private static long firstColumn(Bounds bounds, int zoom) {
+    return Math.min((long) Math.floor(tileX(bounds.west, zoom)), (1L << zoom) - 1);
+  }
+
+  private static long firstRow(Bounds bounds, int zoom) {
+    return Math.min((long) Math.floor(tileY(bounds.north, zoom)), (1L << zoom) - 1);
+  }
+
+  // East and south edges lying on a tile boundary don't reach into the next tile
+  private static long lastColumn(Bounds bounds, int zoom) {
+    long last = (long) Math.ceil(tileX(bounds.east, zoom)) - 1;
+    return Math.max(firstColumn(bounds, zoom), Math.min(last, (1L << zoom) - 1));
+  }
+
+  private static long lastRow(Bounds bounds, int zoom) {
+    long last = (long) Math.ceil(tileY(bounds.south, zoom)) - 1;
+    return Math.max(firstRow(bounds, zoom), Math.min(last, (1L << zoom) - 1));
+  }
+
+  private static double tileX(double longitude, int zoom) {
+    double clamped = Math.max(-180, Math.min(180, longitude));
+    return (clamped + 180) / 360 * (1L << zoom);
+  }
+
+  private static double tileY(double latitude, int zoom) {
+    double radians = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude)));
+    double fraction = (1 - Math.log(Math.tan(radians) + 1 / Math.cos(radians)) / Math.PI) / 2;
+    return Math.max(0, fraction * (1L << zoom));
+  }
+
+  private static double longitude(double tileX, int zoom) {
+    return tileX / (1L << zoom) * 360 - 180;
+  }
+
+  private static double latitude(double tileY, int zoom) {
+    return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * tileY / (1L << zoom)))));
+  }
+}
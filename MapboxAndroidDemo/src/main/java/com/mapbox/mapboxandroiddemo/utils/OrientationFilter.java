@@ -0,0 +1,146 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+/**
+ * Smooths accelerometer and magnetometer samples into the pitch and roll of the device, and reports them only
+ * when they moved further than a deadband.
+ * <p>
+ * Both sensor vectors go through a low-pass filter whose strength follows the time between samples, so the
+ * result doesn't depend on the rate the sensors deliver at. Pitch and roll are computed the same way
+ * SensorManager#getRotationMatrix and SensorManager#getOrientation would, which only needs the smoothed gravity;
+ * the magnetic field only decides, as it does there, whether the orientation can be determined at all. All
+ * buffers are allocated up front and the class uses no Android APIs, so recorded sensor traces can be replayed
+ * through it on the JVM.
+ * </p>
+ */
+public class OrientationFilter {
+
+  private static final float NANOS_PER_SECOND = 1e9f;
+  // Below this the magnetic field is too close to gravity, or too weak, to tell the orientation
+  private static final float MIN_HORIZONTAL_NORM = 0.1f;
+
+  private final float timeConstant;
+  private final float deadband;
+  private final float[] gravity = new float[3];
+  private final float[] magneticField = new float[3];
+  private long gravityTimestamp = -1;
+  private long magneticFieldTimestamp = -1;
+  private float pitch;
+  private float roll;
+  private boolean valid;
+  private float reportedPitch;
+  private float reportedRoll;
+  private boolean reported;
+
+  // Metrics
+  private int sampleCount;
+  private int reportCount;
+  private int suppressedCount;
+
+  /**
+   * @param timeConstant the time in seconds the filter takes to follow about two thirds of a sudden change
+   * @param deadband     the change of pitch or roll, in radians, below which no new orientation is reported
+   */
+  public OrientationFilter(float timeConstant, float deadband) {
+    this.timeConstant = timeConstant;
+    this.deadband = deadband;
+  }
+
+  /**
+   * Adds an accelerometer sample.
+   *
+   * @param timestamp the time of the sample in nanoseconds, as in SensorEvent#timestamp
+   */
+  public void onAccelerometer(long timestamp, float x, float y, float z) {
+    gravityTimestamp = smooth(gravity, gravityTimestamp, timestamp, x, y, z);
+    update();
+  }
+
+  /**
+   * Adds a magnetometer sample.
+   *
+   * @param timestamp the time of the sample in nanoseconds, as in SensorEvent#timestamp
+   */
+  public void onMagneticField(long timestamp, float x, float y, float z) {
+    magneticFieldTimestamp = smooth(magneticField, magneticFieldTimestamp, timestamp, x, y, z);
+    update();
+  }
+
+  /**
+   * Takes the orientation if it moved past the deadband since it was last taken.
+   *
+   * @param orientation receives the pitch and the roll in radians
+   * @return true if the orientation was written
+   */
+  public boolean poll(float[] orientation) {
+    if (!valid) {
+      return false;
+    }
+    if (reported && Math.abs(pitch - reportedPitch) < deadband && Math.abs(roll - reportedRoll) < deadband) {
+      suppressedCount++;
+      return false;
+    }
+    reportedPitch = pitch;
+    reportedRoll = roll;
+    reported = true;
+    reportCount++;
+    orientation[0] = pitch;
+    orientation[1] = roll;
+    return true;
+  }
+
+  /**
+   * Forgets all samples, e.g. when the sensors are unregistered.
+   */
+  public void reset() {
+    gravityTimestamp = -1;
+    magneticFieldTimestamp = -1;
+    valid = false;
+    reported = false;
+  }
+
+  private long smooth(float[] vector, long previousTimestamp, long timestamp, float x, float y, float z) {
+    sampleCount++;
+    if (previousTimestamp < 0 || timestamp <= previousTimestamp) {
+      vector[0] = x;
+      vector[1] = y;
+      vector[2] = z;
+      return timestamp;
+    }
+    float interval = (timestamp - previousTimestamp) / NANOS_PER_SECOND;
+    float alpha = interval / (timeConstant + interval);
+    vector[0] += alpha * (x - vector[0]);
+    vector[1] += alpha * (y - vector[1]);
+    vector[2] += alpha * (z - vector[2]);
+    return timestamp;
+  }
+
+  private void update() {
+    if (gravityTimestamp < 0 || magneticFieldTimestamp < 0) {
+      return;
+    }
+    float ax = gravity[0];
+    float ay = gravity[1];
+    float az = gravity[2];
+    float ex = magneticField[0];
+    float ey = magneticField[1];
+    float ez = magneticField[2];
+    // the horizontal axis pointing east, the cross product of the magnetic field and gravity
+    float hx = ey * az - ez * ay;
+    float hy = ez * ax - ex * az;
+    float hz = ex * ay - ey * ax;
+    float horizontalNorm = (float) Math.sqrt(hx * hx + hy * hy + hz * hz);
+    float gravityNorm = (float) Math.sqrt(ax * ax + ay * ay + az * az);
+    if (horizontalNorm < MIN_HORIZONTAL_NORM || gravityNorm == 0) {
+      valid = false;
+      return;
+    }
+    pitch = (float) Math.asin(Math.max(-1, Math.min(1, -ay / gravityNorm)));
+    roll = (float) Math.atan2(-ax, az);
+    valid = true;
+  }
+
+  public String getMetricsSummary() {
+    return "Sensor samples: " + sampleCount + ", orientations reported: " + reportCount
+      + ", suppressed by the deadband: " + suppressedCount;
+  }
+}
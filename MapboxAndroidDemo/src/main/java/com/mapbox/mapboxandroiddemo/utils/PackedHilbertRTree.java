@@ -0,0 +1,631 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.Geometry;
+import com.mapbox.geojson.GeometryCollection;
+import com.mapbox.geojson.LineString;
+import com.mapbox.geojson.MultiLineString;
+import com.mapbox.geojson.MultiPoint;
+import com.mapbox.geojson.MultiPolygon;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable spatial index over the features of a FeatureCollection, for viewport, radius and nearest
+ * neighbour lookups that don't have to go through the map's rendered tiles.
+ * <p>
+ * The tree is bulk loaded: the bounding boxes of the features are sorted along a Hilbert curve and packed
+ * bottom-up into nodes of a fixed size. All nodes live in flat arrays, four doubles per bounding box and
+ * one int per node pointing at the feature or at the first child node, so a query doesn't allocate besides
+ * its result.
+ * </p>
+ * <p>
+ * Coordinates are longitude/latitude. Bounding box queries are planar, radius queries use the haversine
+ * distance to a feature's bounding box, so a line or polygon matches when its box is within the radius.
+ * </p>
+ */
+public class PackedHilbertRTree {
+
+  private static final int DEFAULT_NODE_SIZE = 16;
+  private static final int HILBERT_MAX = (1 << 16) - 1;
+  private static final double EARTH_RADIUS_METERS = 6371008.8;
+
+  private final List<Feature> features;
+  private final int numItems;
+  private final int nodeSize;
+  private final int[] levelBounds;
+  private final double[] boxes;
+  private final int[] indices;
+
+  // Reused traversal stack, a query is not thread safe
+  private int[] stack = new int[32];
+
+  private PackedHilbertRTree(List<Feature> features, double[] itemBoxes, int nodeSize) {
+    this.features = features;
+    this.numItems = features.size();
+    this.nodeSize = nodeSize;
+
+    // levelBounds[i] is the exclusive end of level i in node numbers, leaves being level 0
+    List<Integer> bounds = new ArrayList<>();
+    int count = numItems;
+    int numNodes = count;
+    bounds.add(numNodes);
+    do {
+      count = (count + nodeSize - 1) / nodeSize;
+      numNodes += count;
+      bounds.add(numNodes);
+    }
+    while (count > 1);
+    levelBounds = new int[bounds.size()];
+    for (int i = 0; i < levelBounds.length; i++) {
+      levelBounds[i] = bounds.get(i);
+    }
+
+    boxes = new double[numNodes * 4];
+    indices = new int[numNodes];
+    System.arraycopy(itemBoxes, 0, boxes, 0, numItems * 4);
+    for (int i = 0; i < numItems; i++) {
+      indices[i] = i;
+    }
+
+    sortLeaves();
+    packLevels();
+  }
+
+  /**
+   * Builds an index over the features of a collection with the default node size.
+   *
+   * @param featureCollection the features to index, features without a geometry are left out
+   * @return the index
+   */
+  public static PackedHilbertRTree fromFeatures(@NonNull FeatureCollection featureCollection) {
+    List<Feature> features = featureCollection.features();
+    return fromFeatures(features == null ? new ArrayList<Feature>() : features, DEFAULT_NODE_SIZE);
+  }
+
+  /**
+   * Builds an index over a list of features with the default node size.
+   *
+   * @param features the features to index, features without a geometry are left out
+   * @return the index
+   */
+  public static PackedHilbertRTree fromFeatures(@NonNull List<Feature> features) {
+    return fromFeatures(features, DEFAULT_NODE_SIZE);
+  }
+
+  /**
+   * Builds an index over a list of features.
+   *
+   * @param features the features to index, features without a geometry are left out
+   * @param nodeSize the number of children per node, at least 2
+   * @return the index
+   */
+  public static PackedHilbertRTree fromFeatures(@NonNull List<Feature> features, int nodeSize) {
+    if (nodeSize < 2) {
+      throw new IllegalArgumentException("Node size must be at least 2, was " + nodeSize);
+    }
+    List<Feature> indexed = new ArrayList<>(features.size());
+    double[] itemBoxes = new double[features.size() * 4];
+    double[] box = new double[4];
+    for (Feature feature : features) {
+      if (feature.geometry() == null) {
+        continue;
+      }
+      resetBox(box);
+      expandBox(box, feature.geometry());
+      if (box[0] > box[2]) {
+        // empty geometry
+        continue;
+      }
+      System.arraycopy(box, 0, itemBoxes, indexed.size() * 4, 4);
+      indexed.add(feature);
+    }
+    return new PackedHilbertRTree(indexed, itemBoxes, nodeSize);
+  }
+
+  /**
+   * @return the number of indexed features
+   */
+  public int size() {
+    return numItems;
+  }
+
+  /**
+   * @param index an index returned by one of the queries
+   * @return the feature at that index
+   */
+  public Feature getFeature(int index) {
+    return features.get(index);
+  }
+
+  /**
+   * Converts query results to their features.
+   *
+   * @param indices indices returned by one of the queries
+   * @return the features, in the order of the indices
+   */
+  public List<Feature> getFeatures(@NonNull int[] indices) {
+    List<Feature> result = new ArrayList<>(indices.length);
+    for (int index : indices) {
+      result.add(features.get(index));
+    }
+    return result;
+  }
+
+  /**
+   * Finds the features whose bounding box intersects the given box.
+   *
+   * @return the indices of the matching features, in no particular order
+   */
+  public int[] search(double west, double south, double east, double north) {
+    IntArray leaves = searchLeaves(west, south, east, north);
+    int[] result = new int[leaves.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = indices[leaves.get(i)];
+    }
+    return result;
+  }
+
+  /**
+   * Finds the leaf nodes whose bounding box intersects the given box.
+   */
+  private IntArray searchLeaves(double west, double south, double east, double north) {
+    IntArray result = new IntArray();
+    if (numItems == 0) {
+      return result;
+    }
+
+    int top = push(0, boxes.length / 4 - 1, levelBounds.length - 1);
+    while (top > 0) {
+      int level = stack[--top];
+      int node = stack[--top];
+      int childLevel = level - 1;
+      int first = indices[node];
+      int end = Math.min(first + nodeSize, levelBounds[childLevel]);
+      for (int child = first; child < end; child++) {
+        int pos = child * 4;
+        if (east < boxes[pos] || north < boxes[pos + 1] || west > boxes[pos + 2] || south > boxes[pos + 3]) {
+          continue;
+        }
+        if (childLevel == 0) {
+          result.add(child);
+        } else {
+          top = push(top, child, childLevel);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Finds the features within a distance of a location.
+   *
+   * @param longitude    of the center
+   * @param latitude     of the center
+   * @param radiusMeters the maximum haversine distance to a feature's bounding box
+   * @return the indices of the matching features, in no particular order
+   */
+  public int[] searchRadius(double longitude, double latitude, double radiusMeters) {
+    double latDelta = Math.toDegrees(radiusMeters / EARTH_RADIUS_METERS);
+    double cosLat = Math.cos(Math.toRadians(latitude));
+    double lonDelta = cosLat < 1e-9 ? 180 : Math.min(180, latDelta / cosLat);
+    IntArray candidates = searchLeaves(longitude - lonDelta, latitude - latDelta,
+      longitude + lonDelta, latitude + latDelta);
+
+    IntArray result = new IntArray();
+    for (int i = 0; i < candidates.size(); i++) {
+      int leaf = candidates.get(i);
+      if (distanceToLeaf(leaf, longitude, latitude) <= radiusMeters) {
+        result.add(indices[leaf]);
+      }
+    }
+    return result.toArray();
+  }
+
+  /**
+   * Finds the features closest to a location, best first.
+   * <p>
+   * Distances are measured to the bounding boxes on a plane where longitudes are scaled by the cosine of
+   * the query latitude, which is accurate enough for the extent of a city or region.
+   * </p>
+   *
+   * @param longitude  of the location
+   * @param latitude   of the location
+   * @param maxResults the maximum number of features to return
+   * @return the indices of the nearest features, closest first
+   */
+  public int[] nearest(double longitude, double latitude, int maxResults) {
+    IntArray result = new IntArray();
+    if (numItems == 0 || maxResults <= 0) {
+      return result.toArray();
+    }
+
+    double lonScale = Math.cos(Math.toRadians(latitude));
+    NodeQueue queue = new NodeQueue();
+    queue.push(boxes.length / 4 - 1, levelBounds.length - 1, 0);
+    while (!queue.isEmpty()) {
+      int node = queue.peekNode();
+      int level = queue.peekLevel();
+      queue.pop();
+
+      if (level == 0) {
+        // an item only reaches the head of the queue once nothing closer is left
+        result.add(indices[node]);
+        if (result.size() == maxResults) {
+          break;
+        }
+        continue;
+      }
+
+      int childLevel = level - 1;
+      int first = indices[node];
+      int end = Math.min(first + nodeSize, levelBounds[childLevel]);
+      for (int child = first; child < end; child++) {
+        queue.push(child, childLevel, sqPlanarDistance(child, longitude, latitude, lonScale));
+      }
+    }
+    return result.toArray();
+  }
+
+  private int push(int top, int node, int level) {
+    if (top + 2 > stack.length) {
+      int[] grown = new int[stack.length * 2];
+      System.arraycopy(stack, 0, grown, 0, top);
+      stack = grown;
+    }
+    stack[top] = node;
+    stack[top + 1] = level;
+    return top + 2;
+  }
+
+  private double sqPlanarDistance(int node, double longitude, double latitude, double lonScale) {
+    int pos = node * 4;
+    double dx = axisDistance(longitude, boxes[pos], boxes[pos + 2]) * lonScale;
+    double dy = axisDistance(latitude, boxes[pos + 1], boxes[pos + 3]);
+    return dx * dx + dy * dy;
+  }
+
+  private static double axisDistance(double value, double min, double max) {
+    return value < min ? min - value : value <= max ? 0 : value - max;
+  }
+
+  /**
+   * Haversine distance in meters from a location to the nearest point of a leaf's bounding box.
+   */
+  private double distanceToLeaf(int leaf, double longitude, double latitude) {
+    int pos = leaf * 4;
+    double nearestLon = Math.max(boxes[pos], Math.min(longitude, boxes[pos + 2]));
+    double nearestLat = Math.max(boxes[pos + 1], Math.min(latitude, boxes[pos + 3]));
+    double dLat = Math.toRadians(nearestLat - latitude);
+    double dLon = Math.toRadians(nearestLon - longitude);
+    double hav = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+      + Math.cos(Math.toRadians(latitude)) * Math.cos(Math.toRadians(nearestLat))
+      * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(hav)));
+  }
+
+  /**
+   * Orders the leaves by the Hilbert value of their center within the extent of all items.
+   */
+  private void sortLeaves() {
+    if (numItems <= nodeSize) {
+      return;
+    }
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < numItems; i++) {
+      minX = Math.min(minX, boxes[i * 4]);
+      minY = Math.min(minY, boxes[i * 4 + 1]);
+      maxX = Math.max(maxX, boxes[i * 4 + 2]);
+      maxY = Math.max(maxY, boxes[i * 4 + 3]);
+    }
+    double width = maxX - minX;
+    double height = maxY - minY;
+
+    long[] hilbertValues = new long[numItems];
+    for (int i = 0; i < numItems; i++) {
+      int pos = i * 4;
+      int hx = width == 0 ? 0 : (int) Math.floor(HILBERT_MAX * ((boxes[pos] + boxes[pos + 2]) / 2 - minX) / width);
+      int hy = height == 0 ? 0
+        : (int) Math.floor(HILBERT_MAX * ((boxes[pos + 1] + boxes[pos + 3]) / 2 - minY) / height);
+      hilbertValues[i] = hilbert(hx, hy);
+    }
+    sort(hilbertValues, 0, numItems - 1);
+  }
+
+  /**
+   * Quicksort of the leaves by Hilbert value, moving the boxes and indices along. Sorting stops at
+   * node granularity, since the order within a node doesn't matter.
+   */
+  private void sort(long[] values, int left, int right) {
+    if (left / nodeSize >= right / nodeSize) {
+      return;
+    }
+    long pivot = values[(left + right) >>> 1];
+    int low = left - 1;
+    int high = right + 1;
+    while (true) {
+      do {
+        low++;
+      }
+      while (values[low] < pivot);
+      do {
+        high--;
+      }
+      while (values[high] > pivot);
+      if (low >= high) {
+        break;
+      }
+      swap(values, low, high);
+    }
+    sort(values, left, high);
+    sort(values, high + 1, right);
+  }
+
+  private void swap(long[] values, int first, int second) {
+    long value = values[first];
+    values[first] = values[second];
+    values[second] = value;
+
+    int index = indices[first];
+    indices[first] = indices[second];
+    indices[second] = index;
+
+    int firstPos = first * 4;
+    int secondPos = second * 4;
+    for (int i = 0; i < 4; i++) {
+      double coordinate = boxes[firstPos + i];
+      boxes[firstPos + i] = boxes[secondPos + i];
+      boxes[secondPos + i] = coordinate;
+    }
+  }
+
+  /**
+   * Packs each level into parent nodes of nodeSize children, up to the root.
+   */
+  private void packLevels() {
+    int node = 0;
+    int parent = numItems;
+    for (int level = 0; level < levelBounds.length - 1; level++) {
+      int levelEnd = levelBounds[level];
+      while (node < levelEnd) {
+        int end = Math.min(node + nodeSize, levelEnd);
+        int parentPos = parent * 4;
+        boxes[parentPos] = Double.POSITIVE_INFINITY;
+        boxes[parentPos + 1] = Double.POSITIVE_INFINITY;
+        boxes[parentPos + 2] = Double.NEGATIVE_INFINITY;
+        boxes[parentPos + 3] = Double.NEGATIVE_INFINITY;
+        indices[parent] = node;
+        for (; node < end; node++) {
+          int pos = node * 4;
+          boxes[parentPos] = Math.min(boxes[parentPos], boxes[pos]);
+          boxes[parentPos + 1] = Math.min(boxes[parentPos + 1], boxes[pos + 1]);
+          boxes[parentPos + 2] = Math.max(boxes[parentPos + 2], boxes[pos + 2]);
+          boxes[parentPos + 3] = Math.max(boxes[parentPos + 3], boxes[pos + 3]);
+        }
+        parent++;
+      }
+    }
+  }
+
+  private static void resetBox(double[] box) {
+    box[0] = Double.POSITIVE_INFINITY;
+    box[1] = Double.POSITIVE_INFINITY;
+    box[2] = Double.NEGATIVE_INFINITY;
+    box[3] = Double.NEGATIVE_INFINITY;
+  }
+
+  private static void expandBox(double[] box, Geometry geometry) {
+    if (geometry instanceof Point) {
+      expandBox(box, (Point) geometry);
+    } else if (geometry instanceof LineString) {
+      expandBox(box, ((LineString) geometry).coordinates());
+    } else if (geometry instanceof MultiPoint) {
+      expandBox(box, ((MultiPoint) geometry).coordinates());
+    } else if (geometry instanceof Polygon) {
+      expandBoxWithLists(box, ((Polygon) geometry).coordinates());
+    } else if (geometry instanceof MultiLineString) {
+      expandBoxWithLists(box, ((MultiLineString) geometry).coordinates());
+    } else if (geometry instanceof MultiPolygon) {
+      for (List<List<Point>> polygon : ((MultiPolygon) geometry).coordinates()) {
+        expandBoxWithLists(box, polygon);
+      }
+    } else if (geometry instanceof GeometryCollection) {
+      for (Geometry child : ((GeometryCollection) geometry).geometries()) {
+        expandBox(box, child);
+      }
+    }
+  }
+
+  private static void expandBoxWithLists(double[] box, List<List<Point>> lines) {
+    for (List<Point> line : lines) {
+      expandBox(box, line);
+    }
+  }
+
+  private static void expandBox(double[] box, List<Point> points) {
+    for (Point point : points) {
+      expandBox(box, point);
+    }
+  }
+
+  private static void expandBox(double[] box, Point point) {
+    box[0] = Math.min(box[0], point.longitude());
+    box[1] = Math.min(box[1], point.latitude());
+    box[2] = Math.max(box[2], point.longitude());
+    box[3] = Math.max(box[3], point.latitude());
+  }
+
+  /**
+   * Position of a 16 bit x/y cell along the Hilbert curve, from "Fast Hilbert curve generation, sorting,
+   * and range queries" by rawrunprotected.
+   */
+  private static long hilbert(int hx, int hy) {
+    int aa = hx ^ hy;
+    int bb = 0xFFFF ^ aa;
+    int cc = 0xFFFF ^ (hx | hy);
+    int dd = hx & (hy ^ 0xFFFF);
+
+    int na = aa | (bb >>> 1);
+    int nb = (aa >>> 1) ^ aa;
+    int nc = ((cc >>> 1) ^ (bb & (dd >>> 1))) ^ cc;
+    int nd = ((aa & (cc >>> 1)) ^ (dd >>> 1)) ^ dd;
+
+    aa = na;
+    bb = nb;
+    cc = nc;
+    dd = nd;
+    na = (aa & (aa >>> 2)) ^ (bb & (bb >>> 2));
+    nb = (aa & (bb >>> 2)) ^ (bb & ((aa ^ bb) >>> 2));
+    nc ^= (aa & (cc >>> 2)) ^ (bb & (dd >>> 2));
+    nd ^= (bb & (cc >>> 2)) ^ ((aa ^ bb) & (dd >>> 2));
+
+    aa = na;
+    bb = nb;
+    cc = nc;
+    dd = nd;
+    na = (aa & (aa >>> 4)) ^ (bb & (bb >>> 4));
+    nb = (aa & (bb >>> 4)) ^ (bb & ((aa ^ bb) >>> 4));
+    nc ^= (aa & (cc >>> 4)) ^ (bb & (dd >>> 4));
+    nd ^= (bb & (cc >>> 4)) ^ ((aa ^ bb) & (dd >>> 4));
+
+    aa = na;
+    bb = nb;
+    cc = nc;
+    dd = nd;
+    nc ^= (aa & (cc >>> 8)) ^ (bb & (dd >>> 8));
+    nd ^= (bb & (cc >>> 8)) ^ ((aa ^ bb) & (dd >>> 8));
+
+    aa = nc ^ (nc >>> 1);
+    bb = nd ^ (nd >>> 1);
+
+    int i0 = hx ^ hy;
+    int i1 = bb | (0xFFFF ^ (i0 | aa));
+
+    return ((long) interleave(i1) << 1 | interleave(i0)) & 0xFFFFFFFFL;
+  }
+
+  private static int interleave(int value) {
+    value = (value | (value << 8)) & 0x00FF00FF;
+    value = (value | (value << 4)) & 0x0F0F0F0F;
+    value = (value | (value << 2)) & 0x33333333;
+    return (value | (value << 1)) & 0x55555555;
+  }
+
+  /**
+   * Growable int list, to avoid boxing query results.
+   */
+  private static class IntArray {
+    private int[] values = new int[16];
+    private int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        int[] grown = new int[size * 2];
+        System.arraycopy(values, 0, grown, 0, size);
+        values = grown;
+      }
+      values[size++] = value;
+    }
+
+    int size() {
+      return size;
+    }
+
+    int get(int index) {
+      return values[index];
+    }
+
+    int[] toArray() {
+      int[] result = new int[size];
+      System.arraycopy(values, 0, result, 0, size);
+      return result;
+    }
+  }
+
+  /**
+   * Binary min-heap of nodes keyed by distance, kept in parallel arrays.
+   */
+  private static class NodeQueue {
+    private int[] nodes = new int[64];
+    private int[] levels = new int[64];
+    private double[] distances = new double[64];
+    private int size;
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    int peekNode() {
+      return nodes[0];
+    }
+
+    int peekLevel() {
+      return levels[0];
+    }
+
+    void push(int node, int level, double distance) {
+      if (size == nodes.length) {
+        nodes = grow(nodes);
+        levels = grow(levels);
+        double[] grownDistances = new double[size * 2];
+        System.arraycopy(distances, 0, grownDistances, 0, size);
+        distances = grownDistances;
+      }
+      int pos = size++;
+      while (pos > 0) {
+        int parent = (pos - 1) >> 1;
+        if (distances[parent] <= distance) {
+          break;
+        }
+        set(pos, nodes[parent], levels[parent], distances[parent]);
+        pos = parent;
+      }
+      set(pos, node, level, distance);
+    }
+
+    void pop() {
+      size--;
+      if (size == 0) {
+        return;
+      }
+      int node = nodes[size];
+      int level = levels[size];
+      double distance = distances[size];
+      int pos = 0;
+      int half = size >> 1;
+      while (pos < half) {
+        int child = 2 * pos + 1;
+        if (child + 1 < size && distances[child + 1] < distances[child]) {
+          child++;
+        }
+        if (distances[child] >= distance) {
+          break;
+        }
+        set(pos, nodes[child], levels[child], distances[child]);
+        pos = child;
+      }
+      set(pos, node, level, distance);
+    }
+
+    private void set(int pos, int node, int level, double distance) {
+      nodes[pos] = node;
+      levels[pos] = level;
+      distances[pos] = distance;
+    }
+
+    private int[] grow(int[] array) {
+      int[] grown = new int[array.length * 2];
+      System.arraycopy(array, 0, grown, 0, array.length);
+      return grown;
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.geojson.Point;
+import com.mapbox.mapboxsdk.geometry.LatLng;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A lightweight, read-only view of a LineString whose coordinates are stored in a single primitive
+ * double array with longitude and latitude interleaved: {lon0, lat0, lon1, lat1, ...}.
+ * <p>
+ * Route playback and simplification can work directly against the packed array. Boxed LatLng or Point
+ * objects are only created when a caller explicitly converts the line for an API that requires them.
+ * </p>
+ */
+public class PackedLineString {
+
+  private final double[] coordinates;
+  private final int size;
+
+  PackedLineString(@NonNull double[] coordinates, int size) {
+    if (size < 0 || size * 2 > coordinates.length) {
+      throw new IllegalArgumentException("Size " + size + " doesn't fit a buffer of length " + coordinates.length);
+    }
+    this.coordinates = coordinates;
+    this.size = size;
+  }
+
+  /**
+   * Wraps an interleaved longitude/latitude array without copying it.
+   *
+   * @param coordinates interleaved coordinates, must have an even length
+   * @return a view over the provided array
+   */
+  public static PackedLineString fromLngLats(@NonNull double[] coordinates) {
+    if (coordinates.length % 2 != 0) {
+      throw new IllegalArgumentException("Coordinate array must hold longitude/latitude pairs");
+    }
+    return new PackedLineString(coordinates, coordinates.length / 2);
+  }
+
+  /**
+   * @return the number of positions in this line
+   */
+  public int size() {
+    return size;
+  }
+
+  public double longitude(int index) {
+    return coordinates[index << 1];
+  }
+
+  public double latitude(int index) {
+    return coordinates[(index << 1) + 1];
+  }
+
+  /**
+   * Returns the backing array. Only the first {@code size() * 2} values are meaningful; the array must
+   * not be modified.
+   *
+   * @return the interleaved longitude/latitude backing array
+   */
+  public double[] coordinates() {
+    return coordinates;
+  }
+
+  /**
+   * Creates the LatLng array expected by the annotation APIs, e.g. PolylineOptions#add(LatLng...).
+   *
+   * @return a new array holding one LatLng per position
+   */
+  public LatLng[] toLatLngs() {
+    LatLng[] latLngs = new LatLng[size];
+    for (int i = 0; i < size; i++) {
+      latLngs[i] = new LatLng(latitude(i), longitude(i));
+    }
+    return latLngs;
+  }
+
+  /**
+   * Creates the Point list expected by the GeoJSON and Java services APIs.
+   *
+   * @return a new list holding one Point per position
+   */
+  public List<Point> toPoints() {
+    List<Point> points = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      points.add(Point.fromLngLat(longitude(i), latitude(i)));
+    }
+    return points;
+  }
+}
@@ -0,0 +1,725 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Point;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical point clustering in the spirit of Mapbox's supercluster, computed once up front instead of by
+ * the map whenever a clustered GeoJsonSource changes.
+ * <p>
+ * Points are projected to web mercator and clustered greedily from the highest zoom level down: every point
+ * or cluster absorbs its unvisited neighbours within the cluster radius of the next higher level. Each zoom
+ * level keeps its points and clusters in flat arrays with a static KD-tree on top, so viewport queries,
+ * children and leaves lookups are cheap after {@link #load(List)}.
+ * </p>
+ * <p>
+ * Cluster features carry the same properties as the ones generated by the map, {@code cluster},
+ * {@code cluster_id}, {@code point_count} and {@code point_count_abbreviated}, plus whatever the optional
+ * {@link Aggregation}s add.
+ * </p>
+ */
+public class PointClusterer {
+
+  public static final String PROPERTY_CLUSTER = "cluster";
+  public static final String PROPERTY_CLUSTER_ID = "cluster_id";
+  public static final String PROPERTY_POINT_COUNT = "point_count";
+  public static final String PROPERTY_POINT_COUNT_ABBREVIATED = "point_count_abbreviated";
+
+  /**
+   * Custom cluster property, aggregated over the points of a cluster.
+   */
+  public interface Aggregation {
+
+    /**
+     * Initializes the aggregated properties from a single point.
+     *
+     * @param point       one of the loaded points
+     * @param accumulated the properties to write the point's contribution to
+     */
+    void map(@NonNull Feature point, @NonNull JsonObject accumulated);
+
+    /**
+     * Merges the aggregated properties of a point or cluster into the ones of the cluster that absorbs it.
+     *
+     * @param accumulated the properties of the absorbing cluster
+     * @param other       the properties of the absorbed point or cluster
+     */
+    void reduce(@NonNull JsonObject accumulated, @NonNull JsonObject other);
+  }
+
+  private final int minZoom;
+  private final int maxZoom;
+  private final double radius;
+  private final double extent;
+  private final Aggregation[] aggregations;
+
+  private List<Feature> points = new ArrayList<>();
+  private Level[] levels;
+
+  /**
+   * @param minZoom      the lowest zoom level clusters are generated for
+   * @param maxZoom      the highest zoom level clusters are generated for, above it all points are returned
+   * @param radius       the cluster radius in pixels
+   * @param aggregations optional aggregated cluster properties
+   */
+  public PointClusterer(int minZoom, int maxZoom, int radius, Aggregation... aggregations) {
+    if (minZoom < 0 || maxZoom < minZoom || maxZoom > 24) {
+      throw new IllegalArgumentException("Invalid zoom range " + minZoom + " - " + maxZoom);
+    }
+    this.minZoom = minZoom;
+    this.maxZoom = maxZoom;
+    this.radius = radius;
+    // same tile extent as the map uses for GeoJSON sources
+    this.extent = 512;
+    this.aggregations = aggregations;
+  }
+
+  /**
+   * Builds the cluster hierarchy. Features without a Point geometry are ignored.
+   *
+   * @param features the points to cluster
+   * @return this clusterer
+   */
+  public PointClusterer load(@NonNull List<Feature> features) {
+    points = new ArrayList<>(features.size());
+    for (Feature feature : features) {
+      if (feature.geometry() instanceof Point) {
+        points.add(feature);
+      }
+    }
+
+    levels = new Level[maxZoom + 2];
+    Level level = new Level(points.size());
+    for (int i = 0; i < points.size(); i++) {
+      Point point = (Point) points.get(i).geometry();
+      level.addPoint(lngX(point.longitude()), latY(point.latitude()), i);
+    }
+    level.index();
+    levels[maxZoom + 1] = level;
+
+    for (int zoom = maxZoom; zoom >= minZoom; zoom--) {
+      level = cluster(level, zoom);
+      level.index();
+      levels[zoom] = level;
+    }
+    return this;
+  }
+
+  /**
+   * @return the number of loaded points
+   */
+  public int size() {
+    return points.size();
+  }
+
+  /**
+   * Returns the clusters and unclustered points in a bounding box at a zoom level.
+   *
+   * @param west  western longitude of the bounding box
+   * @param south southern latitude of the bounding box
+   * @param east  eastern longitude of the bounding box
+   * @param north northern latitude of the bounding box
+   * @param zoom  the zoom level, fractional zoom levels are rounded down
+   * @return clusters as new Point features and unclustered points as the loaded features
+   */
+  public List<Feature> getClusters(double west, double south, double east, double north, double zoom) {
+    checkLoaded();
+    double minLng = ((west + 180) % 360 + 360) % 360 - 180;
+    double minLat = Math.max(-90, Math.min(90, south));
+    double maxLng = east == 180 ? 180 : ((east + 180) % 360 + 360) % 360 - 180;
+    double maxLat = Math.max(-90, Math.min(90, north));
+
+    if (east - west >= 360) {
+      minLng = -180;
+      maxLng = 180;
+    } else if (minLng > maxLng) {
+      // the bounding box crosses the antimeridian
+      List<Feature> eastern = getClusters(minLng, minLat, 180, maxLat, zoom);
+      eastern.addAll(getClusters(-180, minLat, maxLng, maxLat, zoom));
+      return eastern;
+    }
+
+    Level level = levels[limitZoom(zoom)];
+    IntList items = new IntList();
+    level.range(lngX(minLng), latY(maxLat), lngX(maxLng), latY(minLat), items);
+    List<Feature> result = new ArrayList<>(items.size());
+    for (int i = 0; i < items.size(); i++) {
+      result.add(level.toFeature(items.get(i)));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the points and clusters a cluster was made of, one zoom level higher.
+   *
+   * @param clusterId the {@code cluster_id} property of a cluster
+   * @return the children of the cluster
+   */
+  public List<Feature> getChildren(int clusterId) {
+    checkLoaded();
+    int originZoom = getOriginZoom(clusterId);
+    int originItem = getOriginItem(clusterId);
+    if (originZoom > maxZoom + 1 || levels[originZoom] == null || originItem >= levels[originZoom].size) {
+      throw new IllegalArgumentException("No cluster with id " + clusterId);
+    }
+    Level level = levels[originZoom];
+    double searchRadius = radius / (extent * Math.pow(2, originZoom - 1));
+    IntList items = new IntList();
+    level.within(level.xs[originItem], level.ys[originItem], searchRadius, items);
+    List<Feature> children = new ArrayList<>();
+    for (int i = 0; i < items.size(); i++) {
+      int item = items.get(i);
+      if (level.parentIds[item] == clusterId) {
+        children.add(level.toFeature(item));
+      }
+    }
+    if (children.isEmpty()) {
+      throw new IllegalArgumentException("No cluster with id " + clusterId);
+    }
+    return children;
+  }
+
+  /**
+   * Returns a page of the original points inside a cluster.
+   *
+   * @param clusterId the {@code cluster_id} property of a cluster
+   * @param limit     the maximum number of points to return
+   * @param offset    the number of points to skip
+   * @return the loaded features that ended up in the cluster
+   */
+  public List<Feature> getLeaves(int clusterId, int limit, int offset) {
+    List<Feature> leaves = new ArrayList<>();
+    appendLeaves(leaves, clusterId, limit, offset, 0);
+    return leaves;
+  }
+
+  /**
+   * @param clusterId the {@code cluster_id} property of a cluster
+   * @return the zoom level at which the cluster splits into several children
+   */
+  public int getClusterExpansionZoom(int clusterId) {
+    int expansionZoom = getOriginZoom(clusterId) - 1;
+    while (expansionZoom <= maxZoom) {
+      List<Feature> children = getChildren(clusterId);
+      expansionZoom++;
+      if (children.size() != 1) {
+        break;
+      }
+      JsonElement childId = children.get(0).getProperty(PROPERTY_CLUSTER_ID);
+      if (childId == null) {
+        break;
+      }
+      clusterId = childId.getAsInt();
+    }
+    return expansionZoom;
+  }
+
+  private int appendLeaves(List<Feature> result, int clusterId, int limit, int offset, int skipped) {
+    for (Feature child : getChildren(clusterId)) {
+      if (result.size() == limit) {
+        break;
+      }
+      JsonElement childId = child.getProperty(PROPERTY_CLUSTER_ID);
+      if (childId != null) {
+        int count = child.getNumberProperty(PROPERTY_POINT_COUNT).intValue();
+        if (skipped + count <= offset) {
+          // skip the whole cluster
+          skipped += count;
+        } else {
+          skipped = appendLeaves(result, childId.getAsInt(), limit, offset, skipped);
+        }
+      } else if (skipped < offset) {
+        skipped++;
+      } else {
+        result.add(child);
+      }
+    }
+    return skipped;
+  }
+
+  private Level cluster(Level source, int zoom) {
+    double searchRadius = radius / (extent * Math.pow(2, zoom));
+    Level target = new Level(source.size);
+    boolean[] visited = new boolean[source.size];
+    IntList neighbors = new IntList();
+
+    for (int i = 0; i < source.size; i++) {
+      if (visited[i]) {
+        continue;
+      }
+      visited[i] = true;
+
+      int numPoints = source.numPoints[i];
+      double wx = source.xs[i] * numPoints;
+      double wy = source.ys[i] * numPoints;
+      JsonObject properties = aggregations.length > 0 && numPoints > 1 ? aggregate(source, i, true) : null;
+      // cluster ids encode the item and the level they originate from
+      int clusterId = (i << 5) + (zoom + 1);
+
+      neighbors.clear();
+      source.within(source.xs[i], source.ys[i], searchRadius, neighbors);
+      for (int n = 0; n < neighbors.size(); n++) {
+        int neighbor = neighbors.get(n);
+        if (visited[neighbor]) {
+          continue;
+        }
+        visited[neighbor] = true;
+
+        int neighborPoints = source.numPoints[neighbor];
+        wx += source.xs[neighbor] * neighborPoints;
+        wy += source.ys[neighbor] * neighborPoints;
+        numPoints += neighborPoints;
+        source.parentIds[neighbor] = clusterId;
+
+        if (aggregations.length > 0) {
+          if (properties == null) {
+            properties = aggregate(source, i, true);
+          }
+          JsonObject other = aggregate(source, neighbor, false);
+          for (Aggregation aggregation : aggregations) {
+            aggregation.reduce(properties, other);
+          }
+        }
+      }
+
+      if (numPoints == 1) {
+        target.addPoint(source.xs[i], source.ys[i], source.ids[i]);
+      } else {
+        source.parentIds[i] = clusterId;
+        target.addCluster(wx / numPoints, wy / numPoints, clusterId, numPoints, properties);
+      }
+    }
+    return target;
+  }
+
+  private JsonObject aggregate(Level level, int item, boolean copy) {
+    if (level.numPoints[item] > 1) {
+      return copy ? copyOf(level.properties[item]) : level.properties[item];
+    }
+    JsonObject properties = new JsonObject();
+    Feature point = points.get(level.ids[item]);
+    for (Aggregation aggregation : aggregations) {
+      aggregation.map(point, properties);
+    }
+    return properties;
+  }
+
+  private int limitZoom(double zoom) {
+    return Math.max(minZoom, Math.min((int) Math.floor(zoom), maxZoom + 1));
+  }
+
+  private void checkLoaded() {
+    if (levels == null) {
+      throw new IllegalStateException("Call load() before querying clusters");
+    }
+  }
+
+  private static int getOriginZoom(int clusterId) {
+    return clusterId % 32;
+  }
+
+  private static int getOriginItem(int clusterId) {
+    return clusterId >> 5;
+  }
+
+  private static double lngX(double lng) {
+    return lng / 360 + 0.5;
+  }
+
+  private static double latY(double lat) {
+    double sin = Math.sin(Math.toRadians(lat));
+    double y = 0.5 - 0.25 * Math.log((1 + sin) / (1 - sin)) / Math.PI;
+    return y < 0 ? 0 : y > 1 ? 1 : y;
+  }
+
+  private static double xLng(double x) {
+    return (x - 0.5) * 360;
+  }
+
+  private static double yLat(double y) {
+    double y2 = (180 - y * 360) * Math.PI / 180;
+    return 360 * Math.atan(Math.exp(y2)) / Math.PI - 90;
+  }
+
+  private static String abbreviate(int count) {
+    if (count >= 10000) {
+      return Math.round(count / 1000.0) + "k";
+    } else if (count >= 1000) {
+      return Math.round(count / 100.0) / 10.0 + "k";
+    }
+    return String.valueOf(count);
+  }
+
+  /**
+   * Creates an aggregation summing up a numeric property.
+   *
+   * @param property       the point property to sum up
+   * @param targetProperty the cluster property holding the sum
+   * @return the aggregation
+   */
+  public static Aggregation sum(final String property, final String targetProperty) {
+    return new Aggregation() {
+      @Override
+      public void map(@NonNull Feature point, @NonNull JsonObject accumulated) {
+        accumulated.addProperty(targetProperty, numberOrZero(point, property));
+      }
+
+      @Override
+      public void reduce(@NonNull JsonObject accumulated, @NonNull JsonObject other) {
+        accumulated.addProperty(targetProperty,
+          accumulated.get(targetProperty).getAsDouble() + other.get(targetProperty).getAsDouble());
+      }
+    };
+  }
+
+  /**
+   * Creates an aggregation keeping the maximum of a numeric property.
+   *
+   * @param property       the point property to find the maximum of
+   * @param targetProperty the cluster property holding the maximum
+   * @return the aggregation
+   */
+  public static Aggregation max(final String property, final String targetProperty) {
+    return new Aggregation() {
+      @Override
+      public void map(@NonNull Feature point, @NonNull JsonObject accumulated) {
+        accumulated.addProperty(targetProperty, point.hasNonNullValueForProperty(property)
+          ? point.getNumberProperty(property).doubleValue() : Double.NEGATIVE_INFINITY);
+      }
+
+      @Override
+      public void reduce(@NonNull JsonObject accumulated, @NonNull JsonObject other) {
+        accumulated.addProperty(targetProperty,
+          Math.max(accumulated.get(targetProperty).getAsDouble(), other.get(targetProperty).getAsDouble()));
+      }
+    };
+  }
+
+  /**
+   * Creates an aggregation counting the points per value of a property, e.g. {"park": 3, "cafe": 1}.
+   *
+   * @param property       the point property holding the category
+   * @param targetProperty the cluster property holding the counts per category
+   * @return the aggregation
+   */
+  public static Aggregation categoryCounts(final String property, final String targetProperty) {
+    return new Aggregation() {
+      @Override
+      public void map(@NonNull Feature point, @NonNull JsonObject accumulated) {
+        JsonObject counts = new JsonObject();
+        if (point.hasNonNullValueForProperty(property)) {
+          counts.addProperty(point.getStringProperty(property), 1);
+        }
+        accumulated.add(targetProperty, counts);
+      }
+
+      @Override
+      public void reduce(@NonNull JsonObject accumulated, @NonNull JsonObject other) {
+        JsonObject counts = accumulated.getAsJsonObject(targetProperty);
+        for (Map.Entry<String, JsonElement> entry : other.getAsJsonObject(targetProperty).entrySet()) {
+          JsonElement current = counts.get(entry.getKey());
+          counts.addProperty(entry.getKey(),
+            (current == null ? 0 : current.getAsInt()) + entry.getValue().getAsInt());
+        }
+      }
+    };
+  }
+
+  private static JsonObject copyOf(JsonObject object) {
+    JsonObject copy = new JsonObject();
+    for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+      JsonElement value = entry.getValue();
+      copy.add(entry.getKey(), value.isJsonObject() ? copyOf(value.getAsJsonObject()) : value);
+    }
+    return copy;
+  }
+
+  private static double numberOrZero(Feature point, String property) {
+    return point.hasNonNullValueForProperty(property) ? point.getNumberProperty(property).doubleValue() : 0;
+  }
+
+  /**
+   * The points and clusters of one zoom level in flat arrays, indexed by a static KD-tree.
+   */
+  private final class Level {
+
+    private static final int NODE_SIZE = 64;
+
+    final double[] xs;
+    final double[] ys;
+    // loaded point index for single points, cluster id for clusters
+    final int[] ids;
+    final int[] numPoints;
+    final int[] parentIds;
+    final JsonObject[] properties;
+    int size;
+
+    // KD-tree over the items, sorted item numbers with their interleaved coordinates
+    private int[] kdItems;
+    private double[] kdCoords;
+    // reused traversal stack of (left, right, axis) triples
+    private int[] stack = new int[48];
+
+    Level(int capacity) {
+      xs = new double[capacity];
+      ys = new double[capacity];
+      ids = new int[capacity];
+      numPoints = new int[capacity];
+      parentIds = new int[capacity];
+      properties = new JsonObject[capacity];
+    }
+
+    void addPoint(double x, double y, int pointIndex) {
+      addCluster(x, y, pointIndex, 1, null);
+    }
+
+    void addCluster(double x, double y, int id, int count, @Nullable JsonObject aggregated) {
+      xs[size] = x;
+      ys[size] = y;
+      ids[size] = id;
+      numPoints[size] = count;
+      parentIds[size] = -1;
+      properties[size] = aggregated;
+      size++;
+    }
+
+    Feature toFeature(int item) {
+      if (numPoints[item] == 1) {
+        return points.get(ids[item]);
+      }
+      JsonObject clusterProperties = properties[item] == null ? new JsonObject() : copyOf(properties[item]);
+      clusterProperties.addProperty(PROPERTY_CLUSTER, true);
+      clusterProperties.addProperty(PROPERTY_CLUSTER_ID, ids[item]);
+      clusterProperties.addProperty(PROPERTY_POINT_COUNT, numPoints[item]);
+      clusterProperties.addProperty(PROPERTY_POINT_COUNT_ABBREVIATED, abbreviate(numPoints[item]));
+      return Feature.fromGeometry(Point.fromLngLat(xLng(xs[item]), yLat(ys[item])), clusterProperties);
+    }
+
+    void index() {
+      kdItems = new int[size];
+      kdCoords = new double[size * 2];
+      for (int i = 0; i < size; i++) {
+        kdItems[i] = i;
+        kdCoords[2 * i] = xs[i];
+        kdCoords[2 * i + 1] = ys[i];
+      }
+      sortKd(0, size - 1, 0);
+    }
+
+    void range(double minX, double minY, double maxX, double maxY, IntList result) {
+      int top = 0;
+      stack[top++] = 0;
+      stack[top++] = size - 1;
+      stack[top++] = 0;
+
+      while (top > 0) {
+        int axis = stack[--top];
+        int right = stack[--top];
+        int left = stack[--top];
+
+        if (right - left <= NODE_SIZE) {
+          for (int i = left; i <= right; i++) {
+            double x = kdCoords[2 * i];
+            double y = kdCoords[2 * i + 1];
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+              result.add(kdItems[i]);
+            }
+          }
+          continue;
+        }
+
+        int middle = (left + right) >> 1;
+        double x = kdCoords[2 * middle];
+        double y = kdCoords[2 * middle + 1];
+        if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+          result.add(kdItems[middle]);
+        }
+
+        if (top + 6 > stack.length) {
+          stack = grow(stack);
+        }
+        if (axis == 0 ? minX <= x : minY <= y) {
+          stack[top++] = left;
+          stack[top++] = middle - 1;
+          stack[top++] = 1 - axis;
+        }
+        if (axis == 0 ? maxX >= x : maxY >= y) {
+          stack[top++] = middle + 1;
+          stack[top++] = right;
+          stack[top++] = 1 - axis;
+        }
+      }
+    }
+
+    void within(double qx, double qy, double searchRadius, IntList result) {
+      double sqRadius = searchRadius * searchRadius;
+      int top = 0;
+      stack[top++] = 0;
+      stack[top++] = size - 1;
+      stack[top++] = 0;
+
+      while (top > 0) {
+        int axis = stack[--top];
+        int right = stack[--top];
+        int left = stack[--top];
+
+        if (right - left <= NODE_SIZE) {
+          for (int i = left; i <= right; i++) {
+            if (sqDistance(kdCoords[2 * i], kdCoords[2 * i + 1], qx, qy) <= sqRadius) {
+              result.add(kdItems[i]);
+            }
+          }
+          continue;
+        }
+
+        int middle = (left + right) >> 1;
+        double x = kdCoords[2 * middle];
+        double y = kdCoords[2 * middle + 1];
+        if (sqDistance(x, y, qx, qy) <= sqRadius) {
+          result.add(kdItems[middle]);
+        }
+
+        if (top + 6 > stack.length) {
+          stack = grow(stack);
+        }
+        if (axis == 0 ? qx - searchRadius <= x : qy - searchRadius <= y) {
+          stack[top++] = left;
+          stack[top++] = middle - 1;
+          stack[top++] = 1 - axis;
+        }
+        if (axis == 0 ? qx + searchRadius >= x : qy + searchRadius >= y) {
+          stack[top++] = middle + 1;
+          stack[top++] = right;
+          stack[top++] = 1 - axis;
+        }
+      }
+    }
+
+    private void sortKd(int left, int right, int axis) {
+      if (right - left <= NODE_SIZE) {
+        return;
+      }
+      int middle = (left + right) >> 1;
+      select(middle, left, right, axis);
+      sortKd(left, middle - 1, 1 - axis);
+      sortKd(middle + 1, right, 1 - axis);
+    }
+
+    /**
+     * Floyd-Rivest selection, moves the k-th smallest coordinate on an axis to position k.
+     */
+    private void select(int kth, int left, int right, int axis) {
+      while (right > left) {
+        if (right - left > 600) {
+          int count = right - left + 1;
+          int rank = kth - left + 1;
+          double logCount = Math.log(count);
+          double sample = 0.5 * Math.exp(2 * logCount / 3);
+          double deviation = 0.5 * Math.sqrt(logCount * sample * (count - sample) / count)
+            * (rank - count / 2.0 < 0 ? -1 : 1);
+          int newLeft = (int) Math.max(left, Math.floor(kth - rank * sample / count + deviation));
+          int newRight = (int) Math.min(right, Math.floor(kth + (count - rank) * sample / count + deviation));
+          select(kth, newLeft, newRight, axis);
+        }
+
+        double pivot = kdCoords[2 * kth + axis];
+        int low = left;
+        int high = right;
+
+        swapKd(left, kth);
+        if (kdCoords[2 * right + axis] > pivot) {
+          swapKd(left, right);
+        }
+
+        while (low < high) {
+          swapKd(low, high);
+          low++;
+          high--;
+          while (kdCoords[2 * low + axis] < pivot) {
+            low++;
+          }
+          while (kdCoords[2 * high + axis] > pivot) {
+            high--;
+          }
+        }
+
+        if (kdCoords[2 * left + axis] == pivot) {
+          swapKd(left, high);
+        } else {
+          high++;
+          swapKd(high, right);
+        }
+
+        if (high <= kth) {
+          left = high + 1;
+        }
+        if (kth <= high) {
+          right = high - 1;
+        }
+      }
+    }
+
+    private void swapKd(int first, int second) {
+      int item = kdItems[first];
+      kdItems[first] = kdItems[second];
+      kdItems[second] = item;
+
+      double x = kdCoords[2 * first];
+      double y = kdCoords[2 * first + 1];
+      kdCoords[2 * first] = kdCoords[2 * second];
+      kdCoords[2 * first + 1] = kdCoords[2 * second + 1];
+      kdCoords[2 * second] = x;
+      kdCoords[2 * second + 1] = y;
+    }
+
+    private double sqDistance(double ax, double ay, double bx, double by) {
+      double dx = ax - bx;
+      double dy = ay - by;
+      return dx * dx + dy * dy;
+    }
+
+    private int[] grow(int[] array) {
+      int[] grown = new int[array.length * 2];
+      System.arraycopy(array, 0, grown, 0, array.length);
+      return grown;
+    }
+  }
+
+  /**
+   * Growable int list, to avoid boxing query results.
+   */
+  private static class IntList {
+    private int[] values = new int[16];
+    private int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        int[] grown = new int[size * 2];
+        System.arraycopy(values, 0, grown, 0, size);
+        values = grown;
+      }
+      values[size++] = value;
+    }
+
+    int get(int index) {
+      return values[index];
+    }
+
+    int size() {
+      return size;
+    }
+
+    void clear() {
+      size = 0;
+    }
+  }
+}
@@ -0,0 +1,361 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.v4.util.AtomicFile;
+import android.util.Log;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mapbox.api.geocoding.v5.MapboxGeocoding;
+import com.mapbox.api.geocoding.v5.models.GeocodingResponse;
+import com.mapbox.core.exceptions.ServicesException;
+import com.mapbox.geojson.Point;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Caches reverse geocoding responses for coordinates that are close to each other.
+ * <p>
+ * Coordinates are rounded to a grid with a configurable number of decimals, and the rounded coordinate
+ * together with the geocoding types and mode forms the key of a response. Entries expire after a time to
+ * live, the least recently used entries are evicted beyond a maximum size and the cache is written to the
+ * app's cache directory whenever the activity stops, so it survives between sessions. The file is replaced
+ * atomically, so a process killed while writing leaves the previous version behind. Lookups for a key that
+ * is already being requested wait for that request instead of starting another one. Callbacks are delivered
+ * on the main thread.
+ * </p>
+ */
+public class ReverseGeocodeCache {
+
+  private static final String TAG = "ReverseGeocodeCache";
+
+  private static final String CACHE_FILE_NAME = "reverse_geocode_cache.json";
+  private static final String KEY_KEY = "key";
+  private static final String KEY_TIME = "time";
+  private static final String KEY_RESPONSE = "response";
+
+  /**
+   * Receives the result of a lookup on the main thread.
+   */
+  public interface OnGeocodeListener {
+
+    /**
+     * @param response  the cached or downloaded response
+     * @param fromCache true if no request was needed
+     */
+    void onGeocodeResult(@NonNull GeocodingResponse response, boolean fromCache);
+
+    /**
+     * @param throwable the reason the request failed
+     */
+    void onGeocodeFailure(@NonNull Throwable throwable);
+  }
+
+  private static class Entry {
+
+    private final long time;
+    private final String json;
+    private GeocodingResponse response;
+
+    Entry(long time, String json, GeocodingResponse response) {
+      this.time = time;
+      this.json = json;
+      this.response = response;
+    }
+  }
+
+  private final String accessToken;
+  private final int decimals;
+  private final long timeToLive;
+  private final int maxEntries;
+  private final AtomicFile cacheFile;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+  private final Map<String, List<OnGeocodeListener>> inFlightListeners = new HashMap<>();
+  private final LinkedHashMap<String, Entry> entries;
+  private boolean modified;
+
+  // Metrics
+  private int hitCount;
+  private int missCount;
+  private int coalescedCount;
+  private int expiredCount;
+
+  /**
+   * Creates the cache and starts reading the entries of earlier sessions in the background.
+   *
+   * @param context     used to find the cache directory
+   * @param accessToken the Mapbox access token used for the requests
+   * @param decimals    the number of decimals coordinates are rounded to, e.g. 3 for cells of about 100 m
+   * @param timeToLive  the time in milliseconds after which an entry is requested again
+   * @param maxEntries  the number of entries kept
+   */
+  public ReverseGeocodeCache(@NonNull Context context, @NonNull String accessToken, int decimals, long timeToLive,
+                             final int maxEntries) {
+    this.accessToken = accessToken;
+    this.decimals = decimals;
+    this.timeToLive = timeToLive;
+    this.maxEntries = maxEntries;
+    this.cacheFile = new AtomicFile(new File(context.getCacheDir(), CACHE_FILE_NAME));
+    this.entries = new LinkedHashMap<String, Entry>(64, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > maxEntries;
+      }
+    };
+    diskExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        final LinkedHashMap<String, Entry> storedEntries = readEntries();
+        handler.post(new Runnable() {
+          @Override
+          public void run() {
+            mergeStoredEntries(entries, storedEntries);
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Reverse geocodes a coordinate, answering from the cache if a response for its grid cell is still fresh.
+   *
+   * @param point    the coordinate
+   * @param types    the GeocodingCriteria type to look for
+   * @param mode     the GeocodingCriteria mode
+   * @param listener receives the response on the main thread
+   */
+  public void reverseGeocode(@NonNull Point point, @NonNull String types, @NonNull String mode,
+                             @NonNull OnGeocodeListener listener) {
+    final String key = createKey(point, types, mode);
+
+    Entry entry = entries.get(key);
+    if (entry != null) {
+      if (System.currentTimeMillis() - entry.time < timeToLive) {
+        if (entry.response == null) {
+          // entries read from disk are only parsed when they're used
+          entry.response = GeocodingResponse.fromJson(entry.json);
+        }
+        hitCount++;
+        listener.onGeocodeResult(entry.response, true);
+        return;
+      }
+      entries.remove(key);
+      expiredCount++;
+    }
+
+    List<OnGeocodeListener> listeners = inFlightListeners.get(key);
+    if (listeners != null) {
+      coalescedCount++;
+      listeners.add(listener);
+      return;
+    }
+    missCount++;
+    listeners = new ArrayList<>();
+    listeners.add(listener);
+    inFlightListeners.put(key, listeners);
+
+    try {
+      MapboxGeocoding.builder()
+        .accessToken(accessToken)
+        .query(point)
+        .geocodingTypes(types)
+        .mode(mode)
+        .build()
+        .enqueueCall(new Callback<GeocodingResponse>() {
+          @Override
+          public void onResponse(Call<GeocodingResponse> call, Response<GeocodingResponse> response) {
+            GeocodingResponse body = response.body();
+            if (body == null) {
+              deliverFailure(key, new IOException("Geocoding failed with HTTP " + response.code()));
+              return;
+            }
+            entries.put(key, new Entry(System.currentTimeMillis(), body.toJson(), body));
+            modified = true;
+            List<OnGeocodeListener> waitingListeners = inFlightListeners.remove(key);
+            if (waitingListeners != null) {
+              for (OnGeocodeListener waitingListener : waitingListeners) {
+                waitingListener.onGeocodeResult(body, false);
+              }
+            }
+          }
+
+          @Override
+          public void onFailure(Call<GeocodingResponse> call, Throwable throwable) {
+            deliverFailure(key, throwable);
+          }
+        });
+    } catch (ServicesException servicesException) {
+      deliverFailure(key, servicesException);
+    }
+  }
+
+  /**
+   * Writes the cache to disk in the background if it changed, to be called from the activity's onStop, as
+   * the process may be killed without onDestroy being called.
+   */
+  public void persist() {
+    if (!modified) {
+      return;
+    }
+    final List<String> keys = new ArrayList<>(entries.keySet());
+    final List<Entry> values = new ArrayList<>(entries.values());
+    diskExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        writeEntries(keys, values);
+      }
+    });
+    modified = false;
+  }
+
+  /**
+   * Writes the cache to disk if it changed since it was last persisted and logs the collected metrics, to be
+   * called from the activity's onDestroy. Pending lookups aren't answered afterwards.
+   */
+  public void onDestroy() {
+    inFlightListeners.clear();
+    persist();
+    diskExecutor.shutdown();
+    Log.d(TAG, getMetricsSummary());
+  }
+
+  private void deliverFailure(String key, Throwable throwable) {
+    List<OnGeocodeListener> waitingListeners = inFlightListeners.remove(key);
+    if (waitingListeners != null) {
+      for (OnGeocodeListener waitingListener : waitingListeners) {
+        waitingListener.onGeocodeFailure(throwable);
+      }
+    }
+  }
+
+  private String createKey(Point point, String types, String mode) {
+    double scale = Math.pow(10, decimals);
+    long latitudeCell = Math.round(point.latitude() * scale);
+    long longitudeCell = Math.round(point.longitude() * scale);
+    return String.format(Locale.US, "%s|%s|%d|%d,%d", types, mode, decimals, latitudeCell, longitudeCell);
+  }
+
+  private LinkedHashMap<String, Entry> readEntries() {
+    LinkedHashMap<String, Entry> storedEntries = new LinkedHashMap<>();
+    if (!cacheFile.getBaseFile().exists()) {
+      return storedEntries;
+    }
+    long now = System.currentTimeMillis();
+    try {
+      Reader reader = new InputStreamReader(cacheFile.openRead(), "UTF-8");
+      try {
+        JsonArray array = new JsonParser().parse(reader).getAsJsonArray();
+        for (JsonElement element : array) {
+          JsonObject object = element.getAsJsonObject();
+          long time = object.get(KEY_TIME).getAsLong();
+          if (now - time < timeToLive) {
+            storedEntries.put(object.get(KEY_KEY).getAsString(),
+              new Entry(time, object.get(KEY_RESPONSE).getAsString(), null));
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (IOException | RuntimeException exception) {
+      Log.e(TAG, "Exception reading the cache: " + exception.toString());
+    }
+    keepNewest(storedEntries, maxEntries);
+    return storedEntries;
+  }
+
+  /**
+   * Drops the first entries of a map until it holds at most the given number. The file lists the entries
+   * from least to most recently used, so the ones kept are the most recently used.
+   */
+  static <V> void keepNewest(@NonNull LinkedHashMap<String, V> storedEntries, int maxEntries) {
+    Iterator<String> iterator = storedEntries.keySet().iterator();
+    for (int excess = storedEntries.size() - maxEntries; excess > 0; excess--) {
+      iterator.next();
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Adds the entries read from disk as the least recently used ones. Entries downloaded in the meantime are
+   * newer, so they replace stored entries of the same key and are evicted last.
+   */
+  static <V> void mergeStoredEntries(@NonNull LinkedHashMap<String, V> entries,
+                                     @NonNull LinkedHashMap<String, V> storedEntries) {
+    LinkedHashMap<String, V> downloadedEntries = new LinkedHashMap<>(entries);
+    entries.clear();
+    for (Map.Entry<String, V> storedEntry : storedEntries.entrySet()) {
+      if (!downloadedEntries.containsKey(storedEntry.getKey())) {
+        entries.put(storedEntry.getKey(), storedEntry.getValue());
+      }
+    }
+    entries.putAll(downloadedEntries);
+  }
+
+  private void writeEntries(List<String> keys, List<Entry> values) {
+    long now = System.currentTimeMillis();
+    JsonArray array = new JsonArray();
+    for (int i = 0; i < keys.size(); i++) {
+      Entry entry = values.get(i);
+      if (now - entry.time < timeToLive) {
+        JsonObject object = new JsonObject();
+        object.addProperty(KEY_KEY, keys.get(i));
+        object.addProperty(KEY_TIME, entry.time);
+        object.addProperty(KEY_RESPONSE, entry.json);
+        array.add(object);
+      }
+    }
+    FileOutputStream outputStream = null;
+    try {
+      outputStream = cacheFile.startWrite();
+      Writer writer = new OutputStreamWriter(outputStream, "UTF-8");
+      writer.write(array.toString());
+      writer.flush();
+      // syncs and closes the stream, then replaces the previous file
+      cacheFile.finishWrite(outputStream);
+    } catch (IOException exception) {
+      Log.e(TAG, "Exception writing the cache: " + exception.toString());
+      if (outputStream != null) {
+        cacheFile.failWrite(outputStream);
+      }
+    }
+  }
+
+  /**
+   * @return the share of lookups answered from the cache, between 0 and 1
+   */
+  public float getHitRate() {
+    int lookups = hitCount + missCount + coalescedCount;
+    return lookups > 0 ? (float) hitCount / lookups : 0;
+  }
+
+  public String getMetricsSummary() {
+    return "Geocode cache hits: " + hitCount + ", misses: " + missCount + ", coalesced: " + coalescedCount
+      + ", expired: " + expiredCount + ", entries: " + entries.size()
+      + String.format(Locale.US, ", hit rate: %.2f", getHitRate());
+  }
+}
@@ -0,0 +1,136 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.support.annotation.NonNull;
+
+/**
+ * The cumulative distance along a {@link PackedLineString}, measured in meters from its first position.
+ * <p>
+ * Once built, looking up the position at a given distance is a binary search over the table followed by a
+ * linear interpolation within the segment found, without allocating. Callers moving forward along the line
+ * can pass the segment of their previous lookup as a hint, which makes the common case constant time.
+ * </p>
+ */
+public class RouteDistanceTable {
+
+  private static final double EARTH_RADIUS_METERS = 6371008.8;
+
+  private final PackedLineString line;
+  private final double[] distances;
+
+  /**
+   * Measures every segment of the line once.
+   *
+   * @param line the line to measure
+   */
+  public RouteDistanceTable(@NonNull PackedLineString line) {
+    this.line = line;
+    int size = line.size();
+    distances = new double[size];
+    for (int i = 1; i < size; i++) {
+      distances[i] = distances[i - 1] + haversine(line.longitude(i - 1), line.latitude(i - 1),
+        line.longitude(i), line.latitude(i));
+    }
+  }
+
+  /**
+   * @return the measured line
+   */
+  public PackedLineString getLine() {
+    return line;
+  }
+
+  /**
+   * @return the length of the line in meters
+   */
+  public double getLength() {
+    return distances.length > 0 ? distances[distances.length - 1] : 0;
+  }
+
+  /**
+   * @param index the index of a position of the line
+   * @return the distance of the position from the start of the line in meters
+   */
+  public double distanceAt(int index) {
+    return distances[index];
+  }
+
+  /**
+   * Finds the segment containing a distance, i.e. the index {@code i} with
+   * {@code distanceAt(i) <= distance < distanceAt(i + 1)}. Distances outside the line are clamped to its first
+   * or last segment.
+   *
+   * @param distance the distance from the start of the line in meters
+   * @param hint     a segment index to check before searching, e.g. the result of the previous lookup, or -1
+   * @return the index of the first position of the segment
+   */
+  public int segmentAt(double distance, int hint) {
+    int lastSegment = distances.length - 2;
+    if (lastSegment < 0) {
+      return 0;
+    }
+    if (hint >= 0 && hint <= lastSegment) {
+      if (distances[hint] <= distance && distance < distances[hint + 1]) {
+        return hint;
+      }
+      if (hint < lastSegment && distances[hint + 1] <= distance && distance < distances[hint + 2]) {
+        return hint + 1;
+      }
+    }
+    if (distance <= distances[0]) {
+      return 0;
+    }
+    if (distance >= distances[lastSegment]) {
+      return lastSegment;
+    }
+    int low = 0;
+    int high = lastSegment;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (distances[mid] <= distance) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Interpolates the position at a distance into the given array.
+   *
+   * @param distance the distance from the start of the line in meters, clamped to the line
+   * @param hint     a segment index to check before searching, or -1
+   * @param out      receives the longitude at index 0 and the latitude at index 1
+   * @return the index of the segment the position lies on, to be used as the hint of the next lookup
+   */
+  public int positionAt(double distance, int hint, @NonNull double[] out) {
+    if (distances.length == 0) {
+      return 0;
+    }
+    if (distances.length == 1) {
+      out[0] = line.longitude(0);
+      out[1] = line.latitude(0);
+      return 0;
+    }
+    int segment = segmentAt(distance, hint);
+    double segmentLength = distances[segment + 1] - distances[segment];
+    double fraction = segmentLength > 0 ? (distance - distances[segment]) / segmentLength : 0;
+    fraction = Math.max(0, Math.min(1, fraction));
+    double startLongitude = line.longitude(segment);
+    double startLatitude = line.latitude(segment);
+    out[0] = startLongitude + (line.longitude(segment + 1) - startLongitude) * fraction;
+    out[1] = startLatitude + (line.latitude(segment + 1) - startLatitude) * fraction;
+    return segment;
+  }
+
+  private static double haversine(double fromLongitude, double fromLatitude, double toLongitude,
+                                   double toLatitude) {
+    double deltaLatitude = Math.toRadians(toLatitude - fromLatitude);
+    double deltaLongitude = Math.toRadians(toLongitude - fromLongitude);
+    double sinLatitude = Math.sin(deltaLatitude / 2);
+    double sinLongitude = Math.sin(deltaLongitude / 2);
+    double value = sinLatitude * sinLatitude + Math.cos(Math.toRadians(fromLatitude))
+      * Math.cos(Math.toRadians(toLatitude)) * sinLongitude * sinLongitude;
+    return 2 * EARTH_RADIUS_METERS * Math.atan2(Math.sqrt(value), Math.sqrt(1 - value));
+  }
+}
@@ -0,0 +1,159 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Decodes encoded polyline route geometries on worker threads.
+ * <p>
+ * The polyline is decoded straight into the packed coordinate array of a {@link PackedLineString}, without a
+ * Point per position, and a {@link Converter} turns it into whatever the map needs, e.g. a LatLng array or a
+ * GeoJSON LineString, on the same worker thread. The main thread only receives the ready result. For every
+ * route the main thread time is logged as it was before, when decoding and converting ran on the main thread
+ * ahead of handling the result, and as it is now, handling the result only.
+ * </p>
+ */
+public class RouteGeometryDecoder {
+
+  private static final String TAG = "RouteGeometryDecoder";
+
+  private static final int THREAD_COUNT = 2;
+
+  /**
+   * Turns the decoded line into the form the caller renders, on a worker thread.
+   *
+   * @param <T> the type of the result
+   */
+  public interface Converter<T> {
+
+    @NonNull
+    T convert(@NonNull PackedLineString line);
+  }
+
+  /**
+   * Receives the converted geometry on the main thread.
+   *
+   * @param <T> the type of the result
+   */
+  public interface OnGeometryDecodedListener<T> {
+
+    void onGeometryDecoded(@NonNull T geometry);
+  }
+
+  private final ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private volatile int generation;
+
+  /**
+   * Decodes and converts a geometry in the background. Results of earlier calls still running are dropped.
+   *
+   * @param polyline  the encoded polyline, e.g. DirectionsRoute#geometry()
+   * @param precision the precision of the polyline, Constants.PRECISION_5 or PRECISION_6
+   * @param converter turns the decoded line into the result, on the worker thread
+   * @param listener  receives the result on the main thread
+   * @param <T>       the type of the result
+   */
+  public <T> void decode(@NonNull final String polyline, final int precision, @NonNull final Converter<T> converter,
+                         @NonNull final OnGeometryDecodedListener<T> listener) {
+    final int token = ++generation;
+    executorService.execute(new Runnable() {
+      @Override
+      public void run() {
+        long startTime = SystemClock.elapsedRealtime();
+        final PackedLineString line;
+        final T geometry;
+        try {
+          line = decodePolyline(polyline, precision);
+          geometry = converter.convert(line);
+        } catch (RuntimeException exception) {
+          Log.e(TAG, "Exception decoding a route: " + exception.toString());
+          return;
+        }
+        final long workerTime = SystemClock.elapsedRealtime() - startTime;
+        handler.post(new Runnable() {
+          @Override
+          public void run() {
+            if (token != generation) {
+              return;
+            }
+            long mainThreadStartTime = SystemClock.elapsedRealtime();
+            listener.onGeometryDecoded(geometry);
+            long mainThreadTime = SystemClock.elapsedRealtime() - mainThreadStartTime;
+            Log.d(TAG, "Route of " + line.size() + " positions, main thread time before: "
+              + (workerTime + mainThreadTime) + " ms (decoding and converting " + workerTime + " ms), after: "
+              + mainThreadTime + " ms");
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Drops the results of geometries still being decoded.
+   */
+  public void cancel() {
+    generation++;
+  }
+
+  /**
+   * Drops pending results and stops the worker threads, to be called from the activity's onDestroy.
+   */
+  public void shutdown() {
+    cancel();
+    executorService.shutdownNow();
+  }
+
+  /**
+   * Decodes an encoded polyline into a packed longitude/latitude array.
+   *
+   * @param polyline  the encoded polyline
+   * @param precision the number of decimals the coordinates were encoded with
+   * @return the decoded line
+   */
+  public static PackedLineString decodePolyline(@NonNull String polyline, int precision) {
+    double factor = Math.pow(10, precision);
+    int length = polyline.length();
+    // every position takes at least two characters, so this never needs to grow
+    double[] coordinates = new double[length + (length & 1)];
+    int size = 0;
+    int index = 0;
+    int latitude = 0;
+    int longitude = 0;
+    while (index < length) {
+      int result = 0;
+      int shift = 0;
+      int value;
+      do {
+        value = polyline.charAt(index++) - 63;
+        result |= (value & 0x1f) << shift;
+        shift += 5;
+      }
+      while (value >= 0x20 && index < length);
+      latitude += (result & 1) != 0 ? ~(result >> 1) : (result >> 1);
+
+      result = 0;
+      shift = 0;
+      do {
+        if (index >= length) {
+          throw new IllegalArgumentException("Polyline ends in the middle of a position");
+        }
+        value = polyline.charAt(index++) - 63;
+        result |= (value & 0x1f) << shift;
+        shift += 5;
+      }
+      while (value >= 0x20);
+      longitude += (result & 1) != 0 ? ~(result >> 1) : (result >> 1);
+
+      coordinates[size << 1] = longitude / factor;
+      coordinates[(size << 1) + 1] = latitude / factor;
+      size++;
+    }
+    return new PackedLineString(coordinates, size);
+  }
+}
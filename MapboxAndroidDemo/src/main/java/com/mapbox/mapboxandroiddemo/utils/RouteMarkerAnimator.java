@@ -0,0 +1,333 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves any number of markers along routes at a constant speed from a single frame callback.
+ * <p>
+ * Every frame advances each {@link Track} by its speed times the time since the previous frame and looks up
+ * the new position in the track's {@link RouteDistanceTable}, so the markers don't drift when frames are late
+ * and nothing is allocated per frame. Frames are driven by the Choreographer on API 16 and up, and by a
+ * Handler posting at the nominal frame interval below that. Late frames are counted as dropped frames.
+ * </p>
+ */
+public class RouteMarkerAnimator {
+
+  private static final String TAG = "RouteMarkerAnimator";
+
+  private static final long FRAME_INTERVAL_NANOS = 16666667L;
+  private static final long NANOS_PER_MILLI = 1000000L;
+
+  /**
+   * Receives the interpolated position of a track every frame it moved, on the main thread.
+   */
+  public interface OnPositionChangedListener {
+
+    /**
+     * @param track     the track that moved
+     * @param longitude the new longitude
+     * @param latitude  the new latitude
+     */
+    void onPositionChanged(@NonNull Track track, double longitude, double latitude);
+  }
+
+  /**
+   * A marker's progress along a route.
+   */
+  public static class Track {
+
+    private final RouteDistanceTable table;
+    private final OnPositionChangedListener listener;
+    private final double[] position = new double[2];
+    private double speed;
+    private boolean loop;
+    private double distance;
+    private int segmentHint = -1;
+    private boolean dirty = true;
+    private RouteMarkerAnimator animator;
+
+    /**
+     * @param table    the route to follow
+     * @param speed    the speed in meters per second
+     * @param listener receives the positions
+     */
+    public Track(@NonNull RouteDistanceTable table, double speed, @NonNull OnPositionChangedListener listener) {
+      this.table = table;
+      this.speed = speed;
+      this.listener = listener;
+    }
+
+    /**
+     * @param loop true to start over once the end of the route was reached
+     * @return this track
+     */
+    public Track setLoop(boolean loop) {
+      this.loop = loop;
+      return this;
+    }
+
+    /**
+     * @param speed the speed in meters per second
+     */
+    public void setSpeed(double speed) {
+      this.speed = speed;
+      if (animator != null) {
+        animator.wakeUp();
+      }
+    }
+
+    /**
+     * Jumps to a distance from the start of the route, the position is delivered with the next frame.
+     *
+     * @param distance the distance in meters, clamped to the route
+     */
+    public void seekTo(double distance) {
+      this.distance = Math.max(0, Math.min(table.getLength(), distance));
+      segmentHint = -1;
+      dirty = true;
+      if (animator != null) {
+        animator.wakeUp();
+      }
+    }
+
+    /**
+     * Jumps to a fraction of the route, the position is delivered with the next frame.
+     *
+     * @param fraction a value between 0 for the start and 1 for the end of the route
+     */
+    public void seekToFraction(double fraction) {
+      seekTo(fraction * table.getLength());
+    }
+
+    /**
+     * @return the distance travelled along the route in meters
+     */
+    public double getDistance() {
+      return distance;
+    }
+
+    /**
+     * @return the length of the route in meters
+     */
+    public double getLength() {
+      return table.getLength();
+    }
+
+    /**
+     * @return true if the track reached the end of its route and doesn't loop
+     */
+    public boolean isFinished() {
+      return !loop && distance >= table.getLength();
+    }
+
+    private boolean isIdle() {
+      return !dirty && (isFinished() || speed == 0);
+    }
+
+    private void advance(double seconds) {
+      if (isIdle()) {
+        return;
+      }
+      double length = table.getLength();
+      distance += speed * seconds;
+      if (distance >= length) {
+        if (loop && length > 0) {
+          distance %= length;
+          segmentHint = -1;
+        } else {
+          distance = length;
+        }
+      }
+      segmentHint = table.positionAt(distance, segmentHint, position);
+      dirty = false;
+      listener.onPositionChanged(this, position[0], position[1]);
+    }
+  }
+
+  private final List<Track> tracks = new ArrayList<>();
+  private final FrameScheduler frameScheduler;
+  private boolean running;
+  private boolean frameScheduled;
+  private long lastFrameTimeNanos;
+
+  // Metrics
+  private int frameCount;
+  private int droppedFrameCount;
+  private long maxFrameIntervalNanos;
+
+  public RouteMarkerAnimator() {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+      frameScheduler = new ChoreographerFrameScheduler();
+    } else {
+      frameScheduler = new HandlerFrameScheduler();
+    }
+  }
+
+  /**
+   * Adds a track, which starts moving with the next frame.
+   *
+   * @param track the track to add
+   */
+  public void addTrack(@NonNull Track track) {
+    track.animator = this;
+    tracks.add(track);
+    wakeUp();
+  }
+
+  /**
+   * @param track the track to stop moving
+   */
+  public void removeTrack(@NonNull Track track) {
+    if (tracks.remove(track)) {
+      track.animator = null;
+    }
+  }
+
+  /**
+   * Starts or resumes moving the tracks, e.g. from the activity's onResume. The time spent paused isn't
+   * travelled.
+   */
+  public void start() {
+    if (running) {
+      return;
+    }
+    running = true;
+    wakeUp();
+  }
+
+  /**
+   * Pauses the tracks where they are, e.g. from the activity's onPause.
+   */
+  public void pause() {
+    running = false;
+    frameScheduled = false;
+    frameScheduler.cancelFrame();
+  }
+
+  /**
+   * Pauses the tracks and logs the collected metrics, to be called from the activity's onDestroy.
+   */
+  public void stop() {
+    pause();
+    Log.d(TAG, getMetricsSummary());
+  }
+
+  private void wakeUp() {
+    // resumes the frame callbacks after all tracks had come to a halt
+    if (running && !frameScheduled) {
+      frameScheduled = true;
+      lastFrameTimeNanos = 0;
+      frameScheduler.scheduleFrame();
+    }
+  }
+
+  private void doFrame(long frameTimeNanos) {
+    frameScheduled = false;
+    if (!running) {
+      return;
+    }
+    double seconds = 0;
+    if (lastFrameTimeNanos != 0) {
+      long frameInterval = frameTimeNanos - lastFrameTimeNanos;
+      maxFrameIntervalNanos = Math.max(maxFrameIntervalNanos, frameInterval);
+      // a frame arriving more than half an interval late means at least one frame was skipped
+      long skipped = (frameInterval + FRAME_INTERVAL_NANOS / 2) / FRAME_INTERVAL_NANOS - 1;
+      if (skipped > 0) {
+        droppedFrameCount += skipped;
+      }
+      seconds = frameInterval / 1e9;
+    }
+    lastFrameTimeNanos = frameTimeNanos;
+    frameCount++;
+
+    boolean moving = false;
+    for (int i = 0; i < tracks.size(); i++) {
+      Track track = tracks.get(i);
+      track.advance(seconds);
+      moving |= !track.isIdle();
+    }
+
+    if (moving) {
+      frameScheduled = true;
+      frameScheduler.scheduleFrame();
+    }
+  }
+
+  /**
+   * @return the number of frames handled
+   */
+  public int getFrameCount() {
+    return frameCount;
+  }
+
+  /**
+   * @return the number of frames that were skipped because a frame callback came late
+   */
+  public int getDroppedFrameCount() {
+    return droppedFrameCount;
+  }
+
+  public String getMetricsSummary() {
+    return "Frames: " + frameCount + ", dropped frames: " + droppedFrameCount + ", longest frame interval: "
+      + (maxFrameIntervalNanos / NANOS_PER_MILLI) + " ms, tracks: " + tracks.size();
+  }
+
+  private interface FrameScheduler {
+
+    void scheduleFrame();
+
+    void cancelFrame();
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+  private class ChoreographerFrameScheduler implements FrameScheduler, Choreographer.FrameCallback {
+
+    private final Choreographer choreographer = Choreographer.getInstance();
+
+    @Override
+    public void scheduleFrame() {
+      choreographer.removeFrameCallback(this);
+      choreographer.postFrameCallback(this);
+    }
+
+    @Override
+    public void cancelFrame() {
+      choreographer.removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+      RouteMarkerAnimator.this.doFrame(frameTimeNanos);
+    }
+  }
+
+  private class HandlerFrameScheduler implements FrameScheduler, Runnable {
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public void scheduleFrame() {
+      handler.removeCallbacks(this);
+      handler.postDelayed(this, FRAME_INTERVAL_NANOS / NANOS_PER_MILLI);
+    }
+
+    @Override
+    public void cancelFrame() {
+      handler.removeCallbacks(this);
+    }
+
+    @Override
+    public void run() {
+      doFrame(System.nanoTime());
+    }
+  }
+}
@@ -0,0 +1,296 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.geojson.Point;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An app wide store of routes returned by the Directions and Optimization APIs, so asking for the same route
+ * again doesn't need a request.
+ * <p>
+ * Routes are keyed by a canonical form of their request, built with {@link #directionsKey(String, List,
+ * String...)} or {@link #optimizationKey(String, Point, List, String...)}: coordinates are rounded to the six
+ * decimals the APIs use and options are sorted. Optimization requests that start at a fixed first coordinate
+ * are solved the same way whatever order the other stops were added in, so those stops are sorted as well.
+ * The most recently used routes are kept in memory and all routes are written to a bounded directory in the
+ * cache directory, which is trimmed by last use. Disk access happens on a background thread and results are
+ * delivered on the main thread.
+ * </p>
+ */
+public class RouteResultStore {
+
+  private static final String TAG = "RouteResultStore";
+
+  private static final String DIRECTORY_NAME = "route_store";
+  private static final int MEMORY_CACHE_SIZE = 32;
+  private static final int DISK_CACHE_SIZE = 256;
+
+  private static RouteResultStore instance;
+
+  /**
+   * Receives the result of a lookup on the main thread.
+   */
+  public interface OnRouteLoadedListener {
+
+    /**
+     * @param route the stored route, or null if the request wasn't made before
+     */
+    void onRouteLoaded(@Nullable DirectionsRoute route);
+  }
+
+  private final File directory;
+  private final LruCache<String, DirectionsRoute> memoryCache = new LruCache<>(MEMORY_CACHE_SIZE);
+  private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  // Metrics
+  private int memoryHitCount;
+  private int diskHitCount;
+  private int missCount;
+  private long totalDiskLookupTime;
+
+  private RouteResultStore(Context context) {
+    directory = new File(context.getCacheDir(), DIRECTORY_NAME);
+  }
+
+  /**
+   * @param context any context, only its application context is kept
+   * @return the store shared by all activities
+   */
+  public static synchronized RouteResultStore getInstance(@NonNull Context context) {
+    if (instance == null) {
+      instance = new RouteResultStore(context.getApplicationContext());
+    }
+    return instance;
+  }
+
+  /**
+   * Builds the key of a Directions API request.
+   *
+   * @param profile     the DirectionsCriteria profile
+   * @param coordinates the origin, waypoints and destination in order
+   * @param options     any other request parameters influencing the route, as name=value
+   * @return the canonical key
+   */
+  public static String directionsKey(@NonNull String profile, @NonNull List<Point> coordinates,
+                                     String... options) {
+    StringBuilder builder = new StringBuilder("directions/").append(profile).append('/');
+    appendCoordinates(builder, coordinates);
+    appendOptions(builder, options);
+    return builder.toString();
+  }
+
+  /**
+   * Builds the key of an Optimization API request starting at a fixed first coordinate. The order of the
+   * other stops doesn't change the optimized trip, so it doesn't change the key either.
+   *
+   * @param profile the DirectionsCriteria profile
+   * @param first   the coordinate the trip starts at
+   * @param stops   the other coordinates, in any order
+   * @param options any other request parameters influencing the trip, as name=value
+   * @return the canonical key
+   */
+  public static String optimizationKey(@NonNull String profile, @NonNull Point first, @NonNull List<Point> stops,
+                                       String... options) {
+    List<Point> sortedStops = new ArrayList<>(stops);
+    Collections.sort(sortedStops, new Comparator<Point>() {
+      @Override
+      public int compare(Point point, Point otherPoint) {
+        int result = Double.compare(point.longitude(), otherPoint.longitude());
+        return result != 0 ? result : Double.compare(point.latitude(), otherPoint.latitude());
+      }
+    });
+    sortedStops.add(0, first);
+    StringBuilder builder = new StringBuilder("optimization/").append(profile).append('/');
+    appendCoordinates(builder, sortedStops);
+    appendOptions(builder, options);
+    return builder.toString();
+  }
+
+  private static void appendCoordinates(StringBuilder builder, List<Point> coordinates) {
+    for (int i = 0; i < coordinates.size(); i++) {
+      if (i > 0) {
+        builder.append(';');
+      }
+      Point point = coordinates.get(i);
+      builder.append(String.format(Locale.US, "%.6f,%.6f", point.longitude(), point.latitude()));
+    }
+  }
+
+  private static void appendOptions(StringBuilder builder, String... options) {
+    String[] sortedOptions = options.clone();
+    Arrays.sort(sortedOptions);
+    builder.append('?');
+    for (int i = 0; i < sortedOptions.length; i++) {
+      if (i > 0) {
+        builder.append('&');
+      }
+      builder.append(sortedOptions[i]);
+    }
+  }
+
+  /**
+   * Looks up the route of a request, from memory right away or from disk in the background.
+   *
+   * @param key      the key of the request
+   * @param listener receives the route, or null if it isn't stored
+   */
+  public void getRoute(@NonNull final String key, @NonNull final OnRouteLoadedListener listener) {
+    DirectionsRoute route = memoryCache.get(key);
+    if (route != null) {
+      memoryHitCount++;
+      listener.onRouteLoaded(route);
+      return;
+    }
+    diskExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        long startTime = SystemClock.elapsedRealtime();
+        final DirectionsRoute storedRoute = readRoute(key);
+        final long lookupTime = SystemClock.elapsedRealtime() - startTime;
+        handler.post(new Runnable() {
+          @Override
+          public void run() {
+            totalDiskLookupTime += lookupTime;
+            if (storedRoute != null) {
+              diskHitCount++;
+              memoryCache.put(key, storedRoute);
+            } else {
+              missCount++;
+            }
+            listener.onRouteLoaded(storedRoute);
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Stores the route of a request in memory and, in the background, on disk.
+   *
+   * @param key   the key of the request
+   * @param route the route returned for it
+   */
+  public void putRoute(@NonNull final String key, @NonNull DirectionsRoute route) {
+    memoryCache.put(key, route);
+    final String json = route.toJson();
+    diskExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        writeRoute(key, json);
+        trimDirectory();
+      }
+    });
+  }
+
+  private DirectionsRoute readRoute(String key) {
+    File file = fileFor(key);
+    if (!file.exists()) {
+      return null;
+    }
+    try {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+      try {
+        // the first line holds the key, which tells hash collisions apart
+        if (!key.equals(reader.readLine())) {
+          return null;
+        }
+        DirectionsRoute route = DirectionsRoute.fromJson(reader.readLine());
+        file.setLastModified(System.currentTimeMillis());
+        return route;
+      } finally {
+        reader.close();
+      }
+    } catch (IOException | RuntimeException exception) {
+      Log.e(TAG, "Exception reading a route: " + exception.toString());
+      return null;
+    }
+  }
+
+  private void writeRoute(String key, String json) {
+    if (!directory.exists() && !directory.mkdirs()) {
+      Log.e(TAG, "Couldn't create " + directory);
+      return;
+    }
+    try {
+      Writer writer = new OutputStreamWriter(new FileOutputStream(fileFor(key)), "UTF-8");
+      try {
+        writer.write(key);
+        writer.write('\n');
+        writer.write(json);
+      } finally {
+        writer.close();
+      }
+    } catch (IOException exception) {
+      Log.e(TAG, "Exception writing a route: " + exception.toString());
+    }
+  }
+
+  private void trimDirectory() {
+    File[] files = directory.listFiles();
+    if (files == null || files.length <= DISK_CACHE_SIZE) {
+      return;
+    }
+    Arrays.sort(files, new Comparator<File>() {
+      @Override
+      public int compare(File first, File second) {
+        // Long#compare needs API 19
+        long firstModified = first.lastModified();
+        long secondModified = second.lastModified();
+        return firstModified < secondModified ? -1 : (firstModified == secondModified ? 0 : 1);
+      }
+    });
+    for (int i = 0; i < files.length - DISK_CACHE_SIZE; i++) {
+      if (!files[i].delete()) {
+        Log.e(TAG, "Couldn't delete " + files[i]);
+      }
+    }
+  }
+
+  private File fileFor(String key) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+      StringBuilder name = new StringBuilder(digest.length * 2);
+      for (byte value : digest) {
+        name.append(String.format(Locale.US, "%02x", value));
+      }
+      return new File(directory, name.toString());
+    } catch (NoSuchAlgorithmException | UnsupportedEncodingException exception) {
+      return new File(directory, Integer.toHexString(key.hashCode()));
+    }
+  }
+
+  public String getMetricsSummary() {
+    int diskLookups = diskHitCount + missCount;
+    return "Route store memory hits: " + memoryHitCount + ", disk hits: " + diskHitCount + ", misses: "
+      + missCount + ", average disk lookup: " + (diskLookups > 0 ? totalDiskLookupTime / diskLookups : 0) + " ms";
+  }
+}
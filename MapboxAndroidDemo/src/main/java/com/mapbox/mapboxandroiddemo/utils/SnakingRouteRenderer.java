@@ -0,0 +1,156 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.graphics.Color;
+import android.support.annotation.ColorInt;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.LineString;
+import com.mapbox.mapboxsdk.style.layers.LineLayer;
+import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
+
+import static com.mapbox.mapboxsdk.style.expressions.Expression.color;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.lineProgress;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.step;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.stop;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineGradient;
+
+/**
+ * Draws a route as if it snakes from its origin to its destination.
+ * <p>
+ * The whole route is handed to the source once. Each frame then only moves the end of a line-gradient along
+ * line-progress, which hides the part of the line not reached yet, so the cost of a frame doesn't grow with
+ * the length of the route. The source must be created with GeoJsonOptions#withLineMetrics(true). The reveal
+ * moves at a constant speed along the route's cumulative distance, and the time spent updating the layer per
+ * frame is logged on {@link #stop()}.
+ * </p>
+ */
+public class SnakingRouteRenderer implements RouteMarkerAnimator.OnPositionChangedListener {
+
+  private static final String TAG = "SnakingRouteRenderer";
+
+  private static final long NANOS_PER_MICRO = 1000L;
+
+  /**
+   * A route prepared for rendering, which can be created on a worker thread.
+   */
+  public static class Route {
+
+    private final FeatureCollection featureCollection;
+    private final RouteDistanceTable distanceTable;
+
+    private Route(FeatureCollection featureCollection, RouteDistanceTable distanceTable) {
+      this.featureCollection = featureCollection;
+      this.distanceTable = distanceTable;
+    }
+  }
+
+  private final GeoJsonSource source;
+  private final LineLayer layer;
+  private final int routeColor;
+  private final long duration;
+  private final RouteMarkerAnimator animator = new RouteMarkerAnimator();
+  private RouteMarkerAnimator.Track track;
+
+  // Metrics
+  private int frameCount;
+  private long totalFrameNanos;
+  private long maxFrameNanos;
+
+  /**
+   * @param source     the source of the layer, created with line metrics enabled
+   * @param layer      the line layer showing the route
+   * @param routeColor the color of the revealed route
+   * @param duration   the time in milliseconds it takes to reveal the whole route
+   */
+  public SnakingRouteRenderer(@NonNull GeoJsonSource source, @NonNull LineLayer layer, @ColorInt int routeColor,
+                              long duration) {
+    this.source = source;
+    this.layer = layer;
+    this.routeColor = routeColor;
+    this.duration = duration;
+  }
+
+  /**
+   * Builds the GeoJSON and measures the cumulative distance of a route, which can be done on a worker thread.
+   *
+   * @param line the route geometry
+   * @return the route ready for {@link #start(Route)}
+   */
+  public static Route prepare(@NonNull PackedLineString line) {
+    FeatureCollection featureCollection = FeatureCollection.fromFeatures(new Feature[] {
+      Feature.fromGeometry(LineString.fromLngLats(line.toPoints()))});
+    return new Route(featureCollection, new RouteDistanceTable(line));
+  }
+
+  /**
+   * Hands the route to the source, hidden, and starts revealing it.
+   *
+   * @param route the prepared route
+   */
+  public void start(@NonNull Route route) {
+    if (track != null) {
+      animator.removeTrack(track);
+    }
+    revealUpTo(0);
+    source.setGeoJson(route.featureCollection);
+
+    double length = route.distanceTable.getLength();
+    double speed = duration > 0 ? length * 1000 / duration : Double.MAX_VALUE;
+    track = new RouteMarkerAnimator.Track(route.distanceTable, speed, this);
+    animator.addTrack(track);
+    animator.start();
+  }
+
+  /**
+   * Pauses revealing the route, e.g. from the activity's onPause.
+   */
+  public void pause() {
+    animator.pause();
+  }
+
+  /**
+   * Continues revealing the route, e.g. from the activity's onResume.
+   */
+  public void resume() {
+    if (track != null) {
+      animator.start();
+    }
+  }
+
+  /**
+   * Stops revealing the route and logs the collected metrics, to be called from the activity's onDestroy.
+   */
+  public void stop() {
+    animator.stop();
+    Log.d(TAG, getMetricsSummary());
+  }
+
+  @Override
+  public void onPositionChanged(@NonNull RouteMarkerAnimator.Track track, double longitude, double latitude) {
+    revealUpTo(track.isFinished() ? 1 : track.getDistance() / track.getLength());
+  }
+
+  private void revealUpTo(double fraction) {
+    long startTime = System.nanoTime();
+    if (fraction >= 1) {
+      layer.setProperties(lineGradient(color(routeColor)));
+    } else {
+      // everything past the fraction is transparent
+      layer.setProperties(lineGradient(step(lineProgress(), color(routeColor),
+        stop(fraction, color(Color.TRANSPARENT)))));
+    }
+    long frameNanos = System.nanoTime() - startTime;
+    frameCount++;
+    totalFrameNanos += frameNanos;
+    maxFrameNanos = Math.max(maxFrameNanos, frameNanos);
+  }
+
+  public String getMetricsSummary() {
+    return "Snaking frames: " + frameCount + ", layer update avg/max: "
+      + (frameCount > 0 ? totalFrameNanos / frameCount / NANOS_PER_MICRO : 0) + "/"
+      + (maxFrameNanos / NANOS_PER_MICRO) + " us, " + animator.getMetricsSummary();
+  }
+}
@@ -0,0 +1,111 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import java.util.Arrays;
+
+/**
+ * A byte-budgeted LRU cache for Bitmaps rendered from views with {@link SymbolGenerator}.
+ * <p>
+ * Entries are keyed by the feature id plus a hash of the content drawn into the view, so a feature whose
+ * displayed properties change gets a new entry while toggling back to a previous state is a cache hit.
+ * Evicted Bitmaps are handed to a {@link SymbolBitmapPool} to be redrawn for other features.
+ * </p>
+ * <p>
+ * Put a Bitmap into the cache only after it has been added to the map. An evicted Bitmap can be
+ * reused for another symbol right away, and the map keeps its own copy of the pixels. For the same reason,
+ * a Bitmap that is handed to the map later, e.g. in a batch built on a background thread, should be taken
+ * out of the cache with {@link #take(String)} rather than looked up with {@link #get(String)}, and put back
+ * once the map has it.
+ * </p>
+ */
+public class SymbolBitmapCache {
+
+  private static final int DEFAULT_MEMORY_FRACTION = 16;
+
+  private final SymbolBitmapPool bitmapPool;
+  private final LruCache<String, Bitmap> lruCache;
+
+  /**
+   * @param maxBytes the maximum number of bytes held by cached Bitmaps. The reuse pool gets a quarter of
+   *                 this budget on top.
+   */
+  public SymbolBitmapCache(int maxBytes) {
+    bitmapPool = new SymbolBitmapPool(maxBytes / 4);
+    lruCache = new LruCache<String, Bitmap>(maxBytes) {
+      @Override
+      protected int sizeOf(String key, Bitmap bitmap) {
+        return SymbolBitmapPool.byteCount(bitmap);
+      }
+
+      @Override
+      protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+        // Bitmaps taken out of the cache are still in use and must not be pooled
+        if (oldValue != newValue && (evicted || newValue != null)) {
+          bitmapPool.release(oldValue);
+        }
+      }
+    };
+  }
+
+  /**
+   * Creates a cache sized to a sixteenth of the app's maximum heap.
+   *
+   * @return a new cache
+   */
+  public static SymbolBitmapCache create() {
+    return new SymbolBitmapCache((int) (Runtime.getRuntime().maxMemory() / DEFAULT_MEMORY_FRACTION));
+  }
+
+  /**
+   * Builds a cache key from a feature id and the content drawn for it.
+   *
+   * @param featureId unique id of the feature, which is also the image id used on the map
+   * @param content   every value that influences the rendered view
+   * @return the cache key
+   */
+  public static String key(@NonNull String featureId, Object... content) {
+    return featureId + '#' + Integer.toHexString(Arrays.hashCode(content));
+  }
+
+  @Nullable
+  public Bitmap get(@NonNull String key) {
+    return lruCache.get(key);
+  }
+
+  /**
+   * Removes a Bitmap from the cache without returning it to the pool, so it can't be redrawn for another
+   * symbol while the caller still uses it.
+   *
+   * @param key the cache key
+   * @return the cached Bitmap, now owned by the caller, or null if there was none
+   */
+  @Nullable
+  public Bitmap take(@NonNull String key) {
+    return lruCache.remove(key);
+  }
+
+  public void put(@NonNull String key, @NonNull Bitmap bitmap) {
+    lruCache.put(key, bitmap);
+  }
+
+  /**
+   * @return the pool that evicted Bitmaps are returned to, for use with
+   * {@link SymbolGenerator#generate(android.view.View, SymbolBitmapPool)}
+   */
+  public SymbolBitmapPool getBitmapPool() {
+    return bitmapPool;
+  }
+
+  /**
+   * Empties the cache and recycles every Bitmap it held. Call once the map no longer needs to be fed,
+   * typically from onDestroy().
+   */
+  public void clear() {
+    lruCache.evictAll();
+    bitmapPool.clear();
+  }
+}
@@ -0,0 +1,123 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A byte-budgeted pool of mutable ARGB_8888 Bitmaps, grouped by dimensions.
+ * <p>
+ * Info window symbols of the same layout usually share a handful of sizes, so a Bitmap released by one
+ * symbol can be redrawn for another instead of allocating a fresh one. Only release Bitmaps that nothing
+ * else draws from anymore, e.g. ones that have already been handed to
+ * {@link com.mapbox.mapboxsdk.maps.MapboxMap#addImage(String, Bitmap)}, which copies the pixels.
+ * </p>
+ */
+public class SymbolBitmapPool {
+
+  private final Map<Long, ArrayDeque<Bitmap>> pool = new HashMap<>();
+  private final long maxBytes;
+  private long currentBytes;
+
+  /**
+   * @param maxBytes the maximum number of bytes held by pooled Bitmaps
+   */
+  public SymbolBitmapPool(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Takes a pooled Bitmap with the exact dimensions out of the pool.
+   *
+   * @param width  the required width
+   * @param height the required height
+   * @return a recycled Bitmap with undefined content, or null if none is available
+   */
+  @Nullable
+  public synchronized Bitmap acquire(int width, int height) {
+    ArrayDeque<Bitmap> bitmaps = pool.get(sizeKey(width, height));
+    if (bitmaps == null || bitmaps.isEmpty()) {
+      return null;
+    }
+    Bitmap bitmap = bitmaps.pop();
+    currentBytes -= byteCount(bitmap);
+    return bitmap;
+  }
+
+  /**
+   * Returns a Bitmap to the pool. Bitmaps that can't be reused, or that would exceed the budget, are
+   * recycled instead.
+   *
+   * @param bitmap the Bitmap no longer in use
+   */
+  public synchronized void release(@NonNull Bitmap bitmap) {
+    if (bitmap.isRecycled() || !bitmap.isMutable() || bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+      return;
+    }
+    int byteCount = byteCount(bitmap);
+    if (byteCount > maxBytes) {
+      bitmap.recycle();
+      return;
+    }
+    while (currentBytes + byteCount > maxBytes) {
+      trimOne();
+    }
+    Long key = sizeKey(bitmap.getWidth(), bitmap.getHeight());
+    ArrayDeque<Bitmap> bitmaps = pool.get(key);
+    if (bitmaps == null) {
+      bitmaps = new ArrayDeque<>();
+      pool.put(key, bitmaps);
+    }
+    bitmaps.push(bitmap);
+    currentBytes += byteCount;
+  }
+
+  /**
+   * Recycles all pooled Bitmaps.
+   */
+  public synchronized void clear() {
+    for (ArrayDeque<Bitmap> bitmaps : pool.values()) {
+      for (Bitmap bitmap : bitmaps) {
+        bitmap.recycle();
+      }
+    }
+    pool.clear();
+    currentBytes = 0;
+  }
+
+  /**
+   * @return the number of bytes currently held by the pool
+   */
+  public synchronized long getCurrentBytes() {
+    return currentBytes;
+  }
+
+  private void trimOne() {
+    Iterator<ArrayDeque<Bitmap>> iterator = pool.values().iterator();
+    while (iterator.hasNext()) {
+      ArrayDeque<Bitmap> bitmaps = iterator.next();
+      if (bitmaps.isEmpty()) {
+        iterator.remove();
+        continue;
+      }
+      Bitmap bitmap = bitmaps.removeLast();
+      currentBytes -= byteCount(bitmap);
+      bitmap.recycle();
+      return;
+    }
+    currentBytes = 0;
+  }
+
+  private static Long sizeKey(int width, int height) {
+    return ((long) width << 32) | (height & 0xffffffffL);
+  }
+
+  static int byteCount(Bitmap bitmap) {
+    return bitmap.getRowBytes() * bitmap.getHeight();
+  }
+}
@@ -0,0 +1,57 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+
+/**
+ * Utility class to generate Bitmaps for Symbol.
+ * <p>
+ * Bitmaps can be added to the map with {@link com.mapbox.mapboxsdk.maps.MapboxMap#addImage(String, Bitmap)}
+ * </p>
+ */
+public class SymbolGenerator {
+
+  private SymbolGenerator() {
+    // Utility class
+  }
+
+  /**
+   * Generate a Bitmap from an Android SDK View.
+   *
+   * @param view the View to be drawn to a Bitmap
+   * @return the generated bitmap
+   */
+  public static Bitmap generate(@NonNull View view) {
+    return generate(view, null);
+  }
+
+  /**
+   * Generate a Bitmap from an Android SDK View, drawing into a pooled Bitmap of the same size when
+   * one is available instead of allocating a new one.
+   *
+   * @param view the View to be drawn to a Bitmap
+   * @param pool the pool to take a recycled Bitmap from, or null to always allocate
+   * @return the generated bitmap
+   */
+  public static Bitmap generate(@NonNull View view, @Nullable SymbolBitmapPool pool) {
+    int measureSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+    view.measure(measureSpec, measureSpec);
+
+    int measuredWidth = view.getMeasuredWidth();
+    int measuredHeight = view.getMeasuredHeight();
+
+    view.layout(0, 0, measuredWidth, measuredHeight);
+    Bitmap bitmap = pool != null ? pool.acquire(measuredWidth, measuredHeight) : null;
+    if (bitmap == null) {
+      bitmap = Bitmap.createBitmap(measuredWidth, measuredHeight, Bitmap.Config.ARGB_8888);
+    }
+    bitmap.eraseColor(Color.TRANSPARENT);
+    Canvas canvas = new Canvas(bitmap);
+    view.draw(canvas);
+    return bitmap;
+  }
+}
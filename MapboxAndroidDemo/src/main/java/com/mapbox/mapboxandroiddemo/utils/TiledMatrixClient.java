@@ -0,0 +1,409 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.google.gson.GsonBuilder;
+import com.mapbox.api.directions.v5.DirectionsAdapterFactory;
+import com.mapbox.api.directions.v5.DirectionsCriteria;
+import com.mapbox.api.matrix.v1.MatrixAdapterFactory;
+import com.mapbox.api.matrix.v1.MatrixService;
+import com.mapbox.api.matrix.v1.models.MatrixResponse;
+import com.mapbox.core.constants.Constants;
+import com.mapbox.core.utils.ApiCallHelper;
+import com.mapbox.core.utils.TextUtils;
+import com.mapbox.geojson.Point;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * Computes duration matrices of any size with the Mapbox Matrix API, which accepts a limited number of
+ * coordinates per request.
+ * <p>
+ * A sources by destinations problem is split into tiles: blocks of sources paired with as many destinations
+ * as fit into one request, counting coordinates shared by both sides once. The tiles are requested on a
+ * bounded thread pool, sharing one HTTP client whose connection pool matches the thread pool, and assembled
+ * into a primitive matrix. Every computed cell is cached, so asking for
+ * the same pairs again, or for a matrix overlapping an earlier one, only requests the missing cells.
+ * Progress and results are delivered on the main thread.
+ * </p>
+ */
+public class TiledMatrixClient {
+
+  private static final String TAG = "TiledMatrixClient";
+
+  /**
+   * The coordinate limit of the driving, walking and cycling profiles.
+   */
+  public static final int DEFAULT_MAX_COORDINATES = 25;
+  private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 4;
+  private static final int DEFAULT_CACHE_SIZE = 20000;
+
+  /**
+   * Receives the progress and the result of a matrix computation on the main thread.
+   */
+  public interface Callback {
+
+    /**
+     * @param completedTiles the number of sub-requests completed so far
+     * @param totalTiles     the number of sub-requests needed
+     */
+    void onProgress(int completedTiles, int totalTiles);
+
+    /**
+     * @param durations the durations in seconds indexed by source and destination, NaN for pairs without a route
+     */
+    void onResult(@NonNull double[][] durations);
+
+    /**
+     * @param throwable the reason a sub-request failed; the remaining ones are cancelled
+     */
+    void onError(@NonNull Throwable throwable);
+  }
+
+  private final String accessToken;
+  private final String profile;
+  private final int maxCoordinates;
+  private final ExecutorService executorService;
+  private final Executor callbackExecutor;
+  private final OkHttpClient okHttpClient;
+  private final Map<String, Double> cellCache;
+  private String baseUrl = Constants.BASE_API_URL;
+  private MatrixService matrixService;
+  private volatile int generation;
+
+  // Metrics
+  private int requestCount;
+  private long cellsRequested;
+  private long cellsFromCache;
+
+  /**
+   * @param accessToken    the Mapbox access token
+   * @param profile        a DirectionsCriteria profile
+   * @param maxCoordinates the coordinate limit of a single request for the profile
+   * @param maxConcurrent  the number of sub-requests running at the same time
+   */
+  public TiledMatrixClient(@NonNull String accessToken, @NonNull String profile, int maxCoordinates,
+                           int maxConcurrent) {
+    this(accessToken, profile, maxCoordinates, maxConcurrent, new Executor() {
+      private final Handler handler = new Handler(Looper.getMainLooper());
+
+      @Override
+      public void execute(@NonNull Runnable runnable) {
+        handler.post(runnable);
+      }
+    });
+  }
+
+  public TiledMatrixClient(@NonNull String accessToken, @NonNull String profile) {
+    this(accessToken, profile, DEFAULT_MAX_COORDINATES, DEFAULT_MAX_CONCURRENT_REQUESTS);
+  }
+
+  /**
+   * @param callbackExecutor runs the callbacks, posting them to the main thread outside of tests
+   */
+  TiledMatrixClient(@NonNull String accessToken, @NonNull String profile, int maxCoordinates, int maxConcurrent,
+                    @NonNull Executor callbackExecutor) {
+    if (maxCoordinates < 2) {
+      throw new IllegalArgumentException("A request needs room for at least two coordinates");
+    }
+    this.accessToken = accessToken;
+    this.profile = profile;
+    this.maxCoordinates = maxCoordinates;
+    this.executorService = Executors.newFixedThreadPool(maxConcurrent);
+    this.callbackExecutor = callbackExecutor;
+    this.okHttpClient = new OkHttpClient.Builder()
+      .connectionPool(new ConnectionPool(maxConcurrent, 5, TimeUnit.MINUTES))
+      .build();
+    this.cellCache = new LinkedHashMap<String, Double>(256, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Double> eldest) {
+        return size() > DEFAULT_CACHE_SIZE;
+      }
+    };
+  }
+
+  /**
+   * Points the client at another server, e.g. a local mock server.
+   *
+   * @param baseUrl the base URL of the Matrix API
+   */
+  public synchronized void setBaseUrl(@NonNull String baseUrl) {
+    this.baseUrl = baseUrl;
+    matrixService = null;
+  }
+
+  /**
+   * Computes the durations from every source to every destination. A computation still running is cancelled.
+   *
+   * @param sources      the origins, the rows of the result
+   * @param destinations the targets, the columns of the result
+   * @param callback     receives progress and result
+   */
+  public void computeDurations(@NonNull List<Point> sources, @NonNull List<Point> destinations,
+                               @NonNull final Callback callback) {
+    final int token = ++generation;
+    final long startTime = SystemClock.elapsedRealtime();
+    final double[][] durations = new double[sources.size()][destinations.size()];
+    List<Tile> tiles = planTiles(sources, destinations, durations);
+    final int totalTiles = tiles.size();
+    if (totalTiles == 0) {
+      callback.onResult(durations);
+      return;
+    }
+    callback.onProgress(0, totalTiles);
+
+    final int[] completedTiles = new int[1];
+    for (final Tile tile : tiles) {
+      executorService.execute(new Runnable() {
+        @Override
+        public void run() {
+          if (token != generation) {
+            return;
+          }
+          final Throwable error = requestTile(tile, durations);
+          callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+              if (token != generation) {
+                return;
+              }
+              if (error != null) {
+                generation++;
+                callback.onError(error);
+                return;
+              }
+              completedTiles[0]++;
+              callback.onProgress(completedTiles[0], totalTiles);
+              if (completedTiles[0] == totalTiles) {
+                Log.d(TAG, "Computed a " + durations.length + "x" + durations[0].length + " matrix with "
+                  + totalTiles + " requests in " + (SystemClock.elapsedRealtime() - startTime) + " ms");
+                callback.onResult(durations);
+              }
+            }
+          });
+        }
+      });
+    }
+  }
+
+  /**
+   * Drops the result of a computation still running.
+   */
+  public void cancel() {
+    generation++;
+  }
+
+  /**
+   * Cancels running computations, stops the worker threads and logs the collected metrics, to be called
+   * from the activity's onDestroy.
+   */
+  public void shutdown() {
+    cancel();
+    executorService.shutdownNow();
+    okHttpClient.connectionPool().evictAll();
+    Log.d(TAG, getMetricsSummary());
+  }
+
+  /**
+   * Fills the cached cells of the result and splits the remaining ones into tiles. Sources are taken in
+   * blocks, and each block is paired with as many of the destinations it still misses as fit into a request.
+   */
+  private List<Tile> planTiles(List<Point> sources, List<Point> destinations, double[][] durations) {
+    List<Tile> tiles = new ArrayList<>();
+    int sourceCount = sources.size();
+    int destinationCount = destinations.size();
+    int blockSize = Math.max(1, Math.min(sourceCount,
+      maxCoordinates - Math.min(destinationCount, maxCoordinates / 2)));
+
+    for (int blockStart = 0; blockStart < sourceCount; blockStart += blockSize) {
+      int blockEnd = Math.min(sourceCount, blockStart + blockSize);
+
+      List<Integer> missingDestinations = new ArrayList<>();
+      synchronized (cellCache) {
+        for (int column = 0; column < destinationCount; column++) {
+          boolean missing = false;
+          for (int row = blockStart; row < blockEnd; row++) {
+            Double cached = cellCache.get(cellKey(sources.get(row), destinations.get(column)));
+            if (cached == null) {
+              missing = true;
+              cellsRequested++;
+            } else {
+              durations[row][column] = cached;
+              cellsFromCache++;
+            }
+          }
+          if (missing) {
+            missingDestinations.add(column);
+          }
+        }
+      }
+
+      Tile tile = null;
+      for (Integer column : missingDestinations) {
+        if (tile == null) {
+          tile = new Tile(sources, destinations, blockStart, blockEnd);
+        }
+        if (!tile.addDestination(column, maxCoordinates)) {
+          tiles.add(tile);
+          tile = new Tile(sources, destinations, blockStart, blockEnd);
+          tile.addDestination(column, maxCoordinates);
+        }
+      }
+      if (tile != null) {
+        tiles.add(tile);
+      }
+    }
+    return tiles;
+  }
+
+  private Throwable requestTile(Tile tile, double[][] durations) {
+    Response<MatrixResponse> response;
+    try {
+      synchronized (this) {
+        requestCount++;
+      }
+      response = getMatrixService().getCall(ApiCallHelper.getHeaderUserAgent(null),
+        DirectionsCriteria.PROFILE_DEFAULT_USER, profile, formatCoordinates(tile.coordinates), accessToken,
+        TextUtils.join(";", tile.destinationIndices.toArray()), TextUtils.join(";", tile.sourceIndices.toArray()))
+        .execute();
+    } catch (IOException | RuntimeException exception) {
+      return exception;
+    }
+    if (!response.isSuccessful() || response.body() == null || response.body().durations() == null) {
+      return new IOException("Matrix request failed with HTTP " + response.code());
+    }
+
+    List<Double[]> rows = response.body().durations();
+    if (rows.size() != tile.rows.size()) {
+      return new IOException("Matrix response has " + rows.size() + " rows instead of " + tile.rows.size());
+    }
+    for (Double[] values : rows) {
+      if (values == null || values.length != tile.columns.size()) {
+        return new IOException("Matrix response has " + (values == null ? 0 : values.length)
+          + " columns instead of " + tile.columns.size());
+      }
+    }
+    synchronized (cellCache) {
+      for (int i = 0; i < tile.rows.size(); i++) {
+        int row = tile.rows.get(i);
+        Double[] values = rows.get(i);
+        for (int j = 0; j < tile.columns.size(); j++) {
+          int column = tile.columns.get(j);
+          Double value = values[j];
+          double duration = value != null ? value : Double.NaN;
+          durations[row][column] = duration;
+          cellCache.put(cellKey(tile.sourcePoints.get(i), tile.destinationPoints.get(j)), duration);
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Creates the Retrofit service on first use, shared by all requests until the base URL changes.
+   */
+  private synchronized MatrixService getMatrixService() {
+    if (matrixService == null) {
+      matrixService = new Retrofit.Builder()
+        .baseUrl(baseUrl)
+        .client(okHttpClient)
+        .addConverterFactory(GsonConverterFactory.create(new GsonBuilder()
+          .registerTypeAdapterFactory(MatrixAdapterFactory.create())
+          .registerTypeAdapterFactory(DirectionsAdapterFactory.create())
+          .create()))
+        .build()
+        .create(MatrixService.class);
+    }
+    return matrixService;
+  }
+
+  private static String formatCoordinates(List<Point> coordinates) {
+    String[] formatted = new String[coordinates.size()];
+    for (int i = 0; i < formatted.length; i++) {
+      Point point = coordinates.get(i);
+      formatted[i] = String.format(Locale.US, "%s,%s", TextUtils.formatCoordinate(point.longitude()),
+        TextUtils.formatCoordinate(point.latitude()));
+    }
+    return TextUtils.join(";", formatted);
+  }
+
+  private String cellKey(Point source, Point destination) {
+    return profile + ';' + source.longitude() + ',' + source.latitude() + ';'
+      + destination.longitude() + ',' + destination.latitude();
+  }
+
+  public String getMetricsSummary() {
+    return "Matrix requests: " + requestCount + ", cells requested: " + cellsRequested + ", cells from cache: "
+      + cellsFromCache + ", cached cells: " + cellCache.size();
+  }
+
+  /**
+   * A block of sources and the destinations requested with them in a single request, with the coordinates
+   * both sides share sent once.
+   */
+  private static class Tile {
+
+    private final List<Point> destinations;
+    private final List<Point> coordinates = new ArrayList<>();
+    private final Map<Point, Integer> coordinateIndices = new LinkedHashMap<>();
+    private final List<Integer> rows = new ArrayList<>();
+    private final List<Integer> sourceIndices = new ArrayList<>();
+    private final List<Point> sourcePoints = new ArrayList<>();
+    private final List<Integer> columns = new ArrayList<>();
+    private final List<Integer> destinationIndices = new ArrayList<>();
+    private final List<Point> destinationPoints = new ArrayList<>();
+
+    Tile(List<Point> sources, List<Point> destinations, int blockStart, int blockEnd) {
+      this.destinations = destinations;
+      for (int row = blockStart; row < blockEnd; row++) {
+        Point point = sources.get(row);
+        rows.add(row);
+        sourcePoints.add(point);
+        sourceIndices.add(indexOf(point));
+      }
+    }
+
+    /**
+     * @return false if the destination would exceed the coordinate limit
+     */
+    boolean addDestination(int column, int maxCoordinates) {
+      Point point = destinations.get(column);
+      if (!coordinateIndices.containsKey(point) && coordinates.size() >= maxCoordinates) {
+        return false;
+      }
+      columns.add(column);
+      destinationPoints.add(point);
+      destinationIndices.add(indexOf(point));
+      return true;
+    }
+
+    private int indexOf(Point point) {
+      Integer index = coordinateIndices.get(point);
+      if (index == null) {
+        index = coordinates.size();
+        coordinates.add(point);
+        coordinateIndices.put(point, index);
+      }
+      return index;
+    }
+  }
+}
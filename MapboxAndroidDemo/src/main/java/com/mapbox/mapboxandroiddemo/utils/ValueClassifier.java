@@ -0,0 +1,143 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Splits values into classes for a choropleth, by quantiles or by Jenks natural breaks.
+ * <p>
+ * The breaks are the lower bounds of every class but the first, so {@code classCount - 1} values. Jenks natural
+ * breaks need time quadratic in the number of values, so with more than {@link #JENKS_SAMPLE_SIZE} values they
+ * are computed on evenly spaced samples of the sorted values, which keeps tables with tens of thousands of
+ * values fast while changing the breaks very little.
+ * </p>
+ */
+public class ValueClassifier {
+
+  /**
+   * The number of values Jenks natural breaks are computed on at most.
+   */
+  public static final int JENKS_SAMPLE_SIZE = 1000;
+
+  private ValueClassifier() {
+    // Utility class
+  }
+
+  /**
+   * Computes breaks that put about the same number of values into every class.
+   *
+   * @param values     the values, which are left unchanged
+   * @param classCount the number of classes
+   * @return the lower bounds of the classes after the first, in ascending order
+   */
+  public static double[] quantileBreaks(@NonNull double[] values, int classCount) {
+    double[] sorted = sortedCopy(values, classCount);
+    double[] breaks = new double[classCount - 1];
+    if (sorted.length == 0) {
+      return breaks;
+    }
+    for (int i = 1; i < classCount; i++) {
+      breaks[i - 1] = sorted[(int) ((long) i * sorted.length / classCount)];
+    }
+    return breaks;
+  }
+
+  /**
+   * Computes breaks that minimize the variance of the values within every class.
+   *
+   * @param values     the values, which are left unchanged
+   * @param classCount the number of classes
+   * @return the lower bounds of the classes after the first, in ascending order
+   */
+  public static double[] jenksBreaks(@NonNull double[] values, int classCount) {
+    double[] sorted = sortedCopy(values, classCount);
+    double[] breaks = new double[classCount - 1];
+    if (sorted.length == 0) {
+      return breaks;
+    }
+    if (sorted.length > JENKS_SAMPLE_SIZE) {
+      double[] samples = new double[JENKS_SAMPLE_SIZE];
+      for (int i = 0; i < JENKS_SAMPLE_SIZE; i++) {
+        samples[i] = sorted[(int) ((long) i * (sorted.length - 1) / (JENKS_SAMPLE_SIZE - 1))];
+      }
+      sorted = samples;
+    }
+    int count = sorted.length;
+    int classes = Math.min(classCount, count);
+    // lowerClassLimits[l][m] is the index, counted from 1, the last of m classes starts at when they hold the
+    // first l values; variances[l][m] is the smallest total variance of that split
+    int[][] lowerClassLimits = new int[count + 1][classes + 1];
+    double[][] variances = new double[count + 1][classes + 1];
+    for (int m = 1; m <= classes; m++) {
+      lowerClassLimits[1][m] = 1;
+      for (int l = 2; l <= count; l++) {
+        variances[l][m] = Double.POSITIVE_INFINITY;
+      }
+    }
+    for (int l = 2; l <= count; l++) {
+      double sum = 0;
+      double sumOfSquares = 0;
+      double variance = 0;
+      for (int m = 1; m <= l; m++) {
+        int lowerIndex = l - m + 1;
+        double value = sorted[lowerIndex - 1];
+        sum += value;
+        sumOfSquares += value * value;
+        variance = sumOfSquares - sum * sum / m;
+        if (lowerIndex > 1) {
+          for (int j = 2; j <= classes; j++) {
+            double candidate = variance + variances[lowerIndex - 1][j - 1];
+            if (variances[l][j] >= candidate) {
+              lowerClassLimits[l][j] = lowerIndex;
+              variances[l][j] = candidate;
+            }
+          }
+        }
+      }
+      lowerClassLimits[l][1] = 1;
+      variances[l][1] = variance;
+    }
+    // walk the class limits back from the last value; classes that couldn't be filled repeat the last break
+    int limit = count;
+    for (int j = classes; j >= 2; j--) {
+      int lowerIndex = lowerClassLimits[limit][j];
+      breaks[j - 2] = sorted[lowerIndex - 1];
+      limit = lowerIndex - 1;
+    }
+    for (int j = classes - 1; j < breaks.length; j++) {
+      breaks[j] = j > 0 ? breaks[j - 1] : sorted[count - 1];
+    }
+    return breaks;
+  }
+
+  /**
+   * Finds the class of a value.
+   *
+   * @param value  the value
+   * @param breaks breaks as computed by this class
+   * @return the index of the class, from 0 to the number of breaks
+   */
+  public static int classify(double value, @NonNull double[] breaks) {
+    int low = 0;
+    int high = breaks.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (value >= breaks[middle]) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private static double[] sortedCopy(double[] values, int classCount) {
+    if (classCount < 1) {
+      throw new IllegalArgumentException("There must be at least one class");
+    }
+    double[] sorted = Arrays.copyOf(values, values.length);
+    Arrays.sort(sorted);
+    return sorted;
+  }
+}
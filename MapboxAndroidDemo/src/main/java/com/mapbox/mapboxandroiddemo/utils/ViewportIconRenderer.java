@@ -0,0 +1,310 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Point;
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Renders view-based symbol icons incrementally, only for the features inside the current viewport.
+ * <p>
+ * Whenever the camera comes to rest, the features inside the visible bounds that don't have an icon yet
+ * are looked up in a {@link PackedHilbertRTree} built once over all features, ordered nearest-first from
+ * the camera target and rendered on a background thread. Icons are handed back to the main thread in small
+ * batches, so each frame only pays for a handful of {@link MapboxMap#addImages(HashMap)} uploads. A camera
+ * move cancels the batches still pending for the previous viewport. The time every viewport lookup takes is
+ * measured.
+ * </p>
+ */
+public class ViewportIconRenderer implements MapboxMap.OnCameraIdleListener {
+
+  private static final String TAG = "ViewportIconRenderer";
+  private static final int DEFAULT_BATCH_SIZE = 4;
+
+  /**
+   * Creates the icon for a feature. {@link #createIcon(Feature)} is called on a background thread.
+   */
+  public interface IconFactory {
+
+    /**
+     * @param feature a feature of the rendered collection
+     * @return the image id the feature's SymbolLayer refers to
+     */
+    @NonNull
+    String getIconId(@NonNull Feature feature);
+
+    /**
+     * @param feature a feature inside the viewport that doesn't have an icon yet
+     * @return the icon, or null to skip the feature
+     */
+    @Nullable
+    Bitmap createIcon(@NonNull Feature feature);
+
+    /**
+     * Called on the main thread for an icon that was created but is dropped, because another pass handed
+     * the same icon to the map first. The map never sees the Bitmap, so it can be reused right away.
+     *
+     * @param iconId the image id of the icon
+     * @param icon   the Bitmap returned by {@link #createIcon(Feature)}
+     */
+    void releaseIcon(@NonNull String iconId, @NonNull Bitmap icon);
+  }
+
+  /**
+   * Receives rendered icons on the main thread.
+   */
+  public interface OnIconsReadyListener {
+
+    /**
+     * @param icons the batch of icons, keyed by image id, ready for {@link MapboxMap#addImages(HashMap)}
+     */
+    void onIconsReady(@NonNull HashMap<String, Bitmap> icons);
+  }
+
+  private final MapboxMap mapboxMap;
+  private final List<Feature> features;
+  private final PackedHilbertRTree index;
+  private final IconFactory iconFactory;
+  private final OnIconsReadyListener listener;
+  private final int batchSize;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private final Set<String> renderedIconIds = new HashSet<>();
+  private volatile int generation;
+  private boolean stopped;
+
+  // Metrics, only touched on the main thread
+  private long startTime;
+  private long timeToFirstIcon = -1;
+  private int iconsRendered;
+  private int batchesDelivered;
+  private int maxIconsPerBatch;
+  private int queryCount;
+  private long totalQueryTime;
+
+  public ViewportIconRenderer(@NonNull MapboxMap mapboxMap, @NonNull List<Feature> features,
+                              @NonNull IconFactory iconFactory, @NonNull OnIconsReadyListener listener) {
+    this(mapboxMap, features, iconFactory, listener, DEFAULT_BATCH_SIZE);
+  }
+
+  public ViewportIconRenderer(@NonNull MapboxMap mapboxMap, @NonNull List<Feature> features,
+                              @NonNull IconFactory iconFactory, @NonNull OnIconsReadyListener listener,
+                              int batchSize) {
+    this.mapboxMap = mapboxMap;
+    this.features = features;
+    this.index = PackedHilbertRTree.fromFeatures(features);
+    this.iconFactory = iconFactory;
+    this.listener = listener;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Renders the icons of the current viewport and keeps following the camera.
+   */
+  public void start() {
+    startTime = SystemClock.elapsedRealtime();
+    mapboxMap.addOnCameraIdleListener(this);
+    refresh();
+  }
+
+  /**
+   * Stops following the camera, drops all pending work and logs the collected metrics.
+   */
+  public void stop() {
+    mapboxMap.removeOnCameraIdleListener(this);
+    stopped = true;
+    generation++;
+    executor.shutdownNow();
+    mainHandler.removeCallbacksAndMessages(null);
+    Log.d(TAG, getMetricsSummary());
+  }
+
+  /**
+   * Marks an icon as outdated, so it's rendered again the next time its feature is in the viewport.
+   *
+   * @param iconId the image id of the icon
+   */
+  public void invalidate(@NonNull String iconId) {
+    renderedIconIds.remove(iconId);
+  }
+
+  @Override
+  public void onCameraIdle() {
+    refresh();
+  }
+
+  /**
+   * Queues the icons of the features inside the current viewport that haven't been rendered yet,
+   * cancelling what was still queued for a previous viewport.
+   */
+  public void refresh() {
+    LatLngBounds bounds = mapboxMap.getProjection().getVisibleRegion().latLngBounds;
+    LatLng target = mapboxMap.getCameraPosition().target;
+    final List<Feature> pending = collectPending(bounds, target);
+    final int token = ++generation;
+    if (pending.isEmpty()) {
+      return;
+    }
+
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        HashMap<String, Bitmap> batch = new HashMap<>();
+        for (Feature feature : pending) {
+          if (token != generation) {
+            // the icons created so far are still delivered, rather than dropped without being released
+            break;
+          }
+          Bitmap icon = iconFactory.createIcon(feature);
+          if (icon != null) {
+            batch.put(iconFactory.getIconId(feature), icon);
+          }
+          if (batch.size() >= batchSize) {
+            deliver(batch);
+            batch = new HashMap<>();
+          }
+        }
+        if (!batch.isEmpty()) {
+          deliver(batch);
+        }
+      }
+    });
+  }
+
+  private List<Feature> collectPending(LatLngBounds bounds, LatLng target) {
+    double north = bounds.getLatNorth();
+    double south = bounds.getLatSouth();
+    double east = bounds.getLonEast();
+    double west = bounds.getLonWest();
+    double lonScale = Math.cos(Math.toRadians(target.getLatitude()));
+
+    long queryStart = System.nanoTime();
+    int[] hits = index.search(west, south, east, north);
+    totalQueryTime += System.nanoTime() - queryStart;
+    queryCount++;
+
+    List<Feature> candidates = new ArrayList<>(hits.length);
+    List<Double> distances = new ArrayList<>(hits.length);
+    for (int hit : hits) {
+      Feature feature = index.getFeature(hit);
+      if (!(feature.geometry() instanceof Point) || renderedIconIds.contains(iconFactory.getIconId(feature))) {
+        continue;
+      }
+      Point point = (Point) feature.geometry();
+      double latitude = point.latitude();
+      double longitude = point.longitude();
+      double dx = (longitude - target.getLongitude()) * lonScale;
+      double dy = latitude - target.getLatitude();
+      candidates.add(feature);
+      distances.add(dx * dx + dy * dy);
+    }
+
+    // Nearest first, so the icons around the camera target show up before the ones at the edges
+    int count = candidates.size();
+    Integer[] order = new Integer[count];
+    final double[] sortKeys = new double[count];
+    for (int i = 0; i < count; i++) {
+      order[i] = i;
+      sortKeys[i] = distances.get(i);
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer first, Integer second) {
+        return Double.compare(sortKeys[first], sortKeys[second]);
+      }
+    });
+
+    List<Feature> pending = new ArrayList<>(count);
+    for (Integer index : order) {
+      pending.add(candidates.get(index));
+    }
+    return pending;
+  }
+
+  private void deliver(final HashMap<String, Bitmap> batch) {
+    mainHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        // Icons of a cancelled viewport are still valid, only skip those another pass already added, or all
+        // of them once stopped
+        Iterator<Map.Entry<String, Bitmap>> iterator = batch.entrySet().iterator();
+        while (iterator.hasNext()) {
+          Map.Entry<String, Bitmap> entry = iterator.next();
+          if (stopped || renderedIconIds.contains(entry.getKey())) {
+            iconFactory.releaseIcon(entry.getKey(), entry.getValue());
+            iterator.remove();
+          }
+        }
+        if (batch.isEmpty()) {
+          return;
+        }
+        if (timeToFirstIcon < 0) {
+          timeToFirstIcon = SystemClock.elapsedRealtime() - startTime;
+          Log.d(TAG, "Time to first icon: " + timeToFirstIcon + " ms");
+        }
+        renderedIconIds.addAll(batch.keySet());
+        iconsRendered += batch.size();
+        batchesDelivered++;
+        maxIconsPerBatch = Math.max(maxIconsPerBatch, batch.size());
+        listener.onIconsReady(batch);
+      }
+    });
+  }
+
+  /**
+   * @return milliseconds between {@link #start()} and the first icon reaching the map, or -1 if none has
+   */
+  public long getTimeToFirstIcon() {
+    return timeToFirstIcon;
+  }
+
+  /**
+   * @return the number of icons handed to the map so far
+   */
+  public int getIconsRendered() {
+    return iconsRendered;
+  }
+
+  /**
+   * @return the average number of icons uploaded per main thread batch, i.e. per frame
+   */
+  public float getAverageIconsPerBatch() {
+    return batchesDelivered == 0 ? 0 : (float) iconsRendered / batchesDelivered;
+  }
+
+  /**
+   * @return the average time, in microseconds, it took to look up the features inside the viewport
+   */
+  public long getAverageQueryMicros() {
+    return queryCount == 0 ? 0 : totalQueryTime / queryCount / 1000;
+  }
+
+  public String getMetricsSummary() {
+    return "Icons rendered: " + iconsRendered + " of " + features.size()
+      + ", time to first icon: " + timeToFirstIcon + " ms"
+      + ", batches: " + batchesDelivered
+      + ", icons per batch: avg " + getAverageIconsPerBatch() + " / max " + maxIconsPerBatch
+      + ", viewport lookups: " + queryCount + ", average " + getAverageQueryMicros() + " us";
+  }
+}
@@ -0,0 +1,214 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+import com.mapbox.mapboxsdk.style.layers.Layer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static com.mapbox.mapboxsdk.style.layers.Property.NONE;
+import static com.mapbox.mapboxsdk.style.layers.Property.VISIBLE;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.visibility;
+
+/**
+ * Shows layers only within the zoom range they were registered for, touching the style only when the camera
+ * crosses a zoom boundary.
+ * <p>
+ * The boundaries of all registered ranges split the zoom levels into bands. Every camera move only compares the
+ * zoom level with the boundaries of the current band, so moves within a band cost no style lookups and no layer
+ * changes. The camera has to move past a boundary by the hysteresis before the band changes, so a camera resting
+ * at a boundary doesn't make layers flicker. When the band changes, only layers whose visibility differs between
+ * the old and the new band are changed. The style mutations per second are counted and logged together with
+ * the camera moves seen, which is the number of changes made when every move set the visibility.
+ * </p>
+ */
+public class ZoomBandVisibilityController implements MapboxMap.OnCameraMoveListener {
+
+  private static final String TAG = "ZoomBandVisibility";
+
+  private static class Entry {
+
+    private final String layerId;
+    private final float minZoom;
+    private final float maxZoom;
+    private int minBand;
+    private int maxBand;
+
+    Entry(String layerId, float minZoom, float maxZoom) {
+      this.layerId = layerId;
+      this.minZoom = minZoom;
+      this.maxZoom = maxZoom;
+    }
+
+    boolean isVisibleIn(int band) {
+      return band >= minBand && band < maxBand;
+    }
+  }
+
+  private final MapboxMap mapboxMap;
+  private final float hysteresis;
+  private final List<Entry> entries = new ArrayList<>();
+  private float[] boundaries = new float[0];
+  private int currentBand = -1;
+  private boolean started;
+
+  // Metrics
+  private long startTime;
+  private int cameraMoveCount;
+  private int bandChangeCount;
+  private int mutationCount;
+  private int windowMutationCount;
+  private long windowStartTime;
+  private int peakMutationsPerSecond;
+
+  /**
+   * @param mapboxMap  the map the layers are part of
+   * @param hysteresis the zoom distance the camera has to move past a boundary before the band changes
+   */
+  public ZoomBandVisibilityController(@NonNull MapboxMap mapboxMap, float hysteresis) {
+    this.mapboxMap = mapboxMap;
+    this.hysteresis = hysteresis;
+  }
+
+  /**
+   * Registers a layer to be visible from one zoom level up to, but not including, another.
+   *
+   * @param layerId the ID of a layer added to the map
+   * @param minZoom the lowest zoom level the layer is visible at
+   * @param maxZoom the zoom level the layer is hidden again at, Float.POSITIVE_INFINITY to keep it visible up to
+   *                the map's maximum zoom
+   */
+  public void addLayer(@NonNull String layerId, float minZoom, float maxZoom) {
+    if (minZoom >= maxZoom) {
+      throw new IllegalArgumentException("The minimum zoom must be below the maximum zoom");
+    }
+    entries.add(new Entry(layerId, minZoom, maxZoom));
+    buildBands();
+    if (started) {
+      applyBand(findBand(getZoom()), true);
+    }
+  }
+
+  /**
+   * Sets the visibility of every registered layer for the current zoom level and starts following the camera.
+   */
+  public void start() {
+    if (started) {
+      return;
+    }
+    started = true;
+    startTime = SystemClock.elapsedRealtime();
+    windowStartTime = startTime;
+    applyBand(findBand(getZoom()), true);
+    mapboxMap.addOnCameraMoveListener(this);
+  }
+
+  /**
+   * Stops following the camera and logs the collected metrics, to be called from the activity's onDestroy.
+   */
+  public void onDestroy() {
+    mapboxMap.removeOnCameraMoveListener(this);
+    started = false;
+    Log.d(TAG, getMetricsSummary());
+  }
+
+  @Override
+  public void onCameraMove() {
+    cameraMoveCount++;
+    double zoom = getZoom();
+    int band = currentBand;
+    while (band > 0 && zoom < boundaries[band - 1] - hysteresis) {
+      band--;
+    }
+    while (band < boundaries.length && zoom >= boundaries[band] + hysteresis) {
+      band++;
+    }
+    if (band != currentBand) {
+      applyBand(band, false);
+    }
+  }
+
+  /**
+   * @return the index of the current zoom band, 0 being the band below the lowest boundary
+   */
+  public int getCurrentBand() {
+    return currentBand;
+  }
+
+  private double getZoom() {
+    return mapboxMap.getCameraPosition().zoom;
+  }
+
+  private void buildBands() {
+    float[] zoomLevels = new float[entries.size() * 2];
+    int count = 0;
+    for (Entry entry : entries) {
+      zoomLevels[count++] = entry.minZoom;
+      zoomLevels[count++] = entry.maxZoom;
+    }
+    Arrays.sort(zoomLevels);
+    int uniqueCount = 0;
+    for (int i = 0; i < zoomLevels.length; i++) {
+      if (uniqueCount == 0 || zoomLevels[i] != zoomLevels[uniqueCount - 1]) {
+        zoomLevels[uniqueCount++] = zoomLevels[i];
+      }
+    }
+    boundaries = Arrays.copyOf(zoomLevels, uniqueCount);
+    for (Entry entry : entries) {
+      // band i lies between boundaries i - 1 and i
+      entry.minBand = Arrays.binarySearch(boundaries, entry.minZoom) + 1;
+      entry.maxBand = Arrays.binarySearch(boundaries, entry.maxZoom) + 1;
+    }
+  }
+
+  private int findBand(double zoom) {
+    int band = 0;
+    while (band < boundaries.length && zoom >= boundaries[band]) {
+      band++;
+    }
+    return band;
+  }
+
+  private void applyBand(int band, boolean force) {
+    int previousBand = currentBand;
+    currentBand = band;
+    if (!force) {
+      bandChangeCount++;
+    }
+    for (Entry entry : entries) {
+      boolean visible = entry.isVisibleIn(band);
+      if (!force && visible == entry.isVisibleIn(previousBand)) {
+        continue;
+      }
+      Layer layer = mapboxMap.getLayer(entry.layerId);
+      if (layer != null) {
+        layer.setProperties(visibility(visible ? VISIBLE : NONE));
+        countMutation();
+      }
+    }
+  }
+
+  private void countMutation() {
+    mutationCount++;
+    long now = SystemClock.elapsedRealtime();
+    if (now - windowStartTime >= 1000) {
+      windowStartTime = now;
+      windowMutationCount = 0;
+    }
+    windowMutationCount++;
+    peakMutationsPerSecond = Math.max(peakMutationsPerSecond, windowMutationCount);
+  }
+
+  public String getMetricsSummary() {
+    long elapsed = Math.max(1, SystemClock.elapsedRealtime() - startTime);
+    return "Camera moves: " + cameraMoveCount + ", band changes: " + bandChangeCount + ", style mutations: "
+      + mutationCount + String.format(Locale.US, " (%.2f/s, peak %d/s), camera moves: %.2f/s",
+      mutationCount * 1000.0 / elapsed, peakMutationsPerSecond, cameraMoveCount * 1000.0 / elapsed);
+  }
+}
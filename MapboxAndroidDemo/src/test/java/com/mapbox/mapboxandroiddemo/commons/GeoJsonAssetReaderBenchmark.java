@@ -0,0 +1,152 @@
+package com.mapbox.mapboxandroiddemo.commons;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares streaming the la_hotels and fake_norway_campsites assets with reading the whole file into a String
+ * and parsing it with FeatureCollection#fromJson, the way the examples loaded them before.
+ * <p>
+ * Two things are measured: the time until the first feature is available, and the peak live heap while every
+ * feature is loaded. The live heap is taken right after a collection, at the point where each path holds the
+ * most: for the String path once fromJson returned while the String is still referenced, for streaming at the
+ * last feature while the reader is still open. Runs only with -Pbenchmarks, see the app's build.gradle.
+ * </p>
+ */
+public class GeoJsonAssetReaderBenchmark {
+
+  private static final String ASSETS = "src/main/assets/";
+  private static final int WARM_UP_RUNS = 3;
+  private static final int MEASURED_RUNS = 7;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  @Test
+  public void laHotels() throws IOException {
+    compare("la_hotels.geojson");
+  }
+
+  @Test
+  public void norwayCampsites() throws IOException {
+    compare("fake_norway_campsites.geojson");
+  }
+
+  private static void compare(String asset) throws IOException {
+    File file = new File(ASSETS + asset);
+    int featureCount = FeatureCollection.fromJson(readString(new FileInputStream(file))).features().size();
+
+    for (int run = 0; run < WARM_UP_RUNS; run++) {
+      timeToFirstStreamedFeature(file);
+      timeToFirstParsedFeature(file);
+    }
+    long[] streamTimes = new long[MEASURED_RUNS];
+    long[] stringTimes = new long[MEASURED_RUNS];
+    for (int run = 0; run < MEASURED_RUNS; run++) {
+      streamTimes[run] = timeToFirstStreamedFeature(file);
+      stringTimes[run] = timeToFirstParsedFeature(file);
+    }
+    long streamTime = median(streamTimes);
+    long stringTime = median(stringTimes);
+
+    long baseline = liveHeap();
+    long streamHeap = streamedPeakHeap(file, featureCount) - baseline;
+    baseline = liveHeap();
+    long stringHeap = parsedPeakHeap(file) - baseline;
+
+    String summary = asset + ", " + featureCount + " features: first feature after " + streamTime / 1000
+      + " us streamed, " + stringTime / 1000 + " us through a String; peak heap " + streamHeap / 1024
+      + " KB streamed, " + stringHeap / 1024 + " KB through a String";
+    assertTrue(summary, streamTime < stringTime);
+    assertTrue(summary, streamHeap < stringHeap);
+  }
+
+  private static long streamedPeakHeap(File file, final int featureCount) throws IOException {
+    final List<Feature> features = new ArrayList<>();
+    final long[] peakHeap = new long[1];
+    GeoJsonAssetReader.readFeatures(new FileInputStream(file), new GeoJsonAssetReader.OnFeatureReadListener() {
+      @Override
+      public boolean onFeatureRead(@NonNull Feature feature) {
+        features.add(feature);
+        if (features.size() == featureCount) {
+          peakHeap[0] = liveHeap();
+        }
+        return true;
+      }
+    });
+    assertEquals(featureCount, features.size());
+    return peakHeap[0];
+  }
+
+  private static long parsedPeakHeap(File file) throws IOException {
+    String json = readString(new FileInputStream(file));
+    FeatureCollection featureCollection = FeatureCollection.fromJson(json);
+    long peakHeap = liveHeap();
+    // both stay reachable up to the measurement, as they were in the examples
+    assertTrue(json.length() > 0 && featureCollection.features().size() > 0);
+    return peakHeap;
+  }
+
+  private static long timeToFirstStreamedFeature(File file) throws IOException {
+    final long startTime = System.nanoTime();
+    final long[] firstFeatureTime = new long[1];
+    GeoJsonAssetReader.readFeatures(new FileInputStream(file), new GeoJsonAssetReader.OnFeatureReadListener() {
+      @Override
+      public boolean onFeatureRead(@NonNull Feature feature) {
+        firstFeatureTime[0] = System.nanoTime();
+        return false;
+      }
+    });
+    return firstFeatureTime[0] - startTime;
+  }
+
+  private static long timeToFirstParsedFeature(File file) throws IOException {
+    long startTime = System.nanoTime();
+    FeatureCollection featureCollection = FeatureCollection.fromJson(readString(new FileInputStream(file)));
+    assertTrue(featureCollection.features().get(0) != null);
+    return System.nanoTime() - startTime;
+  }
+
+  private static long liveHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static long median(long[] times) {
+    long[] sorted = Arrays.copyOf(times, times.length);
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2];
+  }
+
+  private static String readString(InputStream inputStream) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int count;
+    try {
+      while ((count = inputStream.read(buffer)) != -1) {
+        bytes.write(buffer, 0, count);
+      }
+    } finally {
+      inputStream.close();
+    }
+    return new String(bytes.toByteArray(), UTF_8);
+  }
+}
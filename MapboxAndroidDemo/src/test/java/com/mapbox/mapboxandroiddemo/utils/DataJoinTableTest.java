@@ -0,0 +1,87 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class DataJoinTableTest {
+
+  @Test
+  public void fromJson_readsKeysAndValues() throws IOException {
+    String json = "[{\"STATE_ID\": \"01\", \"unemployment\": 3.9, \"name\": {\"full\": \"Alabama\"}},"
+      + "{\"unemployment\": \"4.5\", \"STATE_ID\": 2, \"tags\": [1, 2]},"
+      + "{\"STATE_ID\": null, \"unemployment\": 5},"
+      + "{\"STATE_ID\": \"04\", \"unemployment\": \"n/a\"},"
+      + "{\"STATE_ID\": \"05\"}]";
+
+    DataJoinTable table = DataJoinTable.fromJson(new StringReader(json), "STATE_ID", "unemployment");
+
+    assertEquals(2, table.size());
+    assertEquals("01", table.getKey(0));
+    assertEquals(3.9, table.getValue(0), 0);
+    assertEquals("2", table.getKey(1));
+    assertEquals(4.5, table.getValue(1), 0);
+    assertArrayEquals(new double[] {3.9, 4.5}, table.getValues(), 0);
+    assertEquals(3, table.getSkippedCount());
+  }
+
+  @Test
+  public void fromCsv_readsQuotedFields() throws IOException {
+    String csv = "name,STATE_ID,unemployment\n"
+      + "\"Washington, D.C.\",11,5.6\n"
+      + "\n"
+      + "\"The \"\"Golden\"\" State\", 06 , 4.1\n"
+      + "Guam,66\n"
+      + "Puerto Rico,72,unknown\n";
+
+    DataJoinTable table = DataJoinTable.fromCsv(new StringReader(csv), "STATE_ID", "unemployment");
+
+    assertEquals(2, table.size());
+    assertEquals("11", table.getKey(0));
+    assertEquals(5.6, table.getValue(0), 0);
+    assertEquals("06", table.getKey(1));
+    assertEquals(4.1, table.getValue(1), 0);
+    assertEquals(2, table.getSkippedCount());
+  }
+
+  @Test(expected = IOException.class)
+  public void fromCsv_failsWithoutTheValueColumn() throws IOException {
+    DataJoinTable.fromCsv(new StringReader("STATE_ID,rate\n01,3.9\n"), "STATE_ID", "unemployment");
+  }
+
+  @Test
+  public void fromCsv_ofEmptyText() throws IOException {
+    assertEquals(0, DataJoinTable.fromCsv(new StringReader(""), "STATE_ID", "unemployment").size());
+  }
+
+  @Test
+  public void tables_growPastTheirInitialCapacity() throws IOException {
+    StringBuilder csv = new StringBuilder("id,value\n");
+    for (int i = 0; i < 1000; i++) {
+      csv.append(i).append(',').append(i * 0.5).append('\n');
+    }
+
+    DataJoinTable table = DataJoinTable.fromCsv(new StringReader(csv.toString()), "id", "value");
+
+    assertEquals(1000, table.size());
+    assertEquals("999", table.getKey(999));
+    assertEquals(499.5, table.getValue(999), 0);
+  }
+
+  @Test
+  public void hash_isFnv1a() {
+    Charset ascii = Charset.forName("US-ASCII");
+
+    assertEquals(0xcbf29ce484222325L, DataJoinTable.hash(new byte[0]));
+    assertEquals(0xaf63dc4c8601ec8cL, DataJoinTable.hash("a".getBytes(ascii)));
+    assertEquals(0x85944171f73967e8L, DataJoinTable.hash("foobar".getBytes(ascii)));
+    assertNotEquals(DataJoinTable.hash("id,value\n1,2".getBytes(ascii)),
+      DataJoinTable.hash("id,value\n1,3".getBytes(ascii)));
+  }
+}
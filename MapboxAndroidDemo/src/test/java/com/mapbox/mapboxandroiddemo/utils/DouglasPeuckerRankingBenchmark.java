@@ -0,0 +1,113 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+import com.mapbox.geojson.utils.PolylineUtils;
+
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares simplifying the trace and marathon_route assets at several tolerances, e.g. while a slider is
+ * dragged, by ranking them once with {@link DouglasPeuckerRanking} against running
+ * {@link PolylineUtils#simplify(List, double, boolean)} for every tolerance. Both are checked to keep the same
+ * vertices. Runs only with -Pbenchmarks, see the app's build.gradle.
+ */
+public class DouglasPeuckerRankingBenchmark {
+
+  private static final String ASSETS = "src/main/assets/";
+  private static final double[] TOLERANCES = {1e-5, 2e-5, 5e-5, 1e-4, 2e-4, 5e-4, 1e-3};
+  private static final int WARM_UP_RUNS = 20;
+  private static final int MEASURED_RUNS = 21;
+  private static final int REPETITIONS = 20;
+
+  @Test
+  public void trace() throws IOException {
+    compare("trace.geojson", LineStringDecoder.decode(new FileInputStream(ASSETS + "trace.geojson")));
+  }
+
+  @Test
+  public void marathonRoute() throws IOException {
+    // the route is drawn as one small square per sample, in order; their first corners make up the line
+    Reader reader = new InputStreamReader(new FileInputStream(ASSETS + "marathon_route.geojson"), "UTF-8");
+    List<Feature> features;
+    try {
+      features = FeatureCollection.fromJson(readString(reader)).features();
+    } finally {
+      reader.close();
+    }
+    double[] coordinates = new double[features.size() * 2];
+    for (int i = 0; i < features.size(); i++) {
+      Point corner = ((Polygon) features.get(i).geometry()).coordinates().get(0).get(0);
+      coordinates[i * 2] = corner.longitude();
+      coordinates[i * 2 + 1] = corner.latitude();
+    }
+    compare("marathon_route.geojson", PackedLineString.fromLngLats(coordinates));
+  }
+
+  private static void compare(String asset, PackedLineString line) {
+    List<Point> points = line.toPoints();
+    DouglasPeuckerRanking checkRanking = DouglasPeuckerRanking.rank(line);
+    for (double tolerance : TOLERANCES) {
+      DouglasPeuckerRankingTest.assertSameLine(PolylineUtils.simplify(points, tolerance, true),
+        checkRanking.simplify(tolerance));
+    }
+
+    long[] rankingTimes = new long[MEASURED_RUNS];
+    long[] polylineUtilsTimes = new long[MEASURED_RUNS];
+    double[] buffer = new double[line.size() * 2];
+    int sink = 0;
+    for (int run = 0; run < WARM_UP_RUNS + MEASURED_RUNS; run++) {
+      long startTime = System.nanoTime();
+      for (int repetition = 0; repetition < REPETITIONS; repetition++) {
+        DouglasPeuckerRanking ranking = DouglasPeuckerRanking.rank(line);
+        for (double tolerance : TOLERANCES) {
+          sink += ranking.simplify(tolerance, buffer);
+        }
+      }
+      long rankingEnd = System.nanoTime();
+      for (int repetition = 0; repetition < REPETITIONS; repetition++) {
+        for (double tolerance : TOLERANCES) {
+          sink += PolylineUtils.simplify(points, tolerance, true).size();
+        }
+      }
+      long polylineUtilsEnd = System.nanoTime();
+      if (run >= WARM_UP_RUNS) {
+        rankingTimes[run - WARM_UP_RUNS] = (rankingEnd - startTime) / REPETITIONS;
+        polylineUtilsTimes[run - WARM_UP_RUNS] = (polylineUtilsEnd - rankingEnd) / REPETITIONS;
+      }
+    }
+
+    long rankingTime = median(rankingTimes);
+    long polylineUtilsTime = median(polylineUtilsTimes);
+    assertTrue(asset + ", " + line.size() + " vertices, " + TOLERANCES.length + " tolerances: ranked in "
+      + rankingTime / 1000 + " us, PolylineUtils#simplify in " + polylineUtilsTime / 1000 + " us",
+      sink > 0 && rankingTime < polylineUtilsTime);
+  }
+
+  private static long median(long[] times) {
+    long[] sorted = Arrays.copyOf(times, times.length);
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2];
+  }
+
+  private static String readString(Reader reader) throws IOException {
+    StringBuilder builder = new StringBuilder();
+    char[] buffer = new char[8192];
+    int count;
+    while ((count = reader.read(buffer)) != -1) {
+      builder.append(buffer, 0, count);
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,87 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.utils.PolylineUtils;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class DouglasPeuckerRankingTest {
+
+  private static final double[] TOLERANCES = {0, 1e-5, 1e-4, 3e-4, 1e-3, 1e-2, 1};
+
+  @Test
+  public void simplify_matchesPolylineUtilsAtHighestQuality() {
+    Random random = new Random(3);
+    for (int run = 0; run < 50; run++) {
+      PackedLineString line = randomWalk(random, 2 + random.nextInt(500));
+      DouglasPeuckerRanking ranking = DouglasPeuckerRanking.rank(line);
+      for (double tolerance : TOLERANCES) {
+        List<Point> expected = PolylineUtils.simplify(line.toPoints(), tolerance, true);
+
+        assertSameLine(expected, ranking.simplify(tolerance));
+        assertEquals(expected.size(), ranking.count(tolerance));
+      }
+    }
+  }
+
+  @Test
+  public void simplify_alwaysKeepsTheEndpoints() {
+    PackedLineString line = PackedLineString.fromLngLats(new double[] {0, 0, 0.5, 0.0001, 1, 0});
+
+    PackedLineString simplified = DouglasPeuckerRanking.rank(line).simplify(1);
+
+    assertEquals(2, simplified.size());
+    assertEquals(0, simplified.longitude(0), 0);
+    assertEquals(1, simplified.longitude(1), 0);
+  }
+
+  @Test
+  public void simplify_ofShortLines() {
+    assertEquals(0, DouglasPeuckerRanking.rank(PackedLineString.fromLngLats(new double[0])).simplify(1).size());
+    assertEquals(1, DouglasPeuckerRanking.rank(PackedLineString.fromLngLats(new double[] {1, 2})).count(1));
+    assertEquals(2, DouglasPeuckerRanking.rank(PackedLineString.fromLngLats(new double[] {1, 2, 3, 4})).count(1));
+  }
+
+  @Test
+  public void simplify_reusesTheCallersBuffer() {
+    PackedLineString line = randomWalk(new Random(8), 300);
+    DouglasPeuckerRanking ranking = DouglasPeuckerRanking.rank(line);
+    double[] buffer = new double[line.size() * 2];
+
+    for (double tolerance : TOLERANCES) {
+      int size = ranking.simplify(tolerance, buffer);
+      PackedLineString expected = ranking.simplify(tolerance);
+
+      assertEquals(expected.size(), size);
+      for (int i = 0; i < size * 2; i++) {
+        assertEquals(expected.coordinates()[i], buffer[i], 0);
+      }
+    }
+  }
+
+  static PackedLineString randomWalk(Random random, int size) {
+    double[] coordinates = new double[size * 2];
+    double longitude = -122.4;
+    double latitude = 37.8;
+    for (int i = 0; i < size; i++) {
+      longitude += random.nextGaussian() * 1e-3;
+      latitude += random.nextGaussian() * 1e-3;
+      coordinates[i * 2] = longitude;
+      coordinates[i * 2 + 1] = latitude;
+    }
+    return PackedLineString.fromLngLats(coordinates);
+  }
+
+  static void assertSameLine(List<Point> expected, PackedLineString actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).longitude(), actual.longitude(i), 0);
+      assertEquals(expected.get(i).latitude(), actual.latitude(i), 0);
+    }
+  }
+}
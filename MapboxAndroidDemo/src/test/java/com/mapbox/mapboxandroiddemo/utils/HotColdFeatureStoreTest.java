@@ -0,0 +1,170 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.Point;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HotColdFeatureStoreTest {
+
+  private static final String PROPERTY_SELECTED = "selected";
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final RecordingTarget coldSource = new RecordingTarget();
+  private final RecordingTarget hotSource = new RecordingTarget();
+  private List<Feature> features;
+  private HotColdFeatureStore store;
+
+  @Before
+  public void setUp() {
+    features = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      Feature feature = Feature.fromGeometry(Point.fromLngLat(i, -i));
+      feature.addStringProperty("name", "Caf\u00e9 " + i + " \u65e5\u672c \ud83d\ude00");
+      feature.addBooleanProperty(PROPERTY_SELECTED, i == 3);
+      features.add(feature);
+    }
+    store = new HotColdFeatureStore(coldSource, hotSource, features, new HotColdFeatureStore.HotPredicate() {
+      @Override
+      public boolean isHot(@NonNull Feature feature) {
+        return feature.getBooleanProperty(PROPERTY_SELECTED);
+      }
+    });
+  }
+
+  @Test
+  public void constructor_pushesAllFeaturesColdAndTheHotOnesHot() {
+    assertEquals(1, coldSource.pushes.size());
+    assertEquals(1, hotSource.pushes.size());
+    assertSameFeatures(features, coldSource.lastFeatures());
+    assertSameFeatures(features.subList(3, 4), hotSource.lastFeatures());
+  }
+
+  @Test
+  public void markDirty_promotesAFeatureWithoutPushingTheColdSource() {
+    features.get(7).addBooleanProperty(PROPERTY_SELECTED, true);
+    store.markDirty(features.get(7));
+    store.flush();
+
+    assertEquals(1, coldSource.pushes.size());
+    assertEquals(2, hotSource.pushes.size());
+    List<Feature> hot = hotSource.lastFeatures();
+    assertEquals(2, hot.size());
+    assertTrue(containsPoint(hot, 3) && containsPoint(hot, 7));
+  }
+
+  @Test
+  public void markDirty_demotesAFeatureWithoutPushingTheColdSource() {
+    features.get(3).addBooleanProperty(PROPERTY_SELECTED, false);
+    store.markDirty(features.get(3));
+    store.flush();
+
+    assertEquals(1, coldSource.pushes.size());
+    assertEquals(2, hotSource.pushes.size());
+    assertEquals(0, hotSource.lastFeatures().size());
+  }
+
+  @Test
+  public void markDirty_ofAColdFeaturePushesNothing() {
+    store.markDirty(features.get(5));
+    store.flush();
+
+    assertEquals(1, coldSource.pushes.size());
+    assertEquals(1, hotSource.pushes.size());
+    assertEquals(1, store.getUpdateCount());
+  }
+
+  @Test
+  public void markDirty_ofAHotFeaturePushesItsNewProperties() {
+    features.get(3).addStringProperty("name", "renamed");
+    store.markDirty(features.get(3));
+    store.flush();
+
+    assertEquals(2, hotSource.pushes.size());
+    assertEquals("renamed", hotSource.lastFeatures().get(0).getStringProperty("name"));
+  }
+
+  @Test
+  public void markAllDirty_pushesBothSources() {
+    features.get(0).addBooleanProperty(PROPERTY_SELECTED, true);
+    store.markAllDirty();
+    store.flush();
+
+    assertEquals(2, coldSource.pushes.size());
+    assertEquals(2, hotSource.pushes.size());
+    assertEquals(2, hotSource.lastFeatures().size());
+    assertTrue(coldSource.lastFeatures().get(0).getBooleanProperty(PROPERTY_SELECTED));
+  }
+
+  @Test
+  public void flush_serializesFeaturesThatParseBackUnchanged() {
+    List<Feature> parsed = coldSource.lastFeatures();
+    for (int i = 0; i < features.size(); i++) {
+      assertEquals(features.get(i).toJson(), parsed.get(i).toJson());
+    }
+  }
+
+  @Test
+  public void metrics_countUtf8Bytes() {
+    long expected = coldSource.pushes.get(0).getBytes(UTF_8).length
+      + hotSource.pushes.get(0).getBytes(UTF_8).length;
+    assertTrue(expected > coldSource.pushes.get(0).length() + hotSource.pushes.get(0).length());
+    assertEquals(expected, store.getBytesSerialized());
+    assertEquals(expected, store.getLastUpdateBytes());
+
+    features.get(3).addBooleanProperty(PROPERTY_SELECTED, false);
+    store.markDirty(features.get(3));
+    store.flush();
+    assertEquals(hotSource.pushes.get(1).getBytes(UTF_8).length, store.getLastUpdateBytes());
+    assertEquals(expected + store.getLastUpdateBytes(), store.getBytesSerialized());
+  }
+
+  @Test
+  public void utf8Length_matchesTheEncoder() {
+    String[] texts = {"", "plain", "\u00e9\u00df", "\u65e5\u672c", "\ud83d\ude00"};
+    for (String text : texts) {
+      assertEquals(text, text.getBytes(UTF_8).length, HotColdFeatureStore.utf8Length(text));
+    }
+  }
+
+  private static boolean containsPoint(List<Feature> features, double longitude) {
+    for (Feature feature : features) {
+      if (((Point) feature.geometry()).longitude() == longitude) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void assertSameFeatures(List<Feature> expected, List<Feature> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).toJson(), actual.get(i).toJson());
+    }
+  }
+
+  private static class RecordingTarget implements HotColdFeatureStore.GeoJsonTarget {
+
+    private final List<String> pushes = new ArrayList<>();
+
+    @Override
+    public void setGeoJson(@NonNull String json) {
+      pushes.add(json);
+    }
+
+    private List<Feature> lastFeatures() {
+      return FeatureCollection.fromJson(pushes.get(pushes.size() - 1)).features();
+    }
+  }
+}
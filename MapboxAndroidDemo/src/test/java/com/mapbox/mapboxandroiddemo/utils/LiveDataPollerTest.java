@@ -0,0 +1,176 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.support.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Call;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+import retrofit2.http.GET;
+import retrofit2.http.Header;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Polls a local MockWebServer. The fetcher only starts the call, the test completes it, so ticks can be
+ * made to arrive while a poll is in flight. Unit tests run without a main looper, so polls complete right
+ * away on the calling thread and the ticks the Handler would post are made by calling poll() directly.
+ */
+public class LiveDataPollerTest {
+
+  private static final long INTERVAL = 100;
+  private static final long MAX_INTERVAL = 1000;
+
+  private MockWebServer server;
+  private SampleService service;
+  private LiveDataPoller<Sample> poller;
+  private final List<Sample> received = new ArrayList<>();
+  private final List<Throwable> errors = new ArrayList<>();
+  private LiveDataPoller.Poll<Sample> inFlightPoll;
+  private Call<Sample> inFlightCall;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new MockWebServer();
+    server.start();
+    service = new Retrofit.Builder()
+      .baseUrl(server.url("/"))
+      .addConverterFactory(GsonConverterFactory.create())
+      .build()
+      .create(SampleService.class);
+    poller = new LiveDataPoller<>(INTERVAL, MAX_INTERVAL, new LiveDataPoller.Fetcher<Sample>() {
+      @Override
+      public void fetch(@NonNull LiveDataPoller.Poll<Sample> poll) {
+        inFlightPoll = poll;
+        inFlightCall = service.load(poll.getETag(), poll.getLastModified());
+      }
+    }, new LiveDataPoller.OnDataListener<Sample>() {
+      @Override
+      public void onData(@NonNull Sample data) {
+        received.add(data);
+      }
+
+      @Override
+      public void onError(@NonNull Throwable throwable) {
+        errors.add(throwable);
+      }
+    });
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    poller.stop();
+    server.shutdown();
+  }
+
+  @Test
+  public void poll_coalescesTicksWhileAPollIsInFlight() throws Exception {
+    server.enqueue(sample(1));
+    server.enqueue(sample(2));
+
+    poller.start();
+    poller.poll();
+    poller.poll();
+    assertEquals(1, poller.getPollCount());
+    assertEquals(2, poller.getCoalescedCount());
+
+    complete();
+    poller.poll();
+    complete();
+    assertEquals(2, poller.getPollCount());
+    assertEquals(2, server.getRequestCount());
+    assertEquals(2, received.size());
+    assertEquals(2, received.get(1).value);
+  }
+
+  @Test
+  public void poll_backsOffAfterErrorsAndRecovers() throws Exception {
+    for (int i = 0; i < 4; i++) {
+      server.enqueue(new MockResponse().setResponseCode(500));
+    }
+    server.enqueue(sample(1));
+
+    poller.start();
+    long[] expectedIntervals = {200, 400, 800, MAX_INTERVAL};
+    for (long expectedInterval : expectedIntervals) {
+      complete();
+      assertEquals(expectedInterval, poller.getCurrentInterval());
+      poller.poll();
+    }
+    assertEquals(4, errors.size());
+    assertEquals("HTTP 500", errors.get(0).getMessage());
+
+    complete();
+    assertEquals(INTERVAL, poller.getCurrentInterval());
+    assertEquals(4, poller.getFailureCount());
+    assertEquals(1, received.size());
+  }
+
+  @Test
+  public void poll_sendsValidatorsAndSkipsNotModified() throws Exception {
+    server.enqueue(sample(1).setHeader("ETag", "\"v1\"").setHeader("Last-Modified", "Mon, 01 Jan 2018"));
+    // a 304 need not repeat the validators
+    server.enqueue(new MockResponse().setResponseCode(304));
+    server.enqueue(sample(2).setHeader("ETag", "\"v2\""));
+    server.enqueue(sample(3));
+
+    poller.start();
+    complete();
+    RecordedRequest request = server.takeRequest();
+    assertNull(request.getHeader("If-None-Match"));
+
+    poller.poll();
+    complete();
+    request = server.takeRequest();
+    assertEquals("\"v1\"", request.getHeader("If-None-Match"));
+    assertEquals("Mon, 01 Jan 2018", request.getHeader("If-Modified-Since"));
+    assertEquals(1, received.size());
+    assertEquals(1, poller.getNotModifiedCount());
+
+    poller.poll();
+    complete();
+    request = server.takeRequest();
+    assertEquals("\"v1\"", request.getHeader("If-None-Match"));
+    assertEquals(2, received.size());
+
+    poller.poll();
+    complete();
+    request = server.takeRequest();
+    assertEquals("\"v2\"", request.getHeader("If-None-Match"));
+    assertNull(request.getHeader("If-Modified-Since"));
+    assertEquals(3, received.size());
+    assertEquals(0, errors.size());
+  }
+
+  private void complete() throws IOException {
+    LiveDataPoller.Poll<Sample> poll = inFlightPoll;
+    inFlightPoll = null;
+    poll.onResponse(inFlightCall.execute());
+  }
+
+  private static MockResponse sample(int value) {
+    return new MockResponse().setBody("{\"value\": " + value + "}");
+  }
+
+  private static class Sample {
+
+    private int value;
+  }
+
+  private interface SampleService {
+
+    @GET("sample")
+    Call<Sample> load(@Header("If-None-Match") String etag, @Header("If-Modified-Since") String lastModified);
+  }
+}
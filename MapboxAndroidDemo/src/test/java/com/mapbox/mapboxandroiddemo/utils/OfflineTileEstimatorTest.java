@@ -0,0 +1,140 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OfflineTileEstimatorTest {
+
+  private static final double MAX_LATITUDE = 85.0511287798066;
+
+  private final OfflineTileEstimator estimator = new OfflineTileEstimator();
+
+  @Test
+  public void estimate_countsEveryZoomLevel() {
+    OfflineTileEstimator.Estimate estimate = estimator.estimate(
+      new OfflineTileEstimator.Bounds(-90, -180, 90, 180), 0, 2.5);
+
+    assertEquals(0, estimate.getMinZoom());
+    assertEquals(2, estimate.getMaxZoom());
+    assertEquals(1, estimate.getTileCount(0));
+    assertEquals(4, estimate.getTileCount(1));
+    assertEquals(16, estimate.getTileCount(2));
+    assertEquals(21, estimate.getTileCount());
+    assertEquals(21 * OfflineTileEstimator.DEFAULT_AVERAGE_TILE_SIZE, estimate.getSize());
+  }
+
+  @Test
+  public void estimate_stopsAtTheSourceMaxZoom() {
+    OfflineTileEstimator.Estimate estimate = new OfflineTileEstimator(14, 1).estimate(
+      new OfflineTileEstimator.Bounds(37.7, -122.5, 37.8, -122.4), 12, 20);
+
+    assertEquals(14, estimate.getMaxZoom());
+    assertEquals(0, estimate.getTileCount(15));
+  }
+
+  @Test
+  public void estimate_edgesOnATileBoundaryDontReachTheNextTile() {
+    OfflineTileEstimator.Estimate estimate = estimator.estimate(
+      new OfflineTileEstimator.Bounds(0, 0, MAX_LATITUDE, 180), 1, 1);
+
+    assertEquals(1, estimate.getTileCount());
+  }
+
+  @Test
+  public void split_keepsRegionsThatFit() {
+    OfflineTileEstimator.Bounds bounds = new OfflineTileEstimator.Bounds(37.7, -122.5, 37.8, -122.4);
+    List<OfflineTileEstimator.Bounds> parts = estimator.split(bounds, 10, 14, 6000);
+
+    assertEquals(1, parts.size());
+    assertTrue(parts.get(0) == bounds);
+  }
+
+  @Test
+  public void split_partsAddUpToTheWhole() {
+    OfflineTileEstimator.Bounds bounds = new OfflineTileEstimator.Bounds(16.64, -45.83, 17.82, -44.72);
+    for (int maxZoom = 5; maxZoom <= 16; maxZoom++) {
+      assertPartition(bounds, 5, maxZoom, 6000);
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void split_terminates() {
+    OfflineTileEstimator.Bounds bounds = new OfflineTileEstimator.Bounds(69.116, 21.061, 69.166, 21.111);
+    assertPartition(bounds, 14, 16, 12);
+  }
+
+  @Test(timeout = 30000)
+  public void split_partitionsRandomRegions() {
+    Random random = new Random(5);
+    for (int run = 0; run < 300; run++) {
+      double south = -85 + random.nextDouble() * 165;
+      double west = -180 + random.nextDouble() * 350;
+      double north = Math.min(90, south + random.nextDouble() * 3);
+      double east = Math.min(180, west + random.nextDouble() * 3);
+      int minZoom = random.nextInt(12);
+      int maxZoom = minZoom + random.nextInt(6);
+      long tileLimit = maxZoom - minZoom + 1 + random.nextInt(500);
+      assertPartition(new OfflineTileEstimator.Bounds(south, west, north, east), minZoom, maxZoom, tileLimit);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void split_rejectsLimitsBelowTheZoomLevelCount() {
+    estimator.split(new OfflineTileEstimator.Bounds(37.7, -122.5, 37.8, -122.4), 10, 16, 6);
+  }
+
+  /**
+   * Checks that every part fits the limit, and that at the deepest zoom level the parts cover the tiles of the
+   * whole region exactly once.
+   */
+  private void assertPartition(OfflineTileEstimator.Bounds bounds, int minZoom, int maxZoom, long tileLimit) {
+    String message = bounds + " " + minZoom + "-" + maxZoom + ", limit " + tileLimit;
+    List<OfflineTileEstimator.Bounds> parts = estimator.split(bounds, minZoom, maxZoom, tileLimit);
+    int lastZoom = Math.min(maxZoom, OfflineTileEstimator.DEFAULT_SOURCE_MAX_ZOOM);
+
+    Set<Long> wholeTiles = tiles(bounds, lastZoom);
+    Set<Long> partTiles = new HashSet<>();
+    long deepestCount = 0;
+    for (OfflineTileEstimator.Bounds part : parts) {
+      OfflineTileEstimator.Estimate estimate = estimator.estimate(part, minZoom, maxZoom);
+      assertTrue(message, estimate.getTileCount() <= tileLimit);
+      deepestCount += estimate.getTileCount(lastZoom);
+      for (Long tile : tiles(part, lastZoom)) {
+        assertTrue(message + ", tile in two parts", partTiles.add(tile));
+      }
+    }
+    assertEquals(message, estimator.estimate(bounds, minZoom, maxZoom).getTileCount(lastZoom), deepestCount);
+    assertEquals(message, wholeTiles, partTiles);
+  }
+
+  private static Set<Long> tiles(OfflineTileEstimator.Bounds bounds, int zoom) {
+    long max = (1L << zoom) - 1;
+    long firstColumn = Math.min((long) Math.floor(tileX(bounds.getWest(), zoom)), max);
+    long lastColumn = Math.max(firstColumn, Math.min((long) Math.ceil(tileX(bounds.getEast(), zoom)) - 1, max));
+    long firstRow = Math.min((long) Math.floor(tileY(bounds.getNorth(), zoom)), max);
+    long lastRow = Math.max(firstRow, Math.min((long) Math.ceil(tileY(bounds.getSouth(), zoom)) - 1, max));
+    Set<Long> tiles = new HashSet<>();
+    for (long column = firstColumn; column <= lastColumn; column++) {
+      for (long row = firstRow; row <= lastRow; row++) {
+        tiles.add(column << 32 | row);
+      }
+    }
+    return tiles;
+  }
+
+  private static double tileX(double longitude, int zoom) {
+    return (Math.max(-180, Math.min(180, longitude)) + 180) / 360 * (1L << zoom);
+  }
+
+  private static double tileY(double latitude, int zoom) {
+    double radians = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude)));
+    return Math.max(0, (1 - Math.log(Math.tan(radians) + 1 / Math.cos(radians)) / Math.PI) / 2 * (1L << zoom));
+  }
+}
@@ -0,0 +1,160 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OrientationFilterTest {
+
+  private static final float GRAVITY = 9.81f;
+  private static final long MILLIS = 1000000L;
+
+  @Test
+  public void poll_waitsForBothSensors() {
+    OrientationFilter filter = new OrientationFilter(0.2f, 0.01f);
+    float[] orientation = new float[2];
+
+    filter.onAccelerometer(0, 0, 0, GRAVITY);
+    assertFalse(filter.poll(orientation));
+    filter.onMagneticField(MILLIS, 0, 22, -40);
+    assertTrue(filter.poll(orientation));
+    assertEquals(0, orientation[0], 1e-6);
+    assertEquals(0, orientation[1], 1e-6);
+  }
+
+  @Test
+  public void poll_matchesTheTiltOfTheDevice() {
+    OrientationFilter filter = new OrientationFilter(0.2f, 0.01f);
+    float pitch = (float) Math.toRadians(30);
+    float roll = (float) Math.toRadians(-20);
+    replayStill(filter, pitch, roll, 0, 5000);
+
+    float[] orientation = new float[2];
+    assertTrue(filter.poll(orientation));
+    assertEquals(pitch, orientation[0], 1e-3);
+    assertEquals(roll, orientation[1], 1e-3);
+  }
+
+  @Test
+  public void poll_suppressesChangesWithinTheDeadband() {
+    OrientationFilter filter = new OrientationFilter(0.1f, (float) Math.toRadians(1));
+    float[] orientation = new float[2];
+    replayStill(filter, 0, 0, 0, 1000);
+    assertTrue(filter.poll(orientation));
+
+    replayStill(filter, (float) Math.toRadians(0.5), 0, 1000, 2000);
+    assertFalse(filter.poll(orientation));
+
+    replayStill(filter, (float) Math.toRadians(3), 0, 2000, 3000);
+    assertTrue(filter.poll(orientation));
+    assertEquals(Math.toRadians(3), orientation[0], 1e-3);
+  }
+
+  @Test
+  public void smoothing_doesNotDependOnTheSampleRate() {
+    OrientationFilter slowFilter = new OrientationFilter(0.3f, 0);
+    OrientationFilter fastFilter = new OrientationFilter(0.3f, 0);
+    replayStill(slowFilter, 0, 0, 0, 1000);
+    replayStill(fastFilter, 0, 0, 0, 1000);
+
+    // a sudden tilt, followed for 300 ms by a 50 Hz and a 200 Hz sensor
+    float pitch = (float) Math.toRadians(40);
+    for (long time = 1000; time <= 1300; time += 20) {
+      feed(slowFilter, pitch, 0, time);
+    }
+    for (long time = 1000; time <= 1300; time += 5) {
+      feed(fastFilter, pitch, 0, time);
+    }
+
+    float[] slow = new float[2];
+    float[] fast = new float[2];
+    assertTrue(slowFilter.poll(slow));
+    assertTrue(fastFilter.poll(fast));
+    assertEquals(fast[0], slow[0], Math.toRadians(1.5));
+    // after one time constant the filter is roughly two thirds of the way there
+    assertTrue(fast[0] > pitch * 0.5 && fast[0] < pitch * 0.8);
+  }
+
+  @Test
+  public void poll_rejectsAMagneticFieldAlongGravity() {
+    OrientationFilter filter = new OrientationFilter(0.2f, 0.01f);
+    filter.onAccelerometer(0, 0, 0, GRAVITY);
+    filter.onMagneticField(0, 0, 0, -40);
+
+    assertFalse(filter.poll(new float[2]));
+  }
+
+  @Test
+  public void reset_forgetsEarlierSamples() {
+    OrientationFilter filter = new OrientationFilter(0.2f, 0.01f);
+    float[] orientation = new float[2];
+    replayStill(filter, 0, 0, 0, 1000);
+    assertTrue(filter.poll(orientation));
+
+    filter.reset();
+    assertFalse(filter.poll(orientation));
+    // the first samples after a reset are taken as they are
+    feed(filter, (float) Math.toRadians(25), 0, 2000);
+    assertTrue(filter.poll(orientation));
+    assertEquals(Math.toRadians(25), orientation[0], 1e-3);
+  }
+
+  @Test
+  public void replayedTrace_reportsFarFewerOrientationsThanSamples() {
+    OrientationFilter filter = new OrientationFilter(0.15f, (float) Math.toRadians(0.5));
+    Random random = new Random(17);
+    float[] orientation = new float[2];
+    int reports = 0;
+    int frames = 0;
+    // 10 s at 200 Hz: lying still, tilting up to 45 degrees over 2 s, then held, with sensor noise
+    for (long time = 0; time <= 10000; time += 5) {
+      float pitch = (float) Math.toRadians(time < 4000 ? 0 : time < 6000 ? (time - 4000) / 2000f * 45 : 45);
+      feed(filter, pitch, 0, time, random, 0.15f);
+      if (time % 16 == 0) {
+        frames++;
+        if (filter.poll(orientation)) {
+          reports++;
+        }
+      }
+    }
+
+    assertEquals(Math.toRadians(45), orientation[0], Math.toRadians(1.5));
+    assertEquals(0, orientation[1], Math.toRadians(1.5));
+    assertTrue("reports: " + reports + " of " + frames + " frames", reports < frames / 3);
+  }
+
+  private static void replayStill(OrientationFilter filter, float pitch, float roll, long fromMillis,
+                                  long toMillis) {
+    for (long time = fromMillis; time < toMillis; time += 10) {
+      feed(filter, pitch, roll, time);
+    }
+  }
+
+  private static void feed(OrientationFilter filter, float pitch, float roll, long timeMillis) {
+    feed(filter, pitch, roll, timeMillis, null, 0);
+  }
+
+  /**
+   * Feeds the accelerometer and magnetometer readings of a device held at a pitch and roll, with the inverse
+   * of the formulas of SensorManager#getOrientation.
+   */
+  private static void feed(OrientationFilter filter, float pitch, float roll, long timeMillis, Random random,
+                           float noise) {
+    double ax = -Math.cos(pitch) * Math.sin(roll) * GRAVITY;
+    double ay = -Math.sin(pitch) * GRAVITY;
+    double az = Math.cos(pitch) * Math.cos(roll) * GRAVITY;
+    float jitter = random == null ? 0 : noise;
+    filter.onAccelerometer(timeMillis * MILLIS, (float) ax + gaussian(random) * jitter,
+      (float) ay + gaussian(random) * jitter, (float) az + gaussian(random) * jitter);
+    // a field pointing north and down, which is never parallel to gravity here
+    filter.onMagneticField(timeMillis * MILLIS + 1, 0, 22, -40);
+  }
+
+  private static float gaussian(Random random) {
+    return random == null ? 0 : (float) random.nextGaussian();
+  }
+}
@@ -0,0 +1,56 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Point;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares viewport lookups in a {@link PackedHilbertRTree} of 50,000 points with a linear scan over the
+ * features. Runs only with -Pbenchmarks, see the app's build.gradle.
+ */
+public class PackedHilbertRTreeBenchmark {
+
+  private static final int FEATURE_COUNT = 50000;
+  private static final int QUERIES = 2000;
+
+  @Test
+  public void searchVersusLinearScan() {
+    List<Feature> features = PackedHilbertRTreeTest.randomPoints(new Random(1), FEATURE_COUNT);
+    PackedHilbertRTree tree = PackedHilbertRTree.fromFeatures(features);
+    int treeHits = 0;
+    int scanHits = 0;
+
+    long startTime = System.nanoTime();
+    for (int run = 0; run < QUERIES; run++) {
+      double west = -122.5 + (run % 100) * 0.002;
+      double south = 37.7 + (run % 50) * 0.002;
+      treeHits += tree.search(west, south, west + 0.02, south + 0.015).length;
+    }
+    long treeTime = System.nanoTime() - startTime;
+
+    startTime = System.nanoTime();
+    for (int run = 0; run < QUERIES; run++) {
+      double west = -122.5 + (run % 100) * 0.002;
+      double south = 37.7 + (run % 50) * 0.002;
+      for (Feature feature : features) {
+        Point point = (Point) feature.geometry();
+        if (point.longitude() >= west && point.longitude() <= west + 0.02
+          && point.latitude() >= south && point.latitude() <= south + 0.015) {
+          scanHits++;
+        }
+      }
+    }
+    long scanTime = System.nanoTime() - startTime;
+
+    assertEquals(scanHits, treeHits);
+    assertTrue(FEATURE_COUNT + " features: tree " + treeTime / 1000 / QUERIES + " us, scan "
+      + scanTime / 1000 / QUERIES + " us per viewport query", treeTime * 10 < scanTime);
+  }
+}
@@ -0,0 +1,163 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.LineString;
+import com.mapbox.geojson.Point;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PackedHilbertRTreeTest {
+
+  private static final double EARTH_RADIUS_METERS = 6371008.8;
+
+  @Test
+  public void search_matchesBruteForce() {
+    Random random = new Random(42);
+    List<Feature> features = randomPoints(random, 5000);
+    PackedHilbertRTree tree = PackedHilbertRTree.fromFeatures(features, 8);
+
+    assertEquals(features.size(), tree.size());
+    for (int run = 0; run < 200; run++) {
+      double west = -122.6 + random.nextDouble() * 0.3;
+      double south = 37.6 + random.nextDouble() * 0.3;
+      double east = west + random.nextDouble() * 0.1;
+      double north = south + random.nextDouble() * 0.1;
+
+      List<Feature> expected = new ArrayList<>();
+      for (Feature feature : features) {
+        Point point = (Point) feature.geometry();
+        if (point.longitude() >= west && point.longitude() <= east
+          && point.latitude() >= south && point.latitude() <= north) {
+          expected.add(feature);
+        }
+      }
+      assertSameFeatures(expected, tree.getFeatures(tree.search(west, south, east, north)));
+    }
+  }
+
+  @Test
+  public void search_usesTheBoundingBoxOfLines() {
+    List<Feature> features = new ArrayList<>();
+    features.add(Feature.fromGeometry(LineString.fromLngLats(Arrays.asList(
+      Point.fromLngLat(0, 0), Point.fromLngLat(10, 10)))));
+    features.add(Feature.fromGeometry(Point.fromLngLat(20, 20)));
+    PackedHilbertRTree tree = PackedHilbertRTree.fromFeatures(features, 2);
+
+    assertArrayEquals(new int[] {0}, tree.search(4, 4, 6, 6));
+    assertEquals(0, tree.search(11, 11, 19, 19).length);
+  }
+
+  @Test
+  public void fromFeatures_skipsFeaturesWithoutGeometry() {
+    List<Feature> features = new ArrayList<>();
+    features.add(Feature.fromGeometry(null));
+    features.add(Feature.fromGeometry(Point.fromLngLat(1, 1)));
+    PackedHilbertRTree tree = PackedHilbertRTree.fromFeatures(features);
+
+    assertEquals(1, tree.size());
+    assertEquals(1, tree.search(-180, -90, 180, 90).length);
+  }
+
+  @Test
+  public void searchRadius_matchesBruteForce() {
+    Random random = new Random(7);
+    List<Feature> features = randomPoints(random, 5000);
+    PackedHilbertRTree tree = PackedHilbertRTree.fromFeatures(features, 16);
+
+    for (int run = 0; run < 100; run++) {
+      double longitude = -122.5 + random.nextDouble() * 0.3;
+      double latitude = 37.7 + random.nextDouble() * 0.2;
+      double radius = 200 + random.nextDouble() * 3000;
+
+      List<Feature> expected = new ArrayList<>();
+      for (Feature feature : features) {
+        Point point = (Point) feature.geometry();
+        if (haversine(longitude, latitude, point.longitude(), point.latitude()) <= radius) {
+          expected.add(feature);
+        }
+      }
+      assertSameFeatures(expected, tree.getFeatures(tree.searchRadius(longitude, latitude, radius)));
+    }
+  }
+
+  @Test
+  public void nearest_returnsClosestFirst() {
+    Random random = new Random(3);
+    List<Feature> features = randomPoints(random, 2000);
+    PackedHilbertRTree tree = PackedHilbertRTree.fromFeatures(features, 16);
+
+    double longitude = -122.4;
+    double latitude = 37.78;
+    double lonScale = Math.cos(Math.toRadians(latitude));
+    double[] distances = new double[features.size()];
+    for (int i = 0; i < distances.length; i++) {
+      distances[i] = planarDistance((Point) features.get(i).geometry(), longitude, latitude, lonScale);
+    }
+    Arrays.sort(distances);
+
+    List<Feature> nearest = tree.getFeatures(tree.nearest(longitude, latitude, 25));
+    assertEquals(25, nearest.size());
+    for (int i = 0; i < nearest.size(); i++) {
+      assertEquals(distances[i], planarDistance((Point) nearest.get(i).geometry(), longitude, latitude, lonScale),
+        1e-12);
+    }
+  }
+
+  @Test
+  public void emptyTree_findsNothing() {
+    PackedHilbertRTree tree = PackedHilbertRTree.fromFeatures(new ArrayList<Feature>());
+
+    assertEquals(0, tree.size());
+    assertEquals(0, tree.search(-180, -90, 180, 90).length);
+    assertEquals(0, tree.searchRadius(0, 0, 1000).length);
+    assertEquals(0, tree.nearest(0, 0, 5).length);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fromFeatures_rejectsTinyNodes() {
+    PackedHilbertRTree.fromFeatures(new ArrayList<Feature>(), 1);
+  }
+
+  /**
+   * Compares a viewport lookup in the tree with the linear scan it replaced. Times are printed, not asserted.
+   */
+  static List<Feature> randomPoints(Random random, int count) {
+    List<Feature> features = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      features.add(Feature.fromGeometry(Point.fromLngLat(-122.6 + random.nextDouble() * 0.5,
+        37.6 + random.nextDouble() * 0.4)));
+    }
+    return features;
+  }
+
+  private static void assertSameFeatures(List<Feature> expected, List<Feature> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (Feature feature : actual) {
+      assertTrue(expected.contains(feature));
+    }
+  }
+
+  private static double haversine(double longitude, double latitude, double otherLongitude, double otherLatitude) {
+    double dLat = Math.toRadians(otherLatitude - latitude);
+    double dLon = Math.toRadians(otherLongitude - longitude);
+    double hav = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+      + Math.cos(Math.toRadians(latitude)) * Math.cos(Math.toRadians(otherLatitude))
+      * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(hav)));
+  }
+
+  private static double planarDistance(Point point, double longitude, double latitude, double lonScale) {
+    double dx = (point.longitude() - longitude) * lonScale;
+    double dy = point.latitude() - latitude;
+    return dx * dx + dy * dy;
+  }
+}
@@ -0,0 +1,77 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Point;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Clusters 100,000 points spread over the world and compares the whole-world queries
+ * ClusterSourceController made on every zoom level change with the viewport-sized queries it makes now.
+ * Runs only with -Pbenchmarks, see the app's build.gradle.
+ */
+public class PointClustererBenchmark {
+
+  private static final int POINT_COUNT = 100000;
+  private static final int ZOOM = 10;
+  private static final int WARM_UP_RUNS = 3;
+  private static final int MEASURED_RUNS = 9;
+
+  @Test
+  public void viewportVersusWorldQueries() {
+    Random random = new Random(11);
+    List<Feature> features = new ArrayList<>(POINT_COUNT);
+    for (int i = 0; i < POINT_COUNT; i++) {
+      features.add(Feature.fromGeometry(Point.fromLngLat(-180 + random.nextDouble() * 360,
+        -80 + random.nextDouble() * 160)));
+    }
+
+    PointClusterer clusterer = new PointClusterer(0, 14, 50);
+    long startTime = System.nanoTime();
+    clusterer.load(features);
+    long loadTime = System.nanoTime() - startTime;
+    long pointsPerSecond = POINT_COUNT * 1000000000L / loadTime;
+
+    long[] worldTimes = new long[MEASURED_RUNS];
+    long[] viewportTimes = new long[MEASURED_RUNS];
+    int worldClusters = 0;
+    int viewportClusters = 0;
+    for (int run = 0; run < WARM_UP_RUNS + MEASURED_RUNS; run++) {
+      startTime = System.nanoTime();
+      worldClusters = clusterer.getClusters(-180, -90, 180, 90, ZOOM).size();
+      long worldTime = System.nanoTime() - startTime;
+
+      // a phone screen at zoom 10 plus the one tile margin of ClusterSourceController, about 5 by 6 tiles
+      double west = -20 + run;
+      startTime = System.nanoTime();
+      viewportClusters = clusterer.getClusters(west, 10, west + 5 * 360.0 / (1 << ZOOM), 12, ZOOM).size();
+      long viewportTime = System.nanoTime() - startTime;
+
+      if (run >= WARM_UP_RUNS) {
+        worldTimes[run - WARM_UP_RUNS] = worldTime;
+        viewportTimes[run - WARM_UP_RUNS] = viewportTime;
+      }
+    }
+    long worldTime = median(worldTimes);
+    long viewportTime = median(viewportTimes);
+
+    String summary = POINT_COUNT + " points loaded in " + loadTime / 1000000 + " ms (" + pointsPerSecond
+      + " points/s); zoom " + ZOOM + ": world query " + worldTime / 1000 + " us for " + worldClusters
+      + " features, viewport query " + viewportTime / 1000 + " us for " + viewportClusters + " features";
+    assertTrue(summary, pointsPerSecond > 20000);
+    assertTrue(summary, viewportTime * 10 < worldTime);
+  }
+
+  private static long median(long[] times) {
+    long[] sorted = Arrays.copyOf(times, times.length);
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2];
+  }
+}
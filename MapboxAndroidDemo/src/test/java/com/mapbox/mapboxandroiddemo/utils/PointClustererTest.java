@@ -0,0 +1,148 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Point;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PointClustererTest {
+
+  private static final int POINT_COUNT = 3000;
+  private static final int MIN_ZOOM = 0;
+  private static final int MAX_ZOOM = 16;
+
+  private List<Feature> points;
+  private double totalMagnitude;
+  private PointClusterer clusterer;
+
+  @Before
+  public void setUp() {
+    Random random = new Random(11);
+    points = new ArrayList<>(POINT_COUNT);
+    for (int i = 0; i < POINT_COUNT; i++) {
+      JsonObject properties = new JsonObject();
+      double magnitude = Math.round(random.nextDouble() * 70) / 10.0;
+      properties.addProperty("mag", magnitude);
+      properties.addProperty("index", i);
+      totalMagnitude += magnitude;
+      // a dense area around San Francisco and a few points scattered over the world
+      double longitude = i % 10 == 0 ? -180 + random.nextDouble() * 360 : -122.5 + random.nextDouble() * 0.5;
+      double latitude = i % 10 == 0 ? -80 + random.nextDouble() * 160 : 37.6 + random.nextDouble() * 0.4;
+      points.add(Feature.fromGeometry(Point.fromLngLat(longitude, latitude), properties));
+    }
+    clusterer = new PointClusterer(MIN_ZOOM, MAX_ZOOM, 50,
+      PointClusterer.sum("mag", "sum_mag"), PointClusterer.max("mag", "max_mag")).load(points);
+  }
+
+  @Test
+  public void getClusters_coversEveryPointOnEveryZoomLevel() {
+    assertEquals(POINT_COUNT, clusterer.size());
+    for (int zoom = MIN_ZOOM; zoom <= MAX_ZOOM + 1; zoom++) {
+      int count = 0;
+      double magnitude = 0;
+      for (Feature feature : clusterer.getClusters(-180, -90, 180, 90, zoom)) {
+        if (isCluster(feature)) {
+          count += feature.getNumberProperty(PointClusterer.PROPERTY_POINT_COUNT).intValue();
+          magnitude += feature.getNumberProperty("sum_mag").doubleValue();
+        } else {
+          count++;
+          magnitude += feature.getNumberProperty("mag").doubleValue();
+        }
+      }
+      assertEquals("zoom " + zoom, POINT_COUNT, count);
+      assertEquals("zoom " + zoom, totalMagnitude, magnitude, 1e-6);
+    }
+  }
+
+  @Test
+  public void getClusters_clustersLessOnHigherZoomLevels() {
+    int previous = 0;
+    for (int zoom = MIN_ZOOM; zoom <= MAX_ZOOM + 1; zoom++) {
+      int size = clusterer.getClusters(-180, -90, 180, 90, zoom).size();
+      assertTrue("zoom " + zoom, size >= previous);
+      previous = size;
+    }
+    assertEquals(POINT_COUNT, previous);
+  }
+
+  @Test
+  public void getClusters_splitsBoxesCrossingTheAntimeridian() {
+    int whole = clusterer.getClusters(-180, -90, 180, 90, 3).size();
+    int crossing = clusterer.getClusters(0, -90, 360, 90, 3).size();
+    int western = clusterer.getClusters(-180, -90, 0, 90, 3).size();
+    int eastern = clusterer.getClusters(170, -90, 190, 90, 3).size();
+
+    assertEquals(whole, crossing);
+    assertTrue(western > 0);
+    assertEquals(clusterer.getClusters(170, -90, 180, 90, 3).size()
+      + clusterer.getClusters(-180, -90, -170, 90, 3).size(), eastern);
+  }
+
+  @Test
+  public void getLeaves_returnsThePointsOfACluster() {
+    for (Feature feature : clusterer.getClusters(-180, -90, 180, 90, 8)) {
+      if (!isCluster(feature)) {
+        continue;
+      }
+      int clusterId = feature.getNumberProperty(PointClusterer.PROPERTY_CLUSTER_ID).intValue();
+      int pointCount = feature.getNumberProperty(PointClusterer.PROPERTY_POINT_COUNT).intValue();
+      List<Feature> leaves = clusterer.getLeaves(clusterId, Integer.MAX_VALUE, 0);
+      assertEquals(pointCount, leaves.size());
+
+      Set<Integer> indices = new HashSet<>();
+      double maxMagnitude = Double.NEGATIVE_INFINITY;
+      for (Feature leaf : leaves) {
+        indices.add(leaf.getNumberProperty("index").intValue());
+        maxMagnitude = Math.max(maxMagnitude, leaf.getNumberProperty("mag").doubleValue());
+      }
+      assertEquals(pointCount, indices.size());
+      assertEquals(maxMagnitude, feature.getNumberProperty("max_mag").doubleValue(), 0);
+
+      List<Feature> page = clusterer.getLeaves(clusterId, 3, 1);
+      assertEquals(Math.min(3, pointCount - 1), page.size());
+    }
+  }
+
+  @Test
+  public void getChildren_addUpToTheCluster() {
+    for (Feature feature : clusterer.getClusters(-180, -90, 180, 90, 5)) {
+      if (!isCluster(feature)) {
+        continue;
+      }
+      int clusterId = feature.getNumberProperty(PointClusterer.PROPERTY_CLUSTER_ID).intValue();
+      int count = 0;
+      for (Feature child : clusterer.getChildren(clusterId)) {
+        count += isCluster(child) ? child.getNumberProperty(PointClusterer.PROPERTY_POINT_COUNT).intValue() : 1;
+      }
+      assertEquals(feature.getNumberProperty(PointClusterer.PROPERTY_POINT_COUNT).intValue(), count);
+      assertTrue(clusterer.getClusterExpansionZoom(clusterId) > 5);
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void getClusters_requiresLoad() {
+    new PointClusterer(MIN_ZOOM, MAX_ZOOM, 50).getClusters(-180, -90, 180, 90, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructor_rejectsInvalidZoomRange() {
+    new PointClusterer(10, 5, 50);
+  }
+
+  private static boolean isCluster(Feature feature) {
+    JsonElement cluster = feature.getProperty(PointClusterer.PROPERTY_CLUSTER);
+    return cluster != null && cluster.getAsBoolean();
+  }
+}
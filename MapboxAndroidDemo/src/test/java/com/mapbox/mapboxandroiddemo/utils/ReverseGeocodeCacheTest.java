@@ -0,0 +1,67 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReverseGeocodeCacheTest {
+
+  private static final int MAX_ENTRIES = 3;
+
+  @Test
+  public void keepNewest_dropsTheLeastRecentlyUsedEntries() {
+    LinkedHashMap<String, String> storedEntries = entries("a", "b", "c", "d", "e");
+
+    ReverseGeocodeCache.keepNewest(storedEntries, MAX_ENTRIES);
+    assertEquals(Arrays.asList("c", "d", "e"), new ArrayList<>(storedEntries.keySet()));
+
+    ReverseGeocodeCache.keepNewest(storedEntries, 5);
+    assertEquals(3, storedEntries.size());
+  }
+
+  @Test
+  public void mergeStoredEntries_addsStoredEntriesAsLeastRecentlyUsed() {
+    LinkedHashMap<String, String> entries = lruCache();
+    entries.put("new", "downloaded");
+
+    ReverseGeocodeCache.mergeStoredEntries(entries, entries("a", "b"));
+    assertEquals(Arrays.asList("a", "b", "new"), new ArrayList<>(entries.keySet()));
+
+    // the next download evicts a stored entry, not the one downloaded before
+    entries.put("newer", "downloaded");
+    assertEquals(Arrays.asList("b", "new", "newer"), new ArrayList<>(entries.keySet()));
+  }
+
+  @Test
+  public void mergeStoredEntries_keepsDownloadedEntriesOverStoredOnes() {
+    LinkedHashMap<String, String> entries = lruCache();
+    entries.put("b", "downloaded");
+    entries.put("x", "downloaded");
+
+    ReverseGeocodeCache.mergeStoredEntries(entries, entries("a", "b", "c"));
+    assertEquals(Arrays.asList("c", "b", "x"), new ArrayList<>(entries.keySet()));
+    assertEquals("downloaded", entries.get("b"));
+  }
+
+  private static LinkedHashMap<String, String> lruCache() {
+    return new LinkedHashMap<String, String>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+        return size() > MAX_ENTRIES;
+      }
+    };
+  }
+
+  private static LinkedHashMap<String, String> entries(String... keys) {
+    LinkedHashMap<String, String> entries = new LinkedHashMap<>();
+    for (String key : keys) {
+      entries.put(key, "stored");
+    }
+    return entries;
+  }
+}
@@ -0,0 +1,149 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class RouteDistanceTableTest {
+
+  // one degree of latitude with the table's mean earth radius of 6371008.8 m
+  private static final double DEGREE_METERS = 111195.08;
+  private static final double DELTA = 1e-9;
+
+  @Test
+  public void constructor_measuresEverySegment() {
+    RouteDistanceTable table = new RouteDistanceTable(PackedLineString.fromLngLats(new double[] {
+      0, 0, 0, 1, 0, 3}));
+
+    assertEquals(0, table.distanceAt(0), DELTA);
+    assertEquals(DEGREE_METERS, table.distanceAt(1), 0.01);
+    assertEquals(3 * DEGREE_METERS, table.distanceAt(2), 0.01);
+    assertEquals(table.distanceAt(2), table.getLength(), DELTA);
+  }
+
+  @Test
+  public void segmentAt_findsTheSegmentOfEveryDistance() {
+    RouteDistanceTable table = new RouteDistanceTable(PackedLineString.fromLngLats(new double[] {
+      0, 0, 0, 1, 0, 2, 0, 3, 0, 4}));
+
+    for (int segment = 0; segment < 4; segment++) {
+      double start = table.distanceAt(segment);
+      assertEquals(segment, table.segmentAt(start, -1));
+      assertEquals(segment, table.segmentAt(start + DEGREE_METERS / 2, -1));
+      // the hint is only a shortcut, wrong hints still find the segment
+      for (int hint = -1; hint < 6; hint++) {
+        assertEquals(segment, table.segmentAt(start + DEGREE_METERS / 2, hint));
+      }
+    }
+  }
+
+  @Test
+  public void segmentAt_clampsDistancesOutsideTheLine() {
+    RouteDistanceTable table = new RouteDistanceTable(PackedLineString.fromLngLats(new double[] {
+      0, 0, 0, 1, 0, 2}));
+
+    assertEquals(0, table.segmentAt(-5, -1));
+    assertEquals(0, table.segmentAt(Double.NEGATIVE_INFINITY, 1));
+    assertEquals(1, table.segmentAt(table.getLength(), -1));
+    assertEquals(1, table.segmentAt(table.getLength() + 1000, 0));
+    assertEquals(1, table.segmentAt(Double.POSITIVE_INFINITY, -1));
+  }
+
+  @Test
+  public void segmentAt_skipsZeroLengthSegments() {
+    RouteDistanceTable table = new RouteDistanceTable(PackedLineString.fromLngLats(new double[] {
+      0, 0, 0, 1, 0, 1, 0, 1, 0, 2}));
+
+    assertEquals(table.distanceAt(1), table.distanceAt(3), DELTA);
+    assertEquals(3, table.segmentAt(table.distanceAt(1), -1));
+    assertEquals(3, table.segmentAt(table.distanceAt(1), 1));
+    assertEquals(3, table.segmentAt(table.distanceAt(1) + 1, 2));
+    assertEquals(0, table.segmentAt(table.distanceAt(1) - 1, 2));
+  }
+
+  @Test
+  public void positionAt_interpolatesWithinTheSegment() {
+    RouteDistanceTable table = new RouteDistanceTable(PackedLineString.fromLngLats(new double[] {
+      10, 20, 10, 21, 10, 23}));
+    double[] position = new double[2];
+
+    assertEquals(0, table.positionAt(table.distanceAt(1) / 4, -1, position));
+    assertEquals(10, position[0], DELTA);
+    assertEquals(20.25, position[1], DELTA);
+
+    assertEquals(1, table.positionAt(table.distanceAt(1) + (table.getLength() - table.distanceAt(1)) / 2, 0,
+      position));
+    assertEquals(22, position[1], DELTA);
+  }
+
+  @Test
+  public void positionAt_returnsTheEndpoints() {
+    RouteDistanceTable table = new RouteDistanceTable(PackedLineString.fromLngLats(new double[] {
+      10, 20, 11, 21, 12, 20}));
+    double[] position = new double[2];
+
+    assertEquals(0, table.positionAt(0, -1, position));
+    assertEquals(10, position[0], DELTA);
+    assertEquals(20, position[1], DELTA);
+
+    assertEquals(1, table.positionAt(table.getLength(), -1, position));
+    assertEquals(12, position[0], DELTA);
+    assertEquals(20, position[1], DELTA);
+  }
+
+  @Test
+  public void positionAt_clampsDistancesOutsideTheLine() {
+    RouteDistanceTable table = new RouteDistanceTable(PackedLineString.fromLngLats(new double[] {
+      10, 20, 11, 21, 12, 20}));
+    double[] position = new double[2];
+
+    assertEquals(0, table.positionAt(-100, -1, position));
+    assertEquals(10, position[0], DELTA);
+    assertEquals(20, position[1], DELTA);
+
+    assertEquals(1, table.positionAt(table.getLength() * 2, 0, position));
+    assertEquals(12, position[0], DELTA);
+    assertEquals(20, position[1], DELTA);
+  }
+
+  @Test
+  public void positionAt_handlesZeroLengthSegments() {
+    RouteDistanceTable table = new RouteDistanceTable(PackedLineString.fromLngLats(new double[] {
+      0, 0, 0, 1, 0, 1, 0, 2, 0, 2}));
+    double[] position = new double[2];
+
+    table.positionAt(table.distanceAt(1), -1, position);
+    assertEquals(1, position[1], DELTA);
+
+    // the line ends in a zero-length segment
+    assertEquals(3, table.positionAt(table.getLength(), 1, position));
+    assertEquals(2, position[1], DELTA);
+    for (double value : position) {
+      assertFalse(Double.isNaN(value));
+    }
+  }
+
+  @Test
+  public void positionAt_ofASinglePositionReturnsIt() {
+    RouteDistanceTable table = new RouteDistanceTable(PackedLineString.fromLngLats(new double[] {5, 6}));
+    double[] position = new double[2];
+
+    assertEquals(0, table.getLength(), DELTA);
+    assertEquals(0, table.segmentAt(100, -1));
+    assertEquals(0, table.positionAt(100, -1, position));
+    assertEquals(5, position[0], DELTA);
+    assertEquals(6, position[1], DELTA);
+  }
+
+  @Test
+  public void positionAt_ofAnEmptyLineLeavesTheOutputAlone() {
+    RouteDistanceTable table = new RouteDistanceTable(PackedLineString.fromLngLats(new double[0]));
+    double[] position = {7, 8};
+
+    assertEquals(0, table.getLength(), DELTA);
+    assertEquals(0, table.positionAt(1, -1, position));
+    assertEquals(7, position[0], DELTA);
+    assertEquals(8, position[1], DELTA);
+  }
+}
@@ -0,0 +1,82 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.utils.PolylineUtils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class RouteGeometryDecoderTest {
+
+  private static final int PRECISION_5 = 5;
+  private static final int PRECISION_6 = 6;
+
+  @Test
+  public void decodePolyline_matchesPolylineUtilsWithPrecision5() {
+    assertDecodesLikePolylineUtils(PRECISION_5);
+  }
+
+  @Test
+  public void decodePolyline_matchesPolylineUtilsWithPrecision6() {
+    assertDecodesLikePolylineUtils(PRECISION_6);
+  }
+
+  @Test
+  public void decodePolyline_decodesTheReferencePolyline() {
+    // the example of the encoded polyline algorithm format documentation
+    PackedLineString line = RouteGeometryDecoder.decodePolyline("_p~iF~ps|U_ulLnnqC_mqNvxq`@", PRECISION_5);
+
+    assertEquals(3, line.size());
+    assertEquals(-120.2, line.longitude(0), 1e-9);
+    assertEquals(38.5, line.latitude(0), 1e-9);
+    assertEquals(-120.95, line.longitude(1), 1e-9);
+    assertEquals(40.7, line.latitude(1), 1e-9);
+    assertEquals(-126.453, line.longitude(2), 1e-9);
+    assertEquals(43.252, line.latitude(2), 1e-9);
+  }
+
+  @Test
+  public void decodePolyline_ofAnEmptyPolylineIsEmpty() {
+    assertEquals(0, RouteGeometryDecoder.decodePolyline("", PRECISION_6).size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void decodePolyline_rejectsATruncatedPosition() {
+    String polyline = PolylineUtils.encode(randomRoute(new Random(1), 3), PRECISION_6);
+    RouteGeometryDecoder.decodePolyline(polyline.substring(0, polyline.length() - 1), PRECISION_6);
+  }
+
+  private static void assertDecodesLikePolylineUtils(int precision) {
+    Random random = new Random(precision);
+    for (int run = 0; run < 50; run++) {
+      String polyline = PolylineUtils.encode(randomRoute(random, 1 + random.nextInt(500)), precision);
+      List<Point> expected = PolylineUtils.decode(polyline, precision);
+
+      PackedLineString line = RouteGeometryDecoder.decodePolyline(polyline, precision);
+      assertEquals(expected.size(), line.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(expected.get(i).longitude(), line.longitude(i), 0);
+        assertEquals(expected.get(i).latitude(), line.latitude(i), 0);
+      }
+    }
+  }
+
+  private static List<Point> randomRoute(Random random, int size) {
+    List<Point> points = new ArrayList<>(size);
+    double longitude = -180 + random.nextDouble() * 360;
+    double latitude = -85 + random.nextDouble() * 170;
+    for (int i = 0; i < size; i++) {
+      // mostly short steps like a route, now and then a long jump
+      double step = random.nextInt(20) == 0 ? 5 : 0.01;
+      longitude = Math.max(-180, Math.min(180, longitude + (random.nextDouble() - 0.5) * step));
+      latitude = Math.max(-85, Math.min(85, latitude + (random.nextDouble() - 0.5) * step));
+      points.add(Point.fromLngLat(longitude, latitude));
+    }
+    return points;
+  }
+}
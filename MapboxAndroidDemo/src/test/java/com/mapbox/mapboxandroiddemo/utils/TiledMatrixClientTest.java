@@ -0,0 +1,217 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.geojson.Point;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Computes matrices against a local MockWebServer answering like the Matrix API. The duration of a pair is
+ * derived from the coordinates, so every stitched cell can be checked.
+ */
+public class TiledMatrixClientTest {
+
+  private static final int MAX_COORDINATES = 10;
+
+  private MockWebServer server;
+  private TiledMatrixClient client;
+  private volatile double failingLongitude = Double.NaN;
+  private volatile boolean dropLastRow;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new MockWebServer();
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        return respond(request.getRequestUrl());
+      }
+    });
+    server.start();
+    client = new TiledMatrixClient("pk.test", "driving", MAX_COORDINATES, 3, new Executor() {
+      @Override
+      public void execute(@NonNull Runnable runnable) {
+        synchronized (TiledMatrixClientTest.this) {
+          runnable.run();
+        }
+      }
+    });
+    client.setBaseUrl(server.url("/").toString());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    client.shutdown();
+    server.shutdown();
+  }
+
+  @Test
+  public void computeDurations_stitchesTheTiles() throws InterruptedException {
+    List<Point> sources = points(0, 7);
+    List<Point> destinations = points(3, 23);
+
+    Result result = compute(sources, destinations);
+    assertNull(result.error);
+    assertTrue(server.getRequestCount() > 1);
+    assertEquals(server.getRequestCount(), result.totalTiles);
+    assertEquals(result.totalTiles, result.completedTiles);
+    assertDurations(sources, destinations, result.durations);
+
+    // the same pairs come from the cache
+    int requestCount = server.getRequestCount();
+    result = compute(sources, destinations);
+    assertEquals(requestCount, server.getRequestCount());
+    assertDurations(sources, destinations, result.durations);
+  }
+
+  @Test
+  public void computeDurations_requestsOnlyTheMissingCells() throws InterruptedException {
+    compute(points(0, 2), points(10, 4));
+    int requestCount = server.getRequestCount();
+
+    List<Point> destinations = points(10, 6);
+    Result result = compute(points(0, 2), destinations);
+    assertEquals(requestCount + 1, server.getRequestCount());
+    RecordedRequest request = lastRequest();
+    assertEquals("0;1", request.getRequestUrl().queryParameter("sources"));
+    assertEquals("2;3", request.getRequestUrl().queryParameter("destinations"));
+    assertDurations(points(0, 2), destinations, result.durations);
+  }
+
+  @Test
+  public void computeDurations_reportsAFailedTile() throws InterruptedException {
+    failingLongitude = 15;
+
+    Result result = compute(points(0, 7), points(3, 23));
+    assertTrue(result.error instanceof IOException);
+    assertTrue(result.error.getMessage(), result.error.getMessage().contains("HTTP 500"));
+    assertNull(result.durations);
+  }
+
+  @Test
+  public void computeDurations_rejectsAShortResponse() throws InterruptedException {
+    dropLastRow = true;
+
+    Result result = compute(points(0, 2), points(5, 3));
+    assertTrue(result.error instanceof IOException);
+    assertEquals("Matrix response has 1 rows instead of 2", result.error.getMessage());
+    assertNull(result.durations);
+  }
+
+  private Result compute(List<Point> sources, List<Point> destinations) throws InterruptedException {
+    final Result result = new Result();
+    final CountDownLatch latch = new CountDownLatch(1);
+    client.computeDurations(sources, destinations, new TiledMatrixClient.Callback() {
+      @Override
+      public void onProgress(int completedTiles, int totalTiles) {
+        result.completedTiles = completedTiles;
+        result.totalTiles = totalTiles;
+      }
+
+      @Override
+      public void onResult(@NonNull double[][] durations) {
+        result.durations = durations;
+        latch.countDown();
+      }
+
+      @Override
+      public void onError(@NonNull Throwable throwable) {
+        result.error = throwable;
+        latch.countDown();
+      }
+    });
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    return result;
+  }
+
+  private MockResponse respond(HttpUrl url) {
+    List<String> segments = url.pathSegments();
+    String[] coordinates = segments.get(segments.size() - 1).split(";");
+    String[] sources = url.queryParameter("sources").split(";");
+    String[] destinations = url.queryParameter("destinations").split(";");
+    if (coordinates.length > MAX_COORDINATES) {
+      return new MockResponse().setResponseCode(422);
+    }
+    for (String coordinate : coordinates) {
+      if (longitude(coordinate) == failingLongitude) {
+        return new MockResponse().setResponseCode(500);
+      }
+    }
+
+    StringBuilder json = new StringBuilder("{\"code\":\"Ok\",\"durations\":[");
+    int rowCount = dropLastRow ? sources.length - 1 : sources.length;
+    for (int i = 0; i < rowCount; i++) {
+      json.append(i > 0 ? ",[" : "[");
+      double sourceLongitude = longitude(coordinates[Integer.parseInt(sources[i])]);
+      for (int j = 0; j < destinations.length; j++) {
+        double destinationLongitude = longitude(coordinates[Integer.parseInt(destinations[j])]);
+        json.append(j > 0 ? "," : "").append(duration(sourceLongitude, destinationLongitude));
+      }
+      json.append(']');
+    }
+    return new MockResponse().setBody(json.append("]}").toString());
+  }
+
+  private RecordedRequest lastRequest() throws InterruptedException {
+    RecordedRequest request = null;
+    for (int i = 0; i < server.getRequestCount(); i++) {
+      request = server.takeRequest();
+    }
+    return request;
+  }
+
+  private static void assertDurations(List<Point> sources, List<Point> destinations, double[][] durations) {
+    assertEquals(sources.size(), durations.length);
+    for (int row = 0; row < sources.size(); row++) {
+      assertEquals(destinations.size(), durations[row].length);
+      for (int column = 0; column < destinations.size(); column++) {
+        assertEquals(duration(sources.get(row).longitude(), destinations.get(column).longitude()),
+          durations[row][column], 0);
+      }
+    }
+  }
+
+  private static List<Point> points(int first, int count) {
+    List<Point> points = new ArrayList<>(count);
+    for (int i = first; i < first + count; i++) {
+      points.add(Point.fromLngLat(i, 45));
+    }
+    return points;
+  }
+
+  private static double longitude(String coordinate) {
+    return Double.parseDouble(coordinate.split(",")[0]);
+  }
+
+  private static double duration(double sourceLongitude, double destinationLongitude) {
+    return sourceLongitude * 100 + destinationLongitude;
+  }
+
+  private static class Result {
+
+    private double[][] durations;
+    private Throwable error;
+    private int completedTiles;
+    private int totalTiles;
+  }
+}
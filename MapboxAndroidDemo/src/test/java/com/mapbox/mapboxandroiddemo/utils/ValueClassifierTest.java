@@ -0,0 +1,141 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ValueClassifierTest {
+
+  @Test
+  public void quantileBreaks_splitValuesEvenly() {
+    double[] values = new double[100];
+    for (int i = 0; i < values.length; i++) {
+      values[values.length - 1 - i] = i + 1;
+    }
+
+    double[] breaks = ValueClassifier.quantileBreaks(values, 4);
+
+    assertArrayEquals(new double[] {26, 51, 76}, breaks, 0);
+    assertEquals(1, values[values.length - 1], 0);
+  }
+
+  @Test
+  public void jenksBreaks_findsClusters() {
+    double[] values = {1, 2, 3, 2, 10, 11, 12, 30, 31, 29, 1.5, 10.5};
+
+    assertArrayEquals(new double[] {10, 29}, ValueClassifier.jenksBreaks(values, 3), 0);
+  }
+
+  @Test
+  public void jenksBreaks_matchesAnExhaustiveSearch() {
+    Random random = new Random(5);
+    for (int run = 0; run < 200; run++) {
+      double[] values = new double[2 + random.nextInt(11)];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = Math.round(random.nextGaussian() * 100) / 10.0;
+      }
+      int classCount = 2 + random.nextInt(3);
+      if (classCount > values.length) {
+        continue;
+      }
+      double[] sorted = values.clone();
+      Arrays.sort(sorted);
+
+      double[] breaks = ValueClassifier.jenksBreaks(values, classCount);
+
+      assertEquals(Arrays.toString(sorted) + " " + Arrays.toString(breaks),
+        minimalVariance(sorted, 0, classCount), variance(sorted, breaks), 1e-6);
+    }
+  }
+
+  @Test
+  public void jenksBreaks_withFewerValuesThanClasses() {
+    double[] breaks = ValueClassifier.jenksBreaks(new double[] {5, 1}, 4);
+
+    assertEquals(3, breaks.length);
+    // the classes that can't be filled sit between the two values, which take the lowest and the highest class
+    assertEquals(0, ValueClassifier.classify(1, breaks));
+    assertEquals(3, ValueClassifier.classify(5, breaks));
+  }
+
+  @Test
+  public void breaks_ofNoValues() {
+    assertArrayEquals(new double[2], ValueClassifier.quantileBreaks(new double[0], 3), 0);
+    assertArrayEquals(new double[2], ValueClassifier.jenksBreaks(new double[0], 3), 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void breaks_needAtLeastOneClass() {
+    ValueClassifier.quantileBreaks(new double[] {1}, 0);
+  }
+
+  @Test
+  public void classify_putsBreaksIntoTheUpperClass() {
+    double[] breaks = {10, 20, 30};
+
+    assertEquals(0, ValueClassifier.classify(-5, breaks));
+    assertEquals(1, ValueClassifier.classify(10, breaks));
+    assertEquals(1, ValueClassifier.classify(19.9, breaks));
+    assertEquals(3, ValueClassifier.classify(30, breaks));
+    assertEquals(3, ValueClassifier.classify(1000, breaks));
+    assertEquals(0, ValueClassifier.classify(5, new double[0]));
+  }
+
+  @Test
+  public void jenksBreaks_ofALargeTableStayCloseToTheClusters() {
+    Random random = new Random(11);
+    double[] values = new double[50000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = (i % 3) * 100 + random.nextDouble() * 10;
+    }
+
+    double[] breaks = ValueClassifier.jenksBreaks(values, 3);
+    assertTrue(Arrays.toString(breaks), breaks[0] >= 100 && breaks[0] < 101);
+    assertTrue(Arrays.toString(breaks), breaks[1] >= 200 && breaks[1] < 201);
+  }
+
+  private static double variance(double[] sorted, double[] breaks) {
+    double total = 0;
+    int start = 0;
+    for (int i = 1; i <= sorted.length; i++) {
+      if (i == sorted.length || ValueClassifier.classify(sorted[i], breaks)
+        != ValueClassifier.classify(sorted[start], breaks)) {
+        total += variance(sorted, start, i);
+        start = i;
+      }
+    }
+    return total;
+  }
+
+  private static double minimalVariance(double[] sorted, int start, int classCount) {
+    if (classCount == 1) {
+      return variance(sorted, start, sorted.length);
+    }
+    double best = Double.POSITIVE_INFINITY;
+    for (int end = start + 1; end <= sorted.length - classCount + 1; end++) {
+      // a class must not end between equal values, or classify couldn't tell them apart
+      if (sorted[end] != sorted[end - 1]) {
+        best = Math.min(best, variance(sorted, start, end) + minimalVariance(sorted, end, classCount - 1));
+      }
+    }
+    return Math.min(best, variance(sorted, start, sorted.length));
+  }
+
+  private static double variance(double[] sorted, int start, int end) {
+    double sum = 0;
+    for (int i = start; i < end; i++) {
+      sum += sorted[i];
+    }
+    double mean = sum / (end - start);
+    double variance = 0;
+    for (int i = start; i < end; i++) {
+      variance += (sorted[i] - mean) * (sorted[i] - mean);
+    }
+    return variance;
+  }
+}
@@ -58,6 +58,13 @@ public class MainActivity extends WearableActivity implements ExampleAdapter.Ite
     checkForFirstTimeOpen();
   }
 
+  @Override
+  protected void onStop() {
+    super.onStop();
+    // Upload queued analytics events while the app goes to the background
+    analytics.flush();
+  }
+
   @Override
   @AddTrace(name = "onItemSelected")
   public void onItemSelected(int position) {
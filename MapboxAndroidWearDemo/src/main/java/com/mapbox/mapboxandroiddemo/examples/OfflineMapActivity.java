@@ -4,14 +4,17 @@ import android.app.AlertDialog;
 import android.content.DialogInterface;
 import android.os.Bundle;
 import android.support.wearable.activity.WearableActivity;
+import android.text.format.Formatter;
 import android.util.Log;
 import android.view.View;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ProgressBar;
 import android.widget.Toast;
 
 import com.mapbox.mapboxandroiddemo.R;
+import com.mapbox.mapboxandroiddemo.utils.OfflineRegionCatalog;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.camera.CameraPosition;
 import com.mapbox.mapboxsdk.camera.CameraUpdateFactory;
@@ -25,9 +28,8 @@ import com.mapbox.mapboxsdk.offline.OfflineRegionError;
 import com.mapbox.mapboxsdk.offline.OfflineRegionStatus;
 import com.mapbox.mapboxsdk.offline.OfflineTilePyramidRegionDefinition;
 
-import org.json.JSONObject;
-
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Download and view an offline map using the Mapbox Android SDK.
@@ -37,11 +39,9 @@ public class OfflineMapActivity extends WearableActivity {
   private boolean isEndNotified;
   private ProgressBar progressBar;
   private OfflineManager offlineManager;
+  private OfflineRegionCatalog regionCatalog;
   private OfflineRegion offlineRegionDownloaded;
   private int regionSelected;
-  // JSON encoding/decoding
-  public static final String JSON_CHARSET = "UTF-8";
-  public static final String JSON_FIELD_REGION_NAME = "FIELD_REGION_NAME";
   private MapView mapView;
   private MapboxMap map;
   private Button downloadRegion;
@@ -82,6 +82,15 @@ public class OfflineMapActivity extends WearableActivity {
     listRegions = (Button) findViewById(R.id.listRegionsButton);
     // Assign progressBar for later use
     progressBar = (ProgressBar) findViewById(R.id.progress_bar);
+
+    // The region list is kept between clicks on the list button
+    regionCatalog = new OfflineRegionCatalog(this);
+  }
+
+  @Override
+  protected void onDestroy() {
+    super.onDestroy();
+    Log.d(TAG, regionCatalog.getMetricsSummary());
   }
 
   private void downloadRegionDialog() {
@@ -140,25 +149,16 @@ public class OfflineMapActivity extends WearableActivity {
     OfflineTilePyramidRegionDefinition definition = new OfflineTilePyramidRegionDefinition(
       styleUrl, bounds, minZoom, maxZoom, pixelRatio);
 
-    // Build a JSONObject using the user-defined offline region title,
-    // convert it into string, and use it to create a metadata variable.
-    // The metadata varaible will later be passed to createOfflineRegion()
-    byte[] metadata;
-    try {
-      JSONObject jsonObject = new JSONObject();
-      jsonObject.put(JSON_FIELD_REGION_NAME, regionName);
-      String json = jsonObject.toString();
-      metadata = json.getBytes(JSON_CHARSET);
-    } catch (Exception exception) {
-      Log.e(TAG, "Failed to encode metadata: " + exception.getMessage());
-      metadata = null;
-    }
+    // Encode the user-defined offline region title into a compact metadata variable.
+    // The metadata variable will later be passed to createOfflineRegion()
+    byte[] metadata = OfflineRegionCatalog.encodeMetadata(regionName);
 
     // Create the offline region and launch the download
     offlineManager.createOfflineRegion(definition, metadata, new OfflineManager.CreateOfflineRegionCallback() {
       @Override
       public void onCreate(OfflineRegion offlineRegion) {
         Log.d(TAG, "Offline region created: " + regionName);
+        regionCatalog.invalidate();
         offlineRegionDownloaded = offlineRegion;
         launchDownload();
       }
@@ -182,7 +182,8 @@ public class OfflineMapActivity extends WearableActivity {
           0.0;
 
         if (status.isComplete()) {
-          // Download complete
+          // Download complete, keep its size for the region list
+          regionCatalog.putSize(offlineRegionDownloaded.getID(), status.getCompletedResourceSize());
           endProgress("Region downloaded successfully.");
           return;
         } else if (status.isRequiredResourceCountPrecise()) {
@@ -243,123 +244,136 @@ public class OfflineMapActivity extends WearableActivity {
   }
 
   private void downloadedRegionList() {
-    // Build a region list when the user clicks the list button
-
-    // Reset the region selected int to 0
-    regionSelected = 0;
-
-    // Query the DB asynchronously
-    offlineManager.listOfflineRegions(new OfflineManager.ListOfflineRegionsCallback() {
+    // Build a region list when the user clicks the list button. The
+    // catalog only queries the DB the first time or after a change.
+    regionCatalog.load(new OfflineRegionCatalog.OnCatalogLoadedListener() {
       @Override
-      public void onList(final OfflineRegion[] offlineRegions) {
+      public void onCatalogLoaded(OfflineRegionCatalog catalog) {
         // Check result. If no regions have been
         // downloaded yet, notify user and return
-        if (offlineRegions == null || offlineRegions.length == 0) {
+        if (catalog.getCount() == 0) {
           Toast.makeText(OfflineMapActivity.this, "You have no regions yet.", Toast.LENGTH_SHORT).show();
           return;
         }
+        showRegionPage(0);
+      }
 
-        // Add all of the region names to a list
-        ArrayList<String> offlineRegionsNames = new ArrayList<>();
-        for (OfflineRegion offlineRegion : offlineRegions) {
-          offlineRegionsNames.add(getRegionName(offlineRegion));
-        }
-        final CharSequence[] items = offlineRegionsNames.toArray(new CharSequence[offlineRegionsNames.size()]);
+      @Override
+      public void onCatalogError(String error) {
+        Log.e(TAG, "Error: " + error);
+      }
+    });
+  }
 
-        // Build a dialog containing the list of regions
-        AlertDialog dialog = new AlertDialog.Builder(OfflineMapActivity.this)
-          .setTitle("List")
-          .setSingleChoiceItems(items, 0, new DialogInterface.OnClickListener() {
-            @Override
-            public void onClick(DialogInterface dialog, int which) {
-              // Track which region the user selects
-              regionSelected = which;
-            }
-          })
-          .setPositiveButton("Navigate to", new DialogInterface.OnClickListener() {
-            @Override
-            public void onClick(DialogInterface dialog, int id) {
+  private void showRegionPage(final int page) {
+    // Reset the region selected int to 0
+    regionSelected = 0;
+
+    // Only the names of the regions on this page are decoded
+    final List<OfflineRegionCatalog.Item> items = regionCatalog.getPage(page);
+    final boolean hasMore = page < regionCatalog.getPageCount() - 1;
+    final ArrayAdapter<String> adapter = new ArrayAdapter<>(this,
+      android.R.layout.select_dialog_singlechoice, getItemLabels(items, hasMore));
 
-              Toast.makeText(OfflineMapActivity.this, items[regionSelected], Toast.LENGTH_LONG).show();
+    // Build a dialog containing the regions of the page
+    AlertDialog dialog = new AlertDialog.Builder(OfflineMapActivity.this)
+      .setTitle("List")
+      .setSingleChoiceItems(adapter, 0, new DialogInterface.OnClickListener() {
+        @Override
+        public void onClick(DialogInterface dialog, int which) {
+          if (which == items.size()) {
+            // The last item opens the next page
+            dialog.dismiss();
+            showRegionPage(page + 1);
+            return;
+          }
+          // Track which region the user selects
+          regionSelected = which;
+        }
+      })
+      .setPositiveButton("Navigate to", new DialogInterface.OnClickListener() {
+        @Override
+        public void onClick(DialogInterface dialog, int id) {
+          OfflineRegionCatalog.Item item = items.get(regionSelected);
 
-              // Get the region bounds and zoom
-              LatLngBounds bounds = ((OfflineTilePyramidRegionDefinition)
-                offlineRegions[regionSelected].getDefinition()).getBounds();
-              double regionZoom = ((OfflineTilePyramidRegionDefinition)
-                offlineRegions[regionSelected].getDefinition()).getMinZoom();
+          Toast.makeText(OfflineMapActivity.this, item.getName(), Toast.LENGTH_LONG).show();
 
-              // Create new camera position
-              CameraPosition cameraPosition = new CameraPosition.Builder()
-                .target(bounds.getCenter())
-                .zoom(regionZoom)
-                .build();
+          // Get the region bounds and zoom
+          OfflineTilePyramidRegionDefinition definition =
+            (OfflineTilePyramidRegionDefinition) item.getRegion().getDefinition();
+          LatLngBounds bounds = definition.getBounds();
+          double regionZoom = definition.getMinZoom();
 
-              // Move camera to new position
-              map.moveCamera(CameraUpdateFactory.newCameraPosition(cameraPosition));
+          // Create new camera position
+          CameraPosition cameraPosition = new CameraPosition.Builder()
+            .target(bounds.getCenter())
+            .zoom(regionZoom)
+            .build();
 
-            }
-          })
-          .setNeutralButton("Delete", new DialogInterface.OnClickListener() {
+          // Move camera to new position
+          map.moveCamera(CameraUpdateFactory.newCameraPosition(cameraPosition));
+
+        }
+      })
+      .setNeutralButton("Delete", new DialogInterface.OnClickListener() {
+        @Override
+        public void onClick(DialogInterface dialog, int id) {
+          // Make progressBar indeterminate and
+          // set it to visible to signal that
+          // the deletion process has begun
+          progressBar.setIndeterminate(true);
+          progressBar.setVisibility(View.VISIBLE);
+
+          // Begin the deletion process
+          final OfflineRegion region = items.get(regionSelected).getRegion();
+          region.delete(new OfflineRegion.OfflineRegionDeleteCallback() {
             @Override
-            public void onClick(DialogInterface dialog, int id) {
-              // Make progressBar indeterminate and
-              // set it to visible to signal that
-              // the deletion process has begun
-              progressBar.setIndeterminate(true);
-              progressBar.setVisibility(View.VISIBLE);
-
-              // Begin the deletion process
-              offlineRegions[regionSelected].delete(new OfflineRegion.OfflineRegionDeleteCallback() {
-                @Override
-                public void onDelete() {
-                  // Once the region is deleted, remove the
-                  // progressBar and display a toast
-                  progressBar.setVisibility(View.INVISIBLE);
-                  progressBar.setIndeterminate(false);
-                  Toast.makeText(OfflineMapActivity.this, "Region deleted", Toast.LENGTH_LONG).show();
-                }
-
-                @Override
-                public void onError(String error) {
-                  progressBar.setVisibility(View.INVISIBLE);
-                  progressBar.setIndeterminate(false);
-                  Log.e(TAG, "Error: " + error);
-                }
-              });
+            public void onDelete() {
+              // Once the region is deleted, remove the
+              // progressBar and display a toast
+              regionCatalog.remove(region.getID());
+              progressBar.setVisibility(View.INVISIBLE);
+              progressBar.setIndeterminate(false);
+              Toast.makeText(OfflineMapActivity.this, "Region deleted", Toast.LENGTH_LONG).show();
             }
-          })
-          .setNegativeButton("Cancel", new DialogInterface.OnClickListener() {
+
             @Override
-            public void onClick(DialogInterface dialog, int id) {
-              // When the user cancels, don't do anything.
-              // The dialog will automatically close
+            public void onError(String error) {
+              progressBar.setVisibility(View.INVISIBLE);
+              progressBar.setIndeterminate(false);
+              Log.e(TAG, "Error: " + error);
             }
-          }).create();
-        dialog.show();
-
-      }
+          });
+        }
+      })
+      .setNegativeButton("Cancel", new DialogInterface.OnClickListener() {
+        @Override
+        public void onClick(DialogInterface dialog, int id) {
+          // When the user cancels, don't do anything.
+          // The dialog will automatically close
+        }
+      }).create();
+    dialog.show();
 
+    // Sizes that weren't stored yet are added to the list once they are known
+    regionCatalog.loadSizes(items, new OfflineRegionCatalog.OnSizesLoadedListener() {
       @Override
-      public void onError(String error) {
-        Log.e(TAG, "Error: " + error);
+      public void onSizesLoaded(List<OfflineRegionCatalog.Item> loadedItems) {
+        adapter.clear();
+        adapter.addAll(getItemLabels(loadedItems, hasMore));
       }
     });
   }
 
-  private String getRegionName(OfflineRegion offlineRegion) {
-    // Get the retion name from the offline region metadata
-    String regionName;
-
-    try {
-      byte[] metadata = offlineRegion.getMetadata();
-      String json = new String(metadata, JSON_CHARSET);
-      JSONObject jsonObject = new JSONObject(json);
-      regionName = jsonObject.getString(JSON_FIELD_REGION_NAME);
-    } catch (Exception exception) {
-      Log.e(TAG, "Failed to decode metadata: " + exception.getMessage());
-      regionName = "Region " + offlineRegion.getID();
+  private List<String> getItemLabels(List<OfflineRegionCatalog.Item> items, boolean hasMore) {
+    List<String> labels = new ArrayList<>(items.size() + 1);
+    for (OfflineRegionCatalog.Item item : items) {
+      labels.add(item.getSize() >= 0
+        ? item.getName() + " (" + Formatter.formatShortFileSize(this, item.getSize()) + ")" : item.getName());
     }
-    return regionName;
+    if (hasMore) {
+      labels.add("More regions");
+    }
+    return labels;
   }
 }
-
@@ -0,0 +1,280 @@
+package com.mapbox.mapboxandroiddemo.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.mapbox.mapboxsdk.offline.OfflineManager;
+import com.mapbox.mapboxsdk.offline.OfflineRegion;
+import com.mapbox.mapboxsdk.offline.OfflineRegionStatus;
+
+import org.json.JSONObject;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A paged list of the offline regions stored on the device, made for the small memory and screen of a watch.
+ * <p>
+ * The regions are listed once and kept until the catalog is invalidated, so showing the list again doesn't query
+ * the offline database. Region names are only decoded for the page being shown and a bounded number of them is
+ * cached. New regions store their name as a version byte followed by UTF-8 text instead of a JSON object, while
+ * the JSON metadata of older regions can still be read. The download size of a region is looked up once and then
+ * kept in the shared preferences, so later lists show sizes without asking the offline database for the status of
+ * every region.
+ * </p>
+ */
+public class OfflineRegionCatalog {
+
+  private static final String TAG = "OfflineRegionCatalog";
+
+  private static final String PREFERENCES_NAME = "offline_region_sizes";
+  private static final Charset CHARSET = Charset.forName("UTF-8");
+  private static final byte METADATA_VERSION = 1;
+  private static final String JSON_FIELD_REGION_NAME = "FIELD_REGION_NAME";
+  private static final int NAME_CACHE_SIZE = 64;
+
+  /**
+   * The number of regions on a page.
+   */
+  public static final int PAGE_SIZE = 8;
+
+  /**
+   * Notified when the regions are listed.
+   */
+  public interface OnCatalogLoadedListener {
+
+    void onCatalogLoaded(OfflineRegionCatalog catalog);
+
+    void onCatalogError(String error);
+  }
+
+  /**
+   * Notified when the sizes of a page are known.
+   */
+  public interface OnSizesLoadedListener {
+
+    void onSizesLoaded(List<Item> items);
+  }
+
+  /**
+   * A region on a page, with its decoded name and its download size if it is known.
+   */
+  public static class Item {
+
+    private final OfflineRegion region;
+    private final String name;
+    private long size;
+
+    Item(OfflineRegion region, String name, long size) {
+      this.region = region;
+      this.name = name;
+      this.size = size;
+    }
+
+    public OfflineRegion getRegion() {
+      return region;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return the size of the downloaded resources in bytes, or -1 if it isn't known yet
+     */
+    public long getSize() {
+      return size;
+    }
+  }
+
+  private final OfflineManager offlineManager;
+  private final SharedPreferences sizePreferences;
+  private final LruCache<Long, String> nameCache = new LruCache<>(NAME_CACHE_SIZE);
+  private OfflineRegion[] regions;
+
+  // Metrics
+  private int listCount;
+  private long totalListTime;
+  private int decodedNameCount;
+  private int statusLookupCount;
+
+  public OfflineRegionCatalog(Context context) {
+    offlineManager = OfflineManager.getInstance(context);
+    sizePreferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+  }
+
+  /**
+   * Encodes the name of a new region into its metadata.
+   *
+   * @param name the name of the region
+   * @return the metadata to pass to OfflineManager#createOfflineRegion
+   */
+  public static byte[] encodeMetadata(String name) {
+    byte[] text = name.getBytes(CHARSET);
+    byte[] metadata = new byte[text.length + 1];
+    metadata[0] = METADATA_VERSION;
+    System.arraycopy(text, 0, metadata, 1, text.length);
+    return metadata;
+  }
+
+  /**
+   * Lists the regions, right away if they were listed before and the catalog wasn't invalidated since.
+   *
+   * @param listener notified on the main thread
+   */
+  public void load(final OnCatalogLoadedListener listener) {
+    if (regions != null) {
+      listener.onCatalogLoaded(this);
+      return;
+    }
+    final long startTime = SystemClock.elapsedRealtime();
+    offlineManager.listOfflineRegions(new OfflineManager.ListOfflineRegionsCallback() {
+      @Override
+      public void onList(OfflineRegion[] offlineRegions) {
+        regions = offlineRegions != null ? offlineRegions : new OfflineRegion[0];
+        listCount++;
+        totalListTime += SystemClock.elapsedRealtime() - startTime;
+        listener.onCatalogLoaded(OfflineRegionCatalog.this);
+      }
+
+      @Override
+      public void onError(String error) {
+        listener.onCatalogError(error);
+      }
+    });
+  }
+
+  /**
+   * Makes the next {@link #load(OnCatalogLoadedListener)} list the regions again, e.g. after a region was created.
+   */
+  public void invalidate() {
+    regions = null;
+  }
+
+  /**
+   * @return the number of listed regions
+   */
+  public int getCount() {
+    return regions != null ? regions.length : 0;
+  }
+
+  public int getPageCount() {
+    return (getCount() + PAGE_SIZE - 1) / PAGE_SIZE;
+  }
+
+  /**
+   * Decodes the names of the regions on a page.
+   *
+   * @param page the index of the page
+   * @return the regions on the page, empty if the page doesn't exist
+   */
+  public List<Item> getPage(int page) {
+    List<Item> items = new ArrayList<>(PAGE_SIZE);
+    int end = Math.min(getCount(), (page + 1) * PAGE_SIZE);
+    for (int i = page * PAGE_SIZE; i < end; i++) {
+      OfflineRegion region = regions[i];
+      items.add(new Item(region, getName(region), sizePreferences.getLong(String.valueOf(region.getID()), -1)));
+    }
+    return items;
+  }
+
+  /**
+   * Looks up the sizes of the regions of a page that aren't known yet and keeps them.
+   *
+   * @param items    the regions of a page
+   * @param listener notified on the main thread once all sizes are known, not at all if they all were
+   */
+  public void loadSizes(final List<Item> items, final OnSizesLoadedListener listener) {
+    final List<Item> unknownItems = new ArrayList<>();
+    for (Item item : items) {
+      if (item.size < 0) {
+        unknownItems.add(item);
+      }
+    }
+    final int[] pendingCount = {unknownItems.size()};
+    for (final Item item : unknownItems) {
+      statusLookupCount++;
+      item.region.getStatus(new OfflineRegion.OfflineRegionStatusCallback() {
+        @Override
+        public void onStatus(OfflineRegionStatus status) {
+          // sizes of regions still downloading change, so only complete ones are kept
+          item.size = status.getCompletedResourceSize();
+          if (status.isComplete()) {
+            putSize(item.region.getID(), item.size);
+          }
+          onSizeLoaded();
+        }
+
+        @Override
+        public void onError(String error) {
+          Log.e(TAG, "Failed to get the status of a region: " + error);
+          onSizeLoaded();
+        }
+
+        private void onSizeLoaded() {
+          pendingCount[0]--;
+          if (pendingCount[0] == 0) {
+            listener.onSizesLoaded(items);
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Keeps the size of a region that finished downloading.
+   *
+   * @param regionId the ID of the region
+   * @param size     the size of its downloaded resources in bytes
+   */
+  public void putSize(long regionId, long size) {
+    sizePreferences.edit().putLong(String.valueOf(regionId), size).apply();
+  }
+
+  /**
+   * Forgets a deleted region.
+   *
+   * @param regionId the ID of the region
+   */
+  public void remove(long regionId) {
+    sizePreferences.edit().remove(String.valueOf(regionId)).apply();
+    nameCache.remove(regionId);
+    invalidate();
+  }
+
+  private String getName(OfflineRegion region) {
+    String name = nameCache.get(region.getID());
+    if (name == null) {
+      name = decodeName(region);
+      decodedNameCount++;
+      nameCache.put(region.getID(), name);
+    }
+    return name;
+  }
+
+  private static String decodeName(OfflineRegion region) {
+    byte[] metadata = region.getMetadata();
+    if (metadata != null && metadata.length > 0) {
+      if (metadata[0] == METADATA_VERSION) {
+        return new String(metadata, 1, metadata.length - 1, CHARSET);
+      }
+      try {
+        // regions created before the compact encoding
+        return new JSONObject(new String(metadata, CHARSET)).getString(JSON_FIELD_REGION_NAME);
+      } catch (Exception exception) {
+        Log.e(TAG, "Failed to decode metadata: " + exception.getMessage());
+      }
+    }
+    return "Region " + region.getID();
+  }
+
+  public String getMetricsSummary() {
+    return "Offline region lists: " + listCount + ", average list time: "
+      + (listCount > 0 ? totalListTime / listCount : 0) + " ms, names decoded: " + decodedNameCount
+      + ", status lookups: " + statusLookupCount;
+  }
+}
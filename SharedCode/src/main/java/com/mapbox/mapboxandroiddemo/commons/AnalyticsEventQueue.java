@@ -0,0 +1,346 @@
+package com.mapbox.mapboxandroiddemo.commons;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects analytics events on disk and uploads them in batches on a background thread.
+ * <p>
+ * Callers only create a small {@link Event} and hand it over. Appending it to the log, encoding and uploading
+ * all happen on a single background thread. Events are kept in an {@link EventRingLog} of a fixed size, which
+ * drops the oldest events when uploads can't keep up, and survive the app being closed. A batch is uploaded
+ * when enough events are queued, at a fixed interval and when {@link #flush()} is called, e.g. when the app
+ * goes to the background. Batches that fail with a network error stay queued and are retried by the next
+ * regular or explicit flush, batches the server rejects are dropped.
+ * </p>
+ */
+public class AnalyticsEventQueue {
+
+  private static final String TAG = "AnalyticsEventQueue";
+
+  public static final int TYPE_TRACK = 0;
+  public static final int TYPE_SCREEN = 1;
+  public static final int TYPE_IDENTIFY = 2;
+
+  /**
+   * Sends batches of events to the analytics service.
+   */
+  public interface Uploader {
+
+    /**
+     * Uploads a batch, called on the background thread.
+     *
+     * @param batch the events, oldest first
+     * @return true if the batch was accepted, false if it was rejected and shouldn't be sent again
+     * @throws IOException if the batch couldn't be sent and should be sent again later
+     */
+    boolean upload(@NonNull List<Event> batch) throws IOException;
+  }
+
+  /**
+   * A single analytics event.
+   */
+  public static class Event {
+
+    private final int type;
+    private final String name;
+    private final String userId;
+    private final long timestamp;
+    private final UUID messageId;
+    private final String[] properties;
+
+    private Event(int type, String name, String userId, long timestamp, UUID messageId, String[] properties) {
+      if (properties.length % 2 != 0) {
+        throw new IllegalArgumentException("Properties must be pairs of keys and values");
+      }
+      this.type = type;
+      this.name = name;
+      this.userId = userId;
+      this.timestamp = timestamp;
+      this.messageId = messageId;
+      this.properties = properties;
+    }
+
+    private Event(int type, String name, String userId, String[] properties) {
+      this(type, name, userId, System.currentTimeMillis(), UUID.randomUUID(), properties);
+    }
+
+    /**
+     * @param name       the name of the event
+     * @param userId     the user the event belongs to
+     * @param properties alternating property keys and values
+     */
+    public static Event track(@NonNull String name, @NonNull String userId, String... properties) {
+      return new Event(TYPE_TRACK, name, userId, properties);
+    }
+
+    /**
+     * @param name   the name of the screen
+     * @param userId the user viewing the screen
+     */
+    public static Event screen(@NonNull String name, @NonNull String userId) {
+      return new Event(TYPE_SCREEN, name, userId, new String[0]);
+    }
+
+    /**
+     * @param userId the user
+     * @param traits alternating trait keys and values
+     */
+    public static Event identify(@NonNull String userId, String... traits) {
+      return new Event(TYPE_IDENTIFY, "", userId, traits);
+    }
+
+    public int getType() {
+      return type;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getUserId() {
+      return userId;
+    }
+
+    public long getTimestamp() {
+      return timestamp;
+    }
+
+    /**
+     * @return the unique ID of the event, which lets the service ignore events sent twice
+     */
+    public String getMessageId() {
+      return messageId.toString();
+    }
+
+    public int getPropertyCount() {
+      return properties.length / 2;
+    }
+
+    public String getPropertyKey(int index) {
+      return properties[index * 2];
+    }
+
+    public String getPropertyValue(int index) {
+      return properties[index * 2 + 1];
+    }
+
+    byte[] encode() throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+      DataOutputStream output = new DataOutputStream(bytes);
+      output.writeByte(type);
+      output.writeLong(timestamp);
+      output.writeLong(messageId.getMostSignificantBits());
+      output.writeLong(messageId.getLeastSignificantBits());
+      output.writeUTF(name);
+      output.writeUTF(userId);
+      output.writeShort(properties.length);
+      for (String property : properties) {
+        output.writeUTF(property != null ? property : "");
+      }
+      output.flush();
+      return bytes.toByteArray();
+    }
+
+    static Event decode(byte[] record) throws IOException {
+      DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+      int type = input.readByte();
+      long timestamp = input.readLong();
+      long messageIdMostBits = input.readLong();
+      long messageIdLeastBits = input.readLong();
+      String name = input.readUTF();
+      String userId = input.readUTF();
+      String[] properties = new String[input.readUnsignedShort()];
+      for (int i = 0; i < properties.length; i++) {
+        properties[i] = input.readUTF();
+      }
+      return new Event(type, name, userId, timestamp, new UUID(messageIdMostBits, messageIdLeastBits), properties);
+    }
+  }
+
+  private final File logFile;
+  private final int capacity;
+  private final int batchSize;
+  private final Uploader uploader;
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+  private EventRingLog log;
+  private boolean uploadFailing;
+
+  // Metrics, written on the background thread only
+  private volatile long queuedCount;
+  private volatile long flushedCount;
+  private volatile long rejectedCount;
+  private volatile long failedUploadCount;
+  private volatile long batchCount;
+
+  private final Runnable flushTask = new Runnable() {
+    @Override
+    public void run() {
+      flushNow();
+    }
+  };
+
+  /**
+   * Opens the log and schedules the regular uploads.
+   *
+   * @param logFile       the file events are kept in
+   * @param capacity      the size of the log in bytes
+   * @param batchSize     the number of events uploaded together, and the number of queued events that triggers an
+   *                      upload
+   * @param flushInterval the time in milliseconds between regular uploads
+   * @param uploader      sends the batches
+   */
+  public AnalyticsEventQueue(@NonNull File logFile, int capacity, int batchSize, long flushInterval,
+                             @NonNull Uploader uploader) {
+    this.logFile = logFile;
+    this.capacity = capacity;
+    this.batchSize = batchSize;
+    this.uploader = uploader;
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        openLog();
+      }
+    });
+    executor.scheduleWithFixedDelay(flushTask, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Queues an event. Only the hand over happens on the calling thread.
+   *
+   * @param event the event
+   */
+  public void enqueue(@NonNull final Event event) {
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        if (log == null) {
+          return;
+        }
+        try {
+          if (log.append(event.encode())) {
+            queuedCount++;
+          }
+        } catch (IOException exception) {
+          Log.e(TAG, "Failed to queue an event: " + exception.toString());
+          return;
+        }
+        // while uploads fail, only the regular and explicit flushes retry them
+        if (!uploadFailing && log.size() >= batchSize) {
+          flushNow();
+        }
+      }
+    });
+  }
+
+  /**
+   * Uploads all queued events in the background.
+   */
+  public void flush() {
+    executor.execute(flushTask);
+  }
+
+  /**
+   * Uploads the queued events, then stops the background thread and closes the log.
+   */
+  public void shutdown() {
+    flush();
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        Log.d(TAG, getMetricsSummary());
+        if (log != null) {
+          try {
+            log.close();
+          } catch (IOException exception) {
+            Log.e(TAG, "Failed to close the event log: " + exception.toString());
+          }
+          log = null;
+        }
+      }
+    });
+    executor.shutdown();
+  }
+
+  private void openLog() {
+    try {
+      log = new EventRingLog(logFile, capacity);
+    } catch (IOException exception) {
+      Log.e(TAG, "Failed to open the event log, events won't be recorded: " + exception.toString());
+    }
+  }
+
+  private void flushNow() {
+    if (log == null) {
+      return;
+    }
+    try {
+      while (log.size() > 0) {
+        List<byte[]> records = log.peek(batchSize);
+        List<Event> batch = new ArrayList<>(records.size());
+        for (byte[] record : records) {
+          try {
+            batch.add(Event.decode(record));
+          } catch (IOException exception) {
+            // a damaged record is skipped rather than blocking the queue
+            rejectedCount++;
+          }
+        }
+        if (batch.isEmpty() || uploader.upload(batch)) {
+          flushedCount += batch.size();
+        } else {
+          rejectedCount += batch.size();
+        }
+        batchCount++;
+        log.remove(records.size());
+      }
+      uploadFailing = false;
+    } catch (IOException exception) {
+      uploadFailing = true;
+      failedUploadCount++;
+      Log.d(TAG, "Upload failed, events stay queued: " + exception.toString());
+    }
+  }
+
+  /**
+   * @return the number of events written to the log
+   */
+  public long getQueuedCount() {
+    return queuedCount;
+  }
+
+  /**
+   * @return the number of events the service accepted
+   */
+  public long getFlushedCount() {
+    return flushedCount;
+  }
+
+  /**
+   * @return the number of events lost because the log was full, they were damaged or the service rejected them
+   */
+  public long getDroppedCount() {
+    EventRingLog currentLog = log;
+    return rejectedCount + (currentLog != null ? currentLog.getDroppedCount() : 0);
+  }
+
+  public String getMetricsSummary() {
+    EventRingLog currentLog = log;
+    return "Analytics events queued: " + queuedCount + ", flushed: " + flushedCount + ", dropped: "
+      + getDroppedCount() + ", pending: " + (currentLog != null ? currentLog.size() : 0) + ", batches: "
+      + batchCount + ", failed uploads: " + failedUploadCount;
+  }
+}
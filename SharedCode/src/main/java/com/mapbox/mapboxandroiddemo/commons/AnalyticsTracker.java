@@ -6,17 +6,12 @@ import android.os.Build;
 import android.preference.PreferenceManager;
 import android.support.annotation.NonNull;
 
-import com.segment.analytics.Analytics;
-import com.segment.analytics.messages.IdentifyMessage;
-import com.segment.analytics.messages.ScreenMessage;
-import com.segment.analytics.messages.TrackMessage;
-
-import java.util.HashMap;
+import java.io.File;
 import java.util.Locale;
-import java.util.Map;
 
 /**
- * This class abstracts various analytics calls to Segment analytics' Java library.
+ * This class abstracts various analytics calls to Segment. Events are handed to an {@link AnalyticsEventQueue},
+ * which keeps them on disk and uploads them in compressed batches on a background thread.
  */
 
 public class AnalyticsTracker {
@@ -35,7 +30,7 @@ public class AnalyticsTracker {
 
   private Context appContext;
   private static volatile AnalyticsTracker analyticsInstance;
-  private static volatile Analytics analytics;
+  private static volatile AnalyticsEventQueue eventQueue;
   private static final String CLICKED_ON_NAV_DRAWER_SECTION_EVENT_NAME = "Clicked on nav drawer section";
   private static final String CLICKED_ON_INDIVIDUAL_EXAMPLE_EVENT_NAME = "Clicked on individual example";
   private static final String SECTION_NAME_MAP_KEY = "section name";
@@ -45,6 +40,11 @@ public class AnalyticsTracker {
   private static final String IS_WEARABLE_VALUE = "wearable";
   private static final String MAPBOX_SHARED_PREFERENCE_KEY_ANALYTICS_ENABLED = "mapboxAnalyticsEnabled";
   private static final String MAPBOX_SHARED_PREFERENCES_FILE = "MapboxSharedPreferences";
+  private static final String EVENT_LOG_FILE_NAME = "analytics_events.log";
+  private static final int EVENT_LOG_CAPACITY = 64 * 1024;
+  private static final int EVENT_BATCH_SIZE = 20;
+  private static final long EVENT_FLUSH_INTERVAL = 60 * 1000;
+  private static final String NOT_LOGGED_IN = "not logged in";
   private static String MAPBOX_USERNAME;
   private Boolean analyticsEnabled;
   private Boolean deviceIsWearable;
@@ -59,11 +59,10 @@ public class AnalyticsTracker {
           analyticsInstance = new AnalyticsTracker();
           analyticsInstance.appContext = context;
           analyticsInstance.deviceIsWearable = isWearable;
-          if (isWearable) {
-            analytics = Analytics.builder(context.getString(R.string.mapbox_segment_wearable_write_key)).build();
-          } else {
-            analytics = Analytics.builder(context.getString(R.string.mapbox_segment_write_key)).build();
-          }
+          String writeKey = context.getString(isWearable
+            ? R.string.mapbox_segment_wearable_write_key : R.string.mapbox_segment_write_key);
+          eventQueue = new AnalyticsEventQueue(new File(context.getFilesDir(), EVENT_LOG_FILE_NAME),
+            EVENT_LOG_CAPACITY, EVENT_BATCH_SIZE, EVENT_FLUSH_INTERVAL, new SegmentBatchUploader(writeKey));
         }
       }
     }
@@ -81,31 +80,29 @@ public class AnalyticsTracker {
    **/
 
   public void openedAppForFirstTime(boolean isTablet, boolean loggedIn) {
-    Map<String, String> properties = new HashMap<>();
-    properties.put("email", getSharedPreferences(appContext)
-      .getString(StringConstants.EMAIL_KEY, "not logged in"));
-    properties.put("model", Build.MODEL);
-    properties.put("brand", Build.BRAND);
-    properties.put("product", Build.PRODUCT);
-    properties.put("manufacturer", Build.MANUFACTURER);
-    properties.put("device", Build.DEVICE);
-    properties.put("tags", Build.TAGS);
-    properties.put("iso3 language", Locale.getDefault().getISO3Language());
-    properties.put("language", Locale.getDefault().getLanguage());
-    properties.put("iso3 country", Locale.getDefault().getISO3Country());
-    properties.put("country", Locale.getDefault().getCountry());
-    properties.put("display country", Locale.getDefault().getDisplayCountry());
-    properties.put("display name", Locale.getDefault().getDisplayName());
-    properties.put("display language", Locale.getDefault().getDisplayLanguage());
+    String size;
     if (deviceIsWearable) {
-      properties.put("size", IS_WEARABLE_VALUE);
+      size = IS_WEARABLE_VALUE;
     } else {
-      properties.put("size", isTablet ? IS_TABLET_MAP_VALUE : IS_PHONE_MAP_VALUE);
+      size = isTablet ? IS_TABLET_MAP_VALUE : IS_PHONE_MAP_VALUE;
     }
-    analytics.enqueue(TrackMessage.builder("New install")
-      .userId(loggedIn ? MAPBOX_USERNAME : "not logged in")
-      .properties(properties)
-    );
+    Locale locale = Locale.getDefault();
+    eventQueue.enqueue(AnalyticsEventQueue.Event.track("New install", getUserId(loggedIn),
+      "email", getSharedPreferences(appContext).getString(StringConstants.EMAIL_KEY, NOT_LOGGED_IN),
+      "model", Build.MODEL,
+      "brand", Build.BRAND,
+      "product", Build.PRODUCT,
+      "manufacturer", Build.MANUFACTURER,
+      "device", Build.DEVICE,
+      "tags", Build.TAGS,
+      "iso3 language", locale.getISO3Language(),
+      "language", locale.getLanguage(),
+      "iso3 country", locale.getISO3Country(),
+      "country", locale.getCountry(),
+      "display country", locale.getDisplayCountry(),
+      "display name", locale.getDisplayName(),
+      "display language", locale.getDisplayLanguage(),
+      "size", size));
   }
 
   /**
@@ -157,16 +154,11 @@ public class AnalyticsTracker {
   private void trackEventWithProperties(@NonNull String eventName, String keyForPropertiesMap,
                                         String valueForPropertiesMap, boolean loggedIn) {
     if (isAnalyticsEnabled()) {
-
       if (keyForPropertiesMap == null || valueForPropertiesMap == null) {
-        analytics.enqueue(TrackMessage.builder(eventName)
-          .userId(loggedIn ? MAPBOX_USERNAME : "not logged in"));
-      }
-      if (keyForPropertiesMap != null && valueForPropertiesMap != null) {
-        Map<String, String> properties = new HashMap<>();
-        properties.put(keyForPropertiesMap, valueForPropertiesMap);
-        analytics.enqueue(TrackMessage.builder(eventName).userId(loggedIn ? MAPBOX_USERNAME : "not logged in")
-          .properties(properties));
+        eventQueue.enqueue(AnalyticsEventQueue.Event.track(eventName, getUserId(loggedIn)));
+      } else {
+        eventQueue.enqueue(AnalyticsEventQueue.Event.track(eventName, getUserId(loggedIn),
+          keyForPropertiesMap, valueForPropertiesMap));
       }
     }
   }
@@ -179,10 +171,8 @@ public class AnalyticsTracker {
    */
   public void viewedScreen(String nameOfScreen, boolean loggedIn) {
 
-    if (deviceIsWearable) {
-      analytics.enqueue(ScreenMessage.builder(nameOfScreen).userId(loggedIn ? MAPBOX_USERNAME : "not logged in"));
-    } else if (isAnalyticsEnabled()) {
-      analytics.enqueue(ScreenMessage.builder(nameOfScreen).userId(loggedIn ? MAPBOX_USERNAME : "not logged in"));
+    if (deviceIsWearable || isAnalyticsEnabled()) {
+      eventQueue.enqueue(AnalyticsEventQueue.Event.screen(nameOfScreen, getUserId(loggedIn)));
     }
   }
 
@@ -192,17 +182,31 @@ public class AnalyticsTracker {
    * @param userEmailAddress Email address associated with user's Mapbox account
    */
   public void identifyUser(@NonNull String userEmailAddress) {
-    if (isAnalyticsEnabled()) {
-      Map<String, String> traits = new HashMap<>();
-      traits.put("email", userEmailAddress);
-
-      analytics.enqueue(IdentifyMessage.builder()
-        .userId(MAPBOX_USERNAME)
-        .traits(traits)
-      );
+    // Segment needs a user ID to identify a user
+    if (isAnalyticsEnabled() && MAPBOX_USERNAME != null) {
+      eventQueue.enqueue(AnalyticsEventQueue.Event.identify(MAPBOX_USERNAME, "email", userEmailAddress));
     }
   }
 
+  /**
+   * Uploads the queued analytics events in the background. Ideally called when the app goes to the
+   * background, e.g. in onStop(), so events don't wait for the next regular upload.
+   */
+  public void flush() {
+    eventQueue.flush();
+  }
+
+  /**
+   * Returns the counters of the analytics event queue, e.g. for logging.
+   */
+  public String getMetricsSummary() {
+    return eventQueue.getMetricsSummary();
+  }
+
+  private String getUserId(boolean loggedIn) {
+    return loggedIn && MAPBOX_USERNAME != null ? MAPBOX_USERNAME : NOT_LOGGED_IN;
+  }
+
   /**
    * Returns the opt-out status for the current device and analytics client combination.
    */
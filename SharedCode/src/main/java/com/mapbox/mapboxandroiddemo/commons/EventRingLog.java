@@ -0,0 +1,189 @@
+package com.mapbox.mapboxandroiddemo.commons;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A fixed size file holding a queue of byte records, which drops the oldest records when it is full.
+ * <p>
+ * The file starts with a header holding the positions of the oldest and the next record and the number of
+ * records, followed by a data area used as a ring. Every record is its length followed by its bytes. A record
+ * that doesn't fit before the end of the data area starts over at its beginning, after a zero length marker if
+ * there is room for one. The header is rewritten after every change, so the queue survives the process being
+ * killed. The class isn't thread safe.
+ * </p>
+ */
+class EventRingLog {
+
+  private static final int MAGIC = 0x4d424551;
+  private static final int HEADER_SIZE = 16;
+  private static final int LENGTH_SIZE = 4;
+
+  private final RandomAccessFile file;
+  private final int capacity;
+  private int head;
+  private int tail;
+  private int count;
+  private long droppedCount;
+
+  /**
+   * Opens the log, or creates it if it doesn't exist or was written with another capacity.
+   *
+   * @param path     the file of the log
+   * @param capacity the size of the data area in bytes
+   */
+  EventRingLog(File path, int capacity) throws IOException {
+    this.file = new RandomAccessFile(path, "rw");
+    this.capacity = capacity;
+    if (file.length() != HEADER_SIZE + capacity || !readHeader()) {
+      file.setLength(HEADER_SIZE + capacity);
+      head = 0;
+      tail = 0;
+      count = 0;
+      writeHeader();
+    }
+  }
+
+  /**
+   * Appends a record, dropping the oldest records if there isn't enough room.
+   *
+   * @param record the record, which must not be empty
+   * @return false if the record is larger than the whole log and was dropped
+   */
+  boolean append(byte[] record) throws IOException {
+    if (record.length == 0) {
+      throw new IllegalArgumentException("Empty records can't be told apart from wrap markers");
+    }
+    int needed = LENGTH_SIZE + record.length;
+    if (needed > capacity) {
+      droppedCount++;
+      return false;
+    }
+    while (!fits(needed)) {
+      removeFirst();
+      droppedCount++;
+    }
+    if (count == 0) {
+      head = 0;
+      tail = 0;
+    }
+    if (capacity - tail < needed) {
+      if (capacity - tail >= LENGTH_SIZE) {
+        file.seek(HEADER_SIZE + tail);
+        file.writeInt(0);
+      }
+      tail = 0;
+    }
+    file.seek(HEADER_SIZE + tail);
+    file.writeInt(record.length);
+    file.write(record);
+    tail += needed;
+    count++;
+    writeHeader();
+    return true;
+  }
+
+  /**
+   * Reads the oldest records without removing them.
+   *
+   * @param maxCount the number of records to read at most
+   * @return the records, oldest first
+   */
+  List<byte[]> peek(int maxCount) throws IOException {
+    List<byte[]> records = new ArrayList<>();
+    int position = head;
+    for (int i = 0; i < Math.min(maxCount, count); i++) {
+      position = recordStart(position);
+      file.seek(HEADER_SIZE + position);
+      int length = file.readInt();
+      byte[] record = new byte[length];
+      file.readFully(record);
+      records.add(record);
+      position += LENGTH_SIZE + length;
+    }
+    return records;
+  }
+
+  /**
+   * Removes the oldest records, e.g. after they were uploaded.
+   *
+   * @param removeCount the number of records to remove
+   */
+  void remove(int removeCount) throws IOException {
+    for (int i = 0; i < removeCount && count > 0; i++) {
+      removeFirst();
+    }
+    writeHeader();
+  }
+
+  int size() {
+    return count;
+  }
+
+  /**
+   * @return the number of records dropped since the log was opened because it was full
+   */
+  long getDroppedCount() {
+    return droppedCount;
+  }
+
+  void close() throws IOException {
+    file.close();
+  }
+
+  private boolean fits(int needed) {
+    if (count == 0) {
+      return true;
+    }
+    if (tail > head) {
+      // room after the last record, or else at the start of the data area before the first record
+      return capacity - tail >= needed || head >= needed;
+    }
+    // wrapped around, only the gap between the last and the first record is free
+    return head - tail >= needed;
+  }
+
+  private void removeFirst() throws IOException {
+    head = recordStart(head);
+    file.seek(HEADER_SIZE + head);
+    head += LENGTH_SIZE + file.readInt();
+    count--;
+    if (count == 0) {
+      head = 0;
+      tail = 0;
+    }
+  }
+
+  /**
+   * @return the position the record at a position really starts at, after following a wrap around
+   */
+  private int recordStart(int position) throws IOException {
+    if (capacity - position < LENGTH_SIZE) {
+      return 0;
+    }
+    file.seek(HEADER_SIZE + position);
+    return file.readInt() == 0 ? 0 : position;
+  }
+
+  private boolean readHeader() throws IOException {
+    file.seek(0);
+    if (file.readInt() != MAGIC) {
+      return false;
+    }
+    head = file.readInt();
+    tail = file.readInt();
+    count = file.readInt();
+    return head >= 0 && head <= capacity && tail >= 0 && tail <= capacity && count >= 0;
+  }
+
+  private void writeHeader() throws IOException {
+    file.seek(0);
+    file.writeInt(MAGIC);
+    file.writeInt(head);
+    file.writeInt(tail);
+    file.writeInt(count);
+  }
+}
@@ -0,0 +1,166 @@
+package com.mapbox.mapboxandroiddemo.commons;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.mapbox.geojson.BoundingBox;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.Geometry;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.gson.BoundingBoxDeserializer;
+import com.mapbox.geojson.gson.GeoJsonAdapterFactory;
+import com.mapbox.geojson.gson.GeometryDeserializer;
+import com.mapbox.geojson.gson.PointDeserializer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class loads GeoJSON files from the assets folder without first copying the whole file into a String.
+ * The asset's InputStream is tokenized directly and each Feature of the top-level "features" array is
+ * decoded straight from the token stream by the GeoJSON library's Gson type adapters and handed over as soon
+ * as it has been read, so neither the file nor a single Feature is ever held as JSON text or as a JSON tree.
+ */
+public class GeoJsonAssetReader {
+
+  private static final String TAG = "GeoJsonAssetReader";
+  private static final String FEATURES_KEY = "features";
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  // Configured like Feature#fromJson, built once as Gson instances are thread safe
+  private static final Gson GSON = new GsonBuilder()
+    .registerTypeAdapterFactory(GeoJsonAdapterFactory.create())
+    .registerTypeAdapter(Point.class, new PointDeserializer())
+    .registerTypeAdapter(BoundingBox.class, new BoundingBoxDeserializer())
+    .registerTypeAdapter(Geometry.class, new GeometryDeserializer())
+    .create();
+
+  /**
+   * Callback invoked for every Feature read from a GeoJSON FeatureCollection.
+   */
+  public interface OnFeatureReadListener {
+
+    /**
+     * Called once per Feature, in document order.
+     *
+     * @param feature the Feature that was just read
+     * @return true to continue reading, false to stop and close the stream
+     */
+    boolean onFeatureRead(@NonNull Feature feature);
+  }
+
+  private GeoJsonAssetReader() {
+    // Utility class
+  }
+
+  /**
+   * Reads a GeoJSON FeatureCollection from the assets folder.
+   *
+   * @param context  used to access the application's assets
+   * @param filename name of the GeoJSON file in the assets folder
+   * @return the FeatureCollection, empty if the file couldn't be read so it can still back a source
+   */
+  @NonNull
+  public static FeatureCollection loadFeatureCollection(@NonNull Context context, @NonNull String filename) {
+    final List<Feature> features = new ArrayList<>();
+    boolean loaded = streamFeatures(context, filename, new OnFeatureReadListener() {
+      @Override
+      public boolean onFeatureRead(@NonNull Feature feature) {
+        features.add(feature);
+        return true;
+      }
+    });
+    if (!loaded) {
+      features.clear();
+    }
+    return FeatureCollection.fromFeatures(features);
+  }
+
+  /**
+   * Streams the Features of a GeoJSON FeatureCollection in the assets folder to a listener.
+   *
+   * @param context  used to access the application's assets
+   * @param filename name of the GeoJSON file in the assets folder
+   * @param listener receives each Feature as soon as it has been parsed
+   * @return true if the file was read successfully, false otherwise
+   */
+  public static boolean streamFeatures(@NonNull Context context, @NonNull String filename,
+                                       @NonNull OnFeatureReadListener listener) {
+    try {
+      readFeatures(context.getAssets().open(filename), listener);
+      return true;
+    } catch (IOException | RuntimeException exception) {
+      Log.e(TAG, "Exception loading GeoJSON " + filename + ": " + exception.toString());
+      return false;
+    }
+  }
+
+  /**
+   * Reads the Features of a GeoJSON FeatureCollection from an InputStream. The stream is always closed
+   * before this method returns. Members of the root object other than "features" are skipped.
+   *
+   * @param inputStream UTF-8 encoded GeoJSON FeatureCollection
+   * @param listener    receives each Feature as soon as it has been parsed
+   * @throws IOException if the stream couldn't be read or isn't well-formed JSON
+   */
+  public static void readFeatures(@NonNull InputStream inputStream,
+                                  @NonNull OnFeatureReadListener listener) throws IOException {
+    Reader reader = new InputStreamReader(inputStream, UTF_8);
+    JsonReader jsonReader = new JsonReader(reader);
+    try {
+      readFeatures(jsonReader, listener);
+    } finally {
+      jsonReader.close();
+    }
+  }
+
+  private static void readFeatures(JsonReader jsonReader, OnFeatureReadListener listener) throws IOException {
+    jsonReader.beginObject();
+    while (jsonReader.hasNext()) {
+      if (!FEATURES_KEY.equals(jsonReader.nextName()) || jsonReader.peek() != JsonToken.BEGIN_ARRAY) {
+        jsonReader.skipValue();
+        continue;
+      }
+      jsonReader.beginArray();
+      while (jsonReader.hasNext()) {
+        // Only the current Feature is materialized; the rest of the file stays in the stream
+        if (!listener.onFeatureRead(readFeature(jsonReader))) {
+          return;
+        }
+      }
+      jsonReader.endArray();
+    }
+    jsonReader.endObject();
+  }
+
+  private static Feature readFeature(JsonReader jsonReader) throws IOException {
+    Feature feature;
+    try {
+      feature = GSON.fromJson(jsonReader, Feature.class);
+    } catch (JsonParseException exception) {
+      // Gson reports malformed JSON unchecked, even when it came from the reader
+      throw new IOException(exception.getMessage(), exception);
+    }
+    if (feature == null) {
+      throw new IOException("Null entry in the features array");
+    }
+    // Feature#fromJson also gives features without properties an empty object, so addProperty works on them
+    if (feature.properties() == null) {
+      feature = Feature.fromGeometry(feature.geometry(), new JsonObject(), feature.id(), feature.bbox());
+    }
+    return feature;
+  }
+}
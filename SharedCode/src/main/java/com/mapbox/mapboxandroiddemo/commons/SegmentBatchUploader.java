@@ -0,0 +1,167 @@
+package com.mapbox.mapboxandroiddemo.commons;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Uploads batches of analytics events to the batch endpoint of the Segment HTTP tracking API.
+ * <p>
+ * Each batch is written as one JSON document and gzip compressed before it is sent. The endpoint can be
+ * replaced, e.g. by a local HTTP server standing in for Segment while testing.
+ * </p>
+ */
+public class SegmentBatchUploader implements AnalyticsEventQueue.Uploader {
+
+  /**
+   * The batch endpoint of the Segment tracking API.
+   */
+  public static final String DEFAULT_ENDPOINT = "https://api.segment.io/v1/batch";
+
+  private static final int TIMEOUT = 15000;
+  private static final String[] TYPE_NAMES = {"track", "screen", "identify"};
+  private static final char[] BASE64_DIGITS =
+    "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+  private final String endpoint;
+  private final String authorization;
+  private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+
+  // Metrics
+  private long uncompressedBytes;
+  private long compressedBytes;
+
+  /**
+   * @param writeKey the write key of the Segment source
+   * @param endpoint the URL batches are posted to
+   */
+  public SegmentBatchUploader(@NonNull String writeKey, @NonNull String endpoint) {
+    this.endpoint = endpoint;
+    this.authorization = "Basic " + encodeBase64((writeKey + ":").getBytes(Charset.forName("UTF-8")));
+    dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+  }
+
+  public SegmentBatchUploader(@NonNull String writeKey) {
+    this(writeKey, DEFAULT_ENDPOINT);
+  }
+
+  @Override
+  public boolean upload(@NonNull List<AnalyticsEventQueue.Event> batch) throws IOException {
+    byte[] json = writeBatch(batch);
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+    GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+    try {
+      gzip.write(json);
+    } finally {
+      gzip.close();
+    }
+    byte[] body = compressed.toByteArray();
+    uncompressedBytes += json.length;
+    compressedBytes += body.length;
+
+    HttpURLConnection connection = (HttpURLConnection) new URL(endpoint).openConnection();
+    try {
+      connection.setConnectTimeout(TIMEOUT);
+      connection.setReadTimeout(TIMEOUT);
+      connection.setDoOutput(true);
+      connection.setRequestMethod("POST");
+      connection.setRequestProperty("Content-Type", "application/json");
+      connection.setRequestProperty("Content-Encoding", "gzip");
+      connection.setRequestProperty("Authorization", authorization);
+      connection.setFixedLengthStreamingMode(body.length);
+      OutputStream output = connection.getOutputStream();
+      try {
+        output.write(body);
+      } finally {
+        output.close();
+      }
+      int code = connection.getResponseCode();
+      if (code == 429 || code >= 500) {
+        throw new IOException("Batch upload failed with HTTP " + code);
+      }
+      // other client errors mean the batch itself is bad, sending it again won't help
+      return code < 400;
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  /**
+   * Encodes bytes as unwrapped Base64 with padding. Written out here rather than using android.util.Base64, which
+   * only the device provides, or java.util.Base64, which needs API 26.
+   */
+  static String encodeBase64(byte[] bytes) {
+    StringBuilder encoded = new StringBuilder((bytes.length + 2) / 3 * 4);
+    for (int i = 0; i < bytes.length; i += 3) {
+      int remaining = bytes.length - i;
+      int group = (bytes[i] & 0xff) << 16;
+      if (remaining > 1) {
+        group |= (bytes[i + 1] & 0xff) << 8;
+      }
+      if (remaining > 2) {
+        group |= bytes[i + 2] & 0xff;
+      }
+      encoded.append(BASE64_DIGITS[group >> 18 & 0x3f]);
+      encoded.append(BASE64_DIGITS[group >> 12 & 0x3f]);
+      encoded.append(remaining > 1 ? BASE64_DIGITS[group >> 6 & 0x3f] : '=');
+      encoded.append(remaining > 2 ? BASE64_DIGITS[group & 0x3f] : '=');
+    }
+    return encoded.toString();
+  }
+
+  private byte[] writeBatch(List<AnalyticsEventQueue.Event> batch) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.size() * 256);
+    JsonWriter writer = new JsonWriter(new OutputStreamWriter(bytes, "UTF-8"));
+    try {
+      writer.beginObject();
+      writer.name("batch").beginArray();
+      for (AnalyticsEventQueue.Event event : batch) {
+        writer.beginObject();
+        writer.name("type").value(TYPE_NAMES[event.getType()]);
+        writer.name("messageId").value(event.getMessageId());
+        writer.name("userId").value(event.getUserId());
+        writer.name("timestamp").value(dateFormat.format(new Date(event.getTimestamp())));
+        if (event.getType() == AnalyticsEventQueue.TYPE_TRACK) {
+          writer.name("event").value(event.getName());
+        } else if (event.getType() == AnalyticsEventQueue.TYPE_SCREEN) {
+          writer.name("name").value(event.getName());
+        }
+        if (event.getPropertyCount() > 0) {
+          writer.name(event.getType() == AnalyticsEventQueue.TYPE_IDENTIFY ? "traits" : "properties").beginObject();
+          for (int i = 0; i < event.getPropertyCount(); i++) {
+            writer.name(event.getPropertyKey(i)).value(event.getPropertyValue(i));
+          }
+          writer.endObject();
+        }
+        writer.endObject();
+      }
+      writer.endArray();
+      writer.name("sentAt").value(dateFormat.format(new Date()));
+      writer.endObject();
+    } finally {
+      writer.close();
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @return the share of bytes saved by compressing the batches, between 0 and 1
+   */
+  public double getCompressionSavings() {
+    return uncompressedBytes > 0 ? 1 - (double) compressedBytes / uncompressedBytes : 0;
+  }
+}
@@ -0,0 +1,186 @@
+package com.mapbox.mapboxandroiddemo.commons;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EventRingLogTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private File file;
+  private EventRingLog log;
+
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile("event_ring_log", ".bin");
+    log = new EventRingLog(file, 64);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    log.close();
+    file.delete();
+  }
+
+  @Test
+  public void append_keepsRecordsInOrder() throws IOException {
+    log.append(bytes("first"));
+    log.append(bytes("second"));
+    log.append(bytes("third"));
+
+    List<byte[]> records = log.peek(10);
+    assertEquals(3, log.size());
+    assertEquals(3, records.size());
+    assertArrayEquals(bytes("first"), records.get(0));
+    assertArrayEquals(bytes("second"), records.get(1));
+    assertArrayEquals(bytes("third"), records.get(2));
+    assertEquals(2, log.peek(2).size());
+  }
+
+  @Test
+  public void remove_dropsTheOldestRecords() throws IOException {
+    log.append(bytes("first"));
+    log.append(bytes("second"));
+    log.append(bytes("third"));
+    log.remove(2);
+
+    assertEquals(1, log.size());
+    assertArrayEquals(bytes("third"), log.peek(10).get(0));
+    log.remove(5);
+    assertEquals(0, log.size());
+  }
+
+  @Test
+  public void append_dropsTheOldestRecordsWhenFull() throws IOException {
+    // every record takes 4 + 12 bytes, so 4 fit into 64 bytes
+    for (int i = 0; i < 6; i++) {
+      assertTrue(log.append(bytes(String.format("record %5d", i))));
+    }
+
+    List<byte[]> records = log.peek(10);
+    assertEquals(4, records.size());
+    assertArrayEquals(bytes("record     2"), records.get(0));
+    assertArrayEquals(bytes("record     5"), records.get(3));
+    assertEquals(2, log.getDroppedCount());
+  }
+
+  @Test
+  public void append_rejectsRecordsLargerThanTheLog() throws IOException {
+    assertFalse(log.append(new byte[61]));
+    assertEquals(0, log.size());
+    assertEquals(1, log.getDroppedCount());
+    assertTrue(log.append(new byte[60]));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void append_rejectsEmptyRecords() throws IOException {
+    log.append(new byte[0]);
+  }
+
+  @Test
+  public void reopen_keepsTheQueue() throws IOException {
+    for (int i = 0; i < 7; i++) {
+      log.append(bytes("event " + i));
+    }
+    log.remove(1);
+    List<byte[]> before = log.peek(10);
+    log.close();
+
+    log = new EventRingLog(file, 64);
+    List<byte[]> after = log.peek(10);
+    assertEquals(before.size(), after.size());
+    for (int i = 0; i < before.size(); i++) {
+      assertArrayEquals(before.get(i), after.get(i));
+    }
+  }
+
+  @Test
+  public void reopen_withAnotherCapacityStartsOver() throws IOException {
+    log.append(bytes("event"));
+    log.close();
+
+    log = new EventRingLog(file, 128);
+    assertEquals(0, log.size());
+  }
+
+  @Test
+  public void reopen_ignoresACorruptHeader() throws IOException {
+    log.append(bytes("event"));
+    log.close();
+    RandomAccessFile corrupt = new RandomAccessFile(file, "rw");
+    try {
+      corrupt.writeInt(0);
+    } finally {
+      corrupt.close();
+    }
+
+    log = new EventRingLog(file, 64);
+    assertEquals(0, log.size());
+  }
+
+  @Test
+  public void randomOperations_matchAQueue() throws IOException {
+    Random random = new Random(9);
+    Deque<byte[]> expected = new ArrayDeque<>();
+    int capacity = 64;
+    for (int run = 0; run < 5000; run++) {
+      int operation = random.nextInt(10);
+      if (operation < 6) {
+        byte[] record = new byte[1 + random.nextInt(20)];
+        random.nextBytes(record);
+        log.append(record);
+        expected.addLast(record);
+        // drop from the model what can't fit, the same way the log does: oldest first
+        while (storedSize(expected) > capacity) {
+          expected.removeFirst();
+        }
+      } else if (operation < 9) {
+        int removeCount = random.nextInt(3);
+        log.remove(removeCount);
+        for (int i = 0; i < removeCount && !expected.isEmpty(); i++) {
+          expected.removeFirst();
+        }
+      } else {
+        log.close();
+        log = new EventRingLog(file, capacity);
+      }
+      assertTrue(log.size() <= expected.size());
+      while (expected.size() > log.size()) {
+        // the log may drop more than strictly needed, as records don't wrap around inside the ring
+        expected.removeFirst();
+      }
+      List<byte[]> records = log.peek(Integer.MAX_VALUE);
+      int index = 0;
+      for (byte[] record : expected) {
+        assertArrayEquals(record, records.get(index++));
+      }
+    }
+  }
+
+  private static int storedSize(Deque<byte[]> records) {
+    int size = 0;
+    for (byte[] record : records) {
+      size += 4 + record.length;
+    }
+    return size;
+  }
+
+  private static byte[] bytes(String text) {
+    return text.getBytes(UTF_8);
+  }
+}
@@ -0,0 +1,116 @@
+package com.mapbox.mapboxandroiddemo.commons;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Point;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class GeoJsonAssetReaderTest {
+
+  private static final String COLLECTION = "{\"type\":\"FeatureCollection\",\"name\":\"test\",\"features\":["
+    + "{\"type\":\"Feature\",\"properties\":{\"name\":\"first\",\"mag\":4.5},"
+    + "\"geometry\":{\"type\":\"Point\",\"coordinates\":[-77.03,38.89]}},"
+    + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[2.35,48.85]}},"
+    + "{\"type\":\"Feature\",\"id\":\"third\",\"properties\":{\"name\":\"third\"},"
+    + "\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[0,0],[1,1]]}}"
+    + "],\"crs\":{\"type\":\"name\"}}";
+
+  @Test
+  public void readFeatures_readsEveryFeatureInOrder() throws IOException {
+    List<Feature> features = read(COLLECTION);
+
+    assertEquals(3, features.size());
+    assertEquals("first", features.get(0).getStringProperty("name"));
+    assertEquals(4.5, features.get(0).getNumberProperty("mag").doubleValue(), 0);
+    Point point = (Point) features.get(0).geometry();
+    assertEquals(-77.03, point.longitude(), 1e-9);
+    assertEquals(38.89, point.latitude(), 1e-9);
+    assertEquals("third", features.get(2).id());
+    assertEquals("LineString", features.get(2).geometry().type());
+  }
+
+  @Test
+  public void readFeatures_givesFeaturesWithoutPropertiesAnEmptyObject() throws IOException {
+    Feature feature = read(COLLECTION).get(1);
+
+    assertNotNull(feature.properties());
+    assertEquals(0, feature.properties().size());
+  }
+
+  @Test
+  public void readFeatures_stopsWhenTheListenerSaysSo() throws IOException {
+    final List<Feature> features = new ArrayList<>();
+    GeoJsonAssetReader.readFeatures(toStream(COLLECTION), new GeoJsonAssetReader.OnFeatureReadListener() {
+      @Override
+      public boolean onFeatureRead(@NonNull Feature feature) {
+        features.add(feature);
+        return false;
+      }
+    });
+
+    assertEquals(1, features.size());
+  }
+
+  @Test
+  public void readFeatures_matchesFeatureFromJson() throws IOException {
+    String json = createCollection(50);
+    List<Feature> features = read(json);
+
+    assertEquals(50, features.size());
+    for (int i = 0; i < features.size(); i++) {
+      assertTrue(features.get(i).equals(Feature.fromJson(createFeature(i))));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void readFeatures_rejectsTruncatedJson() throws IOException {
+    read(COLLECTION.substring(0, COLLECTION.length() / 2));
+  }
+
+  private static List<Feature> read(String json) throws IOException {
+    final List<Feature> features = new ArrayList<>();
+    GeoJsonAssetReader.readFeatures(toStream(json), new GeoJsonAssetReader.OnFeatureReadListener() {
+      @Override
+      public boolean onFeatureRead(@NonNull Feature feature) {
+        features.add(feature);
+        return true;
+      }
+    });
+    return features;
+  }
+
+  static InputStream toStream(String json) {
+    return new ByteArrayInputStream(json.getBytes(Charset.forName("UTF-8")));
+  }
+
+  private static String createCollection(int featureCount) {
+    StringBuilder builder = new StringBuilder("{\"type\":\"FeatureCollection\",\"features\":[");
+    for (int i = 0; i < featureCount; i++) {
+      if (i > 0) {
+        builder.append(',');
+      }
+      builder.append(createFeature(i));
+    }
+    return builder.append("]}").toString();
+  }
+
+  private static String createFeature(int index) {
+    return String.format(Locale.US, "{\"type\":\"Feature\",\"id\":\"%d\",\"properties\":{\"name\":\"Feature %d\","
+        + "\"mag\":%.2f,\"felt\":%b},\"geometry\":{\"type\":\"Point\",\"coordinates\":[%.6f,%.6f]}}",
+      index, index, index % 70 / 10.0, index % 2 == 0, -180 + index % 3600 / 10.0, -80 + index % 1600 / 10.0);
+  }
+}
@@ -0,0 +1,189 @@
+package com.mapbox.mapboxandroiddemo.commons;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Uploads queued events to a local HTTP server standing in for the Segment batch endpoint. The regular flushes
+ * are an hour apart, so uploads only happen when a batch fills up or the test flushes.
+ */
+public class SegmentBatchUploaderTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int BATCH_SIZE = 3;
+  private static final long FLUSH_INTERVAL = 3600000;
+  private static final long TIMEOUT = 10000;
+
+  private final BlockingQueue<Request> requests = new LinkedBlockingQueue<>();
+  private final BlockingQueue<Integer> responseCodes = new LinkedBlockingQueue<>();
+  private HttpServer server;
+  private File file;
+  private AnalyticsEventQueue queue;
+
+  @Before
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/v1/batch", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        try {
+          requests.add(new Request(exchange));
+          Integer code = responseCodes.poll();
+          exchange.sendResponseHeaders(code != null ? code : 200, -1);
+        } finally {
+          exchange.close();
+        }
+      }
+    });
+    server.start();
+    file = File.createTempFile("analytics_events", ".bin");
+    queue = new AnalyticsEventQueue(file, 4096, BATCH_SIZE, FLUSH_INTERVAL, new SegmentBatchUploader("wk_test",
+      "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/batch"));
+  }
+
+  @After
+  public void tearDown() {
+    queue.shutdown();
+    server.stop(0);
+    file.delete();
+  }
+
+  @Test
+  public void enqueue_uploadsFullBatchesAndFlushUploadsTheRest() throws Exception {
+    for (int i = 0; i < 7; i++) {
+      queue.enqueue(AnalyticsEventQueue.Event.track("event " + i, "user", "index", String.valueOf(i)));
+    }
+    for (int first = 0; first < 6; first += BATCH_SIZE) {
+      assertEvents(takeRequest(), first, BATCH_SIZE);
+    }
+
+    queue.flush();
+    Request request = takeRequest();
+    assertEvents(request, 6, 1);
+    assertEquals("Basic d2tfdGVzdDo=", request.authorization);
+    assertEquals("gzip", request.contentEncoding);
+    awaitFlushedCount(7);
+    assertEquals(0, requests.size());
+  }
+
+  @Test
+  public void flush_retriesAfterServerErrors() throws Exception {
+    responseCodes.add(500);
+    responseCodes.add(429);
+    queue.enqueue(AnalyticsEventQueue.Event.screen("map", "user"));
+
+    queue.flush();
+    String messageId = messageId(takeRequest());
+    queue.flush();
+    assertEquals(messageId, messageId(takeRequest()));
+    assertEquals(0, queue.getFlushedCount());
+
+    queue.flush();
+    assertEquals(messageId, messageId(takeRequest()));
+    awaitFlushedCount(1);
+    assertEquals(0, queue.getDroppedCount());
+  }
+
+  @Test
+  public void flush_dropsRejectedBatches() throws Exception {
+    responseCodes.add(400);
+    queue.enqueue(AnalyticsEventQueue.Event.identify("user", "name", "Ada"));
+    queue.flush();
+    assertEquals("identify", takeRequest().events.get(0).getAsJsonObject().get("type").getAsString());
+
+    // the rejected event isn't sent again, only the next one is
+    queue.enqueue(AnalyticsEventQueue.Event.track("event 0", "user", "index", "0"));
+    queue.flush();
+    assertEvents(takeRequest(), 0, 1);
+    awaitFlushedCount(1);
+    assertEquals(1, queue.getDroppedCount());
+  }
+
+  @Test
+  public void encodeBase64_matchesTheJavaEncoder() {
+    Random random = new Random(3);
+    for (int length = 0; length < 20; length++) {
+      byte[] bytes = new byte[length];
+      random.nextBytes(bytes);
+      assertEquals(Base64.getEncoder().encodeToString(bytes), SegmentBatchUploader.encodeBase64(bytes));
+    }
+  }
+
+  private Request takeRequest() throws InterruptedException {
+    Request request = requests.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+    assertNotNull("No upload arrived", request);
+    return request;
+  }
+
+  private void awaitFlushedCount(long count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT;
+    while (queue.getFlushedCount() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(count, queue.getFlushedCount());
+  }
+
+  private static void assertEvents(Request request, int first, int count) {
+    assertEquals(count, request.events.size());
+    for (int i = 0; i < count; i++) {
+      JsonObject event = request.events.get(i).getAsJsonObject();
+      assertEquals("track", event.get("type").getAsString());
+      assertEquals("event " + (first + i), event.get("event").getAsString());
+      assertEquals(String.valueOf(first + i), event.getAsJsonObject("properties").get("index").getAsString());
+    }
+  }
+
+  private static String messageId(Request request) {
+    assertEquals(1, request.events.size());
+    return request.events.get(0).getAsJsonObject().get("messageId").getAsString();
+  }
+
+  private static class Request {
+
+    private final String authorization;
+    private final String contentEncoding;
+    private final JsonArray events;
+
+    Request(HttpExchange exchange) throws IOException {
+      authorization = exchange.getRequestHeaders().getFirst("Authorization");
+      contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+      InputStream input = new GZIPInputStream(exchange.getRequestBody());
+      ByteArrayOutputStream json = new ByteArrayOutputStream();
+      try {
+        byte[] buffer = new byte[4096];
+        int count;
+        while ((count = input.read(buffer)) != -1) {
+          json.write(buffer, 0, count);
+        }
+      } finally {
+        input.close();
+      }
+      events = new JsonParser().parse(new String(json.toByteArray(), UTF_8)).getAsJsonObject()
+        .getAsJsonArray("batch");
+    }
+  }
+}